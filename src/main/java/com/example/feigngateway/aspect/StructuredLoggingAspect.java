@@ -8,13 +8,18 @@ import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Pointcut;
 import org.slf4j.MDC;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import java.util.Arrays;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 @Slf4j
 @Aspect
@@ -58,6 +63,17 @@ public class StructuredLoggingAspect {
             try {
                 Object result = joinPoint.proceed();
                 
+                if (result instanceof CompletableFuture<?> future) {
+                    // Async forward: MVC completes the response when the future does
+                    recordMetricsOnCompletion(future, serviceName, startTime);
+                    return result;
+                }
+                if (request.isAsyncStarted()) {
+                    // The response is completed later on another thread
+                    recordMetricsOnCompletion(request, serviceName, startTime);
+                    return result;
+                }
+                
                 long duration = System.currentTimeMillis() - startTime;
                 logStructuredResponse(result, duration, true, null);
                 
@@ -128,6 +144,45 @@ public class StructuredLoggingAspect {
         }
     }
     
+    private void recordMetricsOnCompletion(CompletableFuture<?> future, String serviceName, long startTime) {
+        future.whenComplete((value, error) -> {
+            long duration = System.currentTimeMillis() - startTime;
+            boolean success = error == null 
+                && !(value instanceof ResponseEntity<?> entity && entity.getStatusCode().is5xxServerError());
+            log.info("Async request completed - duration: {}ms, success: {}", duration, success);
+            recordMetrics(serviceName, duration, success);
+        });
+    }
+    
+    private void recordMetricsOnCompletion(HttpServletRequest request, String serviceName, long startTime) {
+        request.getAsyncContext().addListener(new AsyncListener() {
+            private boolean failed;
+            
+            @Override
+            public void onComplete(AsyncEvent event) {
+                long duration = System.currentTimeMillis() - startTime;
+                int status = ((HttpServletResponse) event.getSuppliedResponse()).getStatus();
+                boolean success = !failed && status < 500;
+                log.info("Async request completed - duration: {}ms, status: {}", duration, status);
+                recordMetrics(serviceName, duration, success);
+            }
+            
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                failed = true;
+            }
+            
+            @Override
+            public void onError(AsyncEvent event) {
+                failed = true;
+            }
+            
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+    }
+    
     private String extractServiceName(String requestUri) {
         try {
             String[] pathParts = requestUri.split("/");
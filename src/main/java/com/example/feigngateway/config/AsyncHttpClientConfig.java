@@ -0,0 +1,54 @@
+package com.example.feigngateway.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(prefix = "gateway.proxy", name = "engine", havingValue = "non-blocking")
+@RequiredArgsConstructor
+@Slf4j
+public class AsyncHttpClientConfig {
+
+    private final GatewayProperties gatewayProperties;
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpAsyncClient asyncHttpClient() {
+        GatewayProperties.Performance.ConnectionPool pool = gatewayProperties.getPerformance().getConnectionPool();
+        
+        PoolingAsyncClientConnectionManager connectionManager = PoolingAsyncClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(pool.getMaxTotal())
+                .setMaxConnPerRoute(pool.getMaxPerRoute())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(pool.getConnectTimeout()))
+                        .setValidateAfterInactivity(TimeValue.ofMilliseconds(pool.getValidateAfterInactivity()))
+                        .build())
+                .build();
+        
+        CloseableHttpAsyncClient client = HttpAsyncClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(pool.getConnectionRequestTimeout()))
+                        .setResponseTimeout(Timeout.ofMilliseconds(pool.getReadTimeout()))
+                        .build())
+                .evictIdleConnections(TimeValue.ofSeconds(pool.getKeepAliveTime()))
+                .disableAutomaticRetries()
+                .build();
+        client.start();
+        
+        log.info("Async HTTP client started with max total connections: {}, max per route: {}", 
+                pool.getMaxTotal(), pool.getMaxPerRoute());
+        
+        return client;
+    }
+}
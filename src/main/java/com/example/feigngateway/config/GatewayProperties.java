@@ -1,17 +1,21 @@
 package com.example.feigngateway.config;
 
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
 import org.springframework.validation.annotation.Validated;
 
 import java.time.Duration;
 import java.util.List;
 
 @Data
+@Component
 @Validated
 @ConfigurationProperties(prefix = "gateway")
 public class GatewayProperties {
@@ -22,6 +26,9 @@ public class GatewayProperties {
     @NotNull
     private Performance performance = new Performance();
     
+    @NotNull
+    private Proxy proxy = new Proxy();
+    
     @NotNull
     private Security security = new Security();
     
@@ -67,6 +74,24 @@ public class GatewayProperties {
         @NotNull
         private RateLimiting rateLimiting = new RateLimiting();
         
+        @NotNull
+        private ConcurrencyLimit concurrencyLimit = new ConcurrencyLimit();
+        
+        @NotNull
+        private Bulkhead bulkhead = new Bulkhead();
+        
+        @NotNull
+        private LoadShedding loadShedding = new LoadShedding();
+        
+        @NotNull
+        private Retry retry = new Retry();
+        
+        @NotNull
+        private Hedging hedging = new Hedging();
+        
+        @NotNull
+        private Coalescing coalescing = new Coalescing();
+        
         @Data
         public static class ConnectionPool {
             @Min(1)
@@ -84,6 +109,30 @@ public class GatewayProperties {
             @Min(10)
             @Max(300)
             private int keepAliveTime = 30;
+            
+            // Upstream timeouts in milliseconds; services can override connect and read timeouts in the whitelist
+            @Min(100)
+            @Max(60000)
+            private int connectTimeout = 5000;
+            
+            @Min(100)
+            @Max(300000)
+            private int readTimeout = 10000;
+            
+            // How long a request waits to lease a pooled connection
+            @Min(0)
+            @Max(60000)
+            private int connectionRequestTimeout = 2000;
+            
+            // Keep-alive connections opened per upstream origin at startup, before readiness is reported; 0 disables
+            @Min(0)
+            @Max(100)
+            private int prewarmConnections = 2;
+            
+            // Upper bound on connection warm-up, in milliseconds; the instance reports ready once it elapses
+            @Min(100)
+            @Max(120000)
+            private long prewarmTimeout = 10000;
         }
         
         @Data
@@ -103,36 +152,304 @@ public class GatewayProperties {
             @Min(30)
             @Max(300)
             private int keepAliveSeconds = 60;
+            
+            // VIRTUAL runs Tomcat request handling and the gateway executors on virtual threads
+            @NotNull
+            private ExecutionMode executionMode = ExecutionMode.PLATFORM;
+            
+            // Cap on in-flight calls per upstream origin, so unbounded virtual threads can't overrun a backend
+            @Min(1)
+            @Max(10000)
+            private int maxConcurrentPerUpstream = 200;
+            
+            // How long a request waits for an upstream permit before failing with 503, in milliseconds
+            @Min(0)
+            @Max(60000)
+            private long upstreamAcquireTimeout = 1000;
         }
         
+        // Rejects routed requests with 503 before any work is done once the gateway is overloaded,
+        // lowest priority first; health and metrics endpoints are never shed
+        @Data
+        public static class LoadShedding {
+            private boolean enabled = true;
+            
+            // Routed requests the gateway can have in flight at its target latency
+            @Min(1)
+            @Max(100000)
+            private int maxConcurrentRequests = 200;
+            
+            // Request latency (ms) above which the in-flight capacity is scaled down proportionally
+            @Min(1)
+            @Max(300000)
+            private long targetLatency = 2000;
+            
+            // Load, in percent of capacity, above which each priority is shed; CRITICAL is never shed
+            @Min(1)
+            @Max(1000)
+            private int lowPriorityThreshold = 50;
+            
+            @Min(1)
+            @Max(1000)
+            private int normalPriorityThreshold = 80;
+            
+            @Min(1)
+            @Max(1000)
+            private int highPriorityThreshold = 100;
+            
+            // Request header naming the priority (critical, high, normal, low); overrides the service's priority
+            @NotBlank
+            private String priorityHeader = "X-Request-Priority";
+            
+            @NotNull
+            private RequestPriority defaultPriority = RequestPriority.NORMAL;
+        }
+        
+        // Gateway-level retries of failed upstream calls. Only idempotent methods, or requests carrying the
+        // idempotency key header, are retried, and a per-service budget caps retries at a share of live traffic
+        @Data
+        public static class Retry {
+            private boolean enabled = true;
+            
+            // Upstream calls per request, the first one included; 1 disables retries
+            @Min(1)
+            @Max(10)
+            private int maxAttempts = 3;
+            
+            // Backoff before the first retry (ms), multiplied for each later one up to maxBackoff; full jitter applies
+            @Min(0)
+            @Max(60000)
+            private long initialBackoff = 50;
+            
+            @Min(0)
+            @Max(60000)
+            private long maxBackoff = 1000;
+            
+            @DecimalMin("1.0")
+            @DecimalMax("10.0")
+            private double backoffMultiplier = 2.0;
+            
+            // Retries earned per 100 requests to a service; each retry spends one
+            @Min(0)
+            @Max(100)
+            private int budgetPercent = 20;
+            
+            // Retries the budget holds when full; it starts full so quiet services can still retry
+            @Min(0)
+            @Max(10000)
+            private int budgetCapacity = 10;
+            
+            // Upstream statuses worth retrying; connect failures and timeouts always are
+            @NotNull
+            private List<Integer> retryableStatuses = List.of(502, 503, 504);
+            
+            // Header marking a non-idempotent request as safe to retry
+            @NotBlank
+            private String idempotencyKeyHeader = "Idempotency-Key";
+        }
+        
+        // Opt-in hedging of object-mode GETs: a second request is sent once the first is slower than the delay,
+        // and whichever answers first is used
+        @Data
+        public static class Hedging {
+            private boolean enabled = false;
+            
+            // Fixed hedge delay (ms); 0 uses the service's observed p95 latency
+            @Min(0)
+            @Max(60000)
+            private long delay = 0;
+            
+            // Lower bound on the p95-based delay (ms)
+            @Min(1)
+            @Max(60000)
+            private long minDelay = 10;
+            
+            // Latency samples a service needs before p95-based hedging starts
+            @Min(1)
+            @Max(10000)
+            private int minSamples = 20;
+            
+            // Hedges allowed per 100 eligible requests
+            @Min(0)
+            @Max(100)
+            private int budgetPercent = 10;
+        }
+        
+        // Single-flight GETs: while one upstream call for a URL is in flight, identical GETs wait for its
+        // response instead of sending their own
+        @Data
+        public static class Coalescing {
+            private boolean enabled = true;
+            
+            // Longest a request waits for the in-flight call (ms) before calling the upstream itself
+            @Min(1)
+            @Max(60000)
+            private long maxWait = 1000;
+        }
+        
+        // Cap on the request threads (Tomcat or gatewayTaskExecutor) one service may hold, so a slow
+        // service can't starve the others
+        @Data
+        public static class Bulkhead {
+            private boolean enabled = true;
+            
+            @Min(1)
+            @Max(10000)
+            private int maxConcurrentCalls = 50;
+            
+            // How long a call waits for a free slot before failing with 503 (ms); 0 fails at once
+            @Min(0)
+            @Max(10000)
+            private long maxWaitDuration = 10;
+        }
+        
+        // Adaptive in-flight limit per upstream service, applied below the per-origin cap of the thread pool.
+        // Off by default: initialLimit starts well below the connection pool's max-per-route.
+        @Data
+        public static class ConcurrencyLimit {
+            private boolean enabled = false;
+            
+            @Min(1)
+            @Max(10000)
+            private int initialLimit = 20;
+            
+            @Min(1)
+            @Max(10000)
+            private int minLimit = 5;
+            
+            @Min(1)
+            @Max(10000)
+            private int maxLimit = 200;
+            
+            // How far latency may rise over its long-term average before the limit shrinks (2.0 = double)
+            @DecimalMin("1.0")
+            @DecimalMax("10.0")
+            private double rttTolerance = 2.0;
+            
+            // Factor the limit is multiplied by after a failed call
+            @DecimalMin("0.5")
+            @DecimalMax("0.99")
+            private double backoffRatio = 0.9;
+            
+            // How long a request over the limit waits for a slot before failing with 503 (ms); 0 rejects at once.
+            // The non-blocking engine never waits.
+            @Min(0)
+            @Max(10000)
+            private long maxQueueWait = 50;
+            
+            @Min(0)
+            @Max(10000)
+            private int maxQueued = 100;
+        }
+        
+        // Shared cache of upstream GET responses, honoring Cache-Control, Expires and Vary
         @Data
         public static class Cache {
             private boolean enabled = true;
             
+            // Upper bound on how long any response stays fresh (s), whatever the upstream allows
             @Min(60)
             @Max(3600)
             private int ttl = 300;
             
+            // URLs whose Vary header names are remembered
             @Min(100)
             @Max(10000)
             private int maxSize = 1000;
+            
+            // Total size of the cached responses, headers included (bytes); least valuable entries are evicted past it
+            @Min(1048576)
+            private long maxWeight = 67108864;
+            
+            // Larger responses are relayed but not cached (bytes)
+            @Min(1024)
+            @Max(104857600)
+            private int maxEntrySize = 1048576;
+            
+            // How long after going stale a response is still served while it is refreshed in the background (s)
+            @Min(0)
+            @Max(86400)
+            private int staleWhileRevalidate = 0;
+            
+            // How long after going stale a response is still served when the upstream fails or its circuit is open (s)
+            @Min(0)
+            @Max(86400)
+            private int staleIfError = 0;
+            
+            // How long after going stale a response with an ETag or Last-Modified is kept to be revalidated
+            // with a conditional request rather than fetched again in full (s)
+            @Min(0)
+            @Max(604800)
+            private int revalidationRetention = 3600;
+            
+            @NotNull
+            private OffHeap offHeap = new OffHeap();
+            
+            // Second tier for large bodies, held in direct memory outside the Java heap so they add nothing to GC
+            // work. Its capacity comes on top of maxWeight and counts against -XX:MaxDirectMemorySize.
+            @Data
+            public static class OffHeap {
+                private boolean enabled = false;
+                
+                // Direct memory for bodies (bytes), allocated a slab at a time as the tier fills
+                @Min(16777216)
+                private long capacity = 268435456;
+                
+                @Min(1048576)
+                @Max(1073741824)
+                private int slabSize = 16777216;
+                
+                // Bodies are stored in blocks of this size (bytes); the unused end of a body's last block is wasted
+                @Min(1024)
+                @Max(1048576)
+                private int blockSize = 16384;
+                
+                // Bodies at least this large go off-heap, smaller ones stay in the heap tier (bytes)
+                @Min(0)
+                private int minEntrySize = 65536;
+                
+                // Largest body kept off-heap (bytes); responses up to it are captured even above cache.maxEntrySize
+                @Min(1024)
+                @Max(104857600)
+                private int maxEntrySize = 8388608;
+            }
         }
         
         @Data
         public static class CircuitBreaker {
             private boolean enabled = true;
             
+            // Count-based window of the most recent calls the rates are computed over
+            @Min(1)
+            @Max(1000)
+            private int slidingWindowSize = 100;
+            
+            // Calls the window must hold before the rates are evaluated
+            @Min(1)
+            @Max(1000)
+            private int minimumNumberOfCalls = 5;
+            
+            // Percentages of failed / slow calls in the window that open the circuit
+            @Min(1)
+            @Max(100)
+            private int failureRateThreshold = 50;
+            
             @Min(1)
-            @Max(20)
-            private int failureThreshold = 5;
+            @Max(100)
+            private int slowCallRateThreshold = 100;
             
+            // Calls taking at least this long (ms) count as slow
+            @Min(1)
+            private long slowCallDuration = 5000;
+            
+            // Time (ms) the circuit stays open before trial calls are let through
             @Min(10000)
             @Max(300000)
             private long timeoutDuration = 60000;
             
             @Min(1)
-            @Max(10)
-            private int successThreshold = 3;
+            @Max(100)
+            private int permittedCallsInHalfOpen = 3;
         }
         
         @Data
@@ -146,6 +463,130 @@ public class GatewayProperties {
             @Min(10)
             @Max(1000)
             private int burstCapacity = 100;
+            
+            // Separate bucket per client key within each service
+            @Min(1)
+            @Max(10000)
+            private int clientRequestsPerMinute = 100;
+            
+            @Min(1)
+            @Max(1000)
+            private int clientBurstCapacity = 20;
+            
+            // Header identifying the client; the remote address is used when it is absent
+            private String clientKeyHeader = "X-Client-Id";
+            
+            // Upper bound on tracked buckets; idle (full) buckets are evicted first
+            @Min(100)
+            @Max(1000000)
+            private int maxTrackedKeys = 10000;
+            
+            // Where the limits are counted: NONE keeps them per gateway node, the others share them across replicas
+            private SharedStore sharedStore = SharedStore.NONE;
+            
+            @NotNull
+            private Distributed distributed = new Distributed();
+        }
+        
+        @Data
+        public static class Distributed {
+            private String redisHost = "localhost";
+            
+            @Min(1)
+            @Max(65535)
+            private int redisPort = 6379;
+            
+            private String keyPrefix = "gateway:rate-limit:";
+            
+            // Permits taken from the shared store per round trip and then handed out locally
+            @Min(1)
+            @Max(1000)
+            private int leaseSize = 10;
+            
+            // Connect and read timeout (ms) for the store
+            @Min(10)
+            @Max(10000)
+            private int timeout = 200;
+            
+            // After a store failure, the local limiter is used for this long (ms) before the store is tried again
+            @Min(100)
+            @Max(300000)
+            private long retryInterval = 5000;
+        }
+    }
+    
+    public enum ExecutionMode {
+        PLATFORM,
+        VIRTUAL
+    }
+    
+    public enum RequestPriority {
+        CRITICAL,
+        HIGH,
+        NORMAL,
+        LOW
+    }
+    
+    public enum SharedStore {
+        NONE,
+        IN_MEMORY,
+        REDIS
+    }
+    
+    public enum ForwardingEngine {
+        BLOCKING,
+        NON_BLOCKING
+    }
+    
+    @Data
+    public static class Proxy {
+        // Stream upstream bytes to the client with status and headers preserved. Upstream 4xx/5xx are then
+        // relayed as the upstream sent them rather than as the gateway's ErrorResponse.
+        private boolean passthrough = false;
+        
+        @Min(1024)
+        @Max(1048576)
+        private int bufferSize = 8192;
+        
+        // Largest request body streamed upstream, in bytes
+        @Min(1024)
+        private long maxRequestBodySize = 10485760;
+        
+        // NON_BLOCKING relays passthrough requests with async servlet I/O and the async HTTP client
+        @NotNull
+        private ForwardingEngine engine = ForwardingEngine.BLOCKING;
+        
+        // Forward object-mode and multipart requests on gatewayTaskExecutor, releasing the servlet thread
+        private boolean asyncForwarding = false;
+        
+        // Upper bound on an async forward or a whole non-blocking exchange, body relay included.
+        // Answered with 504 if no response has started, in milliseconds
+        @Min(1000)
+        @Max(600000)
+        private long asyncTimeout = 30000;
+        
+        @NotNull
+        private Deadline deadline = new Deadline();
+        
+        // Deadlines set by clients. An already-passed deadline is answered with 504 before any upstream work,
+        // and the remaining budget bounds the upstream call and is passed on in timeoutHeader
+        @Data
+        public static class Deadline {
+            private boolean enabled = true;
+            
+            // Absolute deadline: epoch milliseconds or an ISO-8601 instant
+            @NotBlank
+            private String deadlineHeader = "X-Request-Deadline";
+            
+            // Relative budget in milliseconds
+            @NotBlank
+            private String timeoutHeader = "X-Request-Timeout";
+            
+            // Also honor gRPC-style grpc-timeout values such as 250m or 5S
+            private boolean grpcTimeout = true;
+            
+            // Send the remaining budget upstream in timeoutHeader
+            private boolean propagate = true;
         }
     }
     
@@ -5,6 +5,8 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @Data
 @Component
@@ -14,10 +16,122 @@ public class GatewayWhitelistProperties {
     private boolean enabled = true;
     private List<ServiceConfig> services;
     
+    // The named service's overrides of one gateway.performance policy, e.g. ServiceConfig::getRetry. Services
+    // merge them over the global policy when they first build theirs; none() stands for a service without any.
+    public <T> T serviceOverrides(String serviceName, Function<ServiceConfig, T> section, Supplier<T> none) {
+        if (services != null) {
+            for (ServiceConfig service : services) {
+                T overrides = service.getName() != null && service.getName().equals(serviceName) ? section.apply(service) : null;
+                if (overrides != null) {
+                    return overrides;
+                }
+            }
+        }
+        return none.get();
+    }
+    
     @Data
     public static class ServiceConfig {
         private String name;
         private String baseUrl;
         private List<String> endpoints;
+        
+        // Optional overrides of gateway.performance.connection-pool for this service's upstream origin
+        private Integer maxConnections;
+        private Integer connectTimeout; // ms
+        private Integer readTimeout; // ms
+        
+        // Optional upper bounds on the upstream call per endpoint pattern, e.g. a short one for lookups and a
+        // long one for exports; a tighter client deadline still wins
+        private List<RouteTimeout> routeTimeouts;
+        
+        // Optional response-cache settings per endpoint pattern; routes not listed follow gateway.performance.cache
+        private List<RouteCache> routeCaches;
+        
+        // Send this service's traffic over the HTTP/2 transport, falling back to HTTP/1.1 if h2 isn't negotiated
+        private boolean http2 = false;
+        
+        // Load-shedding priority of this service's requests; gateway.performance.load-shedding.default-priority if unset
+        private GatewayProperties.RequestPriority priority;
+        
+        // Optional per-service overrides of gateway.performance.circuit-breaker
+        private CircuitBreaker circuitBreaker;
+        
+        // Optional per-service overrides of gateway.performance.concurrency-limit
+        private ConcurrencyLimit concurrencyLimit;
+        
+        // Optional per-service overrides of gateway.performance.bulkhead
+        private Bulkhead bulkhead;
+        
+        // Optional per-service overrides of gateway.performance.retry
+        private Retry retry;
+        
+        // Optional per-service overrides of gateway.performance.hedging
+        private Hedging hedging;
+    }
+    
+    @Data
+    public static class RouteTimeout {
+        // One of the service's endpoints patterns, as written there
+        private String endpoint;
+        private Long timeout; // ms
+    }
+    
+    @Data
+    public static class RouteCache {
+        // One of the service's endpoints patterns, as written there
+        private String endpoint;
+        private Boolean enabled;
+        // Freshness lifetime for responses without Cache-Control max-age or Expires; these aren't cached otherwise
+        private Integer ttl; // seconds
+        // Stale windows, in place of the upstream's stale-while-revalidate / stale-if-error and the global defaults
+        private Integer staleWhileRevalidate; // seconds
+        private Integer staleIfError; // seconds
+    }
+    
+    @Data
+    public static class CircuitBreaker {
+        private Boolean enabled;
+        private Integer slidingWindowSize;
+        private Integer minimumNumberOfCalls;
+        private Integer failureRateThreshold;
+        private Integer slowCallRateThreshold;
+        private Long slowCallDuration; // ms
+        private Long timeoutDuration; // ms
+        private Integer permittedCallsInHalfOpen;
+    }
+    
+    @Data
+    public static class ConcurrencyLimit {
+        private Boolean enabled;
+        private Integer initialLimit;
+        private Integer minLimit;
+        private Integer maxLimit;
+        private Double rttTolerance;
+        private Double backoffRatio;
+        private Long maxQueueWait; // ms
+        private Integer maxQueued;
+    }
+    
+    @Data
+    public static class Bulkhead {
+        private Boolean enabled;
+        private Integer maxConcurrentCalls;
+        private Long maxWaitDuration; // ms
+    }
+    
+    @Data
+    public static class Retry {
+        private Boolean enabled;
+        private Integer maxAttempts;
+        private Long initialBackoff; // ms
+        private Long maxBackoff; // ms
+    }
+    
+    @Data
+    public static class Hedging {
+        private Boolean enabled;
+        private Long delay; // ms
+        private Integer budgetPercent;
     }
 }
@@ -1,79 +1,204 @@
 package com.example.feigngateway.config;
 
+import com.example.feigngateway.service.DeadlineService;
+import com.example.feigngateway.service.Http2UpstreamTransport;
+import com.example.feigngateway.service.RequestDeadline;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.HttpClients;
 import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
-import org.apache.hc.client5.http.socket.ConnectionSocketFactory;
-import org.apache.hc.client5.http.socket.PlainConnectionSocketFactory;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
 import org.apache.hc.client5.http.ssl.SSLConnectionSocketFactory;
-import org.apache.hc.core5.http.config.Registry;
-import org.apache.hc.core5.http.config.RegistryBuilder;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.protocol.HttpContext;
 import org.apache.hc.core5.ssl.SSLContextBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
 import javax.net.ssl.SSLContext;
+import java.net.URI;
 import java.security.KeyManagementException;
+import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
-import java.util.concurrent.TimeUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 @Configuration
+@RequiredArgsConstructor
+@Slf4j
 public class HttpClientConfig {
 
-    @Bean
-    public PoolingHttpClientConnectionManager connectionManager() {
-        try {
-            SSLContext sslContext = SSLContextBuilder.create()
-                    .loadTrustMaterial((chain, authType) -> true)
-                    .build();
+    private final GatewayProperties gatewayProperties;
+    private final GatewayWhitelistProperties whitelistProperties;
 
-            Registry<ConnectionSocketFactory> socketFactoryRegistry = RegistryBuilder.<ConnectionSocketFactory>create()
-                    .register("https", new SSLConnectionSocketFactory(sslContext))
-                    .register("http", new PlainConnectionSocketFactory())
-                    .build();
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager connectionManager() {
+        GatewayProperties.Performance.ConnectionPool pool = gatewayProperties.getPerformance().getConnectionPool();
+        ConnectionConfig defaultConfig = connectionConfig(pool, pool.getConnectTimeout(), pool.getReadTimeout());
 
-            PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(socketFactoryRegistry);
-            
-            // Connection pool settings
-            connectionManager.setMaxTotal(500); // Maximum total connections
-            connectionManager.setDefaultMaxPerRoute(100); // Maximum connections per route
-            connectionManager.setValidateAfterInactivity(2000); // Validate connections after inactivity
-            
-            return connectionManager;
-        } catch (NoSuchAlgorithmException | KeyManagementException e) {
-            throw new RuntimeException("Failed to create SSL context", e);
+        // Per-service overrides are keyed by upstream origin, since that is what the pool partitions on
+        Map<HttpHost, ConnectionConfig> upstreamConfigs = new HashMap<>();
+        Map<HttpHost, Integer> upstreamMaxConnections = new HashMap<>();
+        for (GatewayWhitelistProperties.ServiceConfig service : configuredServices()) {
+            HttpHost upstream = upstreamHost(service.getBaseUrl());
+            if (upstream == null) {
+                continue;
+            }
+            if (service.getConnectTimeout() != null || service.getReadTimeout() != null) {
+                ConnectionConfig config = connectionConfig(pool,
+                        Objects.requireNonNullElse(service.getConnectTimeout(), pool.getConnectTimeout()),
+                        Objects.requireNonNullElse(service.getReadTimeout(), pool.getReadTimeout()));
+                if (upstreamConfigs.putIfAbsent(upstream, config) != null) {
+                    log.warn("Timeouts for {} already configured by another service; ignoring those of {}", upstream, service.getName());
+                }
+            }
+            if (service.getMaxConnections() != null
+                    && upstreamMaxConnections.putIfAbsent(upstream, service.getMaxConnections()) != null) {
+                log.warn("Pool limit for {} already configured by another service; ignoring that of {}", upstream, service.getName());
+            }
         }
+
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setSSLSocketFactory(new SSLConnectionSocketFactory(trustAllSslContext()))
+                .setMaxConnTotal(pool.getMaxTotal())
+                .setMaxConnPerRoute(pool.getMaxPerRoute())
+                .setDefaultConnectionConfig(defaultConfig)
+                .setConnectionConfigResolver(route -> upstreamConfigs.getOrDefault(route.getTargetHost(), defaultConfig))
+                .build();
+        upstreamMaxConnections.forEach((upstream, max) -> connectionManager.setMaxPerRoute(routeFor(upstream), max));
+
+        log.info("HTTP connection pool initialized with max total: {}, max per route: {}, per-service overrides: {}",
+                pool.getMaxTotal(), pool.getMaxPerRoute(), upstreamConfigs.size() + upstreamMaxConnections.size());
+
+        return connectionManager;
     }
 
-    @Bean
+    @Bean(destroyMethod = "close")
     public CloseableHttpClient httpClient(PoolingHttpClientConnectionManager connectionManager) {
+        GatewayProperties.Performance.ConnectionPool pool = gatewayProperties.getPerformance().getConnectionPool();
         return HttpClients.custom()
                 .setConnectionManager(connectionManager)
                 .setConnectionManagerShared(true)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(pool.getConnectionRequestTimeout()))
+                        .build())
                 .evictExpiredConnections()
-                .evictIdleConnections(30, TimeUnit.SECONDS)
-                .setRetryHandler((exception, executionCount, context) -> {
-                    // Retry up to 3 times for connection issues
-                    return executionCount <= 3 && (exception instanceof java.net.ConnectException ||
-                            exception instanceof java.net.SocketTimeoutException);
-                })
+                .evictIdleConnections(TimeValue.ofSeconds(pool.getKeepAliveTime()))
+                // Retries are decided per service by RetryService, which knows the method and the retry budget
+                .disableAutomaticRetries()
                 .build();
     }
 
     @Bean
     public HttpComponentsClientHttpRequestFactory requestFactory(CloseableHttpClient httpClient) {
-        HttpComponentsClientHttpRequestFactory factory = new HttpComponentsClientHttpRequestFactory();
-        factory.setHttpClient(httpClient);
-        factory.setConnectTimeout(5000); // 5 seconds
-        factory.setReadTimeout(10000); // 10 seconds
-        factory.setConnectionRequestTimeout(2000); // 2 seconds
-        return factory;
+        // Timeouts come from the client's request and connection configs so per-service overrides apply
+        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+        int defaultReadTimeout = gatewayProperties.getPerformance().getConnectionPool().getReadTimeout();
+        Map<HttpHost, Integer> readTimeouts = new HashMap<>();
+        for (GatewayWhitelistProperties.ServiceConfig service : configuredServices()) {
+            HttpHost upstream = upstreamHost(service.getBaseUrl());
+            if (upstream != null && service.getReadTimeout() != null) {
+                readTimeouts.putIfAbsent(upstream, service.getReadTimeout());
+            }
+        }
+        requestFactory.setHttpContextFactory((method, uri) ->
+                deadlineContext(readTimeouts.getOrDefault(upstreamHost(uri.toString()), defaultReadTimeout)));
+        return requestFactory;
+    }
+
+    @Bean(destroyMethod = "close")
+    public Http2UpstreamTransport http2UpstreamTransport() {
+        return new Http2UpstreamTransport(gatewayProperties, whitelistProperties, trustAllSslContext());
     }
 
     @Bean
-    public RestTemplate restTemplate(HttpComponentsClientHttpRequestFactory requestFactory) {
-        return new RestTemplate(requestFactory);
+    public RestTemplate restTemplate(HttpComponentsClientHttpRequestFactory requestFactory, Http2UpstreamTransport http2UpstreamTransport,
+                                     DeadlineService deadlineService) {
+        // Origins of services marked http2 go through the HTTP/2 transport, everything else through the pool
+        return new RestTemplate((uri, method) -> {
+            ClientHttpRequestFactory http2 = http2UpstreamTransport.requestFactoryFor(uri, requestFactory);
+            ClientHttpRequest request = (http2 != null ? http2 : requestFactory).createRequest(uri, method);
+            String remaining = deadlineService.upstreamTimeoutHeaderValue();
+            if (remaining != null) {
+                request.getHeaders().set(deadlineService.getUpstreamTimeoutHeader(), remaining);
+            }
+            return request;
+        });
+    }
+
+    // Route used by the client for a plain (non-proxied) request to the given origin
+    public static HttpRoute routeFor(HttpHost upstream) {
+        return new HttpRoute(upstream, null, "https".equalsIgnoreCase(upstream.getSchemeName()));
+    }
+
+    // Origin of a base URL with the default port filled in, matching the target host of the client's routes
+    public static HttpHost upstreamHost(String baseUrl) {
+        if (baseUrl == null || baseUrl.isBlank()) {
+            return null;
+        }
+        try {
+            URI uri = URI.create(baseUrl);
+            String scheme = uri.getScheme() != null ? uri.getScheme().toLowerCase() : "http";
+            int port = uri.getPort() != -1 ? uri.getPort() : ("https".equals(scheme) ? 443 : 80);
+            return uri.getHost() != null ? new HttpHost(scheme, uri.getHost(), port) : null;
+        } catch (IllegalArgumentException e) {
+            log.warn("Ignoring connection settings for invalid base URL {}", baseUrl);
+            return null;
+        }
+    }
+
+    private List<GatewayWhitelistProperties.ServiceConfig> configuredServices() {
+        return whitelistProperties.getServices() != null ? whitelistProperties.getServices() : List.of();
+    }
+
+    // Request config for a request with a deadline: neither the pool lease nor the wait for the response may
+    // outlast it, nor exceed the origin's read timeout. Null leaves the client's defaults and the per-route
+    // connection configs in charge.
+    private HttpContext deadlineContext(int readTimeout) {
+        RequestDeadline deadline = RequestDeadline.current();
+        if (deadline == null) {
+            return null;
+        }
+        // A zero timeout means no timeout to the client, so an exhausted budget still gets a millisecond
+        long remaining = Math.max(1, deadline.remainingMillis());
+        long leaseTimeout = Math.min(remaining, gatewayProperties.getPerformance().getConnectionPool().getConnectionRequestTimeout());
+        HttpClientContext context = HttpClientContext.create();
+        context.setRequestConfig(RequestConfig.custom()
+                .setConnectionRequestTimeout(Timeout.ofMilliseconds(leaseTimeout))
+                .setResponseTimeout(Timeout.ofMilliseconds(Math.min(remaining, readTimeout)))
+                .build());
+        return context;
+    }
+
+    private static ConnectionConfig connectionConfig(GatewayProperties.Performance.ConnectionPool pool,
+                                                     int connectTimeout, int readTimeout) {
+        return ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.ofMilliseconds(connectTimeout))
+                .setSocketTimeout(Timeout.ofMilliseconds(readTimeout))
+                .setValidateAfterInactivity(TimeValue.ofMilliseconds(pool.getValidateAfterInactivity()))
+                .build();
+    }
+
+    private static SSLContext trustAllSslContext() {
+        try {
+            return SSLContextBuilder.create()
+                    .loadTrustMaterial((chain, authType) -> true)
+                    .build();
+        } catch (NoSuchAlgorithmException | KeyManagementException | KeyStoreException e) {
+            throw new IllegalStateException("Failed to create SSL context", e);
+        }
     }
 }
@@ -0,0 +1,35 @@
+package com.example.feigngateway.config;
+
+import com.example.feigngateway.service.InMemoryRateLimitStore;
+import com.example.feigngateway.service.RateLimitStore;
+import com.example.feigngateway.service.RedisRateLimitStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@RequiredArgsConstructor
+@Slf4j
+public class RateLimitStoreConfig {
+
+    private final GatewayProperties gatewayProperties;
+
+    @Bean
+    @ConditionalOnProperty(prefix = "gateway.performance.rate-limiting", name = "shared-store", havingValue = "in-memory")
+    public RateLimitStore inMemoryRateLimitStore() {
+        log.info("Rate limits counted in the in-memory shared store");
+        return new InMemoryRateLimitStore();
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "gateway.performance.rate-limiting", name = "shared-store", havingValue = "redis")
+    public RateLimitStore redisRateLimitStore() {
+        GatewayProperties.Performance.Distributed distributed =
+                gatewayProperties.getPerformance().getRateLimiting().getDistributed();
+        log.info("Rate limits shared through Redis at {}:{} with leases of {} permits",
+                distributed.getRedisHost(), distributed.getRedisPort(), distributed.getLeaseSize());
+        return new RedisRateLimitStore(distributed.getRedisHost(), distributed.getRedisPort(), distributed.getTimeout());
+    }
+}
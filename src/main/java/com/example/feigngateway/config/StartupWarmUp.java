@@ -0,0 +1,27 @@
+package com.example.feigngateway.config;
+
+import com.example.feigngateway.service.CacheService;
+import com.example.feigngateway.service.ConnectionPrewarmer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+// Spring Boot publishes ReadinessState.ACCEPTING_TRAFFIC only after application runners return,
+// so /actuator/health/readiness stays down until warm-up has finished or timed out
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StartupWarmUp implements ApplicationRunner {
+
+    private final CacheService cacheService;
+    private final ConnectionPrewarmer connectionPrewarmer;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        log.info("Running startup warm-up before accepting traffic");
+        cacheService.warmUpCaches();
+        connectionPrewarmer.prewarm();
+    }
+}
@@ -1,40 +1,53 @@
 package com.example.feigngateway.config;
 
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadPoolExecutor;
 
 @Configuration
 @EnableAsync
+@RequiredArgsConstructor
 @Slf4j
 public class ThreadPoolConfig {
 
+    private final GatewayProperties gatewayProperties;
+
     @Bean("gatewayTaskExecutor")
     public Executor gatewayTaskExecutor() {
+        if (isVirtualThreadMode()) {
+            return virtualThreadExecutor("Gateway-Async-VT-", 30_000);
+        }
+        
+        GatewayProperties.Performance.ThreadPool threadPool = gatewayProperties.getPerformance().getThreadPool();
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         
         // Core pool size - minimum threads that will be kept alive
-        executor.setCorePoolSize(20);
+        executor.setCorePoolSize(threadPool.getCoreSize());
         
         // Maximum pool size - maximum threads that can be created
-        executor.setMaxPoolSize(100);
+        executor.setMaxPoolSize(threadPool.getMaxSize());
         
         // Queue capacity - number of tasks that can be queued
-        executor.setQueueCapacity(500);
+        executor.setQueueCapacity(threadPool.getQueueCapacity());
         
         // Thread name prefix for easier debugging
         executor.setThreadNamePrefix("Gateway-Async-");
         
         // Keep alive time for idle threads (in seconds)
-        executor.setKeepAliveSeconds(60);
+        executor.setKeepAliveSeconds(threadPool.getKeepAliveSeconds());
         
-        // Rejection policy when queue is full
-        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        // Reject when the queue is full; running on the caller would tie up Tomcat threads and slow every request
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
         
         // Allow core threads to timeout
         executor.setAllowCoreThreadTimeOut(true);
@@ -55,6 +68,10 @@ public class ThreadPoolConfig {
 
     @Bean("loggingTaskExecutor")
     public Executor loggingTaskExecutor() {
+        if (isVirtualThreadMode()) {
+            return virtualThreadExecutor("Gateway-Logging-VT-", 10_000);
+        }
+        
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         
         // Smaller pool for logging tasks
@@ -75,4 +92,34 @@ public class ThreadPoolConfig {
         
         return executor;
     }
+
+    // Runs the attempts of hedged requests. Always on virtual threads: the callers block waiting for them,
+    // so sharing a bounded pool with those callers could starve it
+    @Bean("hedgingTaskExecutor")
+    public Executor hedgingTaskExecutor() {
+        return virtualThreadExecutor("Gateway-Hedge-VT-", 5_000);
+    }
+
+    // Serve inbound requests on virtual threads; upstream fan-out is bounded by UpstreamConcurrencyLimiter instead
+    @Bean
+    @ConditionalOnProperty(prefix = "gateway.performance.thread-pool", name = "execution-mode", havingValue = "virtual")
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        log.info("Tomcat request handling configured to run on virtual threads");
+        return protocolHandler -> protocolHandler.setExecutor(
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("tomcat-vt-", 0).factory()));
+    }
+
+    private boolean isVirtualThreadMode() {
+        return gatewayProperties.getPerformance().getThreadPool().getExecutionMode() == GatewayProperties.ExecutionMode.VIRTUAL;
+    }
+
+    private Executor virtualThreadExecutor(String threadNamePrefix, long terminationTimeoutMillis) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(threadNamePrefix);
+        executor.setVirtualThreads(true);
+        executor.setTaskTerminationTimeout(terminationTimeoutMillis);
+        
+        log.info("Task executor {} initialized on virtual threads", threadNamePrefix);
+        
+        return executor;
+    }
 }
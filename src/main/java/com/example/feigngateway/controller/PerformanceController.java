@@ -1,8 +1,18 @@
 package com.example.feigngateway.controller;
 
+import com.example.feigngateway.service.BulkheadService;
 import com.example.feigngateway.service.CacheService;
 import com.example.feigngateway.service.CircuitBreakerService;
+import com.example.feigngateway.service.ConnectionPoolMonitor;
+import com.example.feigngateway.service.HedgingService;
+import com.example.feigngateway.service.Http2UpstreamTransport;
+import com.example.feigngateway.service.LoadShedder;
 import com.example.feigngateway.service.PerformanceMetricsService;
+import com.example.feigngateway.service.RequestCoalescer;
+import com.example.feigngateway.service.RequestRateLimiter;
+import com.example.feigngateway.service.ResponseCacheService;
+import com.example.feigngateway.service.RetryService;
+import com.example.feigngateway.service.UpstreamConcurrencyLimiter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
@@ -24,6 +34,16 @@ public class PerformanceController {
     private final PerformanceMetricsService metricsService;
     private final CircuitBreakerService circuitBreakerService;
     private final CacheService cacheService;
+    private final UpstreamConcurrencyLimiter upstreamConcurrencyLimiter;
+    private final ConnectionPoolMonitor connectionPoolMonitor;
+    private final Http2UpstreamTransport http2UpstreamTransport;
+    private final RequestRateLimiter requestRateLimiter;
+    private final BulkheadService bulkheadService;
+    private final LoadShedder loadShedder;
+    private final RetryService retryService;
+    private final HedgingService hedgingService;
+    private final ResponseCacheService responseCacheService;
+    private final RequestCoalescer requestCoalescer;
     
     @GetMapping("/stats")
     @Operation(summary = "Get overall performance statistics", 
@@ -33,6 +53,17 @@ public class PerformanceController {
         stats.put("overall", metricsService.getOverallStats());
         stats.put("circuitBreakers", circuitBreakerService.getCircuitBreakerStats());
         stats.put("cacheStats", cacheService.getCacheStats());
+        stats.put("upstreamConcurrency", upstreamConcurrencyLimiter.getStats());
+        stats.put("concurrencyLimits", upstreamConcurrencyLimiter.getServiceLimitStats());
+        stats.put("connectionPool", connectionPoolMonitor.getStats());
+        stats.put("http2Upstreams", http2UpstreamTransport.getStats());
+        stats.put("rateLimiting", requestRateLimiter.getStats());
+        stats.put("bulkheads", bulkheadService.getStats());
+        stats.put("loadShedding", loadShedder.getStats());
+        stats.put("retries", retryService.getStats());
+        stats.put("hedging", hedgingService.getStats());
+        stats.put("responseCache", responseCacheService.getStats());
+        stats.put("coalescing", requestCoalescer.getStats());
         
         return ResponseEntity.ok(stats);
     }
@@ -52,7 +83,7 @@ public class PerformanceController {
     @GetMapping("/circuit-breakers")
     @Operation(summary = "Get circuit breaker status",
                description = "Returns the status of all circuit breakers")
-    public ResponseEntity<String> getCircuitBreakerStatus() {
+    public ResponseEntity<Map<String, Object>> getCircuitBreakerStatus() {
         return ResponseEntity.ok(circuitBreakerService.getCircuitBreakerStats());
     }
     
@@ -1,7 +1,10 @@
 package com.example.feigngateway.controller;
 
+import com.example.feigngateway.config.GatewayProperties;
 import com.example.feigngateway.dto.ErrorResponse;
+import com.example.feigngateway.service.AsyncGatewayService;
 import com.example.feigngateway.service.GatewayService;
+import com.example.feigngateway.service.RequestRateLimiter;
 import com.example.feigngateway.service.StreamingService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -19,6 +22,7 @@ import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import java.util.Map;
 
 @RestController
@@ -28,7 +32,10 @@ import java.util.Map;
 public class SimpleGatewayController {
     
     private final GatewayService gatewayService;
+    private final AsyncGatewayService asyncGatewayService;
     private final StreamingService streamingService;
+    private final RequestRateLimiter requestRateLimiter;
+    private final GatewayProperties gatewayProperties;
     
     @RequestMapping(value = "/{service}/**", method = {RequestMethod.GET, RequestMethod.POST, RequestMethod.PUT, RequestMethod.DELETE, RequestMethod.PATCH})
     @Operation(
@@ -47,6 +54,7 @@ public class SimpleGatewayController {
             - `GET /api/execution/user-service/users` - Get all users
             - `POST /api/execution/user-service/users` - Create user
             - `PUT /api/execution/user-service/users/1` - Update user
+            - `PATCH /api/execution/user-service/users/1` - Partially update user
             - `DELETE /api/execution/user-service/users/1` - Delete user
             """,
         tags = {"Universal Routing"}
@@ -62,10 +70,17 @@ public class SimpleGatewayController {
             content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
         @ApiResponse(responseCode = "404", description = "Service or resource not found",
             content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
+        @ApiResponse(responseCode = "413", description = "Request body too large",
+            content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
+        @ApiResponse(responseCode = "429", description = "Rate limit exceeded; see the Retry-After header",
+            content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
         @ApiResponse(responseCode = "500", description = "Internal server error",
+            content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
+        @ApiResponse(responseCode = "504", description = "Target service did not respond in time",
             content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
     })
-    public ResponseEntity<Object> handleRequest(
+    @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "Request body to forward to target service", required = false)
+    public Object handleRequest(
             @Parameter(description = "Target service name (must be whitelisted)", 
                       example = "user-service", 
                       required = true)
@@ -74,12 +89,20 @@ public class SimpleGatewayController {
             @Parameter(description = "Query parameters to forward to target service")
             @RequestParam Map<String, String> queryParams, 
             
-            @Parameter(description = "Request body to forward to target service")
-            @RequestBody(required = false) Object body,
-            
-            HttpServletRequest request) {
-        return gatewayService.forwardRequest(service, extractPathInService(request.getRequestURI(), service), 
-            request.getMethod(), queryParams, body);
+            HttpServletRequest request,
+            HttpServletResponse response) {
+        requestRateLimiter.checkLimit(service, request);
+        // The body is not bound here so that passthrough mode can stream it upstream unparsed
+        String pathInService = extractPathInService(request.getRequestURI(), service);
+        if (gatewayProperties.getProxy().isPassthrough()) {
+            // Upstream status, headers and body are written directly to the response
+            return gatewayService.forwardPassthrough(service, pathInService, request.getMethod(), queryParams, request, response);
+        }
+        if (gatewayProperties.getProxy().isAsyncForwarding()) {
+            // Returns a CompletableFuture; the Tomcat thread is released until it completes
+            return asyncGatewayService.forwardRequestAsync(service, pathInService, request.getMethod(), queryParams, request);
+        }
+        return gatewayService.forwardRequest(service, pathInService, request.getMethod(), queryParams, request);
     }
     
     @GetMapping(value = "/{service}/**", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
@@ -106,6 +129,8 @@ public class SimpleGatewayController {
             content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
         @ApiResponse(responseCode = "403", description = "Service not whitelisted or endpoint not allowed",
             content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
+        @ApiResponse(responseCode = "429", description = "Rate limit exceeded; see the Retry-After header",
+            content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
         @ApiResponse(responseCode = "500", description = "Internal server error",
             content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
     })
@@ -119,6 +144,7 @@ public class SimpleGatewayController {
             @RequestParam Map<String, String> queryParams, 
             
             HttpServletRequest request) {
+        requestRateLimiter.checkLimit(service, request);
         return streamingService.streamResponse(service, extractPathInService(request.getRequestURI(), service), queryParams);
     }
     
@@ -148,10 +174,14 @@ public class SimpleGatewayController {
             content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
         @ApiResponse(responseCode = "413", description = "File too large",
             content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
+        @ApiResponse(responseCode = "429", description = "Rate limit exceeded; see the Retry-After header",
+            content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
         @ApiResponse(responseCode = "500", description = "Internal server error",
+            content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
+        @ApiResponse(responseCode = "504", description = "Target service did not respond in time",
             content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
     })
-    public ResponseEntity<Object> uploadMultipart(
+    public Object uploadMultipart(
             @Parameter(description = "Target service name (must be whitelisted)", 
                       example = "user-service", 
                       required = true)
@@ -167,8 +197,15 @@ public class SimpleGatewayController {
             @RequestPart(required = false) MultipartFile[] files, 
             
             HttpServletRequest request) {
-        return gatewayService.forwardMultipartRequest(service, extractPathInService(request.getRequestURI(), service), 
-            request.getMethod(), queryParams, form, files);
+        requestRateLimiter.checkLimit(service, request);
+        String pathInService = extractPathInService(request.getRequestURI(), service);
+        String idempotencyKey = request.getHeader(gatewayProperties.getPerformance().getRetry().getIdempotencyKeyHeader());
+        if (gatewayProperties.getProxy().isAsyncForwarding()) {
+            return asyncGatewayService.forwardMultipartRequestAsync(service, pathInService, 
+                request.getMethod(), queryParams, form, files, idempotencyKey);
+        }
+        return gatewayService.forwardMultipartRequest(service, pathInService, 
+            request.getMethod(), queryParams, form, files, idempotencyKey);
     }
     
     @GetMapping("/health")
@@ -0,0 +1,18 @@
+package com.example.feigngateway.exception;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+@Getter
+public class GatewayTimeoutException extends GatewayException {
+    
+    private final String serviceName;
+    private final long timeoutMillis;
+    
+    public GatewayTimeoutException(String serviceName, long timeoutMillis) {
+        super(String.format("Service '%s' did not respond within %d ms", serviceName, timeoutMillis), 
+              HttpStatus.GATEWAY_TIMEOUT.value());
+        this.serviceName = serviceName;
+        this.timeoutMillis = timeoutMillis;
+    }
+}
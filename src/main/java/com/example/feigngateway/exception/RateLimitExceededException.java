@@ -13,7 +13,7 @@ public class RateLimitExceededException extends GatewayException {
     public RateLimitExceededException(String serviceName, int limit, long retryAfterSeconds) {
         super(String.format("Rate limit exceeded for service '%s'. Limit: %d requests, retry after: %d seconds", 
                            serviceName, limit, retryAfterSeconds), 
-              HttpStatus.TOO_MANY_REQUESTS);
+              HttpStatus.TOO_MANY_REQUESTS.value());
         this.serviceName = serviceName;
         this.limit = limit;
         this.retryAfterSeconds = retryAfterSeconds;
@@ -0,0 +1,16 @@
+package com.example.feigngateway.exception;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+@Getter
+public class RequestBodyTooLargeException extends GatewayException {
+    
+    private final long maxBodySize;
+    
+    public RequestBodyTooLargeException(long maxBodySize) {
+        super(String.format("Request body exceeds maximum allowed size of %d bytes", maxBodySize), 
+              HttpStatus.PAYLOAD_TOO_LARGE.value());
+        this.maxBodySize = maxBodySize;
+    }
+}
@@ -11,14 +11,14 @@ public class ServiceUnavailableException extends GatewayException {
     
     public ServiceUnavailableException(String serviceName, String reason) {
         super(String.format("Service '%s' is currently unavailable: %s", serviceName, reason), 
-              HttpStatus.SERVICE_UNAVAILABLE);
+              HttpStatus.SERVICE_UNAVAILABLE.value());
         this.serviceName = serviceName;
         this.reason = reason;
     }
     
     public ServiceUnavailableException(String serviceName, String reason, Throwable cause) {
         super(String.format("Service '%s' is currently unavailable: %s", serviceName, reason), 
-              HttpStatus.SERVICE_UNAVAILABLE, cause);
+              cause, HttpStatus.SERVICE_UNAVAILABLE.value());
         this.serviceName = serviceName;
         this.reason = reason;
     }
@@ -0,0 +1,66 @@
+package com.example.feigngateway.filter;
+
+import com.example.feigngateway.dto.ErrorResponse;
+import com.example.feigngateway.service.DeadlineService;
+import com.example.feigngateway.service.RequestDeadline;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Reads the client's deadline for /api/execution requests. A request whose deadline has already passed is
+ * answered with 504 at once; otherwise the deadline is bound to the request thread for the rest of the chain.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DeadlineFilter extends OncePerRequestFilter {
+
+    private final DeadlineService deadlineService;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !LoadSheddingFilter.routedPath(request).startsWith(LoadSheddingFilter.ROUTED_PATH_PREFIX);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RequestDeadline deadline = deadlineService.fromHeaders(request::getHeader);
+        if (deadline == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        if (deadline.isExpired()) {
+            writeExpired(request, response);
+            return;
+        }
+
+        RequestDeadline previous = deadline.enter();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            RequestDeadline.restore(previous);
+        }
+    }
+
+    private void writeExpired(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        log.debug("Rejecting {} {}: client deadline already passed", request.getMethod(), request.getRequestURI());
+        ErrorResponse errorResponse = ErrorResponse.of("Request deadline has already passed",
+                HttpStatus.GATEWAY_TIMEOUT.value());
+        response.setStatus(HttpStatus.GATEWAY_TIMEOUT.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getOutputStream().write(objectMapper.writeValueAsBytes(errorResponse));
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.feigngateway.filter;
+
+import com.example.feigngateway.config.GatewayProperties;
+import com.example.feigngateway.config.GatewayProperties.RequestPriority;
+import com.example.feigngateway.dto.ErrorResponse;
+import com.example.feigngateway.service.LoadShedder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Load-shedding stage in front of the routing controller. Only routed /api/execution requests go through it,
+ * so health, metrics and docs endpoints, including the gateway's own /api/execution/health, are always
+ * served. A shed request gets a 503 with Retry-After before any body is read or upstream work is done.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LoadSheddingFilter extends OncePerRequestFilter {
+
+    static final String ROUTED_PATH_PREFIX = "/api/execution/";
+
+    // Mappings of SimpleGatewayController under the prefix that the gateway answers itself
+    static final Set<String> GATEWAY_OWNED_PATHS = Set.of("/api/execution/health");
+
+    private final LoadShedder loadShedder;
+    private final GatewayProperties gatewayProperties;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = routedPath(request);
+        return !path.startsWith(ROUTED_PATH_PREFIX) || GATEWAY_OWNED_PATHS.contains(path);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String headerName = gatewayProperties.getPerformance().getLoadShedding().getPriorityHeader();
+        RequestPriority priority = loadShedder.resolvePriority(serviceName(request), request.getHeader(headerName));
+        if (!loadShedder.tryAdmit(priority)) {
+            writeShed(response, priority);
+            return;
+        }
+
+        long start = System.nanoTime();
+        boolean completesLater = false;
+        try {
+            filterChain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                // Async and non-blocking forwards stay in flight until their response completes
+                request.getAsyncContext().addListener(new Completion(start));
+                completesLater = true;
+            }
+        } finally {
+            if (!completesLater) {
+                loadShedder.onComplete(System.nanoTime() - start);
+            }
+        }
+    }
+
+    private void writeShed(HttpServletResponse response, RequestPriority priority) throws IOException {
+        log.debug("Shedding {} priority request under load", priority);
+        ErrorResponse errorResponse = ErrorResponse.of(
+                "Gateway overloaded, " + priority.name().toLowerCase(Locale.ROOT) + " priority requests are being shed",
+                HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getOutputStream().write(objectMapper.writeValueAsBytes(errorResponse));
+    }
+
+    static String routedPath(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    // First path segment after /api/execution/
+    static String serviceName(HttpServletRequest request) {
+        String path = routedPath(request);
+        int end = path.indexOf('/', ROUTED_PATH_PREFIX.length());
+        return end < 0 ? path.substring(ROUTED_PATH_PREFIX.length()) : path.substring(ROUTED_PATH_PREFIX.length(), end);
+    }
+
+    private final class Completion implements AsyncListener {
+
+        private final long start;
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        private Completion(long start) {
+            this.start = start;
+        }
+
+        // onComplete follows timeouts and errors as well, so it is the only place the request leaves flight
+        @Override
+        public void onComplete(AsyncEvent event) {
+            if (done.compareAndSet(false, true)) {
+                loadShedder.onComplete(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
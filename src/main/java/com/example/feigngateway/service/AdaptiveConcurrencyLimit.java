@@ -0,0 +1,195 @@
+package com.example.feigngateway.service;
+
+import com.example.feigngateway.config.GatewayProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrency limit for one upstream service that follows the service's latency (gradient algorithm).
+ * Two moving averages of the call latency are kept: a long one that stands in for the no-load latency and a
+ * short one for the current latency. While the short one stays within {@code rttTolerance} of the long one
+ * the limit grows by about its square root per sample; once queueing at the backend pushes latency up, the
+ * limit shrinks in proportion. A failed call (I/O error, timeout, 5xx) cuts the limit by {@code backoffRatio}.
+ * Calls over the limit wait up to {@code maxQueueWait} for a slot, or are rejected at once.
+ */
+public class AdaptiveConcurrencyLimit {
+
+    private static final double SHORT_RTT_WEIGHT = 0.1;
+    private static final double LONG_RTT_WEIGHT = 0.002;
+    private static final double LIMIT_SMOOTHING = 0.2;
+
+    private final GatewayProperties.Performance.ConcurrencyLimit config;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    // Guards the estimates; samples that find it held are skipped rather than waiting
+    private final ReentrantLock estimateLock = new ReentrantLock();
+    // Waiters for a slot; only touched when someone is queued
+    private final ReentrantLock slotLock = new ReentrantLock();
+    private final Condition slotFreed = slotLock.newCondition();
+    private volatile int limit;
+    private double estimatedLimit;
+    private double shortRttNanos;
+    private double longRttNanos;
+
+    public AdaptiveConcurrencyLimit(GatewayProperties.Performance.ConcurrencyLimit config) {
+        this.config = config;
+        this.estimatedLimit = Math.max(config.getMinLimit(), Math.min(config.getMaxLimit(), config.getInitialLimit()));
+        this.limit = (int) estimatedLimit;
+    }
+
+    public boolean tryAcquire() {
+        if (!config.isEnabled()) {
+            inFlight.incrementAndGet();
+            return true;
+        }
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    // Takes a slot, queueing up to maxQueueWait when the limit is reached; false when none freed up in time
+    public boolean acquire() throws InterruptedException {
+        if (tryAcquire()) {
+            return true;
+        }
+        long waitNanos = TimeUnit.MILLISECONDS.toNanos(config.getMaxQueueWait());
+        if (waitNanos <= 0) {
+            rejected.increment();
+            return false;
+        }
+        if (queued.incrementAndGet() > config.getMaxQueued()) {
+            queued.decrementAndGet();
+            rejected.increment();
+            return false;
+        }
+        slotLock.lock();
+        try {
+            while (!tryAcquire()) {
+                if (waitNanos <= 0) {
+                    rejected.increment();
+                    return false;
+                }
+                waitNanos = slotFreed.awaitNanos(waitNanos);
+            }
+            return true;
+        } finally {
+            queued.decrementAndGet();
+            slotLock.unlock();
+        }
+    }
+
+    // Counts a rejection by a caller that used tryAcquire
+    public void onRejected() {
+        rejected.increment();
+    }
+
+    // Frees the slot and feeds the call's latency into the limit; a failed call backs the limit off
+    public void release(long rttNanos, boolean failed) {
+        int inFlightAtRelease = inFlight.getAndDecrement();
+        if (config.isEnabled() && estimateLock.tryLock()) {
+            try {
+                if (failed) {
+                    dropped.increment();
+                    update(estimatedLimit * config.getBackoffRatio());
+                } else if (rttNanos > 0) {
+                    onSample(rttNanos, inFlightAtRelease);
+                }
+            } finally {
+                estimateLock.unlock();
+            }
+        }
+        signalWaiters(false);
+    }
+
+    // Frees the slot of a call that ended without an outcome, e.g. a client disconnect
+    public void release() {
+        inFlight.decrementAndGet();
+        signalWaiters(false);
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", config.isEnabled());
+        stats.put("limit", limit);
+        stats.put("inFlight", inFlight.get());
+        stats.put("queued", queued.get());
+        stats.put("rejected", rejected.sum());
+        stats.put("failed", dropped.sum());
+        estimateLock.lock();
+        try {
+            stats.put("shortRttMillis", shortRttNanos / 1_000_000);
+            stats.put("longRttMillis", longRttNanos / 1_000_000);
+        } finally {
+            estimateLock.unlock();
+        }
+        return stats;
+    }
+
+    private void onSample(long rttNanos, int inFlightAtRelease) {
+        if (longRttNanos == 0) {
+            shortRttNanos = rttNanos;
+            longRttNanos = rttNanos;
+            return;
+        }
+        shortRttNanos += (rttNanos - shortRttNanos) * SHORT_RTT_WEIGHT;
+        longRttNanos += (rttNanos - longRttNanos) * LONG_RTT_WEIGHT;
+        // After a latency spike the long average lags far behind; pull it down so the limit can recover
+        if (longRttNanos > shortRttNanos * 2) {
+            longRttNanos *= 0.95;
+        }
+        // Traffic well below the limit says nothing about whether the backend could take more
+        if (inFlightAtRelease < estimatedLimit / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, config.getRttTolerance() * longRttNanos / shortRttNanos));
+        double target = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        update(estimatedLimit * (1 - LIMIT_SMOOTHING) + target * LIMIT_SMOOTHING);
+    }
+
+    private void update(double newLimit) {
+        int previous = limit;
+        estimatedLimit = Math.max(config.getMinLimit(), Math.min(config.getMaxLimit(), newLimit));
+        limit = (int) estimatedLimit;
+        if (limit > previous) {
+            signalWaiters(true);
+        }
+    }
+
+    // One freed slot wakes one waiter; a raised limit may have room for all of them
+    private void signalWaiters(boolean all) {
+        if (queued.get() > 0) {
+            slotLock.lock();
+            try {
+                if (all) {
+                    slotFreed.signalAll();
+                } else {
+                    slotFreed.signal();
+                }
+            } finally {
+                slotLock.unlock();
+            }
+        }
+    }
+}
@@ -1,151 +1,107 @@
 package com.example.feigngateway.service;
 
-import lombok.RequiredArgsConstructor;
+import com.example.feigngateway.config.GatewayProperties;
+import com.example.feigngateway.exception.GatewayTimeoutException;
+import com.example.feigngateway.exception.ServiceUnavailableException;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.MediaType;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.ResponseEntity;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
-import org.springframework.util.LinkedMultiValueMap;
-import org.springframework.util.MultiValueMap;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.IOException;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class AsyncGatewayService {
-    
-    private final RestTemplate restTemplate;
-    private final CacheService cacheService;
-    
-    @Async("gatewayTaskExecutor")
-    public CompletableFuture<ResponseEntity<Object>> forwardRequestAsync(String service, String pathInService, 
-                                                                        String method, Map<String, String> queryParams, 
+
+    private final GatewayService gatewayService;
+    private final PerformanceMetricsService metricsService;
+    private final GatewayProperties gatewayProperties;
+    private final BulkheadService bulkheadService;
+    private final Executor gatewayTaskExecutor;
+
+    public AsyncGatewayService(GatewayService gatewayService, PerformanceMetricsService metricsService,
+                               GatewayProperties gatewayProperties, BulkheadService bulkheadService,
+                               @Qualifier("gatewayTaskExecutor") Executor gatewayTaskExecutor) {
+        this.gatewayService = gatewayService;
+        this.metricsService = metricsService;
+        this.gatewayProperties = gatewayProperties;
+        this.bulkheadService = bulkheadService;
+        this.gatewayTaskExecutor = gatewayTaskExecutor;
+    }
+
+    public CompletableFuture<ResponseEntity<Object>> forwardRequestAsync(String service, String pathInService,
+                                                                        String method, Map<String, String> queryParams,
                                                                         Object body) {
-        try {
-            log.debug("Processing async request for service: {}, path: {}", service, pathInService);
-            
-            // Use cached validation
-            if (!cacheService.isRequestAllowedCached(service, pathInService)) {
-                return CompletableFuture.completedFuture(
-                    ResponseEntity.status(403).body("Access denied: Path not whitelisted"));
-            }
-            
-            String targetUrl = buildTargetUrl(service, pathInService);
-            if (targetUrl == null) {
-                return CompletableFuture.completedFuture(
-                    ResponseEntity.badRequest().body("Invalid service path"));
-            }
-            
-            String finalUrl = buildUrlWithQueryParams(targetUrl, queryParams);
-            Object response = makeRequest(method, finalUrl, body);
-            
-            return CompletableFuture.completedFuture(ResponseEntity.ok(response));
-            
-        } catch (Exception e) {
-            log.error("Error processing async request", e);
-            return CompletableFuture.completedFuture(
-                ResponseEntity.status(500).body("Internal server error: " + e.getMessage()));
-        }
+        log.debug("Processing async request for service: {}, path: {}", service, pathInService);
+        return submit(service, () -> gatewayService.forwardRequest(service, pathInService, method, queryParams, body));
+    }
+
+    // The JSON body is read on the calling servlet thread, before the request goes async
+    public CompletableFuture<ResponseEntity<Object>> forwardRequestAsync(String service, String pathInService,
+                                                                        String method, Map<String, String> queryParams,
+                                                                        HttpServletRequest request) {
+        Object body = gatewayService.readJsonBody(request);
+        String idempotencyKey = request.getHeader(gatewayProperties.getPerformance().getRetry().getIdempotencyKeyHeader());
+        log.debug("Processing async request for service: {}, path: {}", service, pathInService);
+        return submit(service, () -> gatewayService.forwardRequest(service, pathInService, method, queryParams, body, idempotencyKey));
     }
-    
-    @Async("gatewayTaskExecutor")
+
     public CompletableFuture<ResponseEntity<Object>> forwardMultipartRequestAsync(String service, String pathInService,
                                                                                   String method, Map<String, String> queryParams,
-                                                                                  Map<String, String> form, MultipartFile[] files) {
-        try {
-            log.debug("Processing async multipart request for service: {}, path: {}", service, pathInService);
-            
-            if (!cacheService.isRequestAllowedCached(service, pathInService)) {
-                return CompletableFuture.completedFuture(
-                    ResponseEntity.status(403).body("Access denied: Path not whitelisted"));
-            }
-            
-            String targetUrl = buildTargetUrl(service, pathInService);
-            if (targetUrl == null) {
-                return CompletableFuture.completedFuture(
-                    ResponseEntity.badRequest().body("Invalid service path"));
-            }
-            
-            String finalUrl = buildUrlWithQueryParams(targetUrl, queryParams);
-            MultiValueMap<String, Object> multipartBody = buildMultipartBody(form, files);
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.MULTIPART_FORM_DATA);
-            HttpEntity<MultiValueMap<String, Object>> entity = new HttpEntity<>(multipartBody, headers);
-            
-            HttpMethod httpMethod = "PUT".equalsIgnoreCase(method) ? HttpMethod.PUT : HttpMethod.POST;
-            Object response = restTemplate.exchange(finalUrl, httpMethod, entity, Object.class).getBody();
-            
-            return CompletableFuture.completedFuture(ResponseEntity.ok(response));
-            
-        } catch (Exception e) {
-            log.error("Error processing async multipart request", e);
-            return CompletableFuture.completedFuture(
-                ResponseEntity.status(500).body("Internal server error: " + e.getMessage()));
-        }
-    }
-    
-    private String buildTargetUrl(String service, String pathInService) {
-        var serviceConfig = cacheService.getCachedServiceConfig(service);
-        return serviceConfig != null ? serviceConfig.getBaseUrl() + pathInService : null;
+                                                                                  Map<String, String> form, MultipartFile[] files,
+                                                                                  String idempotencyKey) {
+        log.debug("Processing async multipart request for service: {}, path: {}", service, pathInService);
+        return submit(service, () -> gatewayService.forwardMultipartRequest(service, pathInService, method, queryParams, form, files, idempotencyKey));
     }
-    
-    private Object makeRequest(String method, String url, Object body) {
-        switch (method.toUpperCase()) {
-            case "GET":
-                return restTemplate.getForObject(url, Object.class);
-            case "POST":
-                return restTemplate.postForObject(url, body, Object.class);
-            case "PUT":
-                return restTemplate.exchange(url, HttpMethod.PUT, 
-                    new HttpEntity<>(body), Object.class).getBody();
-            case "DELETE":
-                return restTemplate.exchange(url, HttpMethod.DELETE, 
-                    new HttpEntity<>(body), Object.class).getBody();
-            default:
-                throw new IllegalArgumentException("Unsupported method: " + method);
+
+    // Runs the forward on gatewayTaskExecutor so the servlet thread is free while the upstream call runs.
+    // Completes exceptionally with GatewayTimeoutException once gateway.proxy.async-timeout has elapsed.
+    // A service whose bulkhead is full is rejected here, before its work takes a place in the shared queue.
+    private CompletableFuture<ResponseEntity<Object>> submit(String service, Supplier<ResponseEntity<Object>> call) {
+        bulkheadService.checkCapacity(service);
+        long timeout = gatewayProperties.getProxy().getAsyncTimeout();
+        long queuedAt = System.nanoTime();
+
+        CompletableFuture<ResponseEntity<Object>> task;
+        try {
+            // The client's deadline travels with the task to the executor thread
+            Supplier<ResponseEntity<Object>> withinDeadline = RequestDeadline.propagate(call);
+            task = CompletableFuture.supplyAsync(() -> {
+                metricsService.recordQueueWait(service, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - queuedAt));
+                return withinDeadline.get();
+            }, gatewayTaskExecutor);
+        } catch (RejectedExecutionException e) {
+            // A full queue rejects instead of running the forward on the servlet thread
+            throw new ServiceUnavailableException(service, "Gateway overloaded: task queue is full", e);
         }
-    }
-    
-    private String buildUrlWithQueryParams(String url, Map<String, String> queryParams) {
-        if (queryParams == null || queryParams.isEmpty()) return url;
-        
-        var builder = org.springframework.web.util.UriComponentsBuilder.fromHttpUrl(url);
-        queryParams.entrySet().stream()
-            .filter(entry -> entry.getValue() != null && !entry.getValue().trim().isEmpty())
-            .forEach(entry -> builder.queryParam(entry.getKey(), entry.getValue()));
-        return builder.toUriString();
-    }
-    
-    private MultiValueMap<String, Object> buildMultipartBody(Map<String, String> form, MultipartFile[] files) {
-        MultiValueMap<String, Object> multipartBody = new LinkedMultiValueMap<>();
-        
-        if (form != null) form.forEach(multipartBody::add);
-        
-        if (files != null) {
-            for (MultipartFile file : files) {
-                if (file != null && !file.isEmpty()) {
-                    try {
-                        multipartBody.add("file", new org.springframework.core.io.ByteArrayResource(file.getBytes()) {
-                            @Override
-                            public String getFilename() { return file.getOriginalFilename(); }
-                        });
-                    } catch (IOException e) {
-                        throw new RuntimeException("Failed to read uploaded file: " + file.getOriginalFilename(), e);
-                    }
-                }
+
+        // orTimeout completes the task itself, so a request still waiting in the queue is never started
+        CompletableFuture<ResponseEntity<Object>> result = new CompletableFuture<>();
+        task.orTimeout(timeout, TimeUnit.MILLISECONDS).whenComplete((response, error) -> {
+            if (error == null) {
+                result.complete(response);
+                return;
             }
-        }
-        
-        return multipartBody;
+
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof TimeoutException) {
+                metricsService.recordTimeout(service);
+                log.warn("Async request for service {} timed out after {} ms", service, timeout);
+                result.completeExceptionally(new GatewayTimeoutException(service, timeout));
+            } else {
+                result.completeExceptionally(cause);
+            }
+        });
+        return result;
     }
 }
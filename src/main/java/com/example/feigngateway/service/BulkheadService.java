@@ -0,0 +1,138 @@
+package com.example.feigngateway.service;
+
+import com.example.feigngateway.config.GatewayProperties;
+import com.example.feigngateway.config.GatewayWhitelistProperties;
+import com.example.feigngateway.exception.ServiceUnavailableException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Semaphore bulkhead per whitelisted service. Bounds how many request threads, whether Tomcat's or
+ * gatewayTaskExecutor's, can be blocked on one service at a time. A slow service then fails fast with 503
+ * instead of tying up the pools every other service is routed through.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BulkheadService {
+
+    private final GatewayProperties gatewayProperties;
+    private final GatewayWhitelistProperties whitelistProperties;
+    private final PerformanceMetricsService metricsService;
+
+    private final ConcurrentHashMap<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+
+    public <T> T execute(String serviceName, Supplier<T> call) {
+        acquire(serviceName);
+        try {
+            return call.get();
+        } finally {
+            release(serviceName);
+        }
+    }
+
+    // Takes a slot, waiting up to the service's maxWaitDuration; pair with release
+    public void acquire(String serviceName) {
+        Bulkhead bulkhead = bulkheadFor(serviceName);
+        if (!bulkhead.policy.isEnabled()) {
+            return;
+        }
+        if (!bulkhead.semaphore.tryAcquire()) {
+            metricsService.recordBulkheadSaturation(serviceName);
+            if (!waitForSlot(serviceName, bulkhead)) {
+                reject(serviceName, bulkhead);
+            }
+        }
+        metricsService.recordBulkheadConcurrentCalls(serviceName, bulkhead.concurrentCalls());
+    }
+
+    public void release(String serviceName) {
+        Bulkhead bulkhead = bulkheadFor(serviceName);
+        if (bulkhead.policy.isEnabled()) {
+            bulkhead.semaphore.release();
+        }
+    }
+
+    // Fails fast while every slot is taken, so work for a saturated service isn't queued on a shared executor
+    public void checkCapacity(String serviceName) {
+        Bulkhead bulkhead = bulkheadFor(serviceName);
+        if (bulkhead.policy.isEnabled() && bulkhead.semaphore.availablePermits() == 0) {
+            metricsService.recordBulkheadSaturation(serviceName);
+            reject(serviceName, bulkhead);
+        }
+    }
+
+    // Slots in use and callers waiting per service, keyed by service name
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new TreeMap<>();
+        bulkheads.forEach((service, bulkhead) -> {
+            Map<String, Object> serviceStats = new LinkedHashMap<>();
+            serviceStats.put("enabled", bulkhead.policy.isEnabled());
+            serviceStats.put("maxConcurrentCalls", bulkhead.policy.getMaxConcurrentCalls());
+            serviceStats.put("concurrentCalls", bulkhead.concurrentCalls());
+            serviceStats.put("waiting", bulkhead.semaphore.getQueueLength());
+            stats.put(service, serviceStats);
+        });
+        return stats;
+    }
+
+    private boolean waitForSlot(String serviceName, Bulkhead bulkhead) {
+        long maxWait = bulkhead.policy.getMaxWaitDuration();
+        if (maxWait <= 0) {
+            return false;
+        }
+        try {
+            return bulkhead.semaphore.tryAcquire(maxWait, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException(serviceName, "Interrupted while waiting for a bulkhead slot", e);
+        }
+    }
+
+    private void reject(String serviceName, Bulkhead bulkhead) {
+        metricsService.recordBulkheadRejection(serviceName);
+        log.debug("Bulkhead full for service {} ({} concurrent calls)", serviceName, bulkhead.policy.getMaxConcurrentCalls());
+        throw new ServiceUnavailableException(serviceName,
+            "Bulkhead full: " + bulkhead.policy.getMaxConcurrentCalls() + " concurrent calls in progress");
+    }
+
+    private Bulkhead bulkheadFor(String serviceName) {
+        return bulkheads.computeIfAbsent(serviceName != null ? serviceName : "unknown", this::createBulkhead);
+    }
+
+    private Bulkhead createBulkhead(String serviceName) {
+        GatewayProperties.Performance.Bulkhead defaults = gatewayProperties.getPerformance().getBulkhead();
+        GatewayWhitelistProperties.Bulkhead overrides = whitelistProperties.serviceOverrides(serviceName,
+            GatewayWhitelistProperties.ServiceConfig::getBulkhead, GatewayWhitelistProperties.Bulkhead::new);
+
+        GatewayProperties.Performance.Bulkhead policy = new GatewayProperties.Performance.Bulkhead();
+        policy.setEnabled(Objects.requireNonNullElse(overrides.getEnabled(), defaults.isEnabled()));
+        policy.setMaxConcurrentCalls(Objects.requireNonNullElse(overrides.getMaxConcurrentCalls(), defaults.getMaxConcurrentCalls()));
+        policy.setMaxWaitDuration(Objects.requireNonNullElse(overrides.getMaxWaitDuration(), defaults.getMaxWaitDuration()));
+        return new Bulkhead(policy);
+    }
+
+    private static final class Bulkhead {
+        private final GatewayProperties.Performance.Bulkhead policy;
+        private final Semaphore semaphore;
+
+        private Bulkhead(GatewayProperties.Performance.Bulkhead policy) {
+            this.policy = policy;
+            this.semaphore = new Semaphore(policy.getMaxConcurrentCalls());
+        }
+
+        private int concurrentCalls() {
+            return policy.getMaxConcurrentCalls() - semaphore.availablePermits();
+        }
+    }
+}
@@ -23,6 +23,9 @@ public class CacheService {
     // In-memory cache for service configurations
     private final ConcurrentHashMap<String, GatewayWhitelistProperties.ServiceConfig> serviceConfigCache = new ConcurrentHashMap<>();
     
+    // Endpoint tries per service, rebuilt when the service's endpoint list is replaced
+    private final ConcurrentHashMap<String, PathPatternTrie> endpointTrieCache = new ConcurrentHashMap<>();
+    
     @Cacheable(value = "serviceConfigs", key = "#serviceName")
     public GatewayWhitelistProperties.ServiceConfig getCachedServiceConfig(String serviceName) {
         log.debug("Loading service config for: {}", serviceName);
@@ -73,22 +76,24 @@ public class CacheService {
             return false;
         }
 
-        return isPathMatchedCached(pathInService, service.getEndpoints());
+        return isPathMatchedCached(serviceName, pathInService, service.getEndpoints());
     }
     
-    private boolean isPathMatchedCached(String requestPath, List<String> allowedEndpoints) {
+    private boolean isPathMatchedCached(String serviceName, String requestPath, List<String> allowedEndpoints) {
         if (allowedEndpoints == null || allowedEndpoints.isEmpty()) {
             return false;
         }
         
-        for (String endpoint : allowedEndpoints) {
-            Pattern pattern = getCompiledPattern(endpoint);
-            if (pattern.matcher(requestPath).matches()) {
-                return true;
-            }
+        return getEndpointTrie(serviceName, allowedEndpoints).matches(requestPath);
+    }
+    
+    private PathPatternTrie getEndpointTrie(String serviceName, List<String> endpoints) {
+        PathPatternTrie trie = endpointTrieCache.get(serviceName);
+        if (trie == null || !trie.isBuiltFrom(endpoints)) {
+            trie = PathPatternTrie.of(endpoints);
+            endpointTrieCache.put(serviceName, trie);
         }
-        
-        return false;
+        return trie;
     }
     
     // Cache warming methods
@@ -101,6 +106,7 @@ public class CacheService {
                 getCachedServiceConfig(service.getName());
                 if (service.getEndpoints() != null) {
                     service.getEndpoints().forEach(this::getCompiledPattern);
+                    getEndpointTrie(service.getName(), service.getEndpoints());
                 }
             });
         }
@@ -113,6 +119,7 @@ public class CacheService {
         return CacheStats.builder()
                 .patternCacheSize(patternCache.size())
                 .serviceConfigCacheSize(serviceConfigCache.size())
+                .endpointTrieCacheSize(endpointTrieCache.size())
                 .build();
     }
     
@@ -121,5 +128,6 @@ public class CacheService {
     public static class CacheStats {
         private int patternCacheSize;
         private int serviceConfigCacheSize;
+        private int endpointTrieCacheSize;
     }
 }
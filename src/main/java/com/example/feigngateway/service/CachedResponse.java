@@ -0,0 +1,147 @@
+package com.example.feigngateway.service;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import org.springframework.http.HttpHeaders;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Upstream response held by the response cache: status, end-to-end headers and the body bytes as they were
+ * received, so a hit is written out without parsing or re-serializing anything. The body is either a heap
+ * array or blocks of the off-heap tier; an off-heap body must be retained while it is read.
+ */
+@Getter
+public final class CachedResponse {
+
+    private final int status;
+    private final HttpHeaders headers;
+
+    // Exactly one of these holds the body
+    @Getter(AccessLevel.NONE)
+    private final byte[] body;
+    @Getter(AccessLevel.NONE)
+    private final OffHeapStore.Body offHeapBody;
+
+    // Request header values the response was selected by, keyed by the lower-case names in its Vary header
+    private final Map<String, String> varyValues;
+
+    // Age the upstream reported (s), and when the response was stored and stops being fresh (System.nanoTime)
+    private final long initialAge;
+    private final long storedAtNanos;
+    private final long freshUntilNanos;
+
+    // Until when the stale response may still be served while it is refreshed, or when the upstream fails
+    private final long staleWhileRevalidateUntilNanos;
+    private final long staleIfErrorUntilNanos;
+
+    // Until when the stale response is kept to be revalidated with its ETag or Last-Modified
+    private final long revalidateUntilNanos;
+
+    CachedResponse(int status, HttpHeaders headers, byte[] body, Map<String, String> varyValues,
+                   long initialAge, long storedAtNanos, long freshUntilNanos,
+                   long staleWhileRevalidateUntilNanos, long staleIfErrorUntilNanos, long revalidateUntilNanos) {
+        this(status, HttpHeaders.readOnlyHttpHeaders(headers), body, null, Map.copyOf(varyValues), initialAge,
+            storedAtNanos, freshUntilNanos, staleWhileRevalidateUntilNanos, staleIfErrorUntilNanos, revalidateUntilNanos);
+    }
+
+    private CachedResponse(int status, HttpHeaders headers, byte[] body, OffHeapStore.Body offHeapBody,
+                           Map<String, String> varyValues, long initialAge, long storedAtNanos, long freshUntilNanos,
+                           long staleWhileRevalidateUntilNanos, long staleIfErrorUntilNanos, long revalidateUntilNanos) {
+        this.status = status;
+        this.headers = headers;
+        this.body = body;
+        this.offHeapBody = offHeapBody;
+        this.varyValues = varyValues;
+        this.initialAge = initialAge;
+        this.storedAtNanos = storedAtNanos;
+        this.freshUntilNanos = freshUntilNanos;
+        this.staleWhileRevalidateUntilNanos = staleWhileRevalidateUntilNanos;
+        this.staleIfErrorUntilNanos = staleIfErrorUntilNanos;
+        this.revalidateUntilNanos = revalidateUntilNanos;
+    }
+
+    // The same response with its body moved to the off-heap tier
+    CachedResponse withOffHeapBody(OffHeapStore.Body offHeapBody) {
+        return new CachedResponse(status, headers, null, offHeapBody, varyValues, initialAge, storedAtNanos,
+            freshUntilNanos, staleWhileRevalidateUntilNanos, staleIfErrorUntilNanos, revalidateUntilNanos);
+    }
+
+    public boolean isOffHeap() {
+        return offHeapBody != null;
+    }
+
+    public int getBodyLength() {
+        return body != null ? body.length : offHeapBody.length();
+    }
+
+    // Keeps an off-heap body from being freed until release; false if it already has been. Heap bodies
+    // need no reference and always succeed.
+    public boolean retain() {
+        return offHeapBody == null || offHeapBody.retain();
+    }
+
+    public void release() {
+        if (offHeapBody != null) {
+            offHeapBody.release();
+        }
+    }
+
+    // Writes the body bytes; an off-heap body is written straight from its blocks and must be retained
+    public void writeBody(OutputStream out) throws IOException {
+        if (body != null) {
+            out.write(body);
+        } else {
+            offHeapBody.writeTo(out);
+        }
+    }
+
+    // The body as a heap array, copied back if it is held off-heap; it must then be retained
+    byte[] copyBody() {
+        return body != null ? body : offHeapBody.toArray();
+    }
+
+    public boolean isFresh(long nowNanos) {
+        return freshUntilNanos - nowNanos > 0;
+    }
+
+    public boolean isUsableWhileRevalidating(long nowNanos) {
+        return staleWhileRevalidateUntilNanos - nowNanos > 0;
+    }
+
+    public boolean isUsableOnError(long nowNanos) {
+        return staleIfErrorUntilNanos - nowNanos > 0;
+    }
+
+    // When the response is of no use any more, to serve or to revalidate
+    long usableUntilNanos() {
+        long until = freshUntilNanos;
+        for (long candidate : new long[] {staleWhileRevalidateUntilNanos, staleIfErrorUntilNanos, revalidateUntilNanos}) {
+            if (candidate - until > 0) {
+                until = candidate;
+            }
+        }
+        return until;
+    }
+
+    // Value of the Age header sent with a hit
+    public long ageSeconds(long nowNanos) {
+        return initialAge + TimeUnit.NANOSECONDS.toSeconds(Math.max(0, nowNanos - storedAtNanos));
+    }
+
+    // Approximate heap bytes held: a heap body plus the header names and values
+    int weight() {
+        int weight = body != null ? body.length : 0;
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            weight += header.getKey().length();
+            for (String value : header.getValue()) {
+                weight += value.length();
+            }
+        }
+        return weight;
+    }
+}
@@ -1,18 +1,34 @@
 package com.example.feigngateway.service;
 
+import com.example.feigngateway.config.GatewayProperties;
+import com.example.feigngateway.config.GatewayWhitelistProperties;
+import com.example.feigngateway.exception.ServiceUnavailableException;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
 
-import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 @Service
+@RequiredArgsConstructor
 @Slf4j
 public class CircuitBreakerService {
     
-    private final ConcurrentHashMap<String, CircuitBreakerState> circuitBreakers = new ConcurrentHashMap<>();
+    private final GatewayProperties gatewayProperties;
+    private final GatewayWhitelistProperties whitelistProperties;
+    
+    private final ConcurrentHashMap<String, SlidingWindowCircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+    // Time source of the breakers' open timeouts, replaced in tests before any breaker is created
+    private LongSupplier nanoClock = System::nanoTime;
     
     public enum CircuitState {
         CLOSED,    // Normal operation
@@ -20,104 +36,131 @@ public class CircuitBreakerService {
         HALF_OPEN  // Testing if service is back
     }
     
-    public static class CircuitBreakerState {
-        private volatile CircuitState state = CircuitState.CLOSED;
-        private final AtomicInteger failureCount = new AtomicInteger(0);
-        private final AtomicLong lastFailureTime = new AtomicLong(0);
-        private final AtomicInteger successCount = new AtomicInteger(0);
-        
-        // Configuration
-        private final int failureThreshold = 5;
-        private final long timeoutDuration = 60000; // 60 seconds
-        private final int successThreshold = 3;
-        
-        public CircuitState getState() {
-            return state;
+    // Runs an upstream call through the service's breaker: rejects at once with 503 while the circuit
+    // is open, otherwise records the outcome. Only I/O errors and 5xx responses count as failures.
+    public <T> T execute(String serviceName, Supplier<T> call) {
+        return execute(serviceName, call, result -> false);
+    }
+    
+    // Variant for calls that report an upstream failure through their result instead of an exception
+    public <T> T execute(String serviceName, Supplier<T> call, Predicate<T> failedResult) {
+        checkRequestAllowed(serviceName);
+        return executeWithPermission(serviceName, call, failedResult);
+    }
+    
+    // Runs a call whose permission was already taken through checkRequestAllowed
+    public <T> T executeWithPermission(String serviceName, Supplier<T> call) {
+        return executeWithPermission(serviceName, call, result -> false);
+    }
+    
+    private <T> T executeWithPermission(String serviceName, Supplier<T> call, Predicate<T> failedResult) {
+        long start = System.nanoTime();
+        T result;
+        try {
+            result = call.get();
+        } catch (RuntimeException e) {
+            recordOutcome(serviceName, e, System.nanoTime() - start);
+            throw e;
         }
         
-        public void recordSuccess() {
-            if (state == CircuitState.HALF_OPEN) {
-                int success = successCount.incrementAndGet();
-                if (success >= successThreshold) {
-                    state = CircuitState.CLOSED;
-                    failureCount.set(0);
-                    successCount.set(0);
-                    log.info("Circuit breaker closed - service recovered");
-                }
-            } else if (state == CircuitState.CLOSED) {
-                failureCount.set(0);
-            }
+        if (failedResult.test(result)) {
+            recordFailure(serviceName, System.nanoTime() - start);
+        } else {
+            recordSuccess(serviceName, System.nanoTime() - start);
         }
-        
-        public void recordFailure() {
-            int failures = failureCount.incrementAndGet();
-            lastFailureTime.set(System.currentTimeMillis());
-            
-            if (state == CircuitState.CLOSED && failures >= failureThreshold) {
-                state = CircuitState.OPEN;
-                log.warn("Circuit breaker opened - too many failures: {}", failures);
-            }
+        return result;
+    }
+    
+    public void checkRequestAllowed(String serviceName) {
+        if (!isRequestAllowed(serviceName)) {
+            throw new ServiceUnavailableException(serviceName, "Circuit breaker is open");
         }
-        
-        public boolean shouldAttemptRequest() {
-            if (state == CircuitState.CLOSED) {
-                return true;
-            }
-            
-            if (state == CircuitState.OPEN) {
-                long timeSinceLastFailure = System.currentTimeMillis() - lastFailureTime.get();
-                if (timeSinceLastFailure >= timeoutDuration) {
-                    state = CircuitState.HALF_OPEN;
-                    successCount.set(0);
-                    log.info("Circuit breaker moved to half-open state");
-                    return true;
-                }
-                return false;
-            }
-            
-            if (state == CircuitState.HALF_OPEN) {
-                return true;
-            }
-            
-            return false;
+    }
+    
+    public void recordOutcome(String serviceName, Throwable error, long durationNanos) {
+        if (isUpstreamFailure(error)) {
+            recordFailure(serviceName, durationNanos);
+        } else if (error instanceof HttpClientErrorException) {
+            // The upstream answered, so it is reachable
+            recordSuccess(serviceName, durationNanos);
+        } else {
+            releasePermission(serviceName);
         }
     }
     
+    // Takes a permission: always granted while closed, one of the trial calls while half-open
     public boolean isRequestAllowed(String serviceName) {
-        CircuitBreakerState circuitBreaker = circuitBreakers.computeIfAbsent(serviceName, 
-            k -> new CircuitBreakerState());
-        
-        return circuitBreaker.shouldAttemptRequest();
+        if (serviceName == null) {
+            return true;
+        }
+        return circuitBreakerFor(serviceName).tryAcquirePermission();
+    }
+    
+    // For permitted calls that were rejected locally before reaching the upstream
+    public void releasePermission(String serviceName) {
+        if (serviceName != null) {
+            circuitBreakerFor(serviceName).releasePermission();
+        }
     }
     
     public void recordSuccess(String serviceName) {
-        CircuitBreakerState circuitBreaker = circuitBreakers.get(serviceName);
-        if (circuitBreaker != null) {
-            circuitBreaker.recordSuccess();
+        recordSuccess(serviceName, 0);
+    }
+    
+    public void recordSuccess(String serviceName, long durationNanos) {
+        if (serviceName != null) {
+            circuitBreakerFor(serviceName).onSuccess(durationNanos);
         }
     }
     
     public void recordFailure(String serviceName) {
-        CircuitBreakerState circuitBreaker = circuitBreakers.get(serviceName);
-        if (circuitBreaker != null) {
-            circuitBreaker.recordFailure();
+        recordFailure(serviceName, 0);
+    }
+    
+    public void recordFailure(String serviceName, long durationNanos) {
+        if (serviceName != null) {
+            circuitBreakerFor(serviceName).onFailure(durationNanos);
         }
     }
     
     public CircuitState getCircuitState(String serviceName) {
-        CircuitBreakerState circuitBreaker = circuitBreakers.get(serviceName);
+        SlidingWindowCircuitBreaker circuitBreaker = serviceName != null ? circuitBreakers.get(serviceName) : null;
         return circuitBreaker != null ? circuitBreaker.getState() : CircuitState.CLOSED;
     }
     
-    public String getCircuitBreakerStats() {
-        StringBuilder stats = new StringBuilder();
-        stats.append("Circuit Breaker Statistics:\n");
-        
-        circuitBreakers.forEach((service, state) -> {
-            stats.append(String.format("Service: %s, State: %s, Failures: %d, Successes: %d\n",
-                service, state.getState(), state.failureCount.get(), state.successCount.get()));
-        });
+    // Window statistics per service, keyed by service name
+    public Map<String, Object> getCircuitBreakerStats() {
+        Map<String, Object> stats = new TreeMap<>();
+        circuitBreakers.forEach((service, circuitBreaker) -> stats.put(service, circuitBreaker.getStats()));
+        return stats;
+    }
+    
+    static boolean isUpstreamFailure(Throwable error) {
+        return error instanceof ResourceAccessException || error instanceof HttpServerErrorException;
+    }
+    
+    private SlidingWindowCircuitBreaker circuitBreakerFor(String serviceName) {
+        return circuitBreakers.computeIfAbsent(serviceName, this::createCircuitBreaker);
+    }
+    
+    private SlidingWindowCircuitBreaker createCircuitBreaker(String serviceName) {
+        GatewayProperties.Performance.CircuitBreaker defaults = gatewayProperties.getPerformance().getCircuitBreaker();
+        GatewayWhitelistProperties.CircuitBreaker overrides = whitelistProperties.serviceOverrides(serviceName,
+            GatewayWhitelistProperties.ServiceConfig::getCircuitBreaker, GatewayWhitelistProperties.CircuitBreaker::new);
         
-        return stats.toString();
+        GatewayProperties.Performance.CircuitBreaker policy = new GatewayProperties.Performance.CircuitBreaker();
+        policy.setEnabled(Objects.requireNonNullElse(overrides.getEnabled(), defaults.isEnabled()));
+        policy.setSlidingWindowSize(Objects.requireNonNullElse(overrides.getSlidingWindowSize(), defaults.getSlidingWindowSize()));
+        policy.setMinimumNumberOfCalls(Objects.requireNonNullElse(overrides.getMinimumNumberOfCalls(), defaults.getMinimumNumberOfCalls()));
+        policy.setFailureRateThreshold(Objects.requireNonNullElse(overrides.getFailureRateThreshold(), defaults.getFailureRateThreshold()));
+        policy.setSlowCallRateThreshold(Objects.requireNonNullElse(overrides.getSlowCallRateThreshold(), defaults.getSlowCallRateThreshold()));
+        policy.setSlowCallDuration(Objects.requireNonNullElse(overrides.getSlowCallDuration(), defaults.getSlowCallDuration()));
+        policy.setTimeoutDuration(Objects.requireNonNullElse(overrides.getTimeoutDuration(), defaults.getTimeoutDuration()));
+        policy.setPermittedCallsInHalfOpen(Objects.requireNonNullElse(overrides.getPermittedCallsInHalfOpen(), defaults.getPermittedCallsInHalfOpen()));
+        return new SlidingWindowCircuitBreaker(serviceName, policy, nanoClock);
+    }
+    
+    void setNanoClock(LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
     }
 }
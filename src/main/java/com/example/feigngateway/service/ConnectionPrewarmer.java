@@ -0,0 +1,126 @@
+package com.example.feigngateway.service;
+
+import com.example.feigngateway.config.GatewayProperties;
+import com.example.feigngateway.config.GatewayWhitelistProperties;
+import com.example.feigngateway.config.HttpClientConfig;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.io.ConnectionEndpoint;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ConnectionPrewarmer {
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final GatewayProperties gatewayProperties;
+    private final GatewayWhitelistProperties whitelistProperties;
+
+    // Opens keep-alive connections to every whitelisted upstream origin, in parallel across origins.
+    // Blocks until all origins are done or prewarm-timeout elapses; returns the number of connections opened.
+    public int prewarm() {
+        GatewayProperties.Performance.ConnectionPool pool = gatewayProperties.getPerformance().getConnectionPool();
+        Set<HttpHost> upstreams = upstreams();
+        if (pool.getPrewarmConnections() == 0 || upstreams.isEmpty()) {
+            return 0;
+        }
+
+        long start = System.nanoTime();
+        AtomicInteger opened = new AtomicInteger();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (HttpHost upstream : upstreams) {
+            tasks.add(() -> {
+                warmUp(upstream, pool, opened);
+                return null;
+            });
+        }
+
+        ExecutorService executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("connection-prewarm-", 0).factory());
+        try {
+            executor.invokeAll(tasks, pool.getPrewarmTimeout(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        if (elapsed >= pool.getPrewarmTimeout()) {
+            log.warn("Connection warm-up timed out after {} ms with {} connections opened", elapsed, opened.get());
+        } else {
+            log.info("Connection warm-up opened {} connections to {} upstreams in {} ms", opened.get(), upstreams.size(), elapsed);
+        }
+        return opened.get();
+    }
+
+    private void warmUp(HttpHost upstream, GatewayProperties.Performance.ConnectionPool pool, AtomicInteger opened) {
+        HttpRoute route = HttpClientConfig.routeFor(upstream);
+        int count = Math.min(pool.getPrewarmConnections(), connectionManager.getMaxPerRoute(route));
+        Timeout leaseTimeout = Timeout.ofMilliseconds(pool.getConnectionRequestTimeout());
+        List<ConnectionEndpoint> endpoints = new ArrayList<>(count);
+        // isConnected() only reports that a connection is attached, which is also true after a failed connect
+        Set<ConnectionEndpoint> ready = new HashSet<>();
+
+        try {
+            // Lease every endpoint before connecting so each gets its own connection rather than a just-released one
+            for (int i = 0; i < count; i++) {
+                endpoints.add(connectionManager.lease("prewarm-" + upstream, route, leaseTimeout, null).get(leaseTimeout));
+            }
+            for (ConnectionEndpoint endpoint : endpoints) {
+                if (!endpoint.isConnected()) {
+                    connectionManager.connect(endpoint, null, HttpClientContext.create());
+                    opened.incrementAndGet();
+                }
+                ready.add(endpoint);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("Connection warm-up to {} failed: {}", upstream, e.toString());
+        } finally {
+            TimeValue keepAlive = TimeValue.ofSeconds(pool.getKeepAliveTime());
+            for (ConnectionEndpoint endpoint : endpoints) {
+                if (!ready.contains(endpoint)) {
+                    endpoint.close(CloseMode.IMMEDIATE);
+                }
+                connectionManager.release(endpoint, null, keepAlive);
+            }
+        }
+    }
+
+    // Origins served by the pooled HTTP/1.1 client; those of http2 services go through Http2UpstreamTransport
+    // and would only get pool connections that no request ever uses
+    private Set<HttpHost> upstreams() {
+        Set<HttpHost> upstreams = new LinkedHashSet<>();
+        Set<HttpHost> http2Upstreams = new HashSet<>();
+        if (whitelistProperties.getServices() != null) {
+            for (GatewayWhitelistProperties.ServiceConfig service : whitelistProperties.getServices()) {
+                HttpHost upstream = HttpClientConfig.upstreamHost(service.getBaseUrl());
+                if (upstream != null) {
+                    (service.isHttp2() ? http2Upstreams : upstreams).add(upstream);
+                }
+            }
+        }
+        upstreams.removeAll(http2Upstreams);
+        return upstreams;
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.feigngateway.service;
+
+import com.example.feigngateway.config.GatewayProperties;
+import com.example.feigngateway.config.GatewayWhitelistProperties;
+import com.example.feigngateway.exception.GatewayTimeoutException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Time budgets of forwarded requests. The budget is the tighter of the client's deadline, read from the
+ * request headers, and the route's configured timeout. The HTTP client sizes its timeouts from it and sends
+ * what is left upstream. Once it is spent, the request fails with 504 instead of starting more upstream work.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DeadlineService {
+
+    public static final String GRPC_TIMEOUT_HEADER = "grpc-timeout";
+
+    // At most 8 digits followed by a unit: Hours, Minutes, Seconds, milliseconds, microseconds, nanoseconds
+    private static final Pattern GRPC_TIMEOUT = Pattern.compile("(\\d{1,8})([HMSmun])");
+
+    private final GatewayProperties gatewayProperties;
+
+    // The client's deadline, the earliest of those given in the configured headers; null if none is given
+    public RequestDeadline fromHeaders(Function<String, String> headers) {
+        GatewayProperties.Proxy.Deadline config = gatewayProperties.getProxy().getDeadline();
+        if (!config.isEnabled()) {
+            return null;
+        }
+        RequestDeadline deadline = parseAbsolute(headers.apply(config.getDeadlineHeader()));
+        deadline = earliest(deadline, parseMillis(headers.apply(config.getTimeoutHeader())));
+        if (config.isGrpcTimeout()) {
+            deadline = earliest(deadline, parseGrpcTimeout(headers.apply(GRPC_TIMEOUT_HEADER)));
+        }
+        return deadline;
+    }
+
+    // Runs call under the tighter of the current deadline and the route's timeout
+    public <T> T executeWithin(ResolvedRoute route, Supplier<T> call) {
+        Long routeTimeout = routeTimeout(route);
+        RequestDeadline deadline = routeTimeout != null
+            ? RequestDeadline.in(routeTimeout).earliest(RequestDeadline.current())
+            : RequestDeadline.current();
+        return deadline != null ? RequestDeadline.callWithin(deadline, call) : call.get();
+    }
+
+    // One upstream attempt: not started once the budget is spent, and a timeout after it ran out becomes a 504
+    public <T> T attempt(String serviceName, Supplier<T> call) {
+        RequestDeadline deadline = RequestDeadline.current();
+        if (deadline == null) {
+            return call.get();
+        }
+        if (deadline.isExpired()) {
+            throw new GatewayTimeoutException(serviceName, deadline.getBudgetMillis());
+        }
+        try {
+            return call.get();
+        } catch (ResourceAccessException e) {
+            if (deadline.isExpired()) {
+                throw new GatewayTimeoutException(serviceName, deadline.getBudgetMillis());
+            }
+            throw e;
+        }
+    }
+
+    // Value of the timeout header sent upstream, or null when nothing is to be propagated
+    public String upstreamTimeoutHeaderValue() {
+        RequestDeadline deadline = RequestDeadline.current();
+        if (deadline == null || !gatewayProperties.getProxy().getDeadline().isPropagate()) {
+            return null;
+        }
+        return Long.toString(deadline.remainingMillis());
+    }
+
+    public String getUpstreamTimeoutHeader() {
+        return gatewayProperties.getProxy().getDeadline().getTimeoutHeader();
+    }
+
+    Long routeTimeout(ResolvedRoute route) {
+        List<GatewayWhitelistProperties.RouteTimeout> timeouts = route.getServiceConfig().getRouteTimeouts();
+        if (timeouts == null || route.getMatchedPattern() == null) {
+            return null;
+        }
+        for (GatewayWhitelistProperties.RouteTimeout timeout : timeouts) {
+            if (route.getMatchedPattern().equals(timeout.getEndpoint())) {
+                return timeout.getTimeout();
+            }
+        }
+        return null;
+    }
+
+    private static RequestDeadline parseAbsolute(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            String trimmed = value.trim();
+            long epochMillis = trimmed.chars().allMatch(Character::isDigit)
+                ? Long.parseLong(trimmed)
+                : Instant.parse(trimmed).toEpochMilli();
+            return RequestDeadline.in(Math.max(0, epochMillis - System.currentTimeMillis()));
+        } catch (NumberFormatException | DateTimeParseException e) {
+            log.debug("Ignoring malformed deadline '{}'", value);
+            return null;
+        }
+    }
+
+    private static RequestDeadline parseMillis(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return RequestDeadline.in(Math.max(0, Long.parseLong(value.trim())));
+        } catch (NumberFormatException e) {
+            log.debug("Ignoring malformed timeout '{}'", value);
+            return null;
+        }
+    }
+
+    private static RequestDeadline parseGrpcTimeout(String value) {
+        if (value == null) {
+            return null;
+        }
+        Matcher matcher = GRPC_TIMEOUT.matcher(value.trim());
+        if (!matcher.matches()) {
+            log.debug("Ignoring malformed grpc-timeout '{}'", value);
+            return null;
+        }
+        long amount = Long.parseLong(matcher.group(1));
+        TimeUnit unit = switch (matcher.group(2)) {
+            case "H" -> TimeUnit.HOURS;
+            case "M" -> TimeUnit.MINUTES;
+            case "S" -> TimeUnit.SECONDS;
+            case "m" -> TimeUnit.MILLISECONDS;
+            case "u" -> TimeUnit.MICROSECONDS;
+            default -> TimeUnit.NANOSECONDS;
+        };
+        return RequestDeadline.in(unit.toMillis(amount));
+    }
+
+    private static RequestDeadline earliest(RequestDeadline current, RequestDeadline candidate) {
+        if (current == null) {
+            return candidate;
+        }
+        return current.earliest(candidate);
+    }
+}
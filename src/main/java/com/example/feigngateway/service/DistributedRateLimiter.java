@@ -0,0 +1,164 @@
+package com.example.feigngateway.service;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cluster-wide limits counted in a {@link RateLimitStore}. A limit of {@code requestsPerMinute} with a burst
+ * of {@code burstCapacity} becomes fixed wall-clock windows of {@code 60s * burst / rpm} that admit
+ * {@code burst} requests each, so every node agrees on the window without coordination. Permits are leased
+ * from the store in batches and handed out locally, so only one check in roughly {@code leaseSize} pays a
+ * round trip; the price is that permits leased by a node but unused when its window ends are lost.
+ */
+final class DistributedRateLimiter {
+
+    private final RateLimitStore store;
+    private final ConcurrentHashMap<String, KeyState> states = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private final LongAdder roundTrips = new LongAdder();
+
+    DistributedRateLimiter(RateLimitStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Takes one permit for {@code key}.
+     *
+     * @return 0 when a permit was taken, otherwise the nanoseconds until the next window opens
+     * @throws java.io.UncheckedIOException when a lease was needed and the store could not be reached
+     */
+    long tryAcquire(String key, int requestsPerMinute, int burstCapacity, String keyPrefix, int leaseSize,
+                    int maxTrackedKeys, long nowMillis) {
+        long windowMillis = Math.max(1, TimeUnit.MINUTES.toMillis(1) * burstCapacity / requestsPerMinute);
+        long window = nowMillis / windowMillis;
+        KeyState state = stateFor(key, maxTrackedKeys, nowMillis);
+
+        Lease lease = state.lease;
+        if (lease != null && lease.window == window) {
+            if (lease.tryTake()) {
+                return 0;
+            }
+            if (lease.exhausted) {
+                return waitNanos(window, windowMillis, nowMillis);
+            }
+        }
+
+        state.lock.lock();
+        try {
+            // Another thread may have renewed the lease while this one waited for the lock
+            lease = state.lease;
+            if (lease != null && lease.window == window) {
+                if (lease.tryTake()) {
+                    return 0;
+                }
+                if (lease.exhausted) {
+                    return waitNanos(window, windowMillis, nowMillis);
+                }
+            }
+            int requested = Math.min(leaseSize, burstCapacity);
+            roundTrips.increment();
+            int granted = store.acquire(keyPrefix + key + ":" + window, requested, burstCapacity, windowMillis * 2);
+            // One of the granted permits goes to this call
+            state.lease = new Lease(window, windowMillis, granted - 1, granted < requested);
+            return granted > 0 ? 0 : waitNanos(window, windowMillis, nowMillis);
+        } finally {
+            state.lock.unlock();
+        }
+    }
+
+    // Puts back a permit taken by tryAcquire for a request that was not forwarded
+    void release(String key, long nowMillis) {
+        KeyState state = states.get(key);
+        Lease lease = state != null ? state.lease : null;
+        if (lease != null && lease.window == nowMillis / lease.windowMillis) {
+            lease.remaining.incrementAndGet();
+        }
+    }
+
+    int trackedKeys() {
+        return states.size();
+    }
+
+    long roundTrips() {
+        return roundTrips.sum();
+    }
+
+    private static long waitNanos(long window, long windowMillis, long nowMillis) {
+        return TimeUnit.MILLISECONDS.toNanos(Math.max(1, (window + 1) * windowMillis - nowMillis));
+    }
+
+    private KeyState stateFor(String key, int maxTrackedKeys, long nowMillis) {
+        KeyState state = states.get(key);
+        if (state != null) {
+            return state;
+        }
+        KeyState created = new KeyState();
+        state = states.putIfAbsent(key, created);
+        if (state != null) {
+            return state;
+        }
+        if (states.size() > maxTrackedKeys) {
+            evict(maxTrackedKeys, nowMillis);
+        }
+        return created;
+    }
+
+    private void evict(int maxTrackedKeys, long nowMillis) {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            // A lease from a past window is worthless, so those keys go first
+            states.values().removeIf(state -> {
+                Lease lease = state.lease;
+                return lease != null && lease.window != nowMillis / lease.windowMillis;
+            });
+            int target = maxTrackedKeys - maxTrackedKeys / 10;
+            Iterator<KeyState> iterator = states.values().iterator();
+            while (states.size() > target && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    private static final class KeyState {
+        // Not synchronized: renewing a lease blocks on the network and must not pin a virtual thread
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile Lease lease;
+    }
+
+    private static final class Lease {
+        private final long window;
+        private final long windowMillis;
+        private final AtomicInteger remaining;
+        // The store had fewer permits than requested, so renewing in this window would be refused too
+        private final boolean exhausted;
+
+        private Lease(long window, long windowMillis, int remaining, boolean exhausted) {
+            this.window = window;
+            this.windowMillis = windowMillis;
+            this.remaining = new AtomicInteger(Math.max(0, remaining));
+            this.exhausted = exhausted;
+        }
+
+        private boolean tryTake() {
+            while (true) {
+                int current = remaining.get();
+                if (current <= 0) {
+                    return false;
+                }
+                if (remaining.compareAndSet(current, current - 1)) {
+                    return true;
+                }
+            }
+        }
+    }
+}
@@ -1,11 +1,17 @@
 package com.example.feigngateway.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.server.ServletServerHttpRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
@@ -14,7 +20,15 @@ import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import java.io.IOException;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 @Service
 @RequiredArgsConstructor
@@ -22,23 +36,213 @@ public class GatewayService {
     
     private final RestTemplate restTemplate;
     private final WhitelistService whitelistService;
+    private final PassthroughService passthroughService;
+    private final UpstreamConcurrencyLimiter upstreamConcurrencyLimiter;
+    private final CircuitBreakerService circuitBreakerService;
+    private final BulkheadService bulkheadService;
+    private final RetryService retryService;
+    private final HedgingService hedgingService;
+    private final DeadlineService deadlineService;
+    private final ResponseCacheService responseCacheService;
+    private final RequestCoalescer requestCoalescer;
+    private final ObjectProvider<NonBlockingForwardingEngine> nonBlockingEngine;
+    private final ObjectMapper objectMapper;
     
     public ResponseEntity<Object> forwardRequest(String service, String pathInService, 
                                                String method, Map<String, String> queryParams, 
                                                Object body) {
-        return validateAndExecute(service, pathInService, () -> {
-            String targetUrl = whitelistService.getTargetUrl(service, pathInService);
-            String finalUrl = buildUrlWithQueryParams(targetUrl, queryParams);
-            return ResponseEntity.ok(makeRequest(method, finalUrl, body));
+        return forwardRequest(service, pathInService, method, queryParams, body, null);
+    }
+    
+    // A request with an idempotency key is retried like an idempotent one, whatever its method
+    public ResponseEntity<Object> forwardRequest(String service, String pathInService,
+                                               String method, Map<String, String> queryParams,
+                                               Object body, String idempotencyKey) {
+        boolean replayable = retryService.isReplayable(method, idempotencyKey);
+        return resolveAndExecute(service, pathInService, route -> {
+            String finalUrl = buildUrlWithQueryParams(route.getTargetUrl(), queryParams);
+            // Object mode buffers the whole response, so a slow GET can be hedged with a second attempt
+            Supplier<ResponseEntity<Object>> call = () -> executeProtected(route, () -> replayable, method, routed ->
+                ResponseEntity.ok(makeRequest(method, finalUrl, body)), outcome -> false);
+            if (!"GET".equalsIgnoreCase(method)) {
+                return call.get();
+            }
+            // Identical GETs in flight share one upstream call and its parsed body
+            return requestCoalescer.execute(route.getServiceName(),
+                "object " + ResponseCacheService.cacheKey(route.getServiceName(), finalUrl), call, shared -> true);
         });
     }
     
+    // Object mode for a raw servlet request: the JSON body is parsed here instead of by MVC binding
+    public ResponseEntity<Object> forwardRequest(String service, String pathInService,
+                                               String method, Map<String, String> queryParams,
+                                               HttpServletRequest request) {
+        return forwardRequest(service, pathInService, method, queryParams, readJsonBody(request),
+            request.getHeader(retryService.getIdempotencyKeyHeader()));
+    }
+    
+    // Streams the inbound body upstream and relays the upstream response bytes straight to the servlet
+    // response. Returns null once the response has been written (or, with the non-blocking engine, once
+    // async processing has started), or an error entity when the request is rejected before forwarding.
+    public ResponseEntity<Object> forwardPassthrough(String service, String pathInService,
+                                                     String method, Map<String, String> queryParams,
+                                                     HttpServletRequest request, HttpServletResponse response) {
+        NonBlockingForwardingEngine engine = nonBlockingEngine.getIfAvailable();
+        if (engine != null) {
+            // The engine holds the upstream permit and records the breaker outcome when the exchange completes
+            return resolveAndExecute(service, pathInService, route -> {
+                String finalUrl = buildUrlWithQueryParams(route.getTargetUrl(), queryParams);
+                engine.forward(route, HttpMethod.valueOf(method.toUpperCase()), finalUrl, request, response);
+                return null;
+            });
+        }
+        
+        // The body streams upstream once, so only bodiless requests are retried, and only until the response
+        // is committed. Upstream error statuses are relayed as-is rather than thrown, so read them back from the response.
+        boolean replayable = retryService.isReplayable(method, request.getHeader(retryService.getIdempotencyKeyHeader()))
+            && !passthroughService.hasBody(request);
+        HttpMethod httpMethod = HttpMethod.valueOf(method.toUpperCase());
+        BooleanSupplier canRetry = () -> replayable && !response.isCommitted();
+        return resolveAndExecute(service, pathInService, route -> {
+            String finalUrl = buildUrlWithQueryParams(route.getTargetUrl(), queryParams);
+            if (!HttpMethod.GET.equals(httpMethod)) {
+                ResponseEntity<Object> result = executeProtected(route, canRetry, routed -> {
+                    passthroughService.exchange(httpMethod, finalUrl, request, response);
+                    return null;
+                }, outcome -> response.getStatus() >= 500);
+                if (!HttpMethod.HEAD.equals(httpMethod) && response.getStatus() < 400) {
+                    responseCacheService.invalidate(route, finalUrl);
+                }
+                return result;
+            }
+            
+            // A fresh cached response is served without touching the upstream or its protections, and so is
+            // a stale one within its stale-while-revalidate window, while it is refreshed in the background
+            ResponseCacheService.CacheableRequest cacheable = responseCacheService.cacheable(route, method, finalUrl, request::getHeader);
+            CachedResponse cached = cacheable != null ? responseCacheService.get(cacheable) : null;
+            if (cached != null) {
+                if (!cached.isFresh(System.nanoTime())) {
+                    responseCacheService.refreshAsync(cacheable, () -> refresh(route, finalUrl, cached));
+                }
+                if (relayCached(route, cached, request, response)) {
+                    return null;
+                }
+                // Its off-heap body was evicted since the lookup, so the request goes upstream after all
+            }
+            
+            // A stale stored response is revalidated with its ETag / Last-Modified rather than fetched again.
+            // Within its stale-if-error window it stands in for an upstream that fails, answers 5xx or is behind
+            // an open circuit; the 5xx is then thrown rather than relayed so it can be replaced.
+            CachedResponse stored = responseCacheService.peek(cacheable);
+            CachedResponse fallback = stored != null && stored.isUsableOnError(System.nanoTime()) ? stored : null;
+            IntPredicate failOnStatus = fallback != null ? status -> status >= 500 : status -> false;
+            
+            // Identical GETs in flight share one upstream call: its response is captured while it is relayed
+            // and written out again for each waiter whose Vary headers match
+            AtomicBoolean forwarded = new AtomicBoolean();
+            String flightKey = "passthrough " + ResponseCacheService.cacheKey(route.getServiceName(), finalUrl);
+            CachedResponse shared;
+            try {
+                shared = requestCoalescer.execute(route.getServiceName(), flightKey, () -> {
+                    forwarded.set(true);
+                    return forwardCapturing(route, finalUrl, cacheable, stored, canRetry, failOnStatus, request, response);
+                }, snapshot -> snapshot != null && responseCacheService.matchesVary(snapshot, request::getHeader));
+            } catch (RuntimeException e) {
+                if (fallback == null || response.isCommitted()) {
+                    throw e;
+                }
+                response.reset();
+                if (!relayCached(route, fallback, request, response)) {
+                    throw e;
+                }
+                responseCacheService.recordStaleIfError(cacheable);
+                return null;
+            }
+            if (!forwarded.get()) {
+                relayCached(route, shared, request, response);
+            }
+            return null;
+        });
+    }
+    
+    // Relays a GET through the upstream protections, returning the response as captured for sharing and caching.
+    // With a stored response to revalidate, an upstream 304 freshens it and it is relayed in place of the body.
+    private CachedResponse forwardCapturing(ResolvedRoute route, String finalUrl, ResponseCacheService.CacheableRequest cacheable,
+                                            CachedResponse stored, BooleanSupplier canRetry, IntPredicate failOnStatus,
+                                            HttpServletRequest request, HttpServletResponse response) {
+        // An off-heap stored body must stay readable until a 304 has freshened it; one already freed isn't revalidated
+        boolean pinned = stored != null && stored.retain();
+        HttpHeaders validators = responseCacheService.validators(pinned ? stored : null);
+        AtomicReference<ResponseCapture> capture = new AtomicReference<>();
+        AtomicReference<HttpHeaders> notModified = new AtomicReference<>();
+        CachedResponse snapshot;
+        try {
+            executeProtected(route, canRetry, routed -> {
+                // A fresh capture per attempt, so nothing of a failed one is kept
+                capture.set(responseCacheService.capture());
+                notModified.set(passthroughService.revalidate(finalUrl, validators, request, response, capture.get(), failOnStatus));
+                return null;
+            }, outcome -> response.getStatus() >= 500);
+            snapshot = notModified.get() != null
+                ? responseCacheService.freshen(route, stored, notModified.get())
+                : responseCacheService.snapshot(route, capture.get(), request::getHeader);
+        } finally {
+            if (pinned) {
+                stored.release();
+            }
+        }
+        if (cacheable != null) {
+            responseCacheService.put(cacheable, snapshot);
+        }
+        if (notModified.get() != null) {
+            relayCached(route, snapshot, request, response);
+        }
+        return snapshot;
+    }
+    
+    // Background refresh of a stale entry, revalidated with its validators. No client waits on it, so the
+    // upstream response is read into a capture only and stored under the entry's Vary values; a 5xx fails
+    // the refresh and keeps the stale entry.
+    private CachedResponse refresh(ResolvedRoute route, String finalUrl, CachedResponse stale) {
+        Function<String, String> varyHeaders = name -> stale.getVaryValues().get(name.toLowerCase(Locale.ROOT));
+        boolean pinned = stale.retain();
+        HttpHeaders validators = responseCacheService.validators(pinned ? stale : null);
+        AtomicReference<ResponseCapture> capture = new AtomicReference<>();
+        AtomicReference<HttpHeaders> notModified = new AtomicReference<>();
+        try {
+            executeProtected(route, () -> true, routed -> {
+                capture.set(responseCacheService.capture());
+                notModified.set(passthroughService.revalidate(finalUrl, validators, null, null, capture.get(), status -> status >= 500));
+                return null;
+            }, outcome -> false);
+            return notModified.get() != null
+                ? responseCacheService.freshen(route, stale, notModified.get())
+                : responseCacheService.snapshot(route, capture.get(), varyHeaders);
+        } finally {
+            if (pinned) {
+                stale.release();
+            }
+        }
+    }
+    
+    // Writes a cached response, or 304 when the client's conditional request shows it already has it.
+    // False when nothing was written because an off-heap body was freed in the meantime.
+    private boolean relayCached(ResolvedRoute route, CachedResponse cached, HttpServletRequest request, HttpServletResponse response) {
+        if (responseCacheService.notModified(cached, request::getHeader)) {
+            responseCacheService.recordNotModified(route.getServiceName());
+            passthroughService.relayNotModified(cached, response);
+            return true;
+        }
+        return passthroughService.relay(cached, response);
+    }
+    
     public ResponseEntity<Object> forwardMultipartRequest(String service, String pathInService,
                                                          String method, Map<String, String> queryParams,
-                                                         Map<String, String> form, MultipartFile[] files) {
-        return validateAndExecute(service, pathInService, () -> {
-            String targetUrl = whitelistService.getTargetUrl(service, pathInService);
-            String finalUrl = buildUrlWithQueryParams(targetUrl, queryParams);
+                                                         Map<String, String> form, MultipartFile[] files,
+                                                         String idempotencyKey) {
+        boolean replayable = retryService.isReplayable(method, idempotencyKey);
+        return validateAndExecute(service, pathInService, replayable, route -> {
+            String finalUrl = buildUrlWithQueryParams(route.getTargetUrl(), queryParams);
             MultiValueMap<String, Object> multipartBody = buildMultipartBody(form, files);
             
             HttpHeaders headers = new HttpHeaders();
@@ -61,6 +265,9 @@ public class GatewayService {
             case "PUT":
                 return restTemplate.exchange(url, HttpMethod.PUT, 
                     new HttpEntity<>(body), Object.class).getBody();
+            case "PATCH":
+                return restTemplate.exchange(url, HttpMethod.PATCH, 
+                    new HttpEntity<>(body), Object.class).getBody();
             case "DELETE":
                 return restTemplate.exchange(url, HttpMethod.DELETE, 
                     new HttpEntity<>(body), Object.class).getBody();
@@ -69,6 +276,18 @@ public class GatewayService {
         }
     }
     
+    Object readJsonBody(HttpServletRequest request) {
+        if (!passthroughService.hasBody(request)) {
+            return null;
+        }
+        passthroughService.checkDeclaredBodySize(request);
+        try {
+            return objectMapper.readValue(request.getInputStream(), Object.class);
+        } catch (IOException e) {
+            throw new HttpMessageNotReadableException("Invalid request body format", e, new ServletServerHttpRequest(request));
+        }
+    }
+    
     private String buildUrlWithQueryParams(String url, Map<String, String> queryParams) {
         if (queryParams == null || queryParams.isEmpty()) return url;
         
@@ -102,17 +321,52 @@ public class GatewayService {
         return multipartBody;
     }
     
-    private ResponseEntity<Object> validateAndExecute(String service, String pathInService, 
-                                                    java.util.function.Supplier<ResponseEntity<Object>> executor) {
-        if (!whitelistService.isRequestAllowed(service, pathInService)) {
-            return ResponseEntity.status(403).body("Access denied: Path not whitelisted");
-        }
-        
-        String targetUrl = whitelistService.getTargetUrl(service, pathInService);
-        if (targetUrl == null) {
-            return ResponseEntity.badRequest().body("Invalid service path");
+    private ResponseEntity<Object> validateAndExecute(String service, String pathInService, boolean replayable,
+                                                    Function<ResolvedRoute, ResponseEntity<Object>> executor) {
+        return validateAndExecute(service, pathInService, () -> replayable, executor, result -> false);
+    }
+    
+    // The bulkhead slot bounds the threads held for the service over the whole call; the breaker is
+    // checked before the concurrency limiter so an open circuit never waits for a permit. The breaker sees
+    // the outcome after retries, while each attempt takes its own concurrency permit. All of it runs within
+    // the request's deadline, and no attempt starts once that has passed.
+    private ResponseEntity<Object> validateAndExecute(String service, String pathInService, BooleanSupplier canRetry,
+                                                    Function<ResolvedRoute, ResponseEntity<Object>> executor,
+                                                    Predicate<ResponseEntity<Object>> failedResult) {
+        return resolveAndExecute(service, pathInService, route -> executeProtected(route, canRetry, executor, failedResult));
+    }
+    
+    private ResponseEntity<Object> executeProtected(ResolvedRoute route, BooleanSupplier canRetry,
+                                                  Function<ResolvedRoute, ResponseEntity<Object>> executor,
+                                                  Predicate<ResponseEntity<Object>> failedResult) {
+        return executeProtected(route, canRetry, null, executor, failedResult);
+    }
+    
+    // With a hedge method the attempt may be hedged; hedging sits above the limiter so every attempt,
+    // hedges included, takes its own upstream permit
+    private ResponseEntity<Object> executeProtected(ResolvedRoute route, BooleanSupplier canRetry, String hedgeMethod,
+                                                  Function<ResolvedRoute, ResponseEntity<Object>> executor,
+                                                  Predicate<ResponseEntity<Object>> failedResult) {
+        Supplier<ResponseEntity<Object>> attempt = () -> 
+            upstreamConcurrencyLimiter.execute(route.getServiceName(), route.getServiceConfig().getBaseUrl(), 
+                () -> deadlineService.attempt(route.getServiceName(), () -> executor.apply(route)),
+                failedResult);
+        return deadlineService.executeWithin(route, () -> 
+            bulkheadService.execute(route.getServiceName(), () -> 
+                circuitBreakerService.execute(route.getServiceName(), () -> 
+                    retryService.execute(route.getServiceName(), canRetry, hedgeMethod == null ? attempt
+                        : () -> hedgingService.execute(route.getServiceName(), hedgeMethod, attempt)), failedResult)));
+    }
+    
+    private ResponseEntity<Object> resolveAndExecute(String service, String pathInService, 
+                                                   Function<ResolvedRoute, ResponseEntity<Object>> executor) {
+        ResolvedRoute route = whitelistService.resolveRoute(service, pathInService);
+        if (route == null) {
+            return whitelistService.isEnabled()
+                ? ResponseEntity.status(403).body("Access denied: Path not whitelisted")
+                : ResponseEntity.badRequest().body("Invalid service path");
         }
         
-        return executor.get();
+        return executor.apply(route);
     }
 }
@@ -0,0 +1,232 @@
+package com.example.feigngateway.service;
+
+import com.example.feigngateway.config.GatewayProperties;
+import com.example.feigngateway.config.GatewayWhitelistProperties;
+import com.example.feigngateway.exception.ServiceUnavailableException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Request hedging for read-heavy services. A GET that has not answered within the hedge delay, either fixed
+ * or the service's observed p95, is sent a second time, and whichever attempt succeeds first is used. The
+ * other is cancelled: a queued attempt never starts and a running one is interrupted. A budget earned per
+ * eligible request keeps hedges below budgetPercent of the service's traffic.
+ */
+@Service
+@Slf4j
+public class HedgingService {
+
+    // Latencies the p95 is computed over, and how many new ones trigger recomputing it
+    private static final int LATENCY_SAMPLES = 128;
+    private static final int RECOMPUTE_INTERVAL = 16;
+
+    // Budget balances are kept in thousandths of a hedge; the budget holds one hedge at most
+    private static final long TOKEN = 1000;
+
+    private final GatewayProperties gatewayProperties;
+    private final GatewayWhitelistProperties whitelistProperties;
+    private final PerformanceMetricsService metricsService;
+    private final Executor hedgingTaskExecutor;
+
+    private final ConcurrentHashMap<String, Hedge> hedges = new ConcurrentHashMap<>();
+
+    public HedgingService(GatewayProperties gatewayProperties, GatewayWhitelistProperties whitelistProperties,
+                          PerformanceMetricsService metricsService,
+                          @Qualifier("hedgingTaskExecutor") Executor hedgingTaskExecutor) {
+        this.gatewayProperties = gatewayProperties;
+        this.whitelistProperties = whitelistProperties;
+        this.metricsService = metricsService;
+        this.hedgingTaskExecutor = hedgingTaskExecutor;
+    }
+
+    // Runs call, hedging it if the service opted in and the method is GET; anything else runs as-is
+    public <T> T execute(String serviceName, String method, Supplier<T> call) {
+        Hedge hedge = hedgeFor(serviceName);
+        if (!hedge.policy.isEnabled() || !"GET".equalsIgnoreCase(method)) {
+            return call.get();
+        }
+        metricsService.recordHedgeEligible(serviceName);
+        hedge.deposit();
+
+        long start = System.nanoTime();
+        long delay = hedgeDelay(hedge);
+        T result = delay < 0 ? call.get() : executeHedged(serviceName, hedge, delay, call);
+        hedge.latencies.record(System.nanoTime() - start);
+        return result;
+    }
+
+    // Current hedge delay and budget per service, keyed by service name
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new TreeMap<>();
+        hedges.forEach((service, hedge) -> {
+            Map<String, Object> serviceStats = new LinkedHashMap<>();
+            serviceStats.put("enabled", hedge.policy.isEnabled());
+            serviceStats.put("delayMillis", hedgeDelay(hedge));
+            serviceStats.put("p95Millis", TimeUnit.NANOSECONDS.toMillis(Math.max(0, hedge.latencies.p95Nanos())));
+            serviceStats.put("budgetRemaining", hedge.budget.get() / (double) TOKEN);
+            stats.put(service, serviceStats);
+        });
+        return stats;
+    }
+
+    private <T> T executeHedged(String serviceName, Hedge hedge, long delayMillis, Supplier<T> call) {
+        CompletionService<T> attempts = new ExecutorCompletionService<>(hedgingTaskExecutor);
+        Future<T> primary = submit(attempts, call);
+        if (primary == null) {
+            return call.get();
+        }
+        Future<T> backup = null;
+        try {
+            Future<T> first = attempts.poll(delayMillis, TimeUnit.MILLISECONDS);
+            if (first == null) {
+                backup = hedge.tryWithdraw() ? submit(attempts, call) : null;
+                if (backup != null) {
+                    metricsService.recordHedge(serviceName);
+                    log.debug("Hedging request for service {} after {} ms", serviceName, delayMillis);
+                }
+                first = attempts.take();
+            }
+            // A failed attempt only decides the outcome once the other one has finished too
+            if (backup != null && first.state() != Future.State.SUCCESS) {
+                first = attempts.take();
+            }
+            if (first == backup && first.state() == Future.State.SUCCESS) {
+                metricsService.recordHedgeWin(serviceName);
+            }
+            return outcome(first);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException(serviceName, "Interrupted while waiting for a hedged request", e);
+        } finally {
+            primary.cancel(true);
+            if (backup != null) {
+                backup.cancel(true);
+            }
+        }
+    }
+
+    private static <T> Future<T> submit(CompletionService<T> attempts, Supplier<T> call) {
+        try {
+            return attempts.submit(RequestDeadline.propagate(call)::get);
+        } catch (RejectedExecutionException e) {
+            return null;
+        }
+    }
+
+    private static <T> T outcome(Future<T> attempt) {
+        if (attempt.state() == Future.State.SUCCESS) {
+            return attempt.resultNow();
+        }
+        Throwable failure = attempt.exceptionNow();
+        if (failure instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        if (failure instanceof Error error) {
+            throw error;
+        }
+        throw new IllegalStateException("Hedged request failed", failure);
+    }
+
+    // Fixed delay if configured, otherwise the observed p95; -1 while too few latencies are known to hedge
+    private long hedgeDelay(Hedge hedge) {
+        GatewayProperties.Performance.Hedging policy = hedge.policy;
+        if (policy.getDelay() > 0) {
+            return policy.getDelay();
+        }
+        if (hedge.latencies.count() < policy.getMinSamples()) {
+            return -1;
+        }
+        return Math.max(policy.getMinDelay(), TimeUnit.NANOSECONDS.toMillis(hedge.latencies.p95Nanos()));
+    }
+
+    private Hedge hedgeFor(String serviceName) {
+        return hedges.computeIfAbsent(serviceName != null ? serviceName : "unknown", this::createHedge);
+    }
+
+    private Hedge createHedge(String serviceName) {
+        GatewayProperties.Performance.Hedging defaults = gatewayProperties.getPerformance().getHedging();
+        GatewayWhitelistProperties.Hedging overrides = whitelistProperties.serviceOverrides(serviceName,
+            GatewayWhitelistProperties.ServiceConfig::getHedging, GatewayWhitelistProperties.Hedging::new);
+
+        GatewayProperties.Performance.Hedging policy = new GatewayProperties.Performance.Hedging();
+        policy.setEnabled(Objects.requireNonNullElse(overrides.getEnabled(), defaults.isEnabled()));
+        policy.setDelay(Objects.requireNonNullElse(overrides.getDelay(), defaults.getDelay()));
+        policy.setBudgetPercent(Objects.requireNonNullElse(overrides.getBudgetPercent(), defaults.getBudgetPercent()));
+        policy.setMinDelay(defaults.getMinDelay());
+        policy.setMinSamples(defaults.getMinSamples());
+        return new Hedge(policy);
+    }
+
+    private static final class Hedge {
+        private final GatewayProperties.Performance.Hedging policy;
+        private final LatencyWindow latencies = new LatencyWindow();
+        private final AtomicLong budget = new AtomicLong();
+        private final long deposit;
+
+        private Hedge(GatewayProperties.Performance.Hedging policy) {
+            this.policy = policy;
+            this.deposit = policy.getBudgetPercent() * TOKEN / 100;
+        }
+
+        private void deposit() {
+            budget.accumulateAndGet(deposit, (balance, amount) -> Math.min(TOKEN, balance + amount));
+        }
+
+        private boolean tryWithdraw() {
+            long balance;
+            do {
+                balance = budget.get();
+                if (balance < TOKEN) {
+                    return false;
+                }
+            } while (!budget.compareAndSet(balance, balance - TOKEN));
+            return true;
+        }
+    }
+
+    // Ring of the most recent latencies; the p95 is re-sorted every RECOMPUTE_INTERVAL samples, not per call
+    private static final class LatencyWindow {
+        private final long[] samples = new long[LATENCY_SAMPLES];
+        private int count;
+        private int next;
+        private int sinceRecompute;
+        private long p95Nanos = -1;
+
+        private synchronized void record(long nanos) {
+            samples[next] = nanos;
+            next = (next + 1) % samples.length;
+            count = Math.min(count + 1, samples.length);
+            sinceRecompute++;
+        }
+
+        private synchronized int count() {
+            return count;
+        }
+
+        private synchronized long p95Nanos() {
+            if (count > 0 && (p95Nanos < 0 || sinceRecompute >= RECOMPUTE_INTERVAL)) {
+                long[] sorted = Arrays.copyOf(samples, count);
+                Arrays.sort(sorted);
+                p95Nanos = sorted[(int) Math.ceil(count * 0.95) - 1];
+                sinceRecompute = 0;
+            }
+            return p95Nanos;
+        }
+    }
+}
@@ -0,0 +1,510 @@
+package com.example.feigngateway.service;
+
+import com.example.feigngateway.config.GatewayProperties;
+import com.example.feigngateway.config.GatewayWhitelistProperties;
+import com.example.feigngateway.config.HttpClientConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.H2AsyncClientBuilder;
+import org.apache.hc.client5.http.ssl.ClientTlsStrategyBuilder;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ConnectionClosedException;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.ProtocolException;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+import org.apache.hc.core5.http.nio.AsyncResponseConsumer;
+import org.apache.hc.core5.http.nio.CapacityChannel;
+import org.apache.hc.core5.http.nio.entity.AsyncEntityProducers;
+import org.apache.hc.core5.http.nio.support.AsyncRequestBuilder;
+import org.apache.hc.core5.http.nio.support.classic.AbstractClassicEntityProducer;
+import org.apache.hc.core5.http.nio.support.classic.ContentInputStream;
+import org.apache.hc.core5.http.nio.support.classic.SharedInputBuffer;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.http2.H2ConnectionException;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.reactor.IOSession;
+import org.apache.hc.core5.reactor.IOSessionListener;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.http.client.AbstractClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+
+import javax.net.ssl.SSLContext;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * HTTP/2 transport for upstream origins of services with {@code http2: true}.
+ * Each origin gets its own httpclient5 HTTP/2 client, which speaks h2 through ALPN over TLS and with prior
+ * knowledge (h2c) over plain http, and multiplexes concurrent requests as streams over its connection.
+ * An origin that turns out not to speak HTTP/2 is handed back to the pooled HTTP/1.1 client.
+ */
+@Slf4j
+public class Http2UpstreamTransport implements AutoCloseable {
+
+    // Request headers that are connection-specific, or that the client derives from the entity itself
+    private static final Set<String> SKIPPED_HEADERS = Set.of(
+            "connection", "keep-alive", "proxy-connection", "transfer-encoding", "upgrade", "te",
+            "host", "content-length");
+
+    private final Map<HttpHost, Upstream> upstreams = new HashMap<>();
+    private final int bufferSize;
+    // Runs the writers of streamed request bodies, which block while the stream's flow-control window is full
+    private final ExecutorService bodyWriters = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("h2-body-writer-", 0).factory());
+
+    public Http2UpstreamTransport(GatewayProperties gatewayProperties, GatewayWhitelistProperties whitelistProperties,
+                                  SSLContext sslContext) {
+        GatewayProperties.Performance.ConnectionPool pool = gatewayProperties.getPerformance().getConnectionPool();
+        this.bufferSize = gatewayProperties.getProxy().getBufferSize();
+        List<GatewayWhitelistProperties.ServiceConfig> services = whitelistProperties.getServices() != null
+                ? whitelistProperties.getServices() : List.of();
+
+        for (GatewayWhitelistProperties.ServiceConfig service : services) {
+            HttpHost origin = HttpClientConfig.upstreamHost(service.getBaseUrl());
+            if (!service.isHttp2() || origin == null) {
+                continue;
+            }
+            if (upstreams.containsKey(origin)) {
+                log.warn("HTTP/2 transport for {} already configured by another service; ignoring settings of {}", origin, service.getName());
+                continue;
+            }
+            upstreams.put(origin, new Upstream(origin, sslContext,
+                    Objects.requireNonNullElse(service.getConnectTimeout(), pool.getConnectTimeout()),
+                    Objects.requireNonNullElse(service.getReadTimeout(), pool.getReadTimeout())));
+            log.info("Upstream {} (service: {}) uses the HTTP/2 transport", origin, service.getName());
+        }
+    }
+
+    // Request factory for the URI's origin, or null when that origin stays on (or has fallen back to) the
+    // pooled HTTP/1.1 client. fallback serves the request that finds out the origin doesn't speak HTTP/2.
+    public ClientHttpRequestFactory requestFactoryFor(URI uri, ClientHttpRequestFactory fallback) {
+        if (upstreams.isEmpty()) {
+            return null;
+        }
+        HttpHost origin = HttpClientConfig.upstreamHost(uri.toString());
+        Upstream upstream = origin != null ? upstreams.get(origin) : null;
+        if (upstream == null || upstream.fellBack) {
+            return null;
+        }
+        return (requestUri, method) -> new Http2Request(upstream, requestUri, method, fallback);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        upstreams.forEach((origin, upstream) -> stats.put(origin.toURI(), upstream.getStats()));
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        upstreams.values().forEach(upstream -> upstream.client.close(CloseMode.IMMEDIATE));
+        bodyWriters.shutdownNow();
+    }
+
+    // One origin's client. Connections are counted as the client's I/O reactor opens and closes them; streams
+    // from request start until the response body is fully read, failed or abandoned.
+    private static final class Upstream implements IOSessionListener {
+        private final HttpHost origin;
+        private final CloseableHttpAsyncClient client;
+        private final AtomicInteger connections = new AtomicInteger();
+        private final AtomicInteger activeStreams = new AtomicInteger();
+        private final AtomicInteger peakActiveStreams = new AtomicInteger();
+        private final LongAdder responses = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private volatile boolean negotiated;
+        private volatile boolean fellBack;
+
+        private Upstream(HttpHost origin, SSLContext sslContext, int connectTimeout, int readTimeout) {
+            this.origin = origin;
+            this.client = H2AsyncClientBuilder.create()
+                    .setTlsStrategy(ClientTlsStrategyBuilder.create().setSslContext(sslContext).build())
+                    .setIOReactorConfig(IOReactorConfig.custom().setIoThreadCount(1).build())
+                    .setDefaultConnectionConfig(ConnectionConfig.custom()
+                            .setConnectTimeout(Timeout.ofMilliseconds(connectTimeout))
+                            .build())
+                    .setDefaultRequestConfig(RequestConfig.custom()
+                            .setResponseTimeout(Timeout.ofMilliseconds(readTimeout))
+                            .build())
+                    .setIOSessionListener(this)
+                    // Retries are decided per service by RetryService
+                    .disableAutomaticRetries()
+                    .disableRedirectHandling()
+                    .disableCookieManagement()
+                    .build();
+            this.client.start();
+        }
+
+        private Map<String, Object> getStats() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("protocol", fellBack ? "HTTP/1.1" : negotiated ? "HTTP/2" : "not connected");
+            stats.put("connections", connections.get());
+            stats.put("activeStreams", activeStreams.get());
+            stats.put("peakActiveStreams", peakActiveStreams.get());
+            stats.put("responses", responses.sum());
+            stats.put("failures", failures.sum());
+            return stats;
+        }
+
+        // An HTTP/1.1 server answers the h2 preface, or ALPN, with something that isn't HTTP/2 at all
+        private boolean fallBackOn(Throwable cause) {
+            if (negotiated || !(cause instanceof H2ConnectionException || cause instanceof ProtocolException
+                    || cause instanceof ConnectionClosedException)) {
+                return false;
+            }
+            if (!fellBack) {
+                fellBack = true;
+                log.warn("Upstream {} does not speak HTTP/2 ({}); using the HTTP/1.1 connection pool", origin, cause.toString());
+            }
+            return true;
+        }
+
+        @Override
+        public void connected(IOSession session) {
+            connections.incrementAndGet();
+        }
+
+        @Override
+        public void disconnected(IOSession session) {
+            connections.decrementAndGet();
+        }
+
+        @Override
+        public void startTls(IOSession session) {
+        }
+
+        @Override
+        public void inputReady(IOSession session) {
+        }
+
+        @Override
+        public void outputReady(IOSession session) {
+        }
+
+        @Override
+        public void timeout(IOSession session) {
+        }
+
+        @Override
+        public void exception(IOSession session, Exception ex) {
+        }
+    }
+
+    private final class Http2Request extends AbstractClientHttpRequest implements StreamingHttpOutputMessage {
+        private final Upstream upstream;
+        private final URI uri;
+        private final HttpMethod method;
+        private final ClientHttpRequestFactory fallback;
+        private ByteArrayOutputStream bufferedBody;
+        private Body streamingBody;
+
+        private Http2Request(Upstream upstream, URI uri, HttpMethod method, ClientHttpRequestFactory fallback) {
+            this.upstream = upstream;
+            this.uri = uri;
+            this.method = method;
+            this.fallback = fallback;
+        }
+
+        @Override
+        public HttpMethod getMethod() {
+            return method;
+        }
+
+        @Override
+        public URI getURI() {
+            return uri;
+        }
+
+        @Override
+        public void setBody(Body body) {
+            assertNotExecuted();
+            this.streamingBody = body;
+        }
+
+        @Override
+        protected OutputStream getBodyInternal(HttpHeaders headers) {
+            if (bufferedBody == null) {
+                bufferedBody = new ByteArrayOutputStream();
+            }
+            return bufferedBody;
+        }
+
+        @Override
+        protected ClientHttpResponse executeInternal(HttpHeaders headers) throws IOException {
+            AsyncRequestBuilder builder = AsyncRequestBuilder.create(method.name()).setUri(uri);
+            headers.forEach((name, values) -> {
+                if (!SKIPPED_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+                    values.forEach(value -> builder.addHeader(name, value));
+                }
+            });
+            AsyncEntityProducer entity = entity();
+            if (entity != null) {
+                builder.setEntity(entity);
+            }
+
+            Stream stream = new Stream(upstream);
+            upstream.client.execute(builder.build(), stream, stream);
+            try {
+                return new Http2Response(stream.head.get(), stream);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (stream.finish()) {
+                    upstream.failures.increment();
+                }
+                stream.discard();
+                throw new InterruptedIOException("Interrupted while waiting for " + uri);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                // Nothing of a bodiless request reached the application, so it can go through the pool instead
+                if (upstream.fallBackOn(cause) && entity == null && fallback != null) {
+                    ClientHttpRequest retry = fallback.createRequest(uri, method);
+                    retry.getHeaders().putAll(headers);
+                    return retry.execute();
+                }
+                throw cause instanceof IOException io ? io : new IOException(cause);
+            }
+        }
+
+        private AsyncEntityProducer entity() {
+            if (streamingBody != null) {
+                Body body = streamingBody;
+                return new AbstractClassicEntityProducer(bufferSize, null, bodyWriters) {
+                    @Override
+                    protected void produceData(ContentType contentType, OutputStream out) throws IOException {
+                        body.writeTo(out);
+                    }
+                };
+            }
+            if (bufferedBody != null && bufferedBody.size() > 0) {
+                return AsyncEntityProducers.create(bufferedBody.toByteArray(), (ContentType) null);
+            }
+            return null;
+        }
+    }
+
+    // Consumes one response: the head completes the future the request waits on, the body is read through a
+    // buffer that grants the stream more flow-control window only as the caller reads
+    private final class Stream implements AsyncResponseConsumer<Void>, FutureCallback<Void> {
+        private final Upstream upstream;
+        private final CompletableFuture<HttpResponse> head = new CompletableFuture<>();
+        private final ReentrantLock lock = new ReentrantLock();
+        private final SharedInputBuffer buffer = new SharedInputBuffer(lock, bufferSize);
+        private final AtomicBoolean finished = new AtomicBoolean();
+        private volatile Exception failure;
+        private CapacityChannel capacityChannel;
+        private boolean discarding;
+        private int discarded;
+
+        private Stream(Upstream upstream) {
+            this.upstream = upstream;
+            upstream.peakActiveStreams.accumulateAndGet(upstream.activeStreams.incrementAndGet(), Math::max);
+        }
+
+        @Override
+        public void consumeResponse(HttpResponse response, EntityDetails entityDetails, HttpContext context,
+                                    FutureCallback<Void> resultCallback) {
+            upstream.negotiated = true;
+            upstream.responses.increment();
+            if (entityDetails == null) {
+                finish();
+                buffer.markEndStream();
+                resultCallback.completed(null);
+            }
+            head.complete(response);
+        }
+
+        @Override
+        public void informationResponse(HttpResponse response, HttpContext context) {
+        }
+
+        @Override
+        public void updateCapacity(CapacityChannel capacityChannel) throws IOException {
+            lock.lock();
+            try {
+                this.capacityChannel = capacityChannel;
+                buffer.updateCapacity(capacityChannel);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void consume(ByteBuffer src) throws IOException {
+            lock.lock();
+            try {
+                if (!discarding) {
+                    buffer.fill(src);
+                    return;
+                }
+                // Window for a dropped body goes back a buffer at a time: servers treat a run of tiny window
+                // updates as abuse and close the connection
+                discarded += src.remaining();
+                src.position(src.limit());
+                if (discarded >= bufferSize && capacityChannel != null) {
+                    capacityChannel.update(discarded);
+                    discarded = 0;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void streamEnd(List<? extends Header> trailers) {
+            finish();
+            buffer.markEndStream();
+        }
+
+        @Override
+        public void failed(Exception cause) {
+            fail(cause);
+        }
+
+        @Override
+        public void releaseResources() {
+        }
+
+        @Override
+        public void completed(Void result) {
+        }
+
+        @Override
+        public void cancelled() {
+            fail(new InterruptedIOException("HTTP/2 stream to " + upstream.origin + " cancelled"));
+        }
+
+        private void fail(Exception cause) {
+            failure = cause;
+            if (finish()) {
+                upstream.failures.increment();
+            }
+            head.completeExceptionally(cause);
+            buffer.abort();
+        }
+
+        // Cancelling the exchange is no way to drop a response: HttpClient either leaves the stream stalled on
+        // its flow-control window or closes the whole connection, failing every other stream on it. The rest of
+        // the body is read and thrown away instead, which keeps the window open until the stream ends.
+        private void discard() {
+            lock.lock();
+            try {
+                discarding = true;
+                byte[] scratch = new byte[bufferSize];
+                while (buffer.hasData() && buffer.read(scratch, 0, scratch.length) != -1) {
+                    // Emptying the buffer grants the stream back the window its content took
+                }
+            } catch (IOException e) {
+                // Only granting window can fail here, and then the connection is failing anyway
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private boolean finish() {
+            if (finished.compareAndSet(false, true)) {
+                upstream.activeStreams.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private static final class Http2Response implements ClientHttpResponse {
+        private final HttpResponse response;
+        private final Stream stream;
+        private final InputStream body;
+        private HttpHeaders headers;
+
+        private Http2Response(HttpResponse response, Stream stream) {
+            this.response = response;
+            this.stream = stream;
+            // An aborted buffer reads as end of stream, so a failed stream must not pass for a complete body
+            this.body = new ContentInputStream(stream.buffer) {
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    return checked(super.read(b, off, len));
+                }
+
+                @Override
+                public int read() throws IOException {
+                    return checked(super.read());
+                }
+
+                private int checked(int read) throws IOException {
+                    Exception failure = stream.failure;
+                    if (read == -1 && failure != null) {
+                        throw failure instanceof IOException io ? io : new IOException(failure);
+                    }
+                    return read;
+                }
+            };
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() {
+            return HttpStatusCode.valueOf(response.getCode());
+        }
+
+        @Override
+        public String getStatusText() {
+            return Objects.requireNonNullElse(response.getReasonPhrase(), "");
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            if (headers == null) {
+                headers = new HttpHeaders();
+                for (Header header : response.getHeaders()) {
+                    headers.add(header.getName(), header.getValue());
+                }
+            }
+            return headers;
+        }
+
+        @Override
+        public InputStream getBody() {
+            return body;
+        }
+
+        // A body closed before its end stream is drained in the background rather than cancelled. That
+        // includes a body read up to its Content-Length whose end of stream hasn't been processed yet.
+        @Override
+        public void close() {
+            if (stream.finish()) {
+                stream.discard();
+            }
+        }
+    }
+}
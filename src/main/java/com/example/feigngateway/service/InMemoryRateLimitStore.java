@@ -0,0 +1,40 @@
+package com.example.feigngateway.service;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-local {@link RateLimitStore}, for tests and single-node setups that want the leasing behaviour
+ * of the distributed mode without running a store.
+ */
+public class InMemoryRateLimitStore implements RateLimitStore {
+
+    private static final int PURGE_THRESHOLD = 10000;
+
+    private final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>();
+
+    @Override
+    public int acquire(String key, int requested, int limit, long ttlMillis) {
+        long now = System.currentTimeMillis();
+        int[] granted = new int[1];
+        counters.compute(key, (k, counter) -> {
+            Counter current = counter == null || counter.expiresAt <= now ? new Counter(now + ttlMillis) : counter;
+            granted[0] = (int) Math.max(0, Math.min(requested, limit - current.count));
+            current.count += requested;
+            return current;
+        });
+        if (counters.size() > PURGE_THRESHOLD) {
+            counters.values().removeIf(counter -> counter.expiresAt <= now);
+        }
+        return granted[0];
+    }
+
+    private static final class Counter {
+        private final long expiresAt;
+        // Only touched inside compute(), which serializes updates per key
+        private long count;
+
+        private Counter(long expiresAt) {
+            this.expiresAt = expiresAt;
+        }
+    }
+}
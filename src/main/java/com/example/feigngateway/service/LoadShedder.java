@@ -0,0 +1,142 @@
+package com.example.feigngateway.service;
+
+import com.example.feigngateway.config.GatewayProperties;
+import com.example.feigngateway.config.GatewayProperties.RequestPriority;
+import com.example.feigngateway.config.GatewayWhitelistProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admission decision for routed requests. Load is the highest of two ratios:
+ * <ul>
+ *   <li>in-flight requests against maxConcurrentRequests, scaled down once recent latency exceeds targetLatency;</li>
+ *   <li>queue depth of gatewayTaskExecutor against its capacity.</li>
+ * </ul>
+ * Each priority is shed once load passes its threshold, so low-priority traffic goes first and critical
+ * traffic never does. Rejected requests cost no upstream work, and admitted ones stay within capacity,
+ * so goodput holds steady instead of collapsing as offered load grows.
+ */
+@Service
+@Slf4j
+public class LoadShedder {
+
+    private final GatewayProperties gatewayProperties;
+    private final WhitelistService whitelistService;
+    private final Executor gatewayTaskExecutor;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    // Moving average of the latency of admitted requests, weight 1/8 per sample
+    private final AtomicLong latencyNanos = new AtomicLong();
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder[] shed = new LongAdder[RequestPriority.values().length];
+
+    public LoadShedder(GatewayProperties gatewayProperties, WhitelistService whitelistService,
+                       @Qualifier("gatewayTaskExecutor") Executor gatewayTaskExecutor) {
+        this.gatewayProperties = gatewayProperties;
+        this.whitelistService = whitelistService;
+        this.gatewayTaskExecutor = gatewayTaskExecutor;
+        for (int i = 0; i < shed.length; i++) {
+            shed[i] = new LongAdder();
+        }
+    }
+
+    // The header wins over the service's configured priority; unknown header values are ignored
+    public RequestPriority resolvePriority(String serviceName, String headerValue) {
+        if (headerValue != null && !headerValue.isEmpty()) {
+            try {
+                return RequestPriority.valueOf(headerValue.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                log.debug("Ignoring unknown request priority '{}'", headerValue);
+            }
+        }
+        GatewayWhitelistProperties.ServiceConfig serviceConfig = serviceName != null ? whitelistService.getServiceConfig(serviceName) : null;
+        if (serviceConfig != null && serviceConfig.getPriority() != null) {
+            return serviceConfig.getPriority();
+        }
+        return gatewayProperties.getPerformance().getLoadShedding().getDefaultPriority();
+    }
+
+    // Admits the request and counts it in flight, or returns false when its priority is being shed.
+    // Every admitted request must be paired with onComplete.
+    public boolean tryAdmit(RequestPriority priority) {
+        GatewayProperties.Performance.LoadShedding config = gatewayProperties.getPerformance().getLoadShedding();
+        if (config.isEnabled() && priority != RequestPriority.CRITICAL && loadPercent(config) >= threshold(config, priority)) {
+            shed[priority.ordinal()].increment();
+            return false;
+        }
+        inFlight.incrementAndGet();
+        admitted.increment();
+        return true;
+    }
+
+    public void onComplete(long durationNanos) {
+        inFlight.decrementAndGet();
+        latencyNanos.accumulateAndGet(durationNanos, (average, sample) -> average == 0 ? sample : average + (sample - average) / 8);
+    }
+
+    public Map<String, Object> getStats() {
+        GatewayProperties.Performance.LoadShedding config = gatewayProperties.getPerformance().getLoadShedding();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", config.isEnabled());
+        stats.put("loadPercent", loadPercent(config));
+        stats.put("inFlight", inFlight.get());
+        stats.put("capacity", capacity(config));
+        stats.put("latencyMillis", TimeUnit.NANOSECONDS.toMillis(latencyNanos.get()));
+        stats.put("queueDepth", queueDepth());
+        stats.put("admitted", admitted.sum());
+        Map<String, Long> shedByPriority = new LinkedHashMap<>();
+        for (RequestPriority priority : RequestPriority.values()) {
+            shedByPriority.put(priority.name().toLowerCase(Locale.ROOT), shed[priority.ordinal()].sum());
+        }
+        stats.put("shed", shedByPriority);
+        return stats;
+    }
+
+    int loadPercent(GatewayProperties.Performance.LoadShedding config) {
+        int inFlightLoad = (int) (inFlight.get() * 100L / capacity(config));
+        int queueCapacity = gatewayProperties.getPerformance().getThreadPool().getQueueCapacity();
+        int queueLoad = (int) (queueDepth() * 100L / Math.max(1, queueCapacity));
+        return Math.max(inFlightLoad, queueLoad);
+    }
+
+    // In-flight requests the gateway can take now: the configured maximum while latency is on target,
+    // shrinking in proportion as latency rises above it. Never below one, so latency samples keep coming.
+    private int capacity(GatewayProperties.Performance.LoadShedding config) {
+        long latency = latencyNanos.get();
+        long target = TimeUnit.MILLISECONDS.toNanos(config.getTargetLatency());
+        if (latency <= target) {
+            return config.getMaxConcurrentRequests();
+        }
+        return (int) Math.max(1, config.getMaxConcurrentRequests() * target / latency);
+    }
+
+    private int queueDepth() {
+        // Virtual-thread mode has no queue: every task gets its own thread
+        if (gatewayTaskExecutor instanceof ThreadPoolTaskExecutor executor) {
+            return executor.getThreadPoolExecutor().getQueue().size();
+        }
+        return 0;
+    }
+
+    private static int threshold(GatewayProperties.Performance.LoadShedding config, RequestPriority priority) {
+        switch (priority) {
+            case HIGH:
+                return config.getHighPriorityThreshold();
+            case NORMAL:
+                return config.getNormalPriorityThreshold();
+            default:
+                return config.getLowPriorityThreshold();
+        }
+    }
+}
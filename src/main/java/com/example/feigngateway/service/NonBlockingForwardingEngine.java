@@ -0,0 +1,587 @@
+package com.example.feigngateway.service;
+
+import com.example.feigngateway.config.GatewayProperties;
+import com.example.feigngateway.dto.ErrorResponse;
+import com.example.feigngateway.exception.RequestBodyTooLargeException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+import org.apache.hc.core5.http.nio.AsyncResponseConsumer;
+import org.apache.hc.core5.http.nio.CapacityChannel;
+import org.apache.hc.core5.http.nio.DataStreamChannel;
+import org.apache.hc.core5.http.nio.support.AsyncRequestBuilder;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Passthrough forwarding without a thread parked on the exchange. The inbound body is streamed
+ * upstream from a servlet ReadListener, the upstream call runs on the async HTTP client's I/O reactor
+ * and upstream bytes are written back through a WriteListener. Each direction pauses while the far
+ * side is slower, so at most about one buffer per direction and exchange is held in memory.
+ * Each request is a single upstream exchange: retry, hedging, response caching (with stale serving and
+ * revalidation) and request coalescing only apply on the blocking engine.
+ */
+@Service
+@ConditionalOnProperty(prefix = "gateway.proxy", name = "engine", havingValue = "non-blocking")
+@RequiredArgsConstructor
+@Slf4j
+public class NonBlockingForwardingEngine {
+
+    private final CloseableHttpAsyncClient asyncHttpClient;
+    private final PassthroughService passthroughService;
+    private final UpstreamConcurrencyLimiter upstreamConcurrencyLimiter;
+    private final CircuitBreakerService circuitBreakerService;
+    private final GatewayProperties gatewayProperties;
+    private final ObjectMapper objectMapper;
+
+    @PostConstruct
+    void warnAboutBypassedFeatures() {
+        GatewayProperties.Performance performance = gatewayProperties.getPerformance();
+        List<String> bypassed = new ArrayList<>();
+        if (performance.getRetry().isEnabled()) {
+            bypassed.add("retry");
+        }
+        if (performance.getHedging().isEnabled()) {
+            bypassed.add("hedging");
+        }
+        if (performance.getCache().isEnabled()) {
+            bypassed.add("response cache");
+        }
+        if (performance.getCoalescing().isEnabled()) {
+            bypassed.add("coalescing");
+        }
+        if (!bypassed.isEmpty()) {
+            log.warn("gateway.proxy.engine=non-blocking forwards passthrough requests without {}; "
+                    + "these settings only apply to the blocking engine", String.join(", ", bypassed));
+        }
+    }
+
+    // Starts async processing and returns at once; the response is completed from I/O callbacks.
+    // Rejections that happen before async processing starts are thrown to the caller.
+    public void forward(ResolvedRoute route, HttpMethod method, String url,
+                        HttpServletRequest request, HttpServletResponse response) {
+        boolean hasBody = passthroughService.hasBody(request);
+        if (hasBody) {
+            passthroughService.checkDeclaredBodySize(request);
+        }
+
+        String serviceName = route.getServiceName();
+        String baseUrl = route.getServiceConfig().getBaseUrl();
+        circuitBreakerService.checkRequestAllowed(serviceName);
+        try {
+            upstreamConcurrencyLimiter.tryAcquire(serviceName, baseUrl);
+        } catch (RuntimeException e) {
+            circuitBreakerService.releasePermission(serviceName);
+            throw e;
+        }
+
+        Exchange exchange;
+        try {
+            AsyncContext asyncContext = request.startAsync(request, response);
+            asyncContext.setTimeout(gatewayProperties.getProxy().getAsyncTimeout());
+            exchange = new Exchange(serviceName, baseUrl, method, url, asyncContext, request, response);
+            asyncContext.addListener(exchange);
+        } catch (RuntimeException e) {
+            upstreamConcurrencyLimiter.release(serviceName, baseUrl);
+            circuitBreakerService.releasePermission(serviceName);
+            throw e;
+        }
+
+        if (hasBody) {
+            // The request goes upstream at once; its body follows as the container delivers it
+            Exchange.BodyStreamer body = exchange.new BodyStreamer();
+            exchange.send(body);
+            try {
+                request.getInputStream().setReadListener(body);
+            } catch (IOException | RuntimeException e) {
+                exchange.fail(e);
+            }
+        } else {
+            exchange.send(null);
+        }
+    }
+
+    private final class Exchange implements AsyncListener, FutureCallback<Void> {
+
+        private final String serviceName;
+        private final String baseUrl;
+        private final HttpMethod method;
+        private final String url;
+        private final AsyncContext asyncContext;
+        private final HttpServletRequest request;
+        private final HttpServletResponse response;
+        private final AtomicBoolean finished = new AtomicBoolean();
+        private final long startNanos = System.nanoTime();
+        private volatile Future<Void> upstreamCall;
+        private volatile boolean relaying;
+        // Written before responded is set, read after it
+        private long responseNanos;
+        private boolean serverError;
+        private volatile boolean responded;
+
+        private Exchange(String serviceName, String baseUrl, HttpMethod method, String url, AsyncContext asyncContext,
+                         HttpServletRequest request, HttpServletResponse response) {
+            this.serviceName = serviceName;
+            this.baseUrl = baseUrl;
+            this.method = method;
+            this.url = url;
+            this.asyncContext = asyncContext;
+            this.request = request;
+            this.response = response;
+        }
+
+        private void send(BodyStreamer body) {
+            try {
+                AsyncRequestBuilder builder = AsyncRequestBuilder.create(method.name()).setUri(url);
+                if (body != null) {
+                    builder.setEntity(body);
+                    for (String name : PassthroughService.BODY_HEADERS) {
+                        String value = request.getHeader(name);
+                        if (value != null && !HttpHeaders.CONTENT_TYPE.equals(name)) {
+                            builder.addHeader(name, value);
+                        }
+                    }
+                }
+                upstreamCall = asyncHttpClient.execute(builder.build(), new ResponseRelay(), this);
+            } catch (RuntimeException e) {
+                fail(e);
+            }
+        }
+
+        @Override
+        public void completed(Void result) {
+            if (finished.compareAndSet(false, true)) {
+                releaseUpstream(null);
+                asyncContext.complete();
+            }
+        }
+
+        @Override
+        public void failed(Exception ex) {
+            fail(ex);
+        }
+
+        @Override
+        public void cancelled() {
+            fail(new IOException("Upstream request cancelled"));
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            fail(new TimeoutException("No upstream response within " + gatewayProperties.getProxy().getAsyncTimeout() + " ms"));
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            fail(event.getThrowable());
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            // Covers completion by the container, e.g. after the client disconnected
+            if (finished.compareAndSet(false, true)) {
+                releaseUpstream(null);
+                cancelUpstream();
+                if (!responded) {
+                    circuitBreakerService.releasePermission(serviceName);
+                }
+            }
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+
+        private void fail(Throwable cause) {
+            if (!finished.compareAndSet(false, true)) {
+                return;
+            }
+            releaseUpstream(cause);
+            cancelUpstream();
+            // Only failures talking to the upstream count against its breaker, not inbound body errors
+            if (!responded) {
+                if (upstreamCall != null && !(cause instanceof RequestBodyTooLargeException)) {
+                    circuitBreakerService.recordFailure(serviceName, System.nanoTime() - startNanos);
+                } else {
+                    circuitBreakerService.releasePermission(serviceName);
+                }
+            }
+
+            try {
+                // Once relaying has started the status line is already decided and the stream is non-blocking
+                if (!relaying && !response.isCommitted()) {
+                    writeError(cause);
+                } else {
+                    log.warn("Non-blocking exchange for {} {} failed after the response started: {}", method, url, cause.toString());
+                }
+            } catch (IOException | RuntimeException e) {
+                log.debug("Could not write error response for {} {}", method, url, e);
+            } finally {
+                asyncContext.complete();
+            }
+        }
+
+        // The time to the response head is the latency sample for the service's concurrency limit
+        private void releaseUpstream(Throwable cause) {
+            if (responded) {
+                upstreamConcurrencyLimiter.release(serviceName, baseUrl, responseNanos, serverError);
+            } else if (cause != null && upstreamCall != null && !(cause instanceof RequestBodyTooLargeException)) {
+                upstreamConcurrencyLimiter.release(serviceName, baseUrl, System.nanoTime() - startNanos, true);
+            } else {
+                upstreamConcurrencyLimiter.release(serviceName, baseUrl);
+            }
+        }
+
+        private void writeError(Throwable cause) throws IOException {
+            HttpStatus status;
+            String message;
+            if (cause instanceof RequestBodyTooLargeException) {
+                status = HttpStatus.PAYLOAD_TOO_LARGE;
+                message = cause.getMessage();
+            } else if (cause instanceof TimeoutException || cause instanceof SocketTimeoutException) {
+                status = HttpStatus.GATEWAY_TIMEOUT;
+                message = "Upstream timeout: " + cause.getMessage();
+            } else {
+                status = HttpStatus.SERVICE_UNAVAILABLE;
+                message = "Service temporarily unavailable: " + cause.getMessage();
+            }
+            log.warn("Non-blocking exchange for {} {} failed with {}: {}", method, url, status.value(), cause.toString());
+
+            ErrorResponse errorResponse = ErrorResponse.builder()
+                    .message(message)
+                    .statusCode(status.value())
+                    .timestamp(Instant.now())
+                    .build();
+
+            response.reset();
+            response.setStatus(status.value());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getOutputStream().write(objectMapper.writeValueAsBytes(errorResponse));
+        }
+
+        private void cancelUpstream() {
+            Future<Void> call = upstreamCall;
+            if (call != null) {
+                call.cancel(true);
+            }
+        }
+
+        // Streams the inbound body upstream through a buffer of one proxy buffer size. The container's
+        // ReadListener fills it while isReady() allows and there is room; the I/O reactor drains it via
+        // produce(). A full buffer stops reading with isReady() still true, when the container will not
+        // call onDataAvailable again, so produce() resumes reading itself once it has freed space.
+        final class BodyStreamer implements AsyncEntityProducer, ReadListener {
+
+            private final ByteBuffer buffer = ByteBuffer.allocate(gatewayProperties.getProxy().getBufferSize());
+            private final byte[] chunk = new byte[buffer.capacity()];
+            private final long maxBodySize = gatewayProperties.getProxy().getMaxRequestBodySize();
+            private final String contentType = request.getContentType();
+            private final long contentLength = request.getContentLengthLong();
+            private volatile DataStreamChannel channel;
+            private long received;
+            private boolean paused;
+            private boolean ended;
+            private boolean streamEnded;
+
+            @Override
+            public void onDataAvailable() throws IOException {
+                readAvailable();
+            }
+
+            @Override
+            public void onAllDataRead() {
+                synchronized (this) {
+                    ended = true;
+                }
+                requestOutput();
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                fail(t);
+            }
+
+            @Override
+            public synchronized int available() {
+                if (streamEnded) {
+                    return 0;
+                }
+                return buffer.position() > 0 || ended ? Math.max(1, buffer.position()) : 0;
+            }
+
+            @Override
+            public void produce(DataStreamChannel channel) throws IOException {
+                this.channel = channel;
+                boolean resume;
+                synchronized (this) {
+                    if (streamEnded) {
+                        return;
+                    }
+                    // An empty write would fail once a length-delimited body has been sent in full
+                    if (buffer.position() > 0) {
+                        buffer.flip();
+                        channel.write(buffer);
+                        buffer.compact();
+                    }
+                    if (buffer.position() == 0 && ended) {
+                        streamEnded = true;
+                        channel.endStream();
+                        return;
+                    }
+                    resume = paused && buffer.hasRemaining();
+                }
+                if (resume) {
+                    readAvailable();
+                }
+            }
+
+            // Reads until the container has nothing more or the buffer is full, then wakes the reactor
+            private void readAvailable() throws IOException {
+                boolean read = false;
+                try {
+                    synchronized (this) {
+                        paused = false;
+                        ServletInputStream in = request.getInputStream();
+                        while (!finished.get() && !ended) {
+                            if (!buffer.hasRemaining()) {
+                                paused = true;
+                                break;
+                            }
+                            if (!in.isReady()) {
+                                break;
+                            }
+                            int count = in.read(chunk, 0, buffer.remaining());
+                            if (count == -1) {
+                                ended = true;
+                                break;
+                            }
+                            buffer.put(chunk, 0, count);
+                            received += count;
+                            read = true;
+                            if (received > maxBodySize) {
+                                throw new RequestBodyTooLargeException(maxBodySize);
+                            }
+                        }
+                    }
+                } catch (RequestBodyTooLargeException e) {
+                    fail(e);
+                    return;
+                }
+                if (read || ended) {
+                    requestOutput();
+                }
+            }
+
+            // Called outside the lock, as the reactor may hold its own while calling produce()
+            private void requestOutput() {
+                DataStreamChannel current = channel;
+                if (current != null) {
+                    current.requestOutput();
+                }
+            }
+
+            @Override
+            public boolean isRepeatable() {
+                return false;
+            }
+
+            @Override
+            public long getContentLength() {
+                return contentLength;
+            }
+
+            @Override
+            public String getContentType() {
+                return contentType;
+            }
+
+            @Override
+            public String getContentEncoding() {
+                return null;
+            }
+
+            @Override
+            public boolean isChunked() {
+                return contentLength < 0;
+            }
+
+            @Override
+            public Set<String> getTrailerNames() {
+                return null;
+            }
+
+            @Override
+            public void failed(Exception cause) {
+                // Reported to the exchange through the request's FutureCallback
+            }
+
+            @Override
+            public void releaseResources() {
+            }
+        }
+
+        // Copies upstream bytes to the client, granting the upstream more read capacity only once
+        // everything received so far has been written. Grants return the bytes consumed since the
+        // last grant, since reads can overshoot the window and a fixed grant could leave it closed.
+        private final class ResponseRelay implements AsyncResponseConsumer<Void>, WriteListener {
+
+            private final Deque<byte[]> pending = new ArrayDeque<>();
+            private ServletOutputStream out;
+            private FutureCallback<Void> resultCallback;
+            private CapacityChannel capacityChannel;
+            private boolean capacityRequested;
+            private boolean streamEnded;
+            private boolean done;
+            private long relayed;
+            private int ungranted;
+
+            @Override
+            public void consumeResponse(HttpResponse upstream, EntityDetails entityDetails, HttpContext context,
+                                        FutureCallback<Void> resultCallback) throws IOException {
+                responseNanos = System.nanoTime() - startNanos;
+                serverError = upstream.getCode() >= 500;
+                responded = true;
+                // Slow-call detection uses the time to the response head
+                if (serverError) {
+                    circuitBreakerService.recordFailure(serviceName, responseNanos);
+                } else {
+                    circuitBreakerService.recordSuccess(serviceName, responseNanos);
+                }
+                response.setStatus(upstream.getCode());
+                for (Header header : upstream.getHeaders()) {
+                    if (!PassthroughService.HOP_BY_HOP_HEADERS.contains(header.getName().toLowerCase(Locale.ROOT))) {
+                        response.addHeader(header.getName(), header.getValue());
+                    }
+                }
+
+                if (entityDetails == null) {
+                    resultCallback.completed(null);
+                    return;
+                }
+
+                synchronized (this) {
+                    this.resultCallback = resultCallback;
+                    this.out = response.getOutputStream();
+                    relaying = true;
+                    // The container calls onWritePossible once the stream can take data
+                    out.setWriteListener(this);
+                }
+            }
+
+            @Override
+            public void informationResponse(HttpResponse response, HttpContext context) {
+            }
+
+            @Override
+            public synchronized void updateCapacity(CapacityChannel capacityChannel) throws IOException {
+                this.capacityChannel = capacityChannel;
+                if (pending.isEmpty()) {
+                    grantCapacity();
+                } else {
+                    capacityRequested = true;
+                }
+            }
+
+            @Override
+            public void consume(ByteBuffer src) throws IOException {
+                byte[] chunk = new byte[src.remaining()];
+                src.get(chunk);
+                synchronized (this) {
+                    pending.add(chunk);
+                    ungranted += chunk.length;
+                    drain();
+                }
+            }
+
+            @Override
+            public synchronized void streamEnd(List<? extends Header> trailers) throws IOException {
+                streamEnded = true;
+                drain();
+            }
+
+            @Override
+            public synchronized void onWritePossible() throws IOException {
+                drain();
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                fail(t);
+            }
+
+            @Override
+            public void failed(Exception cause) {
+                // Reported to the exchange through the request's FutureCallback
+            }
+
+            @Override
+            public void releaseResources() {
+                // Called as soon as the upstream stream ends; chunks still pending are written afterwards
+            }
+
+            // isReady() must be checked before every write; when it returns false the container
+            // calls onWritePossible again once the client has caught up
+            private void drain() throws IOException {
+                if (out == null || done) {
+                    return;
+                }
+                while (!pending.isEmpty() && out.isReady()) {
+                    byte[] chunk = pending.poll();
+                    out.write(chunk);
+                    relayed += chunk.length;
+                }
+                if (!pending.isEmpty() || !out.isReady()) {
+                    return;
+                }
+                if (streamEnded) {
+                    done = true;
+                    log.debug("Relayed {} bytes with status {}", relayed, response.getStatus());
+                    resultCallback.completed(null);
+                } else if (capacityRequested) {
+                    capacityRequested = false;
+                    grantCapacity();
+                }
+            }
+
+            private void grantCapacity() throws IOException {
+                capacityChannel.update(Math.max(ungranted, gatewayProperties.getProxy().getBufferSize()));
+                ungranted = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.feigngateway.service;
+
+import org.apache.catalina.connector.CoyoteOutputStream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Response bodies held outside the Java heap, in direct ByteBuffer slabs carved into fixed-size blocks. A body
+ * takes as many blocks as it needs wherever they are free, so the slabs never fragment. Slabs are allocated as
+ * the store fills, up to its capacity. A body's blocks go back to the free list once its owner has released it
+ * and no relay is still reading it.
+ */
+final class OffHeapStore {
+
+    private final int blockSize;
+    private final int blocksPerSlab;
+    private final ByteBuffer[] slabs;
+
+    // Free block numbers, as a stack
+    private final int[] free;
+    private int freeCount;
+    private int slabCount;
+
+    OffHeapStore(long capacity, int slabSize, int blockSize) {
+        this.blockSize = blockSize;
+        this.blocksPerSlab = Math.max(1, slabSize / blockSize);
+        this.slabs = new ByteBuffer[(int) Math.max(1, capacity / ((long) blocksPerSlab * blockSize))];
+        this.free = new int[slabs.length * blocksPerSlab];
+    }
+
+    // Copies body into free blocks, or returns null when not enough of them are left
+    Body store(byte[] body) {
+        int[] blocks = allocate(Math.max(1, (body.length + blockSize - 1) / blockSize));
+        if (blocks == null) {
+            return null;
+        }
+        for (int i = 0; i < blocks.length; i++) {
+            int offset = i * blockSize;
+            block(blocks[i]).put(0, body, offset, Math.min(blockSize, body.length - offset));
+        }
+        return new Body(blocks, body.length);
+    }
+
+    // Bytes of direct memory a body of this length occupies
+    long footprint(int length) {
+        return (long) Math.max(1, (length + blockSize - 1) / blockSize) * blockSize;
+    }
+
+    synchronized long getUsedBytes() {
+        return ((long) slabCount * blocksPerSlab - freeCount) * blockSize;
+    }
+
+    synchronized long getAllocatedBytes() {
+        return (long) slabCount * blocksPerSlab * blockSize;
+    }
+
+    long getCapacityBytes() {
+        return (long) slabs.length * blocksPerSlab * blockSize;
+    }
+
+    private synchronized int[] allocate(int count) {
+        while (freeCount < count && slabCount < slabs.length) {
+            slabs[slabCount] = ByteBuffer.allocateDirect(blocksPerSlab * blockSize);
+            for (int i = blocksPerSlab - 1; i >= 0; i--) {
+                free[freeCount++] = slabCount * blocksPerSlab + i;
+            }
+            slabCount++;
+        }
+        if (freeCount < count) {
+            return null;
+        }
+        int[] blocks = new int[count];
+        for (int i = 0; i < count; i++) {
+            blocks[i] = free[--freeCount];
+        }
+        return blocks;
+    }
+
+    private synchronized void free(int[] blocks) {
+        for (int block : blocks) {
+            free[freeCount++] = block;
+        }
+    }
+
+    // A view of one block; slices are independent, so readers never disturb each other's positions
+    private ByteBuffer block(int block) {
+        return slabs[block / blocksPerSlab].slice((block % blocksPerSlab) * blockSize, blockSize);
+    }
+
+    /**
+     * The blocks of one body, reference counted: the cache entry holding it owns one reference and each relay
+     * reading it takes another for the duration of the write.
+     */
+    final class Body {
+
+        private final int[] blocks;
+        private final int length;
+        private final AtomicInteger references = new AtomicInteger(1);
+
+        private Body(int[] blocks, int length) {
+            this.blocks = blocks;
+            this.length = length;
+        }
+
+        int length() {
+            return length;
+        }
+
+        // Takes a reference; false once the body has been freed
+        boolean retain() {
+            int count;
+            do {
+                count = references.get();
+                if (count == 0) {
+                    return false;
+                }
+            } while (!references.compareAndSet(count, count + 1));
+            return true;
+        }
+
+        void release() {
+            if (references.decrementAndGet() == 0) {
+                free(blocks);
+            }
+        }
+
+        // Writes the blocks as they are, with no copy of the body on the heap. Tomcat's stream takes the
+        // direct buffers itself; other streams go through a channel with a small transfer buffer.
+        void writeTo(OutputStream out) throws IOException {
+            WritableByteChannel channel = out instanceof CoyoteOutputStream ? null : Channels.newChannel(out);
+            for (int i = 0; i < blocks.length; i++) {
+                ByteBuffer block = block(blocks[i]).limit(Math.min(blockSize, length - i * blockSize));
+                if (channel == null) {
+                    ((CoyoteOutputStream) out).write(block);
+                } else {
+                    while (block.hasRemaining()) {
+                        channel.write(block);
+                    }
+                }
+            }
+        }
+
+        // The body back on the heap, for the rare case it has to be stored anew
+        byte[] toArray() {
+            byte[] body = new byte[length];
+            for (int i = 0; i < blocks.length; i++) {
+                int offset = i * blockSize;
+                block(blocks[i]).get(0, body, offset, Math.min(blockSize, length - offset));
+            }
+            return body;
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.example.feigngateway.service;
+
+import com.example.feigngateway.config.GatewayProperties;
+import com.example.feigngateway.exception.RequestBodyTooLargeException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.ResponseExtractor;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.IntPredicate;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PassthroughService {
+    
+    // Connection-scoped headers that must not be relayed by a proxy (RFC 9110 section 7.6.1)
+    static final Set<String> HOP_BY_HOP_HEADERS = Set.of(
+        "connection", "keep-alive", "proxy-authenticate", "proxy-authorization",
+        "proxy-connection", "te", "trailer", "transfer-encoding", "upgrade");
+    
+    // Inbound headers that describe the raw body and must travel with it
+    static final List<String> BODY_HEADERS = List.of(
+        HttpHeaders.CONTENT_TYPE, HttpHeaders.CONTENT_ENCODING, HttpHeaders.CONTENT_LANGUAGE);
+    
+    // Response headers sent with a 304 in place of the representation
+    static final Set<String> NOT_MODIFIED_HEADERS = Set.of(
+        "cache-control", "content-location", "date", "etag", "expires", "last-modified", "vary");
+    
+    private final RestTemplate restTemplate;
+    private final GatewayProperties gatewayProperties;
+    
+    // Sends the request upstream and relays status, headers and body bytes to the servlet response.
+    // The inbound body, if any, is streamed as raw bytes. Upstream error statuses are relayed as-is.
+    // Returns the number of response body bytes copied.
+    public long exchange(HttpMethod method, String url, HttpServletRequest inbound, HttpServletResponse response) {
+        return exchange(method, url, inbound, response, null);
+    }
+    
+    // As above, also handing the relayed response to capture, if given, as it goes by
+    public long exchange(HttpMethod method, String url, HttpServletRequest inbound, HttpServletResponse response,
+                         ResponseCapture capture) {
+        return exchange(method, url, inbound, response, capture, status -> false);
+    }
+    
+    // As above, but an upstream status matching failOnStatus is thrown as an HttpServerErrorException
+    // instead of relayed, leaving the servlet response untouched for a fallback
+    public long exchange(HttpMethod method, String url, HttpServletRequest inbound, HttpServletResponse response,
+                         ResponseCapture capture, IntPredicate failOnStatus) {
+        return execute(method, url, inbound, null, upstream -> {
+            checkStatus(upstream, failOnStatus);
+            return copyResponse(upstream, response, capture);
+        });
+    }
+    
+    // A GET carrying the validators of a stored response. A 304 to them is not relayed: its headers are returned
+    // so the stored response can be freshened with them. Any other response is relayed and captured as by exchange,
+    // and null returned. Without a servlet response the body is only read into capture.
+    public HttpHeaders revalidate(String url, HttpHeaders validators, HttpServletRequest inbound,
+                                  HttpServletResponse response, ResponseCapture capture, IntPredicate failOnStatus) {
+        return execute(HttpMethod.GET, url, inbound, validators, upstream -> {
+            if (!validators.isEmpty() && upstream.getStatusCode().value() == HttpStatus.NOT_MODIFIED.value()) {
+                HttpHeaders notModified = new HttpHeaders();
+                notModified.addAll(upstream.getHeaders());
+                return notModified;
+            }
+            checkStatus(upstream, failOnStatus);
+            copyResponse(upstream, response, capture);
+            return null;
+        });
+    }
+    
+    private <T> T execute(HttpMethod method, String url, HttpServletRequest inbound, HttpHeaders extraHeaders,
+                          ResponseExtractor<T> handler) {
+        try {
+            ClientHttpRequest request = restTemplate.getRequestFactory()
+                .createRequest(restTemplate.getUriTemplateHandler().expand(url), method);
+            if (extraHeaders != null) {
+                request.getHeaders().addAll(extraHeaders);
+            }
+            
+            if (inbound != null && hasBody(inbound)) {
+                streamRequestBody(inbound, request);
+            }
+            
+            try (ClientHttpResponse upstream = request.execute()) {
+                return handler.extractData(upstream);
+            }
+        } catch (IOException e) {
+            if (e.getCause() instanceof RequestBodyTooLargeException tooLarge) {
+                throw tooLarge;
+            }
+            throw new ResourceAccessException("I/O error on " + method + " request for \"" + url + "\": " + e.getMessage(), e);
+        }
+    }
+    
+    // Writes a cached response the way an upstream one is relayed, with its Age. Returns false, having written
+    // nothing, when an off-heap body was evicted and freed since the lookup.
+    public boolean relay(CachedResponse cached, HttpServletResponse response) {
+        if (!cached.retain()) {
+            return false;
+        }
+        try {
+            response.setStatus(cached.getStatus());
+            cached.getHeaders().forEach((name, values) -> values.forEach(value -> response.addHeader(name, value)));
+            response.setHeader(HttpHeaders.AGE, Long.toString(cached.ageSeconds(System.nanoTime())));
+            response.setContentLength(cached.getBodyLength());
+            OutputStream out = response.getOutputStream();
+            cached.writeBody(out);
+            out.flush();
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write cached response", e);
+        } finally {
+            cached.release();
+        }
+    }
+    
+    // Answers a client's conditional request with 304 and the headers a 304 carries (RFC 9110 section 15.4.5)
+    public void relayNotModified(CachedResponse cached, HttpServletResponse response) {
+        response.setStatus(HttpStatus.NOT_MODIFIED.value());
+        cached.getHeaders().forEach((name, values) -> {
+            if (NOT_MODIFIED_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+                values.forEach(value -> response.addHeader(name, value));
+            }
+        });
+        response.setHeader(HttpHeaders.AGE, Long.toString(cached.ageSeconds(System.nanoTime())));
+    }
+    
+    public boolean hasBody(HttpServletRequest request) {
+        return request.getContentLengthLong() > 0 || request.getHeader(HttpHeaders.TRANSFER_ENCODING) != null;
+    }
+    
+    // Rejects bodies whose declared length is over the limit before anything is sent upstream
+    public void checkDeclaredBodySize(HttpServletRequest request) {
+        long maxBodySize = gatewayProperties.getProxy().getMaxRequestBodySize();
+        if (request.getContentLengthLong() > maxBodySize) {
+            throw new RequestBodyTooLargeException(maxBodySize);
+        }
+    }
+    
+    private void streamRequestBody(HttpServletRequest inbound, ClientHttpRequest request) throws IOException {
+        checkDeclaredBodySize(inbound);
+        
+        HttpHeaders headers = request.getHeaders();
+        for (String name : BODY_HEADERS) {
+            String value = inbound.getHeader(name);
+            if (value != null) {
+                headers.set(name, value);
+            }
+        }
+        if (inbound.getContentLengthLong() > 0) {
+            headers.setContentLength(inbound.getContentLengthLong());
+        }
+        
+        if (request instanceof StreamingHttpOutputMessage streaming) {
+            // Bytes are pulled from the client only as fast as the upstream socket accepts them
+            streaming.setBody(out -> copyBounded(inbound.getInputStream(), out));
+        } else {
+            copyBounded(inbound.getInputStream(), request.getBody());
+        }
+    }
+    
+    // Copies through a single fixed-size buffer, failing once the configured maximum is exceeded
+    private long copyBounded(InputStream in, OutputStream out) throws IOException {
+        long maxBodySize = gatewayProperties.getProxy().getMaxRequestBodySize();
+        byte[] buffer = new byte[gatewayProperties.getProxy().getBufferSize()];
+        long copied = 0;
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            copied += read;
+            if (copied > maxBodySize) {
+                throw new RequestBodyTooLargeException(maxBodySize);
+            }
+            out.write(buffer, 0, read);
+        }
+        out.flush();
+        return copied;
+    }
+    
+    // An upstream status matching failOnStatus is thrown rather than relayed
+    private static void checkStatus(ClientHttpResponse upstream, IntPredicate failOnStatus) throws IOException {
+        if (failOnStatus.test(upstream.getStatusCode().value())) {
+            throw HttpServerErrorException.create(upstream.getStatusCode(), upstream.getStatusText(),
+                upstream.getHeaders(), null, null);
+        }
+    }
+    
+    // Without a servlet response the body is only read into capture
+    private long copyResponse(ClientHttpResponse upstream, HttpServletResponse response, ResponseCapture capture)
+            throws IOException {
+        if (response != null) {
+            response.setStatus(upstream.getStatusCode().value());
+        }
+        HttpHeaders relayed = new HttpHeaders();
+        upstream.getHeaders().forEach((name, values) -> {
+            if (!HOP_BY_HOP_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+                if (response != null) {
+                    values.forEach(value -> response.addHeader(name, value));
+                }
+                relayed.addAll(name, values);
+            }
+        });
+        if (capture != null) {
+            capture.begin(upstream.getStatusCode().value(), relayed);
+        }
+        
+        long copied = 0;
+        try (InputStream in = upstream.getBody()) {
+            OutputStream out = response != null ? response.getOutputStream() : OutputStream.nullOutputStream();
+            byte[] buffer = new byte[gatewayProperties.getProxy().getBufferSize()];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+                if (capture != null) {
+                    capture.write(buffer, 0, read);
+                }
+                copied += read;
+            }
+            out.flush();
+        }
+        if (capture != null) {
+            capture.complete();
+        }
+        
+        log.debug("Relayed {} bytes with status {}", copied, upstream.getStatusCode().value());
+        return copied;
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.feigngateway.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Whitelist endpoint pattern compiled once into path segments.
+ * Supports literal segments, {@code *} (one segment), {@code {var}} (one segment),
+ * {@code **} (zero or more segments) and {@code *} / {@code {var}} inside a segment.
+ * Matching walks the request path by index and does not allocate.
+ */
+public final class PathPattern {
+
+    enum SegmentType {
+        LITERAL,
+        VARIABLE,
+        WILDCARD,
+        GLOB,
+        DOUBLE_WILDCARD
+    }
+
+    private final String pattern;
+    private final String[] segments;
+    private final SegmentType[] types;
+
+    private PathPattern(String pattern, String[] segments, SegmentType[] types) {
+        this.pattern = pattern;
+        this.segments = segments;
+        this.types = types;
+    }
+
+    public static PathPattern compile(String pattern) {
+        List<String> segments = new ArrayList<>();
+        List<SegmentType> types = new ArrayList<>();
+
+        for (String segment : pattern.split("/")) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+            SegmentType type = typeOf(segment);
+            segments.add(type == SegmentType.GLOB ? segment.replaceAll("\\{[^/}]*}", "*") : segment);
+            types.add(type);
+        }
+
+        return new PathPattern(pattern, segments.toArray(new String[0]), types.toArray(new SegmentType[0]));
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    int segmentCount() {
+        return segments.length;
+    }
+
+    String segment(int index) {
+        return segments[index];
+    }
+
+    SegmentType segmentType(int index) {
+        return types[index];
+    }
+
+    public boolean matches(String path) {
+        return path != null && matchFrom(0, path, 0, null);
+    }
+
+    // Values captured by {var} segments, or null when the path does not match
+    public Map<String, String> extractVariables(String path) {
+        if (path == null) {
+            return null;
+        }
+        Map<String, String> variables = new LinkedHashMap<>();
+        return matchFrom(0, path, 0, variables) ? variables : null;
+    }
+
+    private boolean matchFrom(int segmentIndex, String path, int position, Map<String, String> variables) {
+        int length = path.length();
+        int pos = skipSlashes(path, position);
+
+        while (segmentIndex < segments.length) {
+            if (types[segmentIndex] == SegmentType.DOUBLE_WILDCARD) {
+                if (segmentIndex == segments.length - 1) {
+                    return true;
+                }
+                // Try the remainder of the pattern at every following segment boundary
+                while (true) {
+                    if (matchFrom(segmentIndex + 1, path, pos, variables)) {
+                        return true;
+                    }
+                    if (pos >= length) {
+                        return false;
+                    }
+                    pos = skipSlashes(path, segmentEnd(path, pos));
+                }
+            }
+
+            if (pos >= length) {
+                return false;
+            }
+            int end = segmentEnd(path, pos);
+            if (!matchSegment(segmentIndex, path, pos, end)) {
+                return false;
+            }
+            if (variables != null && types[segmentIndex] == SegmentType.VARIABLE) {
+                String segment = segments[segmentIndex];
+                variables.put(segment.substring(1, segment.length() - 1), path.substring(pos, end));
+            }
+            segmentIndex++;
+            pos = skipSlashes(path, end);
+        }
+
+        return pos >= length;
+    }
+
+    boolean matchSegment(int segmentIndex, String path, int start, int end) {
+        String segment = segments[segmentIndex];
+        switch (types[segmentIndex]) {
+            case LITERAL:
+                return end - start == segment.length() && path.regionMatches(start, segment, 0, segment.length());
+            case VARIABLE:
+            case WILDCARD:
+                return end > start;
+            case GLOB:
+                return globMatches(segment, path, start, end);
+            default:
+                return false;
+        }
+    }
+
+    static int segmentEnd(String path, int start) {
+        int end = path.indexOf('/', start);
+        return end < 0 ? path.length() : end;
+    }
+
+    static int skipSlashes(String path, int position) {
+        int pos = position;
+        while (pos < path.length() && path.charAt(pos) == '/') {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static SegmentType typeOf(String segment) {
+        if ("**".equals(segment)) {
+            return SegmentType.DOUBLE_WILDCARD;
+        }
+        if ("*".equals(segment)) {
+            return SegmentType.WILDCARD;
+        }
+        if (segment.startsWith("{") && segment.endsWith("}") && segment.indexOf('}') == segment.length() - 1) {
+            return SegmentType.VARIABLE;
+        }
+        if (segment.indexOf('*') >= 0 || segment.indexOf('{') >= 0) {
+            return SegmentType.GLOB;
+        }
+        return SegmentType.LITERAL;
+    }
+
+    // Iterative glob match of '*' within a single segment, backtracking to the last star
+    static boolean globMatches(String glob, String path, int start, int end) {
+        int g = 0;
+        int p = start;
+        int starIndex = -1;
+        int starMatch = start;
+
+        while (p < end) {
+            if (g < glob.length() && glob.charAt(g) == '*') {
+                starIndex = g++;
+                starMatch = p;
+            } else if (g < glob.length() && glob.charAt(g) == path.charAt(p)) {
+                g++;
+                p++;
+            } else if (starIndex >= 0) {
+                g = starIndex + 1;
+                p = ++starMatch;
+            } else {
+                return false;
+            }
+        }
+        while (g < glob.length() && glob.charAt(g) == '*') {
+            g++;
+        }
+        return g == glob.length();
+    }
+
+    @Override
+    public String toString() {
+        return pattern;
+    }
+}
@@ -0,0 +1,238 @@
+package com.example.feigngateway.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Path-segment trie over whitelist endpoint patterns. Lookup cost depends on the
+ * depth of the request path rather than on the number of patterns.
+ * When several patterns match, the most specific one wins, compared segment by
+ * segment: literal, then in-segment glob, then {var}, then *, then **.
+ * Patterns ending at the same node keep their insertion order.
+ */
+public final class PathPatternTrie {
+
+    private final Node root = new Node();
+    private final Object source;
+    private int size;
+
+    public PathPatternTrie() {
+        this(null);
+    }
+
+    private PathPatternTrie(Object source) {
+        this.source = source;
+    }
+
+    public static PathPatternTrie of(List<String> patterns) {
+        PathPatternTrie trie = new PathPatternTrie(patterns);
+        if (patterns != null) {
+            patterns.forEach(trie::insert);
+        }
+        return trie;
+    }
+
+    public boolean isBuiltFrom(Object patterns) {
+        return source == patterns;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void insert(String pattern) {
+        if (pattern == null || pattern.isBlank()) {
+            return;
+        }
+        PathPattern compiled = PathPattern.compile(pattern);
+        Node node = root;
+        for (int i = 0; i < compiled.segmentCount(); i++) {
+            node = node.child(compiled.segmentType(i), compiled.segment(i));
+        }
+        if (node.terminal == null) {
+            node.terminal = compiled;
+        }
+        size++;
+    }
+
+    // Most specific matching pattern, or null if none matches
+    public PathPattern match(String path) {
+        return path == null ? null : matchNode(root, path, 0);
+    }
+
+    public boolean matches(String path) {
+        return match(path) != null;
+    }
+
+    private PathPattern matchNode(Node node, String path, int position) {
+        int pos = PathPattern.skipSlashes(path, position);
+        if (pos >= path.length()) {
+            if (node.terminal != null) {
+                return node.terminal;
+            }
+            return node.doubleWildcard != null ? matchDoubleWildcard(node.doubleWildcard, path, pos) : null;
+        }
+
+        int end = PathPattern.segmentEnd(path, pos);
+        PathPattern result;
+
+        Node literal = node.literals != null ? node.literals.get(path, pos, end) : null;
+        if (literal != null && (result = matchNode(literal, path, end)) != null) {
+            return result;
+        }
+        if (node.globs != null) {
+            for (int i = 0; i < node.globs.size(); i++) {
+                Node glob = node.globs.get(i);
+                if (PathPattern.globMatches(glob.segment, path, pos, end) && (result = matchNode(glob, path, end)) != null) {
+                    return result;
+                }
+            }
+        }
+        if (node.variable != null && (result = matchNode(node.variable, path, end)) != null) {
+            return result;
+        }
+        if (node.wildcard != null && (result = matchNode(node.wildcard, path, end)) != null) {
+            return result;
+        }
+        return node.doubleWildcard != null ? matchDoubleWildcard(node.doubleWildcard, path, pos) : null;
+    }
+
+    // '**' consumes zero or more segments; continuations are preferred over a trailing '**'
+    private PathPattern matchDoubleWildcard(Node node, String path, int position) {
+        if (node.hasChildren()) {
+            int pos = position;
+            while (true) {
+                PathPattern result = matchNode(node, path, pos);
+                if (result != null) {
+                    return result;
+                }
+                pos = PathPattern.skipSlashes(path, pos);
+                if (pos >= path.length()) {
+                    break;
+                }
+                pos = PathPattern.segmentEnd(path, pos);
+            }
+        }
+        return node.terminal;
+    }
+
+    private static final class Node {
+        private final String segment;
+        private LiteralIndex literals;
+        private List<Node> globs;
+        private Node variable;
+        private Node wildcard;
+        private Node doubleWildcard;
+        private PathPattern terminal;
+
+        private Node() {
+            this(null);
+        }
+
+        private Node(String segment) {
+            this.segment = segment;
+        }
+
+        private boolean hasChildren() {
+            return literals != null || globs != null || variable != null || wildcard != null || doubleWildcard != null;
+        }
+
+        private Node child(PathPattern.SegmentType type, String segment) {
+            switch (type) {
+                case LITERAL:
+                    if (literals == null) {
+                        literals = new LiteralIndex();
+                    }
+                    return literals.getOrCreate(segment);
+                case GLOB:
+                    if (globs == null) {
+                        globs = new ArrayList<>();
+                    }
+                    for (Node glob : globs) {
+                        if (glob.segment.equals(segment)) {
+                            return glob;
+                        }
+                    }
+                    Node glob = new Node(segment);
+                    globs.add(glob);
+                    return glob;
+                case VARIABLE:
+                    return variable != null ? variable : (variable = new Node(segment));
+                case WILDCARD:
+                    return wildcard != null ? wildcard : (wildcard = new Node(segment));
+                case DOUBLE_WILDCARD:
+                    return doubleWildcard != null ? doubleWildcard : (doubleWildcard = new Node(segment));
+                default:
+                    throw new IllegalArgumentException("Unsupported segment type: " + type);
+            }
+        }
+    }
+
+    // Open-addressing table keyed by segment text, probed with a region of the request path so lookups don't allocate
+    private static final class LiteralIndex {
+        private String[] keys = new String[4];
+        private Node[] nodes = new Node[4];
+        private int count;
+
+        private Node get(String path, int start, int end) {
+            int mask = keys.length - 1;
+            int length = end - start;
+            for (int i = spread(regionHash(path, start, end)) & mask; keys[i] != null; i = (i + 1) & mask) {
+                String key = keys[i];
+                if (key.length() == length && path.regionMatches(start, key, 0, length)) {
+                    return nodes[i];
+                }
+            }
+            return null;
+        }
+
+        private Node getOrCreate(String segment) {
+            Node existing = get(segment, 0, segment.length());
+            if (existing != null) {
+                return existing;
+            }
+            if ((count + 1) * 2 > keys.length) {
+                resize();
+            }
+            Node node = new Node(segment);
+            put(segment, node);
+            count++;
+            return node;
+        }
+
+        private void put(String key, Node node) {
+            int mask = keys.length - 1;
+            int i = spread(key.hashCode()) & mask;
+            while (keys[i] != null) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            nodes[i] = node;
+        }
+
+        private void resize() {
+            String[] oldKeys = keys;
+            Node[] oldNodes = nodes;
+            keys = new String[oldKeys.length * 2];
+            nodes = new Node[oldNodes.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != null) {
+                    put(oldKeys[i], oldNodes[i]);
+                }
+            }
+        }
+
+        // Same value as String.hashCode() of the region
+        private static int regionHash(String path, int start, int end) {
+            int hash = 0;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + path.charAt(i);
+            }
+            return hash;
+        }
+
+        private static int spread(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
@@ -28,6 +28,31 @@ public class PerformanceMetricsService {
         private final AtomicLong minResponseTime = new AtomicLong(Long.MAX_VALUE);
         private final AtomicLong maxResponseTime = new AtomicLong(0);
         private final LongAdder totalBytesTransferred = new LongAdder();
+        private final LongAdder queuedRequests = new LongAdder();
+        private final LongAdder totalQueueWait = new LongAdder();
+        private final AtomicLong maxQueueWait = new AtomicLong(0);
+        private final LongAdder timeoutCount = new LongAdder();
+        private final LongAdder bulkheadSaturations = new LongAdder();
+        private final LongAdder bulkheadRejections = new LongAdder();
+        private final AtomicLong maxBulkheadConcurrentCalls = new AtomicLong(0);
+        private final LongAdder upstreamAttempts = new LongAdder();
+        private final LongAdder failedAttempts = new LongAdder();
+        private final LongAdder retries = new LongAdder();
+        private final LongAdder retrySuccesses = new LongAdder();
+        private final LongAdder retryBudgetExhausted = new LongAdder();
+        private final LongAdder hedgeEligibleRequests = new LongAdder();
+        private final LongAdder hedgedRequests = new LongAdder();
+        private final LongAdder hedgeWins = new LongAdder();
+        private final LongAdder cacheHits = new LongAdder();
+        private final LongAdder cacheMisses = new LongAdder();
+        private final LongAdder offHeapCacheHits = new LongAdder();
+        private final LongAdder staleWhileRevalidateServed = new LongAdder();
+        private final LongAdder staleIfErrorServed = new LongAdder();
+        private final LongAdder cacheRevalidations = new LongAdder();
+        private final LongAdder notModifiedServed = new LongAdder();
+        private final LongAdder coalescableRequests = new LongAdder();
+        private final LongAdder coalescedRequests = new LongAdder();
+        private final LongAdder coalescingFallbacks = new LongAdder();
         
         public void recordRequest(long responseTimeMs, long bytesTransferred) {
             requestCount.increment();
@@ -50,6 +75,114 @@ public class PerformanceMetricsService {
             errorCount.increment();
         }
         
+        // Time an async request spent waiting for a gatewayTaskExecutor thread
+        public void recordQueueWait(long queueWaitMs) {
+            queuedRequests.increment();
+            totalQueueWait.add(queueWaitMs);
+            
+            long currentMax = maxQueueWait.get();
+            while (queueWaitMs > currentMax && !maxQueueWait.compareAndSet(currentMax, queueWaitMs)) {
+                currentMax = maxQueueWait.get();
+            }
+        }
+        
+        public void recordTimeout() {
+            timeoutCount.increment();
+        }
+        
+        // A call found every bulkhead slot taken; it may still get one within the wait time
+        public void recordBulkheadSaturation() {
+            bulkheadSaturations.increment();
+        }
+        
+        public void recordBulkheadRejection() {
+            bulkheadRejections.increment();
+        }
+        
+        public void recordBulkheadConcurrentCalls(long concurrentCalls) {
+            long currentMax = maxBulkheadConcurrentCalls.get();
+            while (concurrentCalls > currentMax && !maxBulkheadConcurrentCalls.compareAndSet(currentMax, concurrentCalls)) {
+                currentMax = maxBulkheadConcurrentCalls.get();
+            }
+        }
+        
+        // One upstream call of a request; attempts after the first are retries
+        public void recordUpstreamAttempt(int attempt, boolean succeeded) {
+            upstreamAttempts.increment();
+            if (!succeeded) {
+                failedAttempts.increment();
+            }
+            if (attempt > 1) {
+                retries.increment();
+                if (succeeded) {
+                    retrySuccesses.increment();
+                }
+            }
+        }
+        
+        // A retryable failure was returned as-is because the service's retry budget was empty
+        public void recordRetryBudgetExhausted() {
+            retryBudgetExhausted.increment();
+        }
+        
+        // A request the service's hedging policy applied to, whether or not it was hedged
+        public void recordHedgeEligible() {
+            hedgeEligibleRequests.increment();
+        }
+        
+        public void recordHedge() {
+            hedgedRequests.increment();
+        }
+        
+        // The hedge answered before the original request
+        public void recordHedgeWin() {
+            hedgeWins.increment();
+        }
+        
+        // A cacheable GET answered from the response cache, or one that had to go upstream
+        public void recordCacheLookup(boolean hit) {
+            (hit ? cacheHits : cacheMisses).increment();
+        }
+        
+        // One of the cache hits, served from the off-heap tier
+        public void recordOffHeapCacheHit() {
+            offHeapCacheHits.increment();
+        }
+        
+        // A cache hit served stale while a background refresh runs
+        public void recordStaleWhileRevalidate() {
+            staleWhileRevalidateServed.increment();
+        }
+        
+        // A stale cached response served in place of a failed upstream call
+        public void recordStaleIfError() {
+            staleIfErrorServed.increment();
+        }
+        
+        // A stale cached response the upstream confirmed with 304, so its body wasn't sent again
+        public void recordCacheRevalidation() {
+            cacheRevalidations.increment();
+        }
+        
+        // A client's conditional request answered with 304 by the gateway
+        public void recordNotModified() {
+            notModifiedServed.increment();
+        }
+        
+        // A GET that went through single-flight, whether it led, shared another call's response or fell back
+        public void recordCoalescable() {
+            coalescableRequests.increment();
+        }
+        
+        public void recordCoalesced() {
+            coalescedRequests.increment();
+        }
+        
+        // A waiter that called the upstream itself after the in-flight call failed, timed out or didn't fit
+        public void recordCoalescingFallback() {
+            coalescingFallbacks.increment();
+        }
+        
         public long getRequestCount() {
             return requestCount.sum();
         }
@@ -76,6 +209,124 @@ public class PerformanceMetricsService {
             return totalBytesTransferred.sum();
         }
         
+        public double getAverageQueueWait() {
+            long queued = queuedRequests.sum();
+            return queued > 0 ? (double) totalQueueWait.sum() / queued : 0.0;
+        }
+        
+        public long getMaxQueueWait() {
+            return maxQueueWait.get();
+        }
+        
+        public long getTimeoutCount() {
+            return timeoutCount.sum();
+        }
+        
+        public long getBulkheadSaturations() {
+            return bulkheadSaturations.sum();
+        }
+        
+        public long getBulkheadRejections() {
+            return bulkheadRejections.sum();
+        }
+        
+        public long getMaxBulkheadConcurrentCalls() {
+            return maxBulkheadConcurrentCalls.get();
+        }
+        
+        public long getUpstreamAttempts() {
+            return upstreamAttempts.sum();
+        }
+        
+        public long getFailedAttempts() {
+            return failedAttempts.sum();
+        }
+        
+        public long getRetries() {
+            return retries.sum();
+        }
+        
+        public long getRetrySuccesses() {
+            return retrySuccesses.sum();
+        }
+        
+        public long getRetryBudgetExhausted() {
+            return retryBudgetExhausted.sum();
+        }
+        
+        public long getHedgeEligibleRequests() {
+            return hedgeEligibleRequests.sum();
+        }
+        
+        public long getHedgedRequests() {
+            return hedgedRequests.sum();
+        }
+        
+        public long getHedgeWins() {
+            return hedgeWins.sum();
+        }
+        
+        public double getHedgeRate() {
+            long eligible = hedgeEligibleRequests.sum();
+            return eligible > 0 ? (double) hedgedRequests.sum() / eligible * 100 : 0.0;
+        }
+        
+        public long getCacheHits() {
+            return cacheHits.sum();
+        }
+        
+        public long getCacheMisses() {
+            return cacheMisses.sum();
+        }
+        
+        public double getCacheHitRate() {
+            long lookups = cacheHits.sum() + cacheMisses.sum();
+            return lookups > 0 ? (double) cacheHits.sum() / lookups * 100 : 0.0;
+        }
+        
+        public double getHeapCacheHitRate() {
+            long lookups = cacheHits.sum() + cacheMisses.sum();
+            return lookups > 0 ? (double) (cacheHits.sum() - offHeapCacheHits.sum()) / lookups * 100 : 0.0;
+        }
+        
+        public double getOffHeapCacheHitRate() {
+            long lookups = cacheHits.sum() + cacheMisses.sum();
+            return lookups > 0 ? (double) offHeapCacheHits.sum() / lookups * 100 : 0.0;
+        }
+        
+        public long getStaleWhileRevalidateServed() {
+            return staleWhileRevalidateServed.sum();
+        }
+        
+        public long getStaleIfErrorServed() {
+            return staleIfErrorServed.sum();
+        }
+        
+        public long getCacheRevalidations() {
+            return cacheRevalidations.sum();
+        }
+        
+        public long getNotModifiedServed() {
+            return notModifiedServed.sum();
+        }
+        
+        public long getCoalescableRequests() {
+            return coalescableRequests.sum();
+        }
+        
+        public long getCoalescedRequests() {
+            return coalescedRequests.sum();
+        }
+        
+        public long getCoalescingFallbacks() {
+            return coalescingFallbacks.sum();
+        }
+        
+        public double getCoalescedRate() {
+            long coalescable = coalescableRequests.sum();
+            return coalescable > 0 ? (double) coalescedRequests.sum() / coalescable * 100 : 0.0;
+        }
+        
         public double getErrorRate() {
             long requests = requestCount.sum();
             return requests > 0 ? (double) errorCount.sum() / requests * 100 : 0.0;
@@ -94,6 +345,101 @@ public class PerformanceMetricsService {
                 .recordError();
     }
     
+    public void recordQueueWait(String serviceName, long queueWaitMs) {
+        serviceMetrics.computeIfAbsent(serviceName, k -> new ServiceMetrics())
+                .recordQueueWait(queueWaitMs);
+    }
+    
+    public void recordTimeout(String serviceName) {
+        serviceMetrics.computeIfAbsent(serviceName, k -> new ServiceMetrics())
+                .recordTimeout();
+    }
+    
+    public void recordBulkheadSaturation(String serviceName) {
+        serviceMetrics.computeIfAbsent(serviceName, k -> new ServiceMetrics())
+                .recordBulkheadSaturation();
+    }
+    
+    public void recordBulkheadRejection(String serviceName) {
+        serviceMetrics.computeIfAbsent(serviceName, k -> new ServiceMetrics())
+                .recordBulkheadRejection();
+    }
+    
+    public void recordBulkheadConcurrentCalls(String serviceName, long concurrentCalls) {
+        serviceMetrics.computeIfAbsent(serviceName, k -> new ServiceMetrics())
+                .recordBulkheadConcurrentCalls(concurrentCalls);
+    }
+    
+    public void recordUpstreamAttempt(String serviceName, int attempt, boolean succeeded) {
+        serviceMetrics.computeIfAbsent(serviceName, k -> new ServiceMetrics())
+                .recordUpstreamAttempt(attempt, succeeded);
+    }
+    
+    public void recordRetryBudgetExhausted(String serviceName) {
+        serviceMetrics.computeIfAbsent(serviceName, k -> new ServiceMetrics())
+                .recordRetryBudgetExhausted();
+    }
+    
+    public void recordHedgeEligible(String serviceName) {
+        serviceMetrics.computeIfAbsent(serviceName, k -> new ServiceMetrics())
+                .recordHedgeEligible();
+    }
+    
+    public void recordHedge(String serviceName) {
+        serviceMetrics.computeIfAbsent(serviceName, k -> new ServiceMetrics())
+                .recordHedge();
+    }
+    
+    public void recordHedgeWin(String serviceName) {
+        serviceMetrics.computeIfAbsent(serviceName, k -> new ServiceMetrics())
+                .recordHedgeWin();
+    }
+    
+    public void recordCacheLookup(String serviceName, boolean hit) {
+        serviceMetrics.computeIfAbsent(serviceName, k -> new ServiceMetrics())
+                .recordCacheLookup(hit);
+    }
+    
+    public void recordOffHeapCacheHit(String serviceName) {
+        serviceMetrics.computeIfAbsent(serviceName, k -> new ServiceMetrics())
+                .recordOffHeapCacheHit();
+    }
+    
+    public void recordStaleWhileRevalidate(String serviceName) {
+        serviceMetrics.computeIfAbsent(serviceName, k -> new ServiceMetrics())
+                .recordStaleWhileRevalidate();
+    }
+    
+    public void recordStaleIfError(String serviceName) {
+        serviceMetrics.computeIfAbsent(serviceName, k -> new ServiceMetrics())
+                .recordStaleIfError();
+    }
+    
+    public void recordCacheRevalidation(String serviceName) {
+        serviceMetrics.computeIfAbsent(serviceName, k -> new ServiceMetrics())
+                .recordCacheRevalidation();
+    }
+    
+    public void recordNotModified(String serviceName) {
+        serviceMetrics.computeIfAbsent(serviceName, k -> new ServiceMetrics())
+                .recordNotModified();
+    }
+    
+    public void recordCoalescable(String serviceName) {
+        serviceMetrics.computeIfAbsent(serviceName, k -> new ServiceMetrics())
+                .recordCoalescable();
+    }
+    
+    public void recordCoalesced(String serviceName) {
+        serviceMetrics.computeIfAbsent(serviceName, k -> new ServiceMetrics())
+                .recordCoalesced();
+    }
+    
+    public void recordCoalescingFallback(String serviceName) {
+        serviceMetrics.computeIfAbsent(serviceName, k -> new ServiceMetrics())
+                .recordCoalescingFallback();
+    }
+    
     public ServiceMetrics getServiceMetrics(String serviceName) {
         return serviceMetrics.getOrDefault(serviceName, new ServiceMetrics());
     }
@@ -130,6 +476,32 @@ public class PerformanceMetricsService {
             Min Response Time: %d ms
             Max Response Time: %d ms
             Total Bytes: %d
+            Avg Queue Wait: %.2f ms
+            Max Queue Wait: %d ms
+            Timeouts: %d
+            Bulkhead Saturations: %d
+            Bulkhead Rejections: %d
+            Bulkhead Peak Concurrent Calls: %d
+            Upstream Attempts: %d
+            Failed Attempts: %d
+            Retries: %d
+            Successful Retries: %d
+            Retry Budget Exhausted: %d
+            Hedged Requests: %d
+            Hedge Rate: %.2f%%
+            Hedge Wins: %d
+            Cache Hits: %d
+            Cache Misses: %d
+            Cache Hit Rate: %.2f%%
+            Cache Heap Hit Rate: %.2f%%
+            Cache Off-Heap Hit Rate: %.2f%%
+            Stale While Revalidate: %d
+            Stale If Error: %d
+            Cache Revalidations: %d
+            Not Modified Responses: %d
+            Coalesced Requests: %d
+            Coalesced Rate: %.2f%%
+            Coalescing Fallbacks: %d
             """,
             serviceName,
             metrics.getRequestCount(),
@@ -138,7 +510,33 @@ public class PerformanceMetricsService {
             metrics.getAverageResponseTime(),
             metrics.getMinResponseTime(),
             metrics.getMaxResponseTime(),
-            metrics.getTotalBytesTransferred()
+            metrics.getTotalBytesTransferred(),
+            metrics.getAverageQueueWait(),
+            metrics.getMaxQueueWait(),
+            metrics.getTimeoutCount(),
+            metrics.getBulkheadSaturations(),
+            metrics.getBulkheadRejections(),
+            metrics.getMaxBulkheadConcurrentCalls(),
+            metrics.getUpstreamAttempts(),
+            metrics.getFailedAttempts(),
+            metrics.getRetries(),
+            metrics.getRetrySuccesses(),
+            metrics.getRetryBudgetExhausted(),
+            metrics.getHedgedRequests(),
+            metrics.getHedgeRate(),
+            metrics.getHedgeWins(),
+            metrics.getCacheHits(),
+            metrics.getCacheMisses(),
+            metrics.getCacheHitRate(),
+            metrics.getHeapCacheHitRate(),
+            metrics.getOffHeapCacheHitRate(),
+            metrics.getStaleWhileRevalidateServed(),
+            metrics.getStaleIfErrorServed(),
+            metrics.getCacheRevalidations(),
+            metrics.getNotModifiedServed(),
+            metrics.getCoalescedRequests(),
+            metrics.getCoalescedRate(),
+            metrics.getCoalescingFallbacks()
         );
     }
     
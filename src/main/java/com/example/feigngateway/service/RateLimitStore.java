@@ -0,0 +1,17 @@
+package com.example.feigngateway.service;
+
+/**
+ * Shared counter backend for cluster-wide rate limits. Every gateway replica counts against the same
+ * per-window counters, so a limit holds for the whole cluster instead of per node.
+ */
+public interface RateLimitStore {
+
+    /**
+     * Atomically takes up to {@code requested} permits from the window counter {@code key}, which allows
+     * {@code limit} permits in total and may be dropped after {@code ttlMillis}.
+     *
+     * @return the number of permits granted, between 0 and {@code requested}
+     * @throws java.io.UncheckedIOException when the store cannot be reached
+     */
+    int acquire(String key, int requested, int limit, long ttlMillis);
+}
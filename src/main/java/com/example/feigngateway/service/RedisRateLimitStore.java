@@ -0,0 +1,171 @@
+package com.example.feigngateway.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+/**
+ * {@link RateLimitStore} backed by any server speaking the Redis protocol (RESP). Each acquire is a
+ * single pipelined round trip: {@code SET key 0 NX PX ttl} creates the window counter with its expiry,
+ * {@code INCRBY key n} takes the permits. Idle connections are kept for reuse; a connection that saw an
+ * error is closed rather than returned, since its reply stream may be out of step.
+ */
+@Slf4j
+public class RedisRateLimitStore implements RateLimitStore, AutoCloseable {
+
+    private static final int MAX_IDLE_CONNECTIONS = 8;
+
+    private final String host;
+    private final int port;
+    private final int timeoutMillis;
+    private final ConcurrentLinkedDeque<Connection> idle = new ConcurrentLinkedDeque<>();
+    private volatile boolean closed;
+
+    public RedisRateLimitStore(String host, int port, int timeoutMillis) {
+        this.host = host;
+        this.port = port;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public int acquire(String key, int requested, int limit, long ttlMillis) {
+        Connection connection = idle.pollFirst();
+        try {
+            if (connection == null) {
+                connection = new Connection(host, port, timeoutMillis);
+            }
+            connection.send("SET", key, "0", "NX", "PX", Long.toString(ttlMillis));
+            connection.send("INCRBY", key, Integer.toString(requested));
+            connection.flush();
+            connection.readReply();
+            long count = connection.readInteger();
+            release(connection);
+            // Permits below the limit before this increment are ours; the rest of the request is over it
+            return (int) Math.max(0, Math.min(requested, limit - (count - requested)));
+        } catch (IOException e) {
+            if (connection != null) {
+                connection.close();
+            }
+            throw new UncheckedIOException("Rate limit store " + host + ":" + port + " unavailable", e);
+        }
+    }
+
+    private void release(Connection connection) {
+        if (closed || idle.size() >= MAX_IDLE_CONNECTIONS) {
+            connection.close();
+            return;
+        }
+        idle.offerFirst(connection);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        Connection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            connection.close();
+        }
+    }
+
+    private static final class Connection {
+        private final Socket socket;
+        private final OutputStream out;
+        private final InputStream in;
+
+        private Connection(String host, int port, int timeoutMillis) throws IOException {
+            socket = new Socket();
+            try {
+                socket.setTcpNoDelay(true);
+                socket.setSoTimeout(timeoutMillis);
+                socket.connect(new InetSocketAddress(host, port), timeoutMillis);
+                out = new BufferedOutputStream(socket.getOutputStream());
+                in = new BufferedInputStream(socket.getInputStream());
+            } catch (IOException e) {
+                socket.close();
+                throw e;
+            }
+        }
+
+        private void send(String... args) throws IOException {
+            writeLine('*', args.length);
+            for (String arg : args) {
+                byte[] bytes = arg.getBytes(StandardCharsets.UTF_8);
+                writeLine('$', bytes.length);
+                out.write(bytes);
+                out.write('\r');
+                out.write('\n');
+            }
+        }
+
+        private void writeLine(char type, long value) throws IOException {
+            out.write(type);
+            out.write(Long.toString(value).getBytes(StandardCharsets.US_ASCII));
+            out.write('\r');
+            out.write('\n');
+        }
+
+        private void flush() throws IOException {
+            out.flush();
+        }
+
+        private long readInteger() throws IOException {
+            int type = in.read();
+            String line = readLine();
+            if (type != ':') {
+                throw new IOException("Expected integer reply but got " + (char) type + line);
+            }
+            return Long.parseLong(line);
+        }
+
+        // Reads and discards a status, null or bulk reply, failing on an error reply
+        private void readReply() throws IOException {
+            int type = in.read();
+            String line = readLine();
+            switch (type) {
+                case '+', ':' -> { }
+                case '$' -> {
+                    int length = Integer.parseInt(line);
+                    if (length >= 0) {
+                        in.skipNBytes(length + 2L);
+                    }
+                }
+                case '-' -> throw new IOException("Rate limit store error: " + line);
+                default -> throw new IOException("Unexpected reply type " + (char) type);
+            }
+        }
+
+        private String readLine() throws IOException {
+            ByteArrayOutputStream line = new ByteArrayOutputStream(16);
+            int b;
+            while ((b = in.read()) != '\r') {
+                if (b == -1) {
+                    throw new EOFException("Rate limit store closed the connection");
+                }
+                line.write(b);
+            }
+            if (in.read() != '\n') {
+                throw new IOException("Malformed reply line");
+            }
+            return line.toString(StandardCharsets.UTF_8);
+        }
+
+        private void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                log.debug("Error closing rate limit store connection", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.feigngateway.service;
+
+import com.example.feigngateway.config.GatewayProperties;
+import com.example.feigngateway.exception.ServiceUnavailableException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight for identical GETs. The first request for a key calls the upstream; requests for the same key
+ * arriving while that call is in flight wait for its result instead of sending their own. A waiter calls the
+ * upstream itself when the shared call fails, doesn't answer within maxWait or yields a result it can't use,
+ * so coalescing never turns one slow or failed call into many failed requests.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RequestCoalescer {
+
+    private final GatewayProperties gatewayProperties;
+    private final PerformanceMetricsService metricsService;
+
+    private final ConcurrentHashMap<String, CompletableFuture<Object>> flights = new ConcurrentHashMap<>();
+
+    // Runs call on the caller's thread unless an identical call is in flight and its result passes accept.
+    // The key must identify both the request and the type of result call returns.
+    public <T> T execute(String serviceName, String key, Supplier<T> call, Predicate<T> accept) {
+        GatewayProperties.Performance.Coalescing config = gatewayProperties.getPerformance().getCoalescing();
+        if (!config.isEnabled()) {
+            return call.get();
+        }
+        metricsService.recordCoalescable(serviceName);
+
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = flights.putIfAbsent(key, flight);
+        if (inFlight == null) {
+            return lead(key, flight, call);
+        }
+
+        T shared = await(serviceName, inFlight, config.getMaxWait());
+        if (shared != null && accept.test(shared)) {
+            metricsService.recordCoalesced(serviceName);
+            return shared;
+        }
+        metricsService.recordCoalescingFallback(serviceName);
+        log.debug("Calling {} independently of the in-flight request for {}", serviceName, key);
+        return call.get();
+    }
+
+    // Settings and the number of calls currently in flight
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", gatewayProperties.getPerformance().getCoalescing().isEnabled());
+        stats.put("maxWaitMillis", gatewayProperties.getPerformance().getCoalescing().getMaxWait());
+        stats.put("inFlight", flights.size());
+        return stats;
+    }
+
+    private <T> T lead(String key, CompletableFuture<Object> flight, Supplier<T> call) {
+        try {
+            T result = call.get();
+            flight.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            flights.remove(key, flight);
+        }
+    }
+
+    // The in-flight call's result, or null if it failed or outlasted the wait or the request's deadline
+    @SuppressWarnings("unchecked")
+    private <T> T await(String serviceName, CompletableFuture<Object> flight, long maxWait) {
+        RequestDeadline deadline = RequestDeadline.current();
+        long wait = deadline != null ? Math.min(maxWait, deadline.remainingMillis()) : maxWait;
+        try {
+            return (T) flight.get(wait, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException(serviceName, "Interrupted while waiting for a coalesced request", e);
+        }
+    }
+}
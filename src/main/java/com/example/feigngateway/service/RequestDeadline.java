@@ -0,0 +1,79 @@
+package com.example.feigngateway.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Point in time by which a forwarded request must be answered. The deadline in force is bound to the
+ * thread handling the request, so the HTTP client can size its timeouts from it and pass the remaining
+ * budget upstream. Work handed to another thread takes it along through {@link #propagate}.
+ */
+public final class RequestDeadline {
+
+    private static final ThreadLocal<RequestDeadline> CURRENT = new ThreadLocal<>();
+
+    private final long deadlineNanos;
+    private final long budgetMillis;
+
+    private RequestDeadline(long deadlineNanos, long budgetMillis) {
+        this.deadlineNanos = deadlineNanos;
+        this.budgetMillis = budgetMillis;
+    }
+
+    public static RequestDeadline in(long millis) {
+        return new RequestDeadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis), millis);
+    }
+
+    // Deadline bound to this thread, or null when the request has none
+    public static RequestDeadline current() {
+        return CURRENT.get();
+    }
+
+    public static <T> T callWithin(RequestDeadline deadline, Supplier<T> call) {
+        RequestDeadline previous = deadline.enter();
+        try {
+            return call.get();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    // Wraps call to run under the deadline current on this thread when it is submitted elsewhere
+    public static <T> Supplier<T> propagate(Supplier<T> call) {
+        RequestDeadline deadline = current();
+        return deadline == null ? call : () -> callWithin(deadline, call);
+    }
+
+    // Binds this deadline to the thread and returns the one it replaced, to be passed to restore
+    public RequestDeadline enter() {
+        RequestDeadline previous = CURRENT.get();
+        CURRENT.set(this);
+        return previous;
+    }
+
+    public static void restore(RequestDeadline previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    // The sooner of the two; other may be null
+    public RequestDeadline earliest(RequestDeadline other) {
+        return other != null && other.deadlineNanos - deadlineNanos < 0 ? other : this;
+    }
+
+    public long remainingMillis() {
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime()));
+    }
+
+    public boolean isExpired() {
+        return deadlineNanos - System.nanoTime() <= 0;
+    }
+
+    // Budget the deadline was created with, for error messages
+    public long getBudgetMillis() {
+        return budgetMillis;
+    }
+}
@@ -0,0 +1,261 @@
+package com.example.feigngateway.service;
+
+import com.example.feigngateway.config.GatewayProperties;
+import com.example.feigngateway.exception.RateLimitExceededException;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+@Slf4j
+@Service
+public class RequestRateLimiter {
+
+    private final GatewayProperties gatewayProperties;
+    // Null unless gateway.performance.rate-limiting.shared-store selects a backend
+    private final DistributedRateLimiter distributed;
+
+    // Service buckets are keyed by service name, client buckets by service name and client key
+    private final ConcurrentHashMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private final LongAdder storeFailures = new LongAdder();
+    // Until this System.nanoTime(), the shared store is considered down and the local buckets decide
+    private final AtomicLong storeRetryAt = new AtomicLong(System.nanoTime());
+
+    @Autowired
+    public RequestRateLimiter(GatewayProperties gatewayProperties, ObjectProvider<RateLimitStore> rateLimitStore) {
+        this(gatewayProperties, rateLimitStore.getIfAvailable());
+    }
+
+    public RequestRateLimiter(GatewayProperties gatewayProperties) {
+        this(gatewayProperties, (RateLimitStore) null);
+    }
+
+    public RequestRateLimiter(GatewayProperties gatewayProperties, RateLimitStore rateLimitStore) {
+        this.gatewayProperties = gatewayProperties;
+        this.distributed = rateLimitStore != null ? new DistributedRateLimiter(rateLimitStore) : null;
+    }
+
+    public void checkLimit(String serviceName, HttpServletRequest request) {
+        GatewayProperties.Performance.RateLimiting config = gatewayProperties.getPerformance().getRateLimiting();
+        if (!config.isEnabled()) {
+            return;
+        }
+        String clientKey = request.getHeader(config.getClientKeyHeader());
+        checkLimit(serviceName, clientKey != null && !clientKey.isEmpty() ? clientKey : request.getRemoteAddr());
+    }
+
+    // Takes one token from the client's bucket and one from the service's bucket, or throws with the time until the empty one refills
+    public void checkLimit(String serviceName, String clientKey) {
+        GatewayProperties.Performance.RateLimiting config = gatewayProperties.getPerformance().getRateLimiting();
+        if (!config.isEnabled()) {
+            return;
+        }
+        Rejection rejection = acquire(serviceName, clientKey, config, System.nanoTime());
+        if (rejection != null) {
+            // Retry-After has whole-second resolution; round up so a retry at that time finds a token
+            long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(rejection.waitNanos() + TimeUnit.SECONDS.toNanos(1) - 1));
+            throw new RateLimitExceededException(serviceName, rejection.requestsPerMinute(), retryAfterSeconds);
+        }
+    }
+
+    // Same check without the exception, for callers that only need the decision
+    public boolean tryAcquire(String serviceName, String clientKey) {
+        GatewayProperties.Performance.RateLimiting config = gatewayProperties.getPerformance().getRateLimiting();
+        return !config.isEnabled() || acquire(serviceName, clientKey, config, System.nanoTime()) == null;
+    }
+
+    // Null when both limits had a permit, otherwise the limit that ran dry
+    private Rejection acquire(String serviceName, String clientKey,
+                              GatewayProperties.Performance.RateLimiting config, long now) {
+        if (distributed != null && now - storeRetryAt.get() >= 0) {
+            try {
+                return acquireShared(serviceName, clientKey, config);
+            } catch (UncheckedIOException e) {
+                // Fail open to the per-node limits rather than rejecting traffic because the store is down
+                long retryAt = storeRetryAt.get();
+                if (storeRetryAt.compareAndSet(retryAt, now + TimeUnit.MILLISECONDS.toNanos(config.getDistributed().getRetryInterval()))) {
+                    storeFailures.increment();
+                    log.warn("Shared rate limit store unavailable, using local limits for {} ms: {}",
+                        config.getDistributed().getRetryInterval(), e.getMessage());
+                }
+            }
+        }
+        return acquireLocal(serviceName, clientKey, config, now);
+    }
+
+    private Rejection acquireShared(String serviceName, String clientKey,
+                                    GatewayProperties.Performance.RateLimiting config) {
+        GatewayProperties.Performance.Distributed settings = config.getDistributed();
+        long nowMillis = System.currentTimeMillis();
+        String clientStoreKey = serviceName + ":client:" + clientKey;
+        long waitNanos = distributed.tryAcquire(clientStoreKey, config.getClientRequestsPerMinute(),
+            config.getClientBurstCapacity(), settings.getKeyPrefix(), settings.getLeaseSize(), config.getMaxTrackedKeys(), nowMillis);
+        if (waitNanos > 0) {
+            rejected.increment();
+            return new Rejection(config.getClientRequestsPerMinute(), waitNanos);
+        }
+
+        try {
+            waitNanos = distributed.tryAcquire(serviceName, config.getRequestsPerMinute(), config.getBurstCapacity(),
+                settings.getKeyPrefix(), settings.getLeaseSize(), config.getMaxTrackedKeys(), nowMillis);
+        } catch (UncheckedIOException e) {
+            distributed.release(clientStoreKey, nowMillis);
+            throw e;
+        }
+        if (waitNanos > 0) {
+            distributed.release(clientStoreKey, nowMillis);
+            rejected.increment();
+            return new Rejection(config.getRequestsPerMinute(), waitNanos);
+        }
+        allowed.increment();
+        return null;
+    }
+
+    private Rejection acquireLocal(String serviceName, String clientKey,
+                                   GatewayProperties.Performance.RateLimiting config, long now) {
+        TokenBucket clientBucket = bucketFor(serviceName + '\u0000' + clientKey,
+            config.getClientRequestsPerMinute(), config.getClientBurstCapacity(), config, now);
+        if (!clientBucket.tryConsume(now)) {
+            rejected.increment();
+            return new Rejection(clientBucket.requestsPerMinute, clientBucket.waitNanos(now));
+        }
+
+        TokenBucket serviceBucket = bucketFor(serviceName, config.getRequestsPerMinute(), config.getBurstCapacity(), config, now);
+        if (!serviceBucket.tryConsume(now)) {
+            // The request is not forwarded, so it must not use up the client's allowance
+            clientBucket.refund();
+            rejected.increment();
+            return new Rejection(serviceBucket.requestsPerMinute, serviceBucket.waitNanos(now));
+        }
+        allowed.increment();
+        return null;
+    }
+
+    public Map<String, Object> getStats() {
+        GatewayProperties.Performance.RateLimiting config = gatewayProperties.getPerformance().getRateLimiting();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", config.isEnabled());
+        stats.put("trackedKeys", buckets.size());
+        stats.put("maxTrackedKeys", config.getMaxTrackedKeys());
+        stats.put("allowed", allowed.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("evicted", evicted.sum());
+        stats.put("sharedStore", distributed != null ? config.getSharedStore() : GatewayProperties.SharedStore.NONE);
+        if (distributed != null) {
+            stats.put("sharedTrackedKeys", distributed.trackedKeys());
+            stats.put("storeRoundTrips", distributed.roundTrips());
+            stats.put("storeFailures", storeFailures.sum());
+            stats.put("usingLocalFallback", System.nanoTime() - storeRetryAt.get() < 0);
+        }
+        return stats;
+    }
+
+    private record Rejection(int requestsPerMinute, long waitNanos) {
+    }
+
+    private TokenBucket bucketFor(String key, int requestsPerMinute, int burstCapacity,
+                                  GatewayProperties.Performance.RateLimiting config, long now) {
+        TokenBucket bucket = buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        TokenBucket created = new TokenBucket(requestsPerMinute, burstCapacity, now);
+        bucket = buckets.putIfAbsent(key, created);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() > config.getMaxTrackedKeys()) {
+            evict(config.getMaxTrackedKeys(), now);
+        }
+        return created;
+    }
+
+    // Runs on the inserting thread; concurrent inserters skip the sweep instead of waiting for it
+    private void evict(int maxTrackedKeys, long now) {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            // A full bucket behaves exactly like a new one, so dropping it loses no state
+            buckets.values().removeIf(bucket -> {
+                if (bucket.isFull(now)) {
+                    evicted.increment();
+                    return true;
+                }
+                return false;
+            });
+            // Every key is active: drop arbitrary ones down to 90% so the next inserts don't sweep again
+            int target = maxTrackedKeys - maxTrackedKeys / 10;
+            Iterator<TokenBucket> iterator = buckets.values().iterator();
+            while (buckets.size() > target && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+                evicted.increment();
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    /**
+     * Token bucket kept as a single timestamp (GCRA): the time at which the bucket would be full again.
+     * Taking a token advances it by one refill interval with a CAS, so refill needs no timer thread and
+     * no lock, and the wait for the next token falls out of the same arithmetic.
+     */
+    static final class TokenBucket {
+        private final int requestsPerMinute;
+        private final long refillIntervalNanos;
+        private final long capacityNanos;
+        private final AtomicLong fullAt;
+
+        TokenBucket(int requestsPerMinute, int burstCapacity, long now) {
+            this.requestsPerMinute = requestsPerMinute;
+            this.refillIntervalNanos = TimeUnit.MINUTES.toNanos(1) / requestsPerMinute;
+            this.capacityNanos = refillIntervalNanos * burstCapacity;
+            this.fullAt = new AtomicLong(now);
+        }
+
+        boolean tryConsume(long now) {
+            while (true) {
+                long current = fullAt.get();
+                long next = (current - now > 0 ? current : now) + refillIntervalNanos;
+                // Taking the token would put the bucket more than its capacity behind
+                if (next - capacityNanos - now > 0) {
+                    return false;
+                }
+                if (fullAt.compareAndSet(current, next)) {
+                    return true;
+                }
+            }
+        }
+
+        // Nanoseconds until a token is available
+        long waitNanos(long now) {
+            long current = fullAt.get();
+            return (current - now > 0 ? current : now) + refillIntervalNanos - capacityNanos - now;
+        }
+
+        void refund() {
+            fullAt.addAndGet(-refillIntervalNanos);
+        }
+
+        boolean isFull(long now) {
+            return fullAt.get() - now <= 0;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.feigngateway.service;
+
+import com.example.feigngateway.config.GatewayWhitelistProperties;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public class ResolvedRoute {
+
+    private final GatewayWhitelistProperties.ServiceConfig serviceConfig;
+
+    // Null when the whitelist is disabled and no pattern was checked
+    private final String matchedPattern;
+
+    private final String targetUrl;
+
+    public String getServiceName() {
+        return serviceConfig.getName();
+    }
+}
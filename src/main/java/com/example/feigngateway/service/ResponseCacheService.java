@@ -0,0 +1,582 @@
+package com.example.feigngateway.service;
+
+import com.example.feigngateway.config.GatewayProperties;
+import com.example.feigngateway.config.GatewayWhitelistProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Shared cache of upstream GET responses, bounded by the bytes it holds rather than its entry count. What is
+ * stored and for how long follows the upstream's Cache-Control, Expires and Vary headers, within the route's
+ * ttl or gateway.performance.cache.ttl. One variant is kept per URL: a request whose Vary headers differ from
+ * the stored variant's is a miss, and its response replaces it.
+ * <p>
+ * A stale response stays usable for a while longer: within its stale-while-revalidate window it is served
+ * while a background refresh runs on gatewayTaskExecutor, and within its stale-if-error window it stands in
+ * for an upstream that fails, answers 5xx or is behind an open circuit (RFC 5861). A stale response with an
+ * ETag or Last-Modified is kept for revalidation-retention beyond that, so the upstream can be asked with a
+ * conditional request whether it is still current and answer 304 instead of the body.
+ * <p>
+ * With cache.off-heap enabled, bodies of at least its minEntrySize are kept in an OffHeapStore instead, indexed
+ * by a second Caffeine cache holding only keys and headers and bounded by the direct memory their bodies take.
+ * The two tiers never hold the same key.
+ */
+@Service
+@Slf4j
+public class ResponseCacheService {
+
+    // Statuses a shared cache may store (RFC 9110 section 15.1)
+    private static final Set<Integer> CACHEABLE_STATUSES = Set.of(200, 203, 204, 300, 301, 308, 404, 405, 410, 414, 501);
+
+    // Response headers never stored; Age and Content-Length are set afresh on every hit
+    private static final Set<String> UNSTORED_HEADERS = Set.of("age", "content-length");
+
+    // Rough per-entry cost of the key, entry object and maps, added to the body and header bytes
+    private static final int ENTRY_OVERHEAD = 200;
+
+    private final GatewayProperties gatewayProperties;
+    private final GatewayWhitelistProperties whitelistProperties;
+    private final PerformanceMetricsService metricsService;
+    private final Executor refreshExecutor;
+    private final Cache<String, CachedResponse> responses;
+
+    // Large bodies in direct memory, and their on-heap index; both null unless the off-heap tier is enabled
+    private final OffHeapStore offHeapStore;
+    private final Cache<String, CachedResponse> offHeapResponses;
+
+    // Keys with a background refresh queued or running, so a burst of stale hits refreshes once
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+
+    // Lookups answered from the cache or not; Caffeine's own counts can't tell a Vary mismatch from a hit
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder offHeapHits = new LongAdder();
+    private final LongAdder offHeapRejections = new LongAdder();
+    private final LongAdder staleWhileRevalidate = new LongAdder();
+    private final LongAdder staleIfError = new LongAdder();
+    private final LongAdder revalidations = new LongAdder();
+    private final LongAdder notModifiedServed = new LongAdder();
+
+    public ResponseCacheService(GatewayProperties gatewayProperties, GatewayWhitelistProperties whitelistProperties,
+                                PerformanceMetricsService metricsService,
+                                @Qualifier("gatewayTaskExecutor") Executor refreshExecutor) {
+        this.gatewayProperties = gatewayProperties;
+        this.whitelistProperties = whitelistProperties;
+        this.metricsService = metricsService;
+        this.refreshExecutor = refreshExecutor;
+        this.responses = Caffeine.newBuilder()
+            .maximumWeight(gatewayProperties.getPerformance().getCache().getMaxWeight())
+            .weigher((String key, CachedResponse response) -> ENTRY_OVERHEAD + 2 * key.length() + response.weight())
+            .expireAfter(new UntilUnusable())
+            .recordStats()
+            .build();
+
+        GatewayProperties.Performance.Cache.OffHeap offHeap = gatewayProperties.getPerformance().getCache().getOffHeap();
+        if (offHeap.isEnabled()) {
+            this.offHeapStore = new OffHeapStore(offHeap.getCapacity(), offHeap.getSlabSize(), offHeap.getBlockSize());
+            // Bounded one largest body below the store's capacity, so evictions always leave room for the next one.
+            // Removal runs on the evicting thread and frees the blocks as soon as no relay is reading them.
+            this.offHeapResponses = Caffeine.newBuilder()
+                .maximumWeight(Math.max(offHeap.getBlockSize(), offHeapStore.getCapacityBytes() - offHeap.getMaxEntrySize()))
+                .weigher((String key, CachedResponse response) ->
+                    (int) Math.min(Integer.MAX_VALUE, offHeapStore.footprint(response.getBodyLength())))
+                .expireAfter(new UntilUnusable())
+                .executor(Runnable::run)
+                .removalListener((String key, CachedResponse response, RemovalCause cause) -> response.release())
+                .recordStats()
+                .build();
+            log.info("Off-heap response cache tier enabled: {} bytes for bodies of {} bytes and more",
+                offHeapStore.getCapacityBytes(), offHeap.getMinEntrySize());
+        } else {
+            this.offHeapStore = null;
+            this.offHeapResponses = null;
+        }
+    }
+
+    // The cacheable view of a request, or null when it must bypass the cache entirely
+    public CacheableRequest cacheable(ResolvedRoute route, String method, String url, Function<String, String> headers) {
+        if (!"GET".equalsIgnoreCase(method) || !routeEnabled(route)) {
+            return null;
+        }
+        Map<String, String> requestDirectives = directives(headers.apply(HttpHeaders.CACHE_CONTROL));
+        if (requestDirectives.containsKey("no-store")) {
+            return null;
+        }
+        // The client insists on a response from the origin, which may still be stored for others
+        boolean lookup = !requestDirectives.containsKey("no-cache") && !"0".equals(requestDirectives.get("max-age"))
+            && !"no-cache".equalsIgnoreCase(headers.apply(HttpHeaders.PRAGMA));
+        return new CacheableRequest(route.getServiceName(), cacheKey(route.getServiceName(), url), headers, lookup);
+    }
+
+    // A stored response matching the request's Vary headers that is fresh, or stale but within its
+    // stale-while-revalidate window, or null. The caller refreshes a stale one with refreshAsync.
+    public CachedResponse get(CacheableRequest request) {
+        if (!request.lookup()) {
+            return null;
+        }
+        CachedResponse cached = stored(request.key());
+        long now = System.nanoTime();
+        boolean hit = cached != null && (cached.isFresh(now) || cached.isUsableWhileRevalidating(now))
+            && matchesVary(cached, request.headers());
+        (hit ? hits : misses).increment();
+        metricsService.recordCacheLookup(request.serviceName(), hit);
+        if (hit && cached.isOffHeap()) {
+            offHeapHits.increment();
+            metricsService.recordOffHeapCacheHit(request.serviceName());
+        }
+        if (hit && !cached.isFresh(now)) {
+            staleWhileRevalidate.increment();
+            metricsService.recordStaleWhileRevalidate(request.serviceName());
+        }
+        return hit ? cached : null;
+    }
+
+    // Refreshes a stale entry in the background. The fetch must not touch the client's request or response,
+    // which are gone by the time it runs; a failed refresh leaves the stale entry in place.
+    public void refreshAsync(CacheableRequest request, Supplier<CachedResponse> fetch) {
+        if (!refreshing.add(request.key())) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    put(request, fetch.get());
+                } catch (RuntimeException e) {
+                    log.debug("Background refresh of {} failed: {}", request.key(), e.getMessage());
+                } finally {
+                    refreshing.remove(request.key());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(request.key());
+            log.debug("Background refresh of {} rejected: {}", request.key(), e.getMessage());
+        }
+    }
+
+    // The stored response matching the request's Vary headers however stale, to revalidate or to stand in
+    // for a failed upstream call, or null. Not counted as a lookup.
+    public CachedResponse peek(CacheableRequest request) {
+        if (request == null) {
+            return null;
+        }
+        CachedResponse cached = stored(request.key());
+        return cached != null && matchesVary(cached, request.headers()) ? cached : null;
+    }
+
+    // Conditional request headers asking the upstream whether a stored response is still current; empty
+    // when there is none or it has no validator
+    public HttpHeaders validators(CachedResponse stored) {
+        HttpHeaders validators = new HttpHeaders();
+        if (stored == null) {
+            return validators;
+        }
+        String etag = stored.getHeaders().getETag();
+        if (etag != null) {
+            validators.setIfNoneMatch(etag);
+        }
+        String lastModified = stored.getHeaders().getFirst(HttpHeaders.LAST_MODIFIED);
+        if (lastModified != null) {
+            validators.set(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+        }
+        return validators;
+    }
+
+    // The stored response with the headers of the upstream's 304 applied and its freshness computed anew
+    // from them, as if it had just been received in full (RFC 9111 section 4.3.4). An off-heap stored response
+    // must be retained.
+    public CachedResponse freshen(ResolvedRoute route, CachedResponse stored, HttpHeaders notModified) {
+        HttpHeaders headers = new HttpHeaders();
+        stored.getHeaders().forEach(headers::addAll);
+        notModified.forEach((name, values) -> {
+            String lowerCase = name.toLowerCase(Locale.ROOT);
+            if (!PassthroughService.HOP_BY_HOP_HEADERS.contains(lowerCase) && !"content-length".equals(lowerCase)) {
+                headers.put(name, values);
+            }
+        });
+        revalidations.increment();
+        metricsService.recordCacheRevalidation(route.getServiceName());
+        return entry(route, stored.getStatus(), headers, stored.copyBody(), stored.getVaryValues());
+    }
+
+    // Whether a client's If-None-Match or If-Modified-Since is satisfied by the response, which may then be
+    // answered with 304 (RFC 9110 section 13.2.2)
+    public boolean notModified(CachedResponse cached, Function<String, String> requestHeaders) {
+        if (cached.getStatus() != 200) {
+            return false;
+        }
+        String ifNoneMatch = requestHeaders.apply(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            String etag = cached.getHeaders().getETag();
+            if (etag == null) {
+                return false;
+            }
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim();
+                if ("*".equals(tag) || opaqueTag(tag).equals(opaqueTag(etag))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        String ifModifiedSince = requestHeaders.apply(HttpHeaders.IF_MODIFIED_SINCE);
+        if (ifModifiedSince == null) {
+            return false;
+        }
+        HttpHeaders conditional = new HttpHeaders();
+        conditional.set(HttpHeaders.IF_MODIFIED_SINCE, ifModifiedSince);
+        long since = conditional.getIfModifiedSince();
+        long lastModified = cached.getHeaders().getLastModified();
+        return since >= 0 && lastModified >= 0 && lastModified <= since;
+    }
+
+    // Counts a client request answered with 304 from a cached response
+    public void recordNotModified(String serviceName) {
+        notModifiedServed.increment();
+        metricsService.recordNotModified(serviceName);
+    }
+
+    // Counts a stale response served in place of a failed upstream call
+    public void recordStaleIfError(CacheableRequest request) {
+        staleIfError.increment();
+        metricsService.recordStaleIfError(request.serviceName());
+    }
+
+    // Capture for the upstream response of a miss; only responses other clients may be given are copied
+    public ResponseCapture capture() {
+        GatewayProperties.Performance.Cache config = gatewayProperties.getPerformance().getCache();
+        int maxBodySize = offHeapStore != null
+            ? Math.max(config.getMaxEntrySize(), config.getOffHeap().getMaxEntrySize())
+            : config.getMaxEntrySize();
+        return new ResponseCapture(maxBodySize, (status, headers) -> shareable(headers));
+    }
+
+    // The captured response in the form a hit is served from, or null if it was not captured in full.
+    // Its freshness follows the upstream's headers and the route's ttl, and its stale windows the route,
+    // the upstream's directives or the global defaults; a response that may not be stored is already stale.
+    public CachedResponse snapshot(ResolvedRoute route, ResponseCapture capture, Function<String, String> requestHeaders) {
+        if (capture == null || !capture.isCaptured()) {
+            return null;
+        }
+        HttpHeaders headers = capture.getHeaders();
+        Map<String, String> varyValues = new HashMap<>();
+        for (String name : varyNames(headers)) {
+            varyValues.put(name, varyValue(requestHeaders, name));
+        }
+        return entry(route, capture.getStatus(), headers, capture.getBody(), varyValues);
+    }
+
+    private CachedResponse entry(ResolvedRoute route, int status, HttpHeaders headers, byte[] body,
+                                 Map<String, String> varyValues) {
+        long now = System.nanoTime();
+        long initialAge = parseSeconds(headers.getFirst(HttpHeaders.AGE), 0);
+        boolean storable = CACHEABLE_STATUSES.contains(status) && storable(headers);
+        GatewayWhitelistProperties.RouteCache routeCache = routeCache(route);
+        Long lifetime = storable ? freshnessLifetime(headers, routeCache != null ? routeCache.getTtl() : null) : null;
+        long freshFor = lifetime != null ? Math.max(0, lifetime - initialAge) : 0;
+        GatewayProperties.Performance.Cache config = gatewayProperties.getPerformance().getCache();
+        long staleWhileRevalidateFor = lifetime != null ? staleWindow(headers, "stale-while-revalidate",
+            routeCache != null ? routeCache.getStaleWhileRevalidate() : null, config.getStaleWhileRevalidate()) : 0;
+        long staleIfErrorFor = lifetime != null ? staleWindow(headers, "stale-if-error",
+            routeCache != null ? routeCache.getStaleIfError() : null, config.getStaleIfError()) : 0;
+        long freshUntil = now + TimeUnit.SECONDS.toNanos(freshFor);
+
+        HttpHeaders stored = new HttpHeaders();
+        headers.forEach((name, values) -> {
+            if (!UNSTORED_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+                stored.addAll(name, values);
+            }
+        });
+        boolean revalidatable = lifetime != null
+            && (stored.getETag() != null || stored.containsKey(HttpHeaders.LAST_MODIFIED));
+        long revalidateFor = revalidatable ? config.getRevalidationRetention() : 0;
+        return new CachedResponse(status, stored, body, varyValues, initialAge, now,
+            freshUntil, freshUntil + TimeUnit.SECONDS.toNanos(staleWhileRevalidateFor),
+            freshUntil + TimeUnit.SECONDS.toNanos(staleIfErrorFor), freshUntil + TimeUnit.SECONDS.toNanos(revalidateFor));
+    }
+
+    // Stores a snapshot that is still of use: fresh, within a stale window or kept for revalidation
+    public void put(CacheableRequest request, CachedResponse response) {
+        if (response == null || response.usableUntilNanos() - System.nanoTime() <= 0) {
+            return;
+        }
+        log.debug("Caching {} for {} s", request.key(),
+            TimeUnit.NANOSECONDS.toSeconds(response.usableUntilNanos() - response.getStoredAtNanos()));
+        GatewayProperties.Performance.Cache config = gatewayProperties.getPerformance().getCache();
+        if (offHeapStore != null && response.getBodyLength() >= config.getOffHeap().getMinEntrySize()
+                && response.getBodyLength() <= config.getOffHeap().getMaxEntrySize() && putOffHeap(request.key(), response)) {
+            responses.invalidate(request.key());
+            return;
+        }
+        if (response.getBodyLength() > config.getMaxEntrySize()) {
+            return;
+        }
+        responses.put(request.key(), response);
+        if (offHeapResponses != null) {
+            offHeapResponses.invalidate(request.key());
+        }
+    }
+
+    // Copies the body into the off-heap store; false when it has no room even after pending evictions ran,
+    // which happens only while relays hold on to evicted bodies
+    private boolean putOffHeap(String key, CachedResponse response) {
+        byte[] body = response.copyBody();
+        OffHeapStore.Body stored = offHeapStore.store(body);
+        if (stored == null) {
+            offHeapResponses.cleanUp();
+            stored = offHeapStore.store(body);
+        }
+        if (stored == null) {
+            offHeapRejections.increment();
+            return false;
+        }
+        offHeapResponses.put(key, response.withOffHeapBody(stored));
+        return true;
+    }
+
+    private CachedResponse stored(String key) {
+        CachedResponse cached = responses.getIfPresent(key);
+        return cached == null && offHeapResponses != null ? offHeapResponses.getIfPresent(key) : cached;
+    }
+
+    // Whether a response built for other request headers may be given to this request
+    public boolean matchesVary(CachedResponse cached, Function<String, String> requestHeaders) {
+        for (Map.Entry<String, String> vary : cached.getVaryValues().entrySet()) {
+            if (!vary.getValue().equals(varyValue(requestHeaders, vary.getKey()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Drops the stored response for a URL an unsafe request has just changed (RFC 9111 section 4.4)
+    public void invalidate(ResolvedRoute route, String url) {
+        String key = cacheKey(route.getServiceName(), url);
+        responses.invalidate(key);
+        if (offHeapResponses != null) {
+            offHeapResponses.invalidate(key);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        CacheStats stats = responses.stats();
+        long hitCount = hits.sum();
+        long lookups = hitCount + misses.sum();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", gatewayProperties.getPerformance().getCache().isEnabled());
+        result.put("entries", responses.estimatedSize());
+        result.put("weightBytes", responses.policy().eviction().map(e -> e.weightedSize().orElse(0)).orElse(0L));
+        result.put("maxWeightBytes", gatewayProperties.getPerformance().getCache().getMaxWeight());
+        result.put("hits", hitCount);
+        result.put("misses", lookups - hitCount);
+        result.put("hitRate", lookups > 0 ? (double) hitCount / lookups * 100 : 0.0);
+        long offHeapHitCount = offHeapHits.sum();
+        result.put("heapHitRate", lookups > 0 ? (double) (hitCount - offHeapHitCount) / lookups * 100 : 0.0);
+        result.put("offHeapHitRate", lookups > 0 ? (double) offHeapHitCount / lookups * 100 : 0.0);
+        result.put("staleWhileRevalidateServed", staleWhileRevalidate.sum());
+        result.put("staleIfErrorServed", staleIfError.sum());
+        result.put("revalidations", revalidations.sum());
+        result.put("notModifiedServed", notModifiedServed.sum());
+        result.put("refreshesInFlight", refreshing.size());
+        result.put("evictions", stats.evictionCount());
+        result.put("evictedBytes", stats.evictionWeight());
+        result.put("offHeap", getOffHeapStats());
+        return result;
+    }
+
+    private Map<String, Object> getOffHeapStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", offHeapStore != null);
+        if (offHeapStore == null) {
+            return result;
+        }
+        CacheStats stats = offHeapResponses.stats();
+        result.put("entries", offHeapResponses.estimatedSize());
+        result.put("usedBytes", offHeapStore.getUsedBytes());
+        result.put("allocatedBytes", offHeapStore.getAllocatedBytes());
+        result.put("capacityBytes", offHeapStore.getCapacityBytes());
+        result.put("hits", offHeapHits.sum());
+        result.put("evictions", stats.evictionCount());
+        result.put("rejected", offHeapRejections.sum());
+        return result;
+    }
+
+    // Service plus the target URL with its query parameters in a canonical order
+    static String cacheKey(String serviceName, String url) {
+        UriComponents uri = UriComponentsBuilder.fromUriString(url).build();
+        UriComponentsBuilder canonical = UriComponentsBuilder.newInstance()
+            .scheme(uri.getScheme()).host(uri.getHost()).port(uri.getPort()).path(uri.getPath());
+        new TreeMap<>(uri.getQueryParams()).forEach((name, values) ->
+            values.stream().sorted().forEach(value -> canonical.queryParam(name, value)));
+        return serviceName + " " + canonical.build().toUriString();
+    }
+
+    // Nothing in the response is meant for one client only
+    private static boolean shareable(HttpHeaders headers) {
+        Map<String, String> directives = directives(String.join(",", headers.getOrEmpty(HttpHeaders.CACHE_CONTROL)));
+        return !directives.containsKey("private") && !headers.containsKey(HttpHeaders.SET_COOKIE)
+            && !varyNames(headers).contains("*");
+    }
+
+    private static boolean storable(HttpHeaders headers) {
+        Map<String, String> directives = directives(String.join(",", headers.getOrEmpty(HttpHeaders.CACHE_CONTROL)));
+        return shareable(headers) && !directives.containsKey("no-store") && !directives.containsKey("no-cache");
+    }
+
+    // Seconds the response may be served from cache, capped by the route ttl or the global one; null if
+    // the upstream gives no freshness and the route sets no ttl
+    private Long freshnessLifetime(HttpHeaders headers, Integer routeTtl) {
+        Map<String, String> directives = directives(String.join(",", headers.getOrEmpty(HttpHeaders.CACHE_CONTROL)));
+        Long lifetime = null;
+        if (directives.containsKey("s-maxage")) {
+            lifetime = parseSeconds(directives.get("s-maxage"), 0);
+        } else if (directives.containsKey("max-age")) {
+            lifetime = parseSeconds(directives.get("max-age"), 0);
+        } else if (headers.containsKey(HttpHeaders.EXPIRES)) {
+            // An unparseable Expires means already expired
+            long expires = headers.getExpires();
+            lifetime = expires < 0 ? 0 : Math.max(0, (expires - responseDate(headers)) / 1000);
+        } else if (routeTtl != null) {
+            lifetime = (long) routeTtl;
+        }
+        if (lifetime == null) {
+            return null;
+        }
+        int cap = routeTtl != null ? routeTtl : gatewayProperties.getPerformance().getCache().getTtl();
+        return Math.min(lifetime, cap);
+    }
+
+    // Seconds a stale response stays usable: the route's window, else the upstream's directive, else the
+    // global default. must-revalidate and proxy-revalidate forbid serving it stale at all.
+    private static long staleWindow(HttpHeaders headers, String directive, Integer routeWindow, int defaultWindow) {
+        Map<String, String> directives = directives(String.join(",", headers.getOrEmpty(HttpHeaders.CACHE_CONTROL)));
+        if (directives.containsKey("must-revalidate") || directives.containsKey("proxy-revalidate")) {
+            return 0;
+        }
+        if (routeWindow != null) {
+            return Math.max(0, routeWindow);
+        }
+        return parseSeconds(directives.get(directive), defaultWindow);
+    }
+
+    // Entity tag without its weakness indicator, for the weak comparison If-None-Match uses
+    private static String opaqueTag(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    // The upstream's Date, or now when it sent none or an invalid one
+    private static long responseDate(HttpHeaders headers) {
+        try {
+            long date = headers.getDate();
+            return date >= 0 ? date : System.currentTimeMillis();
+        } catch (IllegalArgumentException e) {
+            return System.currentTimeMillis();
+        }
+    }
+
+    private static List<String> varyNames(HttpHeaders headers) {
+        return headers.getOrEmpty(HttpHeaders.VARY).stream()
+            .flatMap(value -> Arrays.stream(value.split(",")))
+            .map(name -> name.trim().toLowerCase(Locale.ROOT))
+            .filter(name -> !name.isEmpty())
+            .toList();
+    }
+
+    // Header value normalized for comparison; an absent header matches only another absent one
+    private static String varyValue(Function<String, String> headers, String name) {
+        String value = headers.apply(name);
+        return value == null ? "" : value.trim().replaceAll("\\s*,\\s*", ",");
+    }
+
+    // Cache-Control directives by lower-case name; valueless directives map to an empty string
+    private static Map<String, String> directives(String cacheControl) {
+        Map<String, String> directives = new HashMap<>();
+        if (cacheControl == null) {
+            return directives;
+        }
+        for (String directive : cacheControl.split(",")) {
+            int equals = directive.indexOf('=');
+            String name = (equals < 0 ? directive : directive.substring(0, equals)).trim().toLowerCase(Locale.ROOT);
+            if (!name.isEmpty()) {
+                directives.put(name, equals < 0 ? "" : directive.substring(equals + 1).trim().replace("\"", ""));
+            }
+        }
+        return directives;
+    }
+
+    private static long parseSeconds(String value, long fallback) {
+        if (value == null) {
+            return fallback;
+        }
+        try {
+            return Math.max(0, Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    private boolean routeEnabled(ResolvedRoute route) {
+        GatewayWhitelistProperties.RouteCache routeCache = routeCache(route);
+        boolean enabled = gatewayProperties.getPerformance().getCache().isEnabled();
+        return routeCache != null && routeCache.getEnabled() != null ? routeCache.getEnabled() : enabled;
+    }
+
+    private GatewayWhitelistProperties.RouteCache routeCache(ResolvedRoute route) {
+        List<GatewayWhitelistProperties.RouteCache> routeCaches = route.getServiceConfig().getRouteCaches();
+        if (routeCaches == null || route.getMatchedPattern() == null) {
+            return null;
+        }
+        for (GatewayWhitelistProperties.RouteCache routeCache : routeCaches) {
+            if (route.getMatchedPattern().equals(routeCache.getEndpoint())) {
+                return routeCache;
+            }
+        }
+        return null;
+    }
+
+    public record CacheableRequest(String serviceName, String key, Function<String, String> headers, boolean lookup) {
+    }
+
+    // Entries are dropped once they are neither fresh nor within a stale window
+    private static final class UntilUnusable implements Expiry<String, CachedResponse> {
+
+        @Override
+        public long expireAfterCreate(String key, CachedResponse response, long currentTime) {
+            return Math.max(0, response.usableUntilNanos() - currentTime);
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, CachedResponse response, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, response, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, CachedResponse response, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
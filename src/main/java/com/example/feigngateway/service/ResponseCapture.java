@@ -0,0 +1,68 @@
+package com.example.feigngateway.service;
+
+import org.springframework.http.HttpHeaders;
+
+import java.io.ByteArrayOutputStream;
+import java.util.function.BiPredicate;
+
+/**
+ * Copy of an upstream response taken while it is relayed to the client. Only responses the filter accepts are
+ * copied, and a body over the size limit abandons the copy; the relay itself is never affected.
+ */
+public final class ResponseCapture {
+
+    private final int maxBodySize;
+    private final BiPredicate<Integer, HttpHeaders> filter;
+
+    private int status;
+    private HttpHeaders headers;
+    private ByteArrayOutputStream body;
+    private boolean complete;
+
+    ResponseCapture(int maxBodySize, BiPredicate<Integer, HttpHeaders> filter) {
+        this.maxBodySize = maxBodySize;
+        this.filter = filter;
+    }
+
+    // Called once the upstream status and end-to-end headers are known, before any body bytes
+    public void begin(int status, HttpHeaders headers) {
+        this.status = status;
+        this.headers = headers;
+        long contentLength = headers.getContentLength();
+        if (contentLength <= maxBodySize && filter.test(status, headers)) {
+            body = new ByteArrayOutputStream(contentLength > 0 ? (int) contentLength : 256);
+        }
+    }
+
+    public void write(byte[] buffer, int offset, int length) {
+        if (body == null) {
+            return;
+        }
+        if (body.size() + length > maxBodySize) {
+            body = null;
+            return;
+        }
+        body.write(buffer, offset, length);
+    }
+
+    // Called after the last body byte was relayed; a capture that is never completed is discarded
+    public void complete() {
+        complete = true;
+    }
+
+    public boolean isCaptured() {
+        return complete && body != null;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public HttpHeaders getHeaders() {
+        return headers;
+    }
+
+    public byte[] getBody() {
+        return body != null ? body.toByteArray() : null;
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.feigngateway.service;
+
+import com.example.feigngateway.config.GatewayProperties;
+import com.example.feigngateway.config.GatewayWhitelistProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Retry policy per whitelisted service. Failed upstream calls (I/O errors and the configured statuses) are
+ * retried with exponential backoff and full jitter, but only when the request can be replayed safely: an
+ * idempotent method, or a request carrying the idempotency key header. Each service also has a token-bucket
+ * budget refilled by its live traffic, so during an outage retries add at most budgetPercent to the load
+ * instead of multiplying it.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RetryService {
+
+    private static final Set<String> IDEMPOTENT_METHODS = Set.of("GET", "HEAD", "OPTIONS", "PUT", "DELETE", "TRACE");
+
+    // Budget balances are kept in thousandths of a retry so small deposits don't round away
+    private static final long TOKEN = 1000;
+
+    private final GatewayProperties gatewayProperties;
+    private final GatewayWhitelistProperties whitelistProperties;
+    private final PerformanceMetricsService metricsService;
+
+    private final ConcurrentHashMap<String, ServiceRetry> services = new ConcurrentHashMap<>();
+
+    public boolean isReplayable(String method, String idempotencyKey) {
+        return (method != null && IDEMPOTENT_METHODS.contains(method.toUpperCase(Locale.ROOT)))
+            || (idempotencyKey != null && !idempotencyKey.isBlank());
+    }
+
+    public String getIdempotencyKeyHeader() {
+        return gatewayProperties.getPerformance().getRetry().getIdempotencyKeyHeader();
+    }
+
+    public <T> T execute(String serviceName, boolean replayable, Supplier<T> call) {
+        return execute(serviceName, () -> replayable, call);
+    }
+
+    // Runs call, retrying a retryable failure while canRetry holds, attempts remain and the budget allows.
+    // canRetry is checked after each failure, so callers can stop once a response has been committed.
+    public <T> T execute(String serviceName, BooleanSupplier canRetry, Supplier<T> call) {
+        ServiceRetry retry = retryFor(serviceName);
+        retry.deposit();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                T result = call.get();
+                metricsService.recordUpstreamAttempt(serviceName, attempt, true);
+                return result;
+            } catch (RuntimeException e) {
+                metricsService.recordUpstreamAttempt(serviceName, attempt, false);
+                if (!shouldRetry(retry, attempt, e) || !canRetry.getAsBoolean()) {
+                    throw e;
+                }
+                if (!retry.tryWithdraw()) {
+                    metricsService.recordRetryBudgetExhausted(serviceName);
+                    log.debug("Retry budget exhausted for service {}, not retrying: {}", serviceName, e.getMessage());
+                    throw e;
+                }
+                long backoff = backoff(retry.policy, attempt);
+                RequestDeadline deadline = RequestDeadline.current();
+                if (deadline != null && deadline.remainingMillis() <= backoff) {
+                    // The client will have given up before the retry could answer
+                    throw e;
+                }
+                log.debug("Retrying service {} (attempt {}) in {} ms after: {}", serviceName, attempt + 1, backoff, e.getMessage());
+                if (!sleep(backoff)) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    // Policy and budget balance per service, keyed by service name
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new TreeMap<>();
+        services.forEach((service, retry) -> {
+            Map<String, Object> serviceStats = new LinkedHashMap<>();
+            serviceStats.put("enabled", retry.policy.isEnabled());
+            serviceStats.put("maxAttempts", retry.policy.getMaxAttempts());
+            serviceStats.put("budgetRemaining", retry.budget.get() / (double) TOKEN);
+            stats.put(service, serviceStats);
+        });
+        return stats;
+    }
+
+    private boolean shouldRetry(ServiceRetry retry, int attempt, RuntimeException e) {
+        if (!retry.policy.isEnabled() || attempt >= retry.policy.getMaxAttempts()) {
+            return false;
+        }
+        if (e instanceof ResourceAccessException) {
+            return true;
+        }
+        return e instanceof HttpStatusCodeException statusException
+            && retry.policy.getRetryableStatuses().contains(statusException.getStatusCode().value());
+    }
+
+    // Full jitter: uniform between zero and the exponential backoff for this attempt
+    private static long backoff(GatewayProperties.Performance.Retry policy, int attempt) {
+        double exponential = policy.getInitialBackoff() * Math.pow(policy.getBackoffMultiplier(), attempt - 1);
+        long cap = (long) Math.min(policy.getMaxBackoff(), exponential);
+        return cap > 0 ? ThreadLocalRandom.current().nextLong(cap + 1) : 0;
+    }
+
+    private static boolean sleep(long millis) {
+        if (millis <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private ServiceRetry retryFor(String serviceName) {
+        return services.computeIfAbsent(serviceName != null ? serviceName : "unknown", this::createRetry);
+    }
+
+    private ServiceRetry createRetry(String serviceName) {
+        GatewayProperties.Performance.Retry defaults = gatewayProperties.getPerformance().getRetry();
+        GatewayWhitelistProperties.Retry overrides = whitelistProperties.serviceOverrides(serviceName,
+            GatewayWhitelistProperties.ServiceConfig::getRetry, GatewayWhitelistProperties.Retry::new);
+
+        GatewayProperties.Performance.Retry policy = new GatewayProperties.Performance.Retry();
+        policy.setEnabled(Objects.requireNonNullElse(overrides.getEnabled(), defaults.isEnabled()));
+        policy.setMaxAttempts(Objects.requireNonNullElse(overrides.getMaxAttempts(), defaults.getMaxAttempts()));
+        policy.setInitialBackoff(Objects.requireNonNullElse(overrides.getInitialBackoff(), defaults.getInitialBackoff()));
+        policy.setMaxBackoff(Objects.requireNonNullElse(overrides.getMaxBackoff(), defaults.getMaxBackoff()));
+        policy.setBackoffMultiplier(defaults.getBackoffMultiplier());
+        policy.setBudgetPercent(defaults.getBudgetPercent());
+        policy.setBudgetCapacity(defaults.getBudgetCapacity());
+        policy.setRetryableStatuses(defaults.getRetryableStatuses());
+        policy.setIdempotencyKeyHeader(defaults.getIdempotencyKeyHeader());
+        return new ServiceRetry(policy);
+    }
+
+    private static final class ServiceRetry {
+        private final GatewayProperties.Performance.Retry policy;
+        private final AtomicLong budget;
+        private final long capacity;
+        private final long deposit;
+
+        private ServiceRetry(GatewayProperties.Performance.Retry policy) {
+            this.policy = policy;
+            // At least one retry fits, so a zero capacity still lets earned retries through
+            this.capacity = Math.max(1, policy.getBudgetCapacity()) * TOKEN;
+            this.deposit = policy.getBudgetPercent() * TOKEN / 100;
+            this.budget = new AtomicLong(capacity);
+        }
+
+        private void deposit() {
+            budget.accumulateAndGet(deposit, (balance, amount) -> Math.min(capacity, balance + amount));
+        }
+
+        private boolean tryWithdraw() {
+            long balance;
+            do {
+                balance = budget.get();
+                if (balance < TOKEN) {
+                    return false;
+                }
+            } while (!budget.compareAndSet(balance, balance - TOKEN));
+            return true;
+        }
+    }
+}
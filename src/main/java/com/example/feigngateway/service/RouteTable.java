@@ -0,0 +1,78 @@
+package com.example.feigngateway.service;
+
+import com.example.feigngateway.config.GatewayWhitelistProperties;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable routing snapshot built once from the whitelist configuration:
+ * a hash index by service name with a {@link PathPatternTrie} of endpoints per service.
+ */
+public final class RouteTable {
+
+    private final List<GatewayWhitelistProperties.ServiceConfig> source;
+    private final Map<String, ServiceRoutes> routesByService;
+
+    private RouteTable(List<GatewayWhitelistProperties.ServiceConfig> source, Map<String, ServiceRoutes> routesByService) {
+        this.source = source;
+        this.routesByService = routesByService;
+    }
+
+    public static RouteTable build(List<GatewayWhitelistProperties.ServiceConfig> services) {
+        Map<String, ServiceRoutes> routes = new HashMap<>();
+        if (services != null) {
+            for (GatewayWhitelistProperties.ServiceConfig service : services) {
+                if (service != null && service.getName() != null) {
+                    // First definition wins, as with the previous linear scan
+                    routes.putIfAbsent(service.getName(), new ServiceRoutes(service));
+                }
+            }
+        }
+        return new RouteTable(services, Map.copyOf(routes));
+    }
+
+    public boolean isBuiltFrom(List<GatewayWhitelistProperties.ServiceConfig> services) {
+        return source == services;
+    }
+
+    public GatewayWhitelistProperties.ServiceConfig getServiceConfig(String serviceName) {
+        ServiceRoutes routes = serviceName != null ? routesByService.get(serviceName) : null;
+        return routes != null ? routes.serviceConfig : null;
+    }
+
+    public ResolvedRoute resolve(String serviceName, String pathInService, boolean enforceWhitelist) {
+        if (serviceName == null || pathInService == null) {
+            return null;
+        }
+        ServiceRoutes routes = routesByService.get(serviceName);
+        if (routes == null) {
+            return null;
+        }
+
+        if (!enforceWhitelist) {
+            return new ResolvedRoute(routes.serviceConfig, null, routes.serviceConfig.getBaseUrl() + pathInService);
+        }
+
+        PathPattern matched = routes.match(pathInService);
+        if (matched == null) {
+            return null;
+        }
+        return new ResolvedRoute(routes.serviceConfig, matched.getPattern(), routes.serviceConfig.getBaseUrl() + pathInService);
+    }
+
+    private static final class ServiceRoutes {
+        private final GatewayWhitelistProperties.ServiceConfig serviceConfig;
+        private final PathPatternTrie patterns;
+
+        private ServiceRoutes(GatewayWhitelistProperties.ServiceConfig serviceConfig) {
+            this.serviceConfig = serviceConfig;
+            this.patterns = PathPatternTrie.of(serviceConfig.getEndpoints());
+        }
+
+        private PathPattern match(String path) {
+            return patterns.match(path);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.example.feigngateway.service;
+
+import com.example.feigngateway.config.GatewayProperties;
+import com.example.feigngateway.service.CircuitBreakerService.CircuitState;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Lock-free circuit breaker over a count-based sliding window of the last {@code slidingWindowSize} calls.
+ * Opens when the failure rate or the slow-call rate of the window reaches its threshold, once at least
+ * {@code minimumNumberOfCalls} calls were recorded. After {@code timeoutDuration} a single thread moves it
+ * to HALF_OPEN, where only {@code permittedCallsInHalfOpen} trial calls are let through; their rates decide
+ * between CLOSED and OPEN.
+ */
+@Slf4j
+public class SlidingWindowCircuitBreaker {
+
+    private final String name;
+    private final GatewayProperties.Performance.CircuitBreaker config;
+    private final long slowCallNanos;
+    // Time source of the open timeout; tests substitute a clock they advance themselves
+    private final LongSupplier nanoClock;
+    // Every transition swaps in a new phase, so outcomes of calls from an earlier phase can't leak into it
+    private final AtomicReference<Phase> phase;
+    private final LongAdder notPermittedCalls = new LongAdder();
+
+    public SlidingWindowCircuitBreaker(String name, GatewayProperties.Performance.CircuitBreaker config) {
+        this(name, config, System::nanoTime);
+    }
+
+    SlidingWindowCircuitBreaker(String name, GatewayProperties.Performance.CircuitBreaker config, LongSupplier nanoClock) {
+        this.name = name;
+        this.config = config;
+        this.nanoClock = nanoClock;
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(config.getSlowCallDuration());
+        this.phase = new AtomicReference<>(closed());
+    }
+
+    public CircuitState getState() {
+        return phase.get().state;
+    }
+
+    public boolean tryAcquirePermission() {
+        if (!config.isEnabled()) {
+            return true;
+        }
+        while (true) {
+            Phase current = phase.get();
+            switch (current.state) {
+                case CLOSED:
+                    return true;
+                case OPEN:
+                    if (age(current) < config.getTimeoutDuration()) {
+                        notPermittedCalls.increment();
+                        return false;
+                    }
+                    if (phase.compareAndSet(current, halfOpen())) {
+                        log.info("Circuit breaker for {} moved to half-open state", name);
+                    }
+                    break;
+                default:
+                    if (current.trialPermits.getAndUpdate(permits -> permits > 0 ? permits - 1 : 0) > 0) {
+                        return true;
+                    }
+                    // Trial calls that never reported back would otherwise keep the breaker half-open forever
+                    if (age(current) >= config.getTimeoutDuration()) {
+                        phase.compareAndSet(current, halfOpen());
+                        break;
+                    }
+                    notPermittedCalls.increment();
+                    return false;
+            }
+        }
+    }
+
+    // Hands back a permission whose call ended without an outcome, e.g. when it was rejected locally
+    public void releasePermission() {
+        Phase current = phase.get();
+        if (current.state == CircuitState.HALF_OPEN) {
+            current.trialPermits.incrementAndGet();
+        }
+    }
+
+    public void onSuccess(long durationNanos) {
+        record(false, durationNanos);
+    }
+
+    public void onFailure(long durationNanos) {
+        record(true, durationNanos);
+    }
+
+    public Map<String, Object> getStats() {
+        Phase current = phase.get();
+        Window.Snapshot window = current.window.snapshot();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("state", current.state);
+        stats.put("enabled", config.isEnabled());
+        stats.put("bufferedCalls", window.calls);
+        stats.put("failedCalls", window.failures);
+        stats.put("slowCalls", window.slowCalls);
+        // -1 until enough calls are buffered to evaluate the rates
+        stats.put("failureRate", current.evaluable(window) ? window.failureRate() : -1.0f);
+        stats.put("slowCallRate", current.evaluable(window) ? window.slowCallRate() : -1.0f);
+        stats.put("failureRateThreshold", config.getFailureRateThreshold());
+        stats.put("slowCallRateThreshold", config.getSlowCallRateThreshold());
+        stats.put("slidingWindowSize", config.getSlidingWindowSize());
+        stats.put("minimumNumberOfCalls", config.getMinimumNumberOfCalls());
+        if (current.state == CircuitState.HALF_OPEN) {
+            stats.put("remainingTrialCalls", current.trialPermits.get());
+        }
+        stats.put("notPermittedCalls", notPermittedCalls.sum());
+        return stats;
+    }
+
+    private void record(boolean failed, long durationNanos) {
+        if (!config.isEnabled()) {
+            return;
+        }
+        Phase current = phase.get();
+        if (current.state == CircuitState.OPEN) {
+            // Late outcome of a call that started before the circuit opened
+            return;
+        }
+
+        Window.Snapshot window = current.window.record(failed, durationNanos >= slowCallNanos);
+        if (!current.evaluable(window)) {
+            return;
+        }
+        if (window.failureRate() >= config.getFailureRateThreshold()
+                || window.slowCallRate() >= config.getSlowCallRateThreshold()) {
+            if (phase.compareAndSet(current, open())) {
+                log.warn("Circuit breaker for {} opened - failure rate {}%, slow-call rate {}% over {} calls",
+                        name, window.failureRate(), window.slowCallRate(), window.calls);
+            }
+        } else if (current.state == CircuitState.HALF_OPEN && phase.compareAndSet(current, closed())) {
+            log.info("Circuit breaker for {} closed - service recovered", name);
+        }
+    }
+
+    private long age(Phase phase) {
+        return TimeUnit.NANOSECONDS.toMillis(nanoClock.getAsLong() - phase.enteredAt);
+    }
+
+    private Phase closed() {
+        int windowSize = config.getSlidingWindowSize();
+        return new Phase(CircuitState.CLOSED, new Window(windowSize), Math.min(config.getMinimumNumberOfCalls(), windowSize), 0,
+                nanoClock.getAsLong());
+    }
+
+    private Phase open() {
+        return new Phase(CircuitState.OPEN, new Window(1), Integer.MAX_VALUE, 0, nanoClock.getAsLong());
+    }
+
+    private Phase halfOpen() {
+        int trialCalls = config.getPermittedCallsInHalfOpen();
+        return new Phase(CircuitState.HALF_OPEN, new Window(trialCalls), trialCalls, trialCalls, nanoClock.getAsLong());
+    }
+
+    private static final class Phase {
+        private final CircuitState state;
+        private final Window window;
+        private final int requiredCalls;
+        private final AtomicInteger trialPermits;
+        private final long enteredAt;
+
+        private Phase(CircuitState state, Window window, int requiredCalls, int trialPermits, long enteredAt) {
+            this.state = state;
+            this.window = window;
+            this.requiredCalls = requiredCalls;
+            this.trialPermits = new AtomicInteger(trialPermits);
+            this.enteredAt = enteredAt;
+        }
+
+        private boolean evaluable(Window.Snapshot window) {
+            return window.calls >= requiredCalls;
+        }
+    }
+
+    // Ring buffer of call outcomes with running totals; each slot swap adjusts the totals by the evicted outcome
+    private static final class Window {
+        private static final int RECORDED = 1;
+        private static final int FAILED = 2;
+        private static final int SLOW = 4;
+
+        private final AtomicIntegerArray outcomes;
+        private final AtomicLong cursor = new AtomicLong();
+        private final AtomicInteger calls = new AtomicInteger();
+        private final AtomicInteger failures = new AtomicInteger();
+        private final AtomicInteger slowCalls = new AtomicInteger();
+
+        private Window(int size) {
+            this.outcomes = new AtomicIntegerArray(size);
+        }
+
+        private Snapshot record(boolean failed, boolean slow) {
+            int outcome = RECORDED | (failed ? FAILED : 0) | (slow ? SLOW : 0);
+            int slot = (int) (cursor.getAndIncrement() % outcomes.length());
+            int evicted = outcomes.getAndSet(slot, outcome);
+
+            int totalCalls = evicted == 0 ? calls.incrementAndGet() : calls.get();
+            int totalFailures = failures.addAndGet(bit(outcome, FAILED) - bit(evicted, FAILED));
+            int totalSlowCalls = slowCalls.addAndGet(bit(outcome, SLOW) - bit(evicted, SLOW));
+            return new Snapshot(totalCalls, totalFailures, totalSlowCalls);
+        }
+
+        private Snapshot snapshot() {
+            return new Snapshot(calls.get(), failures.get(), slowCalls.get());
+        }
+
+        private static int bit(int outcome, int flag) {
+            return (outcome & flag) != 0 ? 1 : 0;
+        }
+
+        private static final class Snapshot {
+            private final int calls;
+            private final int failures;
+            private final int slowCalls;
+
+            private Snapshot(int calls, int failures, int slowCalls) {
+                this.calls = calls;
+                this.failures = failures;
+                this.slowCalls = slowCalls;
+            }
+
+            private float failureRate() {
+                return calls == 0 ? 0 : failures * 100.0f / calls;
+            }
+
+            private float slowCallRate() {
+                return calls == 0 ? 0 : slowCalls * 100.0f / calls;
+            }
+        }
+    }
+}
@@ -19,25 +19,46 @@ public class StreamingService {
     
     private final RestTemplate restTemplate;
     private final WhitelistService whitelistService;
+    private final UpstreamConcurrencyLimiter upstreamConcurrencyLimiter;
+    private final CircuitBreakerService circuitBreakerService;
+    private final BulkheadService bulkheadService;
     
     public ResponseEntity<StreamingResponseBody> streamResponse(String service, String pathInService, 
                                                               Map<String, String> queryParams) {
-        if (!whitelistService.isRequestAllowed(service, pathInService)) {
-            return ResponseEntity.status(403).build();
+        ResolvedRoute route = whitelistService.resolveRoute(service, pathInService);
+        if (route == null) {
+            return whitelistService.isEnabled()
+                ? ResponseEntity.status(403).build()
+                : ResponseEntity.badRequest().build();
         }
         
-        String targetUrl = whitelistService.getTargetUrl(service, pathInService);
-        if (targetUrl == null) {
-            return ResponseEntity.badRequest().build();
-        }
+        // Fail fast with 503 while the bulkhead is full or the circuit is open; the body records the
+        // outcome under this permission
+        String serviceName = route.getServiceName();
+        bulkheadService.checkCapacity(serviceName);
+        circuitBreakerService.checkRequestAllowed(serviceName);
         
-        String finalUrl = buildUrlWithQueryParams(targetUrl, queryParams);
-        StreamingResponseBody body = outputStream -> 
-            restTemplate.execute(finalUrl, HttpMethod.GET, null, 
-                clientHttpResponse -> {
-                    copyStream(clientHttpResponse.getBody(), outputStream);
-                    return null;
-                });
+        String finalUrl = buildUrlWithQueryParams(route.getTargetUrl(), queryParams);
+        // The body runs on the MVC async executor, so it holds the bulkhead slot while it streams
+        StreamingResponseBody body = outputStream -> {
+            try {
+                bulkheadService.acquire(serviceName);
+            } catch (RuntimeException e) {
+                circuitBreakerService.releasePermission(serviceName);
+                throw e;
+            }
+            try {
+                circuitBreakerService.executeWithPermission(serviceName, () -> 
+                    upstreamConcurrencyLimiter.execute(serviceName, route.getServiceConfig().getBaseUrl(), () -> 
+                        restTemplate.execute(finalUrl, HttpMethod.GET, null, 
+                            clientHttpResponse -> {
+                                copyStream(clientHttpResponse.getBody(), outputStream);
+                                return null;
+                            })));
+            } finally {
+                bulkheadService.release(serviceName);
+            }
+        };
         
         return ResponseEntity.ok().body(body);
     }
@@ -0,0 +1,197 @@
+package com.example.feigngateway.service;
+
+import com.example.feigngateway.config.GatewayProperties;
+import com.example.feigngateway.config.GatewayWhitelistProperties;
+import com.example.feigngateway.exception.ServiceUnavailableException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UpstreamConcurrencyLimiter {
+    
+    private final GatewayProperties gatewayProperties;
+    private final GatewayWhitelistProperties whitelistProperties;
+    
+    // One permit pool per upstream origin (scheme://host:port), shared by services on the same backend
+    private final ConcurrentHashMap<String, Semaphore> permits = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongAdder> rejections = new ConcurrentHashMap<>();
+    // Adaptive limit per service, taken before the origin permit
+    private final ConcurrentHashMap<String, AdaptiveConcurrencyLimit> serviceLimits = new ConcurrentHashMap<>();
+    
+    public <T> T execute(String serviceName, String baseUrl, Supplier<T> call) {
+        return execute(serviceName, baseUrl, call, result -> false);
+    }
+    
+    // Variant for calls that report an upstream failure through their result instead of an exception
+    public <T> T execute(String serviceName, String baseUrl, Supplier<T> call, Predicate<T> failedResult) {
+        AdaptiveConcurrencyLimit serviceLimit = limitFor(serviceName);
+        acquire(serviceName, serviceLimit);
+        
+        String upstream = upstreamKey(baseUrl);
+        Semaphore semaphore = permitsFor(upstream);
+        try {
+            acquire(serviceName, upstream, semaphore);
+        } catch (RuntimeException e) {
+            serviceLimit.release();
+            throw e;
+        }
+        
+        long start = System.nanoTime();
+        T result;
+        try {
+            result = call.get();
+        } catch (RuntimeException e) {
+            semaphore.release();
+            // Only I/O errors and 5xx say the backend is overloaded; a 4xx is a normal latency sample
+            if (CircuitBreakerService.isUpstreamFailure(e)) {
+                serviceLimit.release(System.nanoTime() - start, true);
+            } else if (e instanceof HttpClientErrorException) {
+                serviceLimit.release(System.nanoTime() - start, false);
+            } else {
+                serviceLimit.release();
+            }
+            throw e;
+        }
+        semaphore.release();
+        serviceLimit.release(System.nanoTime() - start, failedResult.test(result));
+        return result;
+    }
+    
+    // Acquires without waiting, for calls that complete on another thread; pair with one of the release methods
+    public void tryAcquire(String serviceName, String baseUrl) {
+        AdaptiveConcurrencyLimit serviceLimit = limitFor(serviceName);
+        if (!serviceLimit.tryAcquire()) {
+            serviceLimit.onRejected();
+            rejectService(serviceName, serviceLimit);
+        }
+        String upstream = upstreamKey(baseUrl);
+        if (!permitsFor(upstream).tryAcquire()) {
+            serviceLimit.release();
+            reject(serviceName, upstream);
+        }
+    }
+    
+    // Ends a call that got a response (or failed talking to the upstream), feeding its latency to the service's limit
+    public void release(String serviceName, String baseUrl, long durationNanos, boolean failed) {
+        permitsFor(upstreamKey(baseUrl)).release();
+        limitFor(serviceName).release(durationNanos, failed);
+    }
+    
+    // Ends a call without an outcome, e.g. one rejected locally or abandoned by the client
+    public void release(String serviceName, String baseUrl) {
+        permitsFor(upstreamKey(baseUrl)).release();
+        limitFor(serviceName).release();
+    }
+    
+    // Adaptive limit, in-flight calls and rejections per service, keyed by service name
+    public Map<String, Object> getServiceLimitStats() {
+        Map<String, Object> stats = new TreeMap<>();
+        serviceLimits.forEach((service, limit) -> stats.put(service, limit.getStats()));
+        return stats;
+    }
+    
+    public Map<String, Object> getStats() {
+        int maxPermits = gatewayProperties.getPerformance().getThreadPool().getMaxConcurrentPerUpstream();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        permits.forEach((upstream, semaphore) -> {
+            Map<String, Object> upstreamStats = new LinkedHashMap<>();
+            upstreamStats.put("maxConcurrent", maxPermits);
+            upstreamStats.put("inFlight", maxPermits - semaphore.availablePermits());
+            upstreamStats.put("waiting", semaphore.getQueueLength());
+            upstreamStats.put("rejected", rejections.getOrDefault(upstream, new LongAdder()).sum());
+            stats.put(upstream, upstreamStats);
+        });
+        return stats;
+    }
+    
+    private void acquire(String serviceName, String upstream, Semaphore semaphore) {
+        long timeout = gatewayProperties.getPerformance().getThreadPool().getUpstreamAcquireTimeout();
+        boolean acquired;
+        try {
+            acquired = semaphore.tryAcquire(timeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException(serviceName, "Interrupted while waiting for upstream capacity", e);
+        }
+        
+        if (!acquired) {
+            reject(serviceName, upstream);
+        }
+    }
+    
+    private void acquire(String serviceName, AdaptiveConcurrencyLimit serviceLimit) {
+        boolean acquired;
+        try {
+            acquired = serviceLimit.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException(serviceName, "Interrupted while waiting for upstream capacity", e);
+        }
+        
+        if (!acquired) {
+            rejectService(serviceName, serviceLimit);
+        }
+    }
+    
+    private void rejectService(String serviceName, AdaptiveConcurrencyLimit serviceLimit) {
+        log.debug("Concurrency limit of {} reached for service {}", serviceLimit.getLimit(), serviceName);
+        throw new ServiceUnavailableException(serviceName, "Concurrency limit of " + serviceLimit.getLimit() + " reached");
+    }
+    
+    private void reject(String serviceName, String upstream) {
+        rejections.computeIfAbsent(upstream, k -> new LongAdder()).increment();
+        log.warn("Upstream concurrency limit reached for {} (service: {})", upstream, serviceName);
+        throw new ServiceUnavailableException(serviceName, "Too many concurrent requests to upstream " + upstream);
+    }
+    
+    private Semaphore permitsFor(String upstream) {
+        return permits.computeIfAbsent(upstream, 
+            k -> new Semaphore(gatewayProperties.getPerformance().getThreadPool().getMaxConcurrentPerUpstream()));
+    }
+    
+    private AdaptiveConcurrencyLimit limitFor(String serviceName) {
+        return serviceLimits.computeIfAbsent(serviceName != null ? serviceName : "unknown", this::createLimit);
+    }
+    
+    private AdaptiveConcurrencyLimit createLimit(String serviceName) {
+        GatewayProperties.Performance.ConcurrencyLimit defaults = gatewayProperties.getPerformance().getConcurrencyLimit();
+        GatewayWhitelistProperties.ConcurrencyLimit overrides = whitelistProperties.serviceOverrides(serviceName,
+            GatewayWhitelistProperties.ServiceConfig::getConcurrencyLimit, GatewayWhitelistProperties.ConcurrencyLimit::new);
+        
+        GatewayProperties.Performance.ConcurrencyLimit policy = new GatewayProperties.Performance.ConcurrencyLimit();
+        policy.setEnabled(Objects.requireNonNullElse(overrides.getEnabled(), defaults.isEnabled()));
+        policy.setInitialLimit(Objects.requireNonNullElse(overrides.getInitialLimit(), defaults.getInitialLimit()));
+        policy.setMinLimit(Objects.requireNonNullElse(overrides.getMinLimit(), defaults.getMinLimit()));
+        policy.setMaxLimit(Objects.requireNonNullElse(overrides.getMaxLimit(), defaults.getMaxLimit()));
+        policy.setRttTolerance(Objects.requireNonNullElse(overrides.getRttTolerance(), defaults.getRttTolerance()));
+        policy.setBackoffRatio(Objects.requireNonNullElse(overrides.getBackoffRatio(), defaults.getBackoffRatio()));
+        policy.setMaxQueueWait(Objects.requireNonNullElse(overrides.getMaxQueueWait(), defaults.getMaxQueueWait()));
+        policy.setMaxQueued(Objects.requireNonNullElse(overrides.getMaxQueued(), defaults.getMaxQueued()));
+        return new AdaptiveConcurrencyLimit(policy);
+    }
+    
+    static String upstreamKey(String baseUrl) {
+        if (baseUrl == null) {
+            return "unknown";
+        }
+        int schemeEnd = baseUrl.indexOf("://");
+        int authorityStart = schemeEnd < 0 ? 0 : schemeEnd + 3;
+        int pathStart = baseUrl.indexOf('/', authorityStart);
+        return pathStart < 0 ? baseUrl : baseUrl.substring(0, pathStart);
+    }
+}
@@ -5,7 +5,6 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
-import java.util.regex.Pattern;
 
 @Service
 @RequiredArgsConstructor
@@ -13,68 +12,42 @@ public class WhitelistService {
     
     private final GatewayWhitelistProperties whitelistProperties;
     
+    // Precompiled snapshot of the whitelist, rebuilt only when the services list is replaced
+    private volatile RouteTable routeTable;
+    
+    public boolean isEnabled() {
+        return whitelistProperties.isEnabled();
+    }
+    
     public boolean isRequestAllowed(String serviceName, String pathInService) {
         if (!whitelistProperties.isEnabled()) {
             return true; // If whitelist is disabled, allow all requests
         }
 
-        GatewayWhitelistProperties.ServiceConfig service = getServiceByName(serviceName);
-        if (service == null) {
-            return false;
-        }
-
-        return isPathMatched(pathInService, service.getEndpoints());
+        return currentRouteTable().resolve(serviceName, pathInService, true) != null;
     }
 
     public String getTargetUrl(String serviceName, String pathInService) {
-        GatewayWhitelistProperties.ServiceConfig service = getServiceByName(serviceName);
-        if (service == null) {
-            return null;
-        }
-
-        return service.getBaseUrl() + pathInService;
+        ResolvedRoute route = currentRouteTable().resolve(serviceName, pathInService, false);
+        return route != null ? route.getTargetUrl() : null;
     }
-
-    private GatewayWhitelistProperties.ServiceConfig getServiceByName(String serviceName) {
-        List<GatewayWhitelistProperties.ServiceConfig> services = whitelistProperties.getServices();
-        if (services == null) {
-            return null;
-        }
-        for (GatewayWhitelistProperties.ServiceConfig s : services) {
-            if (serviceName != null && serviceName.equals(s.getName())) {
-                return s;
-            }
-        }
-        return null;
+    
+    // Whitelist check and target URL resolution in a single lookup; null when the request cannot be routed
+    public ResolvedRoute resolveRoute(String serviceName, String pathInService) {
+        return currentRouteTable().resolve(serviceName, pathInService, whitelistProperties.isEnabled());
     }
     
-    private boolean isPathMatched(String requestPath, List<String> allowedEndpoints) {
-        if (allowedEndpoints == null || allowedEndpoints.isEmpty()) {
-            return false;
-        }
-        
-        for (String endpoint : allowedEndpoints) {
-            // Convert Spring path pattern to regex
-            // Handle ** first to avoid it being converted by * replacement
-            String regex = endpoint
-                .replace("**", ".*")  // ** matches any number of path segments including /
-                .replace("*", "[^/]*")  // * matches any characters except /
-                .replace("{", "(")
-                .replace("}", ")");
-            
-            // Ensure the regex matches the entire path
-            if (!regex.startsWith("^")) {
-                regex = "^" + regex;
-            }
-            if (!regex.endsWith("$")) {
-                regex = regex + "$";
-            }
-            
-            if (Pattern.matches(regex, requestPath)) {
-                return true;
-            }
+    public GatewayWhitelistProperties.ServiceConfig getServiceConfig(String serviceName) {
+        return currentRouteTable().getServiceConfig(serviceName);
+    }
+
+    private RouteTable currentRouteTable() {
+        List<GatewayWhitelistProperties.ServiceConfig> services = whitelistProperties.getServices();
+        RouteTable table = routeTable;
+        if (table == null || !table.isBuiltFrom(services)) {
+            table = RouteTable.build(services);
+            routeTable = table;
         }
-        
-        return false;
+        return table;
     }
 }
@@ -1,8 +1,18 @@
 package com.example.feigngateway.controller;
 
+import com.example.feigngateway.service.BulkheadService;
 import com.example.feigngateway.service.CacheService;
 import com.example.feigngateway.service.CircuitBreakerService;
+import com.example.feigngateway.service.ConnectionPoolMonitor;
+import com.example.feigngateway.service.HedgingService;
+import com.example.feigngateway.service.Http2UpstreamTransport;
+import com.example.feigngateway.service.LoadShedder;
 import com.example.feigngateway.service.PerformanceMetricsService;
+import com.example.feigngateway.service.RequestCoalescer;
+import com.example.feigngateway.service.RequestRateLimiter;
+import com.example.feigngateway.service.ResponseCacheService;
+import com.example.feigngateway.service.RetryService;
+import com.example.feigngateway.service.UpstreamConcurrencyLimiter;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -31,6 +41,36 @@ class PerformanceControllerTest {
     @Mock
     private CacheService cacheService;
 
+    @Mock
+    private UpstreamConcurrencyLimiter upstreamConcurrencyLimiter;
+    
+    @Mock
+    private ConnectionPoolMonitor connectionPoolMonitor;
+    
+    @Mock
+    private Http2UpstreamTransport http2UpstreamTransport;
+    
+    @Mock
+    private RequestRateLimiter requestRateLimiter;
+    
+    @Mock
+    private BulkheadService bulkheadService;
+    
+    @Mock
+    private LoadShedder loadShedder;
+    
+    @Mock
+    private RetryService retryService;
+    
+    @Mock
+    private HedgingService hedgingService;
+    
+    @Mock
+    private ResponseCacheService responseCacheService;
+    
+    @Mock
+    private RequestCoalescer requestCoalescer;
+
     @InjectMocks
     private PerformanceController performanceController;
 
@@ -40,7 +80,7 @@ class PerformanceControllerTest {
     void setUp() {
         // Setup common mocks
         when(metricsService.getOverallStats()).thenReturn("Overall stats");
-        when(circuitBreakerService.getCircuitBreakerStats()).thenReturn("Circuit breaker stats");
+        when(circuitBreakerService.getCircuitBreakerStats()).thenReturn(Map.of(SERVICE_NAME, Map.of("state", "CLOSED")));
         when(cacheService.getCacheStats()).thenReturn(mock(CacheService.CacheStats.class));
     }
 
@@ -90,11 +130,11 @@ class PerformanceControllerTest {
     @DisplayName("Should return circuit breaker status")
     void shouldReturnCircuitBreakerStatus() {
         // When
-        ResponseEntity<String> response = performanceController.getCircuitBreakerStatus();
+        ResponseEntity<Map<String, Object>> response = performanceController.getCircuitBreakerStatus();
 
         // Then
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        assertEquals("Circuit breaker stats", response.getBody());
+        assertEquals(Map.of(SERVICE_NAME, Map.of("state", "CLOSED")), response.getBody());
 
         verify(circuitBreakerService).getCircuitBreakerStats();
     }
@@ -236,10 +276,21 @@ class PerformanceControllerTest {
         assertEquals(HttpStatus.OK, response.getStatusCode());
         Map<String, Object> body = response.getBody();
         assertNotNull(body);
-        assertEquals(3, body.size());
+        assertEquals(14, body.size());
         assertTrue(body.containsKey("overall"));
         assertTrue(body.containsKey("circuitBreakers"));
         assertTrue(body.containsKey("cacheStats"));
+        assertTrue(body.containsKey("upstreamConcurrency"));
+        assertTrue(body.containsKey("concurrencyLimits"));
+        assertTrue(body.containsKey("connectionPool"));
+        assertTrue(body.containsKey("http2Upstreams"));
+        assertTrue(body.containsKey("rateLimiting"));
+        assertTrue(body.containsKey("bulkheads"));
+        assertTrue(body.containsKey("loadShedding"));
+        assertTrue(body.containsKey("retries"));
+        assertTrue(body.containsKey("hedging"));
+        assertTrue(body.containsKey("responseCache"));
+        assertTrue(body.containsKey("coalescing"));
     }
 
     @Test
@@ -0,0 +1,85 @@
+package com.example.feigngateway.controller;
+
+import com.example.feigngateway.config.GatewayProperties;
+import com.example.feigngateway.exception.GlobalExceptionHandler;
+import com.example.feigngateway.service.AsyncGatewayService;
+import com.example.feigngateway.service.GatewayService;
+import com.example.feigngateway.service.RequestRateLimiter;
+import com.example.feigngateway.service.StreamingService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.Matchers.startsWith;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@DisplayName("SimpleGatewayController Tests")
+class SimpleGatewayControllerTest {
+
+    private static final String UPSTREAM_ERROR = "{\"error\":\"user 42 not found\"}";
+
+    private GatewayProperties properties;
+    private GatewayService gatewayService;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        properties = new GatewayProperties();
+        gatewayService = mock(GatewayService.class);
+        SimpleGatewayController controller = new SimpleGatewayController(gatewayService, mock(AsyncGatewayService.class),
+                mock(StreamingService.class), mock(RequestRateLimiter.class), properties);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @Test
+    @DisplayName("Should map an upstream 404 to the gateway's ErrorResponse by default")
+    void shouldWrapUpstreamErrorWithoutPassthrough() throws Exception {
+        // Given
+        when(gatewayService.forwardRequest(eq("user-service"), eq("/users/42"), eq("GET"), anyMap(), any(HttpServletRequest.class)))
+                .thenThrow(HttpClientErrorException.create(HttpStatus.NOT_FOUND, "Not Found", null,
+                        UPSTREAM_ERROR.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8));
+
+        // When / Then
+        mockMvc.perform(get("/api/execution/user-service/users/42").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.success").value(false))
+                .andExpect(jsonPath("$.statusCode").value(404))
+                .andExpect(jsonPath("$.message").value(startsWith("Downstream service error")));
+        verify(gatewayService, never()).forwardPassthrough(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Should relay an upstream 404 byte for byte in passthrough mode")
+    void shouldRelayUpstreamErrorInPassthrough() throws Exception {
+        // Given - passthrough copies the upstream status and body to the client instead of throwing
+        properties.getProxy().setPassthrough(true);
+        when(gatewayService.forwardPassthrough(eq("user-service"), eq("/users/42"), eq("GET"), anyMap(), any(), any()))
+                .thenAnswer(invocation -> {
+                    HttpServletResponse response = invocation.getArgument(5);
+                    response.setStatus(HttpStatus.NOT_FOUND.value());
+                    response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+                    response.getOutputStream().write(UPSTREAM_ERROR.getBytes(StandardCharsets.UTF_8));
+                    return null;
+                });
+
+        // When / Then
+        mockMvc.perform(get("/api/execution/user-service/users/42").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound())
+                .andExpect(content().string(UPSTREAM_ERROR));
+        verify(gatewayService, never()).forwardRequest(any(), any(), any(), any(), any(HttpServletRequest.class));
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.feigngateway.filter;
+
+import com.example.feigngateway.config.GatewayProperties;
+import com.example.feigngateway.config.GatewayProperties.RequestPriority;
+import com.example.feigngateway.config.GatewayWhitelistProperties;
+import com.example.feigngateway.service.LoadShedder;
+import com.example.feigngateway.service.WhitelistService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("LoadSheddingFilter Tests")
+class LoadSheddingFilterTest {
+
+    private GatewayProperties properties;
+    private GatewayWhitelistProperties whitelistProperties;
+    private LoadShedder loadShedder;
+    private LoadSheddingFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        properties = new GatewayProperties();
+        GatewayProperties.Performance.LoadShedding config = properties.getPerformance().getLoadShedding();
+        config.setMaxConcurrentRequests(10);
+        config.setTargetLatency(100);
+        whitelistProperties = new GatewayWhitelistProperties();
+        loadShedder = new LoadShedder(properties, new WhitelistService(whitelistProperties), Runnable::run);
+        filter = new LoadSheddingFilter(loadShedder, properties, new ObjectMapper().findAndRegisterModules());
+    }
+
+    @Test
+    @DisplayName("Should shed low priority first and never shed critical requests")
+    void shouldShedByPriority() throws Exception {
+        // Given - 5 of 10 slots taken, past the low priority threshold of 50%
+        admit(5);
+
+        // Then
+        assertEquals(503, dispatch("/api/execution/user-service/users", "low").getStatus());
+        assertEquals(200, dispatch("/api/execution/user-service/users", "normal").getStatus());
+
+        // Given - 8 of 10, past the normal threshold of 80%
+        admit(3);
+        assertEquals(503, dispatch("/api/execution/user-service/users", null).getStatus());
+        assertEquals(200, dispatch("/api/execution/user-service/users", "high").getStatus());
+
+        // Given - at capacity
+        admit(2);
+        assertEquals(503, dispatch("/api/execution/user-service/users", "high").getStatus());
+        assertEquals(200, dispatch("/api/execution/user-service/users", "critical").getStatus());
+
+        @SuppressWarnings("unchecked")
+        Map<String, Long> shed = (Map<String, Long>) loadShedder.getStats().get("shed");
+        assertEquals(1L, shed.get("low"));
+        assertEquals(1L, shed.get("normal"));
+        assertEquals(1L, shed.get("high"));
+        assertEquals(0L, shed.get("critical"));
+        assertEquals(10, loadShedder.getStats().get("inFlight"));
+    }
+
+    @Test
+    @DisplayName("Should answer a shed request with 503, Retry-After and an error body")
+    void shouldWriteServiceUnavailable() throws Exception {
+        // Given
+        admit(5);
+
+        // When
+        MockHttpServletResponse response = dispatch("/api/execution/user-service/users", "low");
+
+        // Then
+        assertEquals(503, response.getStatus());
+        assertEquals("1", response.getHeader("Retry-After"));
+        assertTrue(response.getContentAsString().contains("\"statusCode\":503"));
+        assertTrue(response.getContentAsString().contains("low priority requests are being shed"));
+    }
+
+    @Test
+    @DisplayName("Should use the service priority unless the header overrides it")
+    void shouldResolvePriorityFromServiceConfig() throws Exception {
+        // Given
+        GatewayWhitelistProperties.ServiceConfig reports = new GatewayWhitelistProperties.ServiceConfig();
+        reports.setName("report-service");
+        reports.setPriority(RequestPriority.LOW);
+        whitelistProperties.setServices(List.of(reports));
+        admit(5);
+
+        // Then
+        assertEquals(503, dispatch("/api/execution/report-service/daily", null).getStatus());
+        assertEquals(200, dispatch("/api/execution/report-service/daily", "high").getStatus());
+        assertEquals(200, dispatch("/api/execution/user-service/users", "unknown").getStatus());
+    }
+
+    @Test
+    @DisplayName("Should never shed health, metrics or other non-routed endpoints")
+    void shouldNotShedNonRoutedEndpoints() throws Exception {
+        // Given
+        admit(10);
+
+        // Then
+        assertEquals(200, dispatch("/api/performance/health", "low").getStatus());
+        assertEquals(200, dispatch("/api/performance/stats", "low").getStatus());
+        assertEquals(200, dispatch("/actuator/health", "low").getStatus());
+        assertEquals(503, dispatch("/api/execution/user-service/users", "low").getStatus());
+    }
+
+    @Test
+    @DisplayName("Should never shed the gateway's own health endpoint under /api/execution")
+    void shouldNotShedGatewayHealth() throws Exception {
+        // Given - at capacity, so even high priority routed requests are shed
+        admit(10);
+
+        // Then
+        assertEquals(200, dispatch("/api/execution/health", "low").getStatus());
+        assertEquals(200, dispatch("/api/execution/health", null).getStatus());
+        assertEquals(503, dispatch("/api/execution/health-service/status", "high").getStatus());
+        assertEquals(10, loadShedder.getStats().get("inFlight"));
+    }
+
+    @Test
+    @DisplayName("Should shrink capacity when latency rises above target")
+    void shouldShedOnHighLatency() throws Exception {
+        // Given - one slow request, four times the 100 ms target
+        assertTrue(loadShedder.tryAdmit(RequestPriority.NORMAL));
+        loadShedder.onComplete(TimeUnit.MILLISECONDS.toNanos(400));
+
+        // When - 2 in flight against a capacity of 10 * 100 / 400 = 2
+        admit(2);
+
+        // Then
+        assertEquals(2, loadShedder.getStats().get("capacity"));
+        assertEquals(503, dispatch("/api/execution/user-service/users", "high").getStatus());
+    }
+
+    @Test
+    @DisplayName("Should release the slot once the request completes")
+    void shouldReleaseSlotAfterRequest() throws Exception {
+        // When
+        for (int i = 0; i < 20; i++) {
+            assertEquals(200, dispatch("/api/execution/user-service/users", "low").getStatus());
+        }
+
+        // Then
+        assertEquals(0, loadShedder.getStats().get("inFlight"));
+        assertEquals(20L, loadShedder.getStats().get("admitted"));
+    }
+
+    private void admit(int requests) {
+        for (int i = 0; i < requests; i++) {
+            assertTrue(loadShedder.tryAdmit(RequestPriority.CRITICAL));
+        }
+    }
+
+    private MockHttpServletResponse dispatch(String uri, String priority) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        if (priority != null) {
+            request.addHeader("X-Request-Priority", priority);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.feigngateway.performance;
+
+import com.example.feigngateway.service.PathPatternTrie;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the segment trie with the precompiled-regex loop used by CacheService.
+ * Run with: mvn test-compile exec:java -Dexec.mainClass=com.example.feigngateway.performance.PathMatchingBenchmark -Dexec.classpathScope=test
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathMatchingBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int patternCount;
+
+    private List<Pattern> regexPatterns;
+    private PathPatternTrie trie;
+    private String lastPatternPath;
+    private String missPath;
+
+    @Setup
+    public void setUp() {
+        List<String> endpoints = new ArrayList<>();
+        for (int i = 0; i < patternCount; i++) {
+            switch (i % 3) {
+                case 0 -> endpoints.add("/resource" + i + "/{id}");
+                case 1 -> endpoints.add("/resource" + i + "/*/items");
+                default -> endpoints.add("/resource" + i + "/**");
+            }
+        }
+
+        regexPatterns = endpoints.stream().map(PathMatchingBenchmark::toRegex).map(Pattern::compile).toList();
+        trie = PathPatternTrie.of(endpoints);
+        // Hit the last '/*/items' pattern so the linear regex loop scans almost every pattern
+        int hitIndex = patternCount - 1;
+        while (hitIndex % 3 != 1) {
+            hitIndex--;
+        }
+        lastPatternPath = "/resource" + hitIndex + "/42/items";
+        missPath = "/unknown/42/items";
+    }
+
+    @Benchmark
+    public boolean regexHit() {
+        return regexMatches(lastPatternPath);
+    }
+
+    @Benchmark
+    public boolean regexMiss() {
+        return regexMatches(missPath);
+    }
+
+    @Benchmark
+    public boolean trieHit() {
+        return trie.matches(lastPatternPath);
+    }
+
+    @Benchmark
+    public boolean trieMiss() {
+        return trie.matches(missPath);
+    }
+
+    private boolean regexMatches(String path) {
+        for (Pattern pattern : regexPatterns) {
+            if (pattern.matcher(path).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Same conversion as CacheService.getCompiledPattern
+    private static String toRegex(String endpoint) {
+        String regex = endpoint
+                .replace("**", ".*")
+                .replace("*", "[^/]*")
+                .replace("{", "(")
+                .replace("}", ")");
+        return "^" + regex + "$";
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PathMatchingBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
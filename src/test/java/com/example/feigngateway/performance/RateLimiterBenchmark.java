@@ -0,0 +1,87 @@
+package com.example.feigngateway.performance;
+
+import com.example.feigngateway.config.GatewayProperties;
+import com.example.feigngateway.service.RequestRateLimiter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cost of the RequestRateLimiter decision with 8 threads hammering the same service bucket.
+ * sharedClient: every thread also shares one client bucket (worst-case CAS contention).
+ * perThreadClient: each thread has its own client bucket, only the service bucket is shared.
+ * Measures tryAcquire; checkLimit adds the cost of building the RateLimitExceededException on rejection.
+ * Run with: mvn test-compile exec:java -Dexec.mainClass=com.example.feigngateway.performance.RateLimiterBenchmark -Dexec.classpathScope=test
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class RateLimiterBenchmark {
+
+    // Whether the buckets admit every call or reject every call once their burst is used
+    @Param({"admit", "reject"})
+    private String outcome;
+
+    private RequestRateLimiter rateLimiter;
+
+    @State(Scope.Thread)
+    public static class ClientKey {
+        private static final AtomicInteger NEXT = new AtomicInteger();
+        private final String value = "client-" + NEXT.getAndIncrement();
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        GatewayProperties properties = new GatewayProperties();
+        GatewayProperties.Performance.RateLimiting config = properties.getPerformance().getRateLimiting();
+        config.setEnabled(true);
+        boolean admit = "admit".equals(outcome);
+        // A burst of 2^31 tokens outlasts the run, so every call takes the CAS path;
+        // one token per minute is gone after the first call, so every call takes the read-only reject path
+        config.setRequestsPerMinute(admit ? Integer.MAX_VALUE : 1);
+        config.setClientRequestsPerMinute(admit ? Integer.MAX_VALUE : 1);
+        config.setBurstCapacity(admit ? Integer.MAX_VALUE : 1);
+        config.setClientBurstCapacity(admit ? Integer.MAX_VALUE : 1);
+        rateLimiter = new RequestRateLimiter(properties);
+    }
+
+    @Benchmark
+    public boolean sharedClient() {
+        return check("shared-client");
+    }
+
+    @Benchmark
+    public boolean perThreadClient(ClientKey clientKey) {
+        return check(clientKey.value);
+    }
+
+    private boolean check(String clientKey) {
+        return rateLimiter.tryAcquire("user-service", clientKey);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RateLimiterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
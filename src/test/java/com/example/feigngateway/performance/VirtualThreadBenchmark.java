@@ -0,0 +1,133 @@
+package com.example.feigngateway.performance;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares the bounded platform pool with one virtual thread per request when every
+ * request blocks on a slow upstream. Reports throughput, peak heap and peak live threads
+ * at 1k, 5k and 10k concurrent requests.
+ * Run with: mvn test-compile exec:java -Dexec.mainClass=com.example.feigngateway.performance.VirtualThreadBenchmark -Dexec.classpathScope=test
+ */
+public class VirtualThreadBenchmark {
+
+    private static final int[] CONCURRENCY_LEVELS = {1_000, 5_000, 10_000};
+    private static final int UPSTREAM_LATENCY_MS = 100;
+    // Tomcat's default max thread count, which bounds platform mode
+    private static final int PLATFORM_POOL_SIZE = 200;
+
+    public static void main(String[] args) throws Exception {
+        HttpServer upstream = startSlowUpstream();
+        String url = "http://localhost:" + upstream.getAddress().getPort() + "/slow";
+        try {
+            System.out.printf("%-10s %12s %14s %14s %14s%n", "mode", "concurrency", "req/s", "peak heap MB", "peak threads");
+            for (int concurrency : CONCURRENCY_LEVELS) {
+                run("platform", concurrency, url, () -> Executors.newFixedThreadPool(PLATFORM_POOL_SIZE));
+                run("virtual", concurrency, url, Executors::newVirtualThreadPerTaskExecutor);
+            }
+        } finally {
+            upstream.stop(0);
+        }
+    }
+
+    private static void run(String mode, int concurrency, String url, ExecutorFactory factory) throws Exception {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        threads.resetPeakThreadCount();
+
+        AtomicLong peakHeap = new AtomicLong();
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        sampler.scheduleAtFixedRate(() -> peakHeap.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max), 
+                0, 10, TimeUnit.MILLISECONDS);
+
+        AtomicInteger failures = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        long started;
+        long elapsed;
+        try (ExecutorService executor = factory.create()) {
+            List<Future<?>> futures = new ArrayList<>(concurrency);
+            for (int i = 0; i < concurrency; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    if (!call(url)) {
+                        failures.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            started = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            elapsed = System.nanoTime() - started;
+        } finally {
+            sampler.shutdownNow();
+        }
+
+        double throughput = concurrency / (elapsed / 1_000_000_000.0);
+        System.out.printf("%-10s %12d %14.0f %14d %14d%s%n", mode, concurrency, throughput, 
+                peakHeap.get() / (1024 * 1024), threads.getPeakThreadCount(),
+                failures.get() > 0 ? "  (" + failures.get() + " failed)" : "");
+    }
+
+    private static boolean call(String url) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) URI.create(url).toURL().openConnection();
+            connection.setConnectTimeout(30_000);
+            connection.setReadTimeout(60_000);
+            try (InputStream in = connection.getInputStream()) {
+                in.readAllBytes();
+            }
+            return connection.getResponseCode() == 200;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static HttpServer startSlowUpstream() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 16_384);
+        byte[] body = "{\"status\":\"ok\"}".getBytes(StandardCharsets.UTF_8);
+        server.createContext("/slow", exchange -> {
+            try {
+                Thread.sleep(UPSTREAM_LATENCY_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+        return server;
+    }
+
+    @FunctionalInterface
+    private interface ExecutorFactory {
+        ExecutorService create();
+    }
+}
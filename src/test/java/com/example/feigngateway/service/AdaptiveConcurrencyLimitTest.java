@@ -0,0 +1,157 @@
+package com.example.feigngateway.service;
+
+import com.example.feigngateway.config.GatewayProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("AdaptiveConcurrencyLimit Tests")
+class AdaptiveConcurrencyLimitTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private GatewayProperties.Performance.ConcurrencyLimit config;
+
+    @BeforeEach
+    void setUp() {
+        config = new GatewayProperties.Performance.ConcurrencyLimit();
+        config.setEnabled(true);
+        config.setInitialLimit(20);
+        config.setMinLimit(5);
+        config.setMaxLimit(100);
+        config.setMaxQueueWait(0);
+    }
+
+    @Test
+    @DisplayName("Should raise the limit while latency stays flat under load")
+    void shouldGrowWhileLatencyIsStable() {
+        // Given
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(config);
+
+        // When
+        for (int round = 0; round < 20; round++) {
+            saturate(limit, FAST);
+        }
+
+        // Then
+        assertEquals(100, limit.getLimit());
+    }
+
+    @Test
+    @DisplayName("Should lower the limit when latency rises over its long-term average")
+    void shouldShrinkWhenLatencyRises() {
+        // Given
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(config);
+        for (int round = 0; round < 5; round++) {
+            saturate(limit, FAST);
+        }
+        int before = limit.getLimit();
+
+        // When - the backend starts queueing: ten times the usual latency
+        for (int round = 0; round < 5; round++) {
+            saturate(limit, SLOW);
+        }
+
+        // Then
+        assertTrue(limit.getLimit() < before, "limit " + limit.getLimit() + " was " + before);
+    }
+
+    @Test
+    @DisplayName("Should ignore latency while in-flight calls are far below the limit")
+    void shouldNotGrowWhenUnderused() {
+        // Given
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(config);
+
+        // When - one call at a time
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(limit.tryAcquire());
+            limit.release(FAST, false);
+        }
+
+        // Then
+        assertEquals(20, limit.getLimit());
+    }
+
+    @Test
+    @DisplayName("Should back off on failures but not below the minimum")
+    void shouldBackOffOnFailure() {
+        // Given
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(config);
+
+        // When
+        assertTrue(limit.tryAcquire());
+        limit.release(FAST, true);
+
+        // Then - 20 * 0.9
+        assertEquals(18, limit.getLimit());
+        for (int i = 0; i < 100; i++) {
+            assertTrue(limit.tryAcquire());
+            limit.release(FAST, true);
+        }
+        assertEquals(5, limit.getLimit());
+        assertEquals(101L, limit.getStats().get("failed"));
+    }
+
+    @Test
+    @DisplayName("Should reject at once when the limit is reached and queueing is off")
+    void shouldRejectOverLimit() throws InterruptedException {
+        // Given
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(config);
+        for (int i = 0; i < 20; i++) {
+            assertTrue(limit.acquire());
+        }
+
+        // When & Then
+        assertFalse(limit.acquire());
+        assertEquals(20, limit.getInFlight());
+        assertEquals(1L, limit.getStats().get("rejected"));
+        limit.release();
+        assertTrue(limit.acquire());
+    }
+
+    @Test
+    @DisplayName("Should hand a freed slot to a queued call")
+    void shouldQueueBriefly() throws Exception {
+        // Given
+        config.setMaxQueueWait(5000);
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(config);
+        for (int i = 0; i < 20; i++) {
+            assertTrue(limit.tryAcquire());
+        }
+        CompletableFuture<Boolean> queued = CompletableFuture.supplyAsync(() -> {
+            try {
+                return limit.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        });
+        while ((Integer) limit.getStats().get("queued") == 0) {
+            Thread.sleep(1);
+        }
+
+        // When
+        limit.release();
+
+        // Then
+        assertTrue(queued.get(1, TimeUnit.SECONDS));
+        assertEquals(20, limit.getInFlight());
+    }
+
+    // Fills every slot, then completes the calls with the given latency
+    private static void saturate(AdaptiveConcurrencyLimit limit, long rttNanos) {
+        int acquired = 0;
+        while (limit.tryAcquire()) {
+            acquired++;
+        }
+        for (int i = 0; i < acquired; i++) {
+            limit.release(rttNanos, false);
+        }
+    }
+}
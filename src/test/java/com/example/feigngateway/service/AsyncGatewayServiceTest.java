@@ -0,0 +1,165 @@
+package com.example.feigngateway.service;
+
+import com.example.feigngateway.config.GatewayProperties;
+import com.example.feigngateway.config.GatewayWhitelistProperties;
+import com.example.feigngateway.exception.GatewayTimeoutException;
+import com.example.feigngateway.exception.ServiceUnavailableException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@DisplayName("AsyncGatewayService Tests")
+class AsyncGatewayServiceTest {
+
+    private static final String SERVICE_NAME = "user-service";
+
+    private GatewayService gatewayService;
+    private PerformanceMetricsService metricsService;
+    private GatewayProperties properties;
+    private BulkheadService bulkheadService;
+    private ExecutorService executor;
+    private AsyncGatewayService asyncGatewayService;
+
+    @BeforeEach
+    void setUp() {
+        gatewayService = mock(GatewayService.class);
+        metricsService = new PerformanceMetricsService();
+        executor = Executors.newSingleThreadExecutor();
+        properties = new GatewayProperties();
+        properties.getProxy().setAsyncTimeout(200);
+        bulkheadService = new BulkheadService(properties, new GatewayWhitelistProperties(), metricsService);
+        asyncGatewayService = new AsyncGatewayService(gatewayService, metricsService, properties, bulkheadService, executor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Should run the forward on the executor and record queue wait")
+    void shouldRunForwardOnExecutor() throws Exception {
+        // Given
+        AtomicReference<String> forwardThread = new AtomicReference<>();
+        when(gatewayService.forwardRequest(eq(SERVICE_NAME), eq("/users/1"), eq("GET"), anyMap(), (Object) any()))
+            .thenAnswer(invocation -> {
+                forwardThread.set(Thread.currentThread().getName());
+                return ResponseEntity.ok("user");
+            });
+
+        // When
+        ResponseEntity<Object> response = asyncGatewayService
+            .forwardRequestAsync(SERVICE_NAME, "/users/1", "GET", Map.of(), (Object) null)
+            .get(1, TimeUnit.SECONDS);
+
+        // Then
+        assertEquals("user", response.getBody());
+        assertNotEquals(Thread.currentThread().getName(), forwardThread.get());
+        assertTrue(metricsService.getServiceStats(SERVICE_NAME).contains("Avg Queue Wait"));
+    }
+
+    @Test
+    @DisplayName("Should fail with GatewayTimeoutException when the upstream call is too slow")
+    void shouldTimeOutSlowForward() throws Exception {
+        // Given
+        CountDownLatch release = new CountDownLatch(1);
+        when(gatewayService.forwardRequest(eq(SERVICE_NAME), eq("/slow"), eq("GET"), anyMap(), (Object) any()))
+            .thenAnswer(invocation -> {
+                release.await(5, TimeUnit.SECONDS);
+                return ResponseEntity.ok("late");
+            });
+
+        // When
+        CompletableFuture<ResponseEntity<Object>> future =
+            asyncGatewayService.forwardRequestAsync(SERVICE_NAME, "/slow", "GET", Map.of(), (Object) null);
+
+        // Then
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> future.get(2, TimeUnit.SECONDS));
+        assertInstanceOf(GatewayTimeoutException.class, ex.getCause());
+        assertEquals(504, ((GatewayTimeoutException) ex.getCause()).getStatusCode());
+        assertEquals(1, metricsService.getServiceMetrics(SERVICE_NAME).getTimeoutCount());
+        release.countDown();
+    }
+
+    @Test
+    @DisplayName("Should not start a queued forward once its timeout has elapsed")
+    void shouldNotStartQueuedForwardAfterTimeout() throws Exception {
+        // Given - the single executor thread is busy past the timeout
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        // When
+        CompletableFuture<ResponseEntity<Object>> future =
+            asyncGatewayService.forwardRequestAsync(SERVICE_NAME, "/users", "GET", Map.of(), (Object) null);
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> future.get(2, TimeUnit.SECONDS));
+        release.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+
+        // Then
+        assertInstanceOf(GatewayTimeoutException.class, ex.getCause());
+        verifyNoInteractions(gatewayService);
+    }
+
+    @Test
+    @DisplayName("Should propagate upstream errors unwrapped")
+    void shouldPropagateUpstreamErrors() {
+        // Given
+        when(gatewayService.forwardRequest(eq(SERVICE_NAME), eq("/missing"), eq("GET"), anyMap(), (Object) any()))
+            .thenThrow(new HttpClientErrorException(HttpStatus.NOT_FOUND));
+
+        // When
+        CompletableFuture<ResponseEntity<Object>> future =
+            asyncGatewayService.forwardRequestAsync(SERVICE_NAME, "/missing", "GET", Map.of(), (Object) null);
+
+        // Then
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> future.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(HttpClientErrorException.class, ex.getCause());
+    }
+
+    @Test
+    @DisplayName("Should reject a service with a full bulkhead before queueing it on the executor")
+    void shouldRejectSaturatedServiceBeforeQueueing() throws Exception {
+        // Given - the only bulkhead slot is held by an in-flight call
+        properties.getPerformance().getBulkhead().setMaxConcurrentCalls(1);
+        bulkheadService.acquire(SERVICE_NAME);
+        when(gatewayService.forwardRequest(eq("post-service"), eq("/posts"), eq("GET"), anyMap(), (Object) any()))
+            .thenReturn(ResponseEntity.ok("posts"));
+
+        // When / Then
+        ServiceUnavailableException ex = assertThrows(ServiceUnavailableException.class,
+            () -> asyncGatewayService.forwardRequestAsync(SERVICE_NAME, "/users", "GET", Map.of(), (Object) null));
+        assertEquals(503, ex.getStatusCode());
+        assertEquals("posts", asyncGatewayService
+            .forwardRequestAsync("post-service", "/posts", "GET", Map.of(), (Object) null)
+            .get(1, TimeUnit.SECONDS).getBody());
+        verify(gatewayService, never()).forwardRequest(eq(SERVICE_NAME), anyString(), anyString(), anyMap(), (Object) any());
+        assertEquals(1, metricsService.getServiceMetrics(SERVICE_NAME).getBulkheadRejections());
+    }
+}
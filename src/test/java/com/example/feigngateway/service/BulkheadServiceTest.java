@@ -0,0 +1,120 @@
+package com.example.feigngateway.service;
+
+import com.example.feigngateway.config.GatewayProperties;
+import com.example.feigngateway.config.GatewayWhitelistProperties;
+import com.example.feigngateway.exception.ServiceUnavailableException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("BulkheadService Tests")
+class BulkheadServiceTest {
+
+    private GatewayProperties properties;
+    private GatewayWhitelistProperties whitelistProperties;
+    private PerformanceMetricsService metricsService;
+    private BulkheadService bulkheadService;
+
+    @BeforeEach
+    void setUp() {
+        properties = new GatewayProperties();
+        properties.getPerformance().getBulkhead().setMaxConcurrentCalls(2);
+        properties.getPerformance().getBulkhead().setMaxWaitDuration(0);
+        whitelistProperties = new GatewayWhitelistProperties();
+        metricsService = new PerformanceMetricsService();
+        bulkheadService = new BulkheadService(properties, whitelistProperties, metricsService);
+    }
+
+    @Test
+    @DisplayName("Should fail fast once a service holds all its slots, without affecting other services")
+    void shouldIsolateSaturatedService() {
+        // Given
+        bulkheadService.acquire("slow-service");
+        bulkheadService.acquire("slow-service");
+
+        // When / Then
+        ServiceUnavailableException ex = assertThrows(ServiceUnavailableException.class,
+            () -> bulkheadService.execute("slow-service", () -> "never"));
+        assertEquals(503, ex.getStatusCode());
+        assertEquals("ok", bulkheadService.execute("fast-service", () -> "ok"));
+
+        PerformanceMetricsService.ServiceMetrics metrics = metricsService.getServiceMetrics("slow-service");
+        assertEquals(1, metrics.getBulkheadSaturations());
+        assertEquals(1, metrics.getBulkheadRejections());
+        assertEquals(2, metrics.getMaxBulkheadConcurrentCalls());
+        assertTrue(metricsService.getServiceStats("slow-service").contains("Bulkhead Rejections: 1"));
+    }
+
+    @Test
+    @DisplayName("Should let a call wait for a slot up to the maximum wait time")
+    void shouldWaitForFreedSlot() throws Exception {
+        // Given
+        properties.getPerformance().getBulkhead().setMaxWaitDuration(5000);
+        bulkheadService.acquire("user-service");
+        bulkheadService.acquire("user-service");
+        CompletableFuture<String> waiting = CompletableFuture.supplyAsync(
+            () -> bulkheadService.execute("user-service", () -> "waited"));
+        while (!waitingCallers("user-service")) {
+            Thread.sleep(1);
+        }
+
+        // When
+        bulkheadService.release("user-service");
+
+        // Then
+        assertEquals("waited", waiting.get(1, TimeUnit.SECONDS));
+        assertEquals(1, metricsService.getServiceMetrics("user-service").getBulkheadSaturations());
+        assertEquals(0, metricsService.getServiceMetrics("user-service").getBulkheadRejections());
+    }
+
+    @Test
+    @DisplayName("Should apply per-service overrides and report capacity before queueing")
+    void shouldApplyServiceOverride() {
+        // Given
+        GatewayWhitelistProperties.Bulkhead override = new GatewayWhitelistProperties.Bulkhead();
+        override.setMaxConcurrentCalls(1);
+        GatewayWhitelistProperties.ServiceConfig serviceConfig = new GatewayWhitelistProperties.ServiceConfig();
+        serviceConfig.setName("user-service");
+        serviceConfig.setBulkhead(override);
+        whitelistProperties.setServices(List.of(serviceConfig));
+
+        // When
+        bulkheadService.checkCapacity("user-service");
+        bulkheadService.acquire("user-service");
+
+        // Then
+        assertThrows(ServiceUnavailableException.class, () -> bulkheadService.checkCapacity("user-service"));
+        bulkheadService.release("user-service");
+        assertDoesNotThrow(() -> bulkheadService.checkCapacity("user-service"));
+        @SuppressWarnings("unchecked")
+        Map<String, Object> stats = (Map<String, Object>) bulkheadService.getStats().get("user-service");
+        assertEquals(1, stats.get("maxConcurrentCalls"));
+        assertEquals(0, stats.get("concurrentCalls"));
+    }
+
+    @Test
+    @DisplayName("Should not limit when disabled")
+    void shouldNotLimitWhenDisabled() {
+        // Given
+        properties.getPerformance().getBulkhead().setEnabled(false);
+
+        // When / Then
+        for (int i = 0; i < 10; i++) {
+            bulkheadService.acquire("user-service");
+        }
+        assertEquals(0, metricsService.getServiceMetrics("user-service").getBulkheadRejections());
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean waitingCallers(String serviceName) {
+        Map<String, Object> stats = (Map<String, Object>) bulkheadService.getStats().get(serviceName);
+        return (Integer) stats.get("waiting") > 0;
+    }
+}
@@ -1,11 +1,23 @@
 package com.example.feigngateway.service;
 
+import com.example.feigngateway.config.GatewayProperties;
+import com.example.feigngateway.config.GatewayWhitelistProperties;
+import com.example.feigngateway.exception.ServiceUnavailableException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -13,13 +25,22 @@ import static org.junit.jupiter.api.Assertions.*;
 @DisplayName("CircuitBreakerService Tests")
 class CircuitBreakerServiceTest {
 
+    @Spy
+    private GatewayProperties gatewayProperties = new GatewayProperties();
+
+    @Spy
+    private GatewayWhitelistProperties whitelistProperties = new GatewayWhitelistProperties();
+
     @InjectMocks
     private CircuitBreakerService circuitBreakerService;
 
     private static final String SERVICE_NAME = "test-service";
 
+    private final AtomicLong clock = new AtomicLong();
+
     @BeforeEach
     void setUp() {
+        circuitBreakerService.setNanoClock(clock::get);
         // Reset circuit breaker state
         circuitBreakerService.recordSuccess(SERVICE_NAME);
     }
@@ -48,25 +69,29 @@ class CircuitBreakerServiceTest {
     }
 
     @Test
-    @DisplayName("Should allow requests when circuit is half-open and success threshold is reached")
-    void shouldAllowRequestsWhenCircuitIsHalfOpenAndSuccessThresholdIsReached() {
-        // Given - Open the circuit
+    @DisplayName("Should close the circuit once the permitted half-open trial calls succeed")
+    void shouldCloseCircuitAfterSuccessfulHalfOpenTrialCalls() {
+        // Given
+        String serviceName = "recovering-service";
         for (int i = 0; i < 5; i++) {
-            circuitBreakerService.recordFailure(SERVICE_NAME);
+            circuitBreakerService.recordFailure(serviceName);
         }
-        assertFalse(circuitBreakerService.isRequestAllowed(SERVICE_NAME));
+        assertFalse(circuitBreakerService.isRequestAllowed(serviceName));
 
-        // When - Wait for timeout and record successes
-        // Note: In real implementation, we'd need to mock time or use a test clock
-        // For now, we'll test the half-open logic directly
-        circuitBreakerService.recordSuccess(SERVICE_NAME);
-        circuitBreakerService.recordSuccess(SERVICE_NAME);
-        circuitBreakerService.recordSuccess(SERVICE_NAME);
+        // When - the open timeout elapses and every permitted trial call is taken
+        elapse(gatewayProperties.getPerformance().getCircuitBreaker().getTimeoutDuration());
+        for (int i = 0; i < 3; i++) {
+            assertTrue(circuitBreakerService.isRequestAllowed(serviceName));
+        }
+        assertEquals(CircuitBreakerService.CircuitState.HALF_OPEN, circuitBreakerService.getCircuitState(serviceName));
+        assertFalse(circuitBreakerService.isRequestAllowed(serviceName));
+        for (int i = 0; i < 3; i++) {
+            circuitBreakerService.recordSuccess(serviceName);
+        }
 
         // Then
-        assertTrue(circuitBreakerService.isRequestAllowed(SERVICE_NAME));
-        assertEquals(CircuitBreakerService.CircuitState.CLOSED, 
-                circuitBreakerService.getCircuitState(SERVICE_NAME));
+        assertEquals(CircuitBreakerService.CircuitState.CLOSED, circuitBreakerService.getCircuitState(serviceName));
+        assertTrue(circuitBreakerService.isRequestAllowed(serviceName));
     }
 
     @Test
@@ -139,18 +164,23 @@ class CircuitBreakerServiceTest {
 
     @Test
     @DisplayName("Should provide circuit breaker statistics")
+    @SuppressWarnings("unchecked")
     void shouldProvideCircuitBreakerStatistics() {
         // Given
         circuitBreakerService.recordFailure(SERVICE_NAME);
         circuitBreakerService.recordSuccess(SERVICE_NAME);
 
         // When
-        String stats = circuitBreakerService.getCircuitBreakerStats();
+        Map<String, Object> stats = circuitBreakerService.getCircuitBreakerStats();
 
         // Then
         assertNotNull(stats);
-        assertTrue(stats.contains("Circuit Breaker Statistics"));
-        assertTrue(stats.contains(SERVICE_NAME));
+        Map<String, Object> serviceStats = (Map<String, Object>) stats.get(SERVICE_NAME);
+        assertNotNull(serviceStats);
+        assertEquals(CircuitBreakerService.CircuitState.CLOSED, serviceStats.get("state"));
+        assertEquals(3, serviceStats.get("bufferedCalls"));
+        assertEquals(1, serviceStats.get("failedCalls"));
+        assertEquals(-1.0f, serviceStats.get("failureRate"));
     }
 
     @Test
@@ -238,4 +268,67 @@ class CircuitBreakerServiceTest {
         assertDoesNotThrow(() -> circuitBreakerService.isRequestAllowed(service));
         assertNotNull(circuitBreakerService.getCircuitState(service));
     }
+
+    @Test
+    @DisplayName("Should reject calls with 503 without invoking the upstream while the circuit is open")
+    void shouldRejectCallsWhileCircuitIsOpen() {
+        // Given - with the success recorded in setUp, 4 of the 5 buffered calls failed
+        for (int i = 0; i < 4; i++) {
+            assertThrows(ResourceAccessException.class, () -> circuitBreakerService.execute(SERVICE_NAME, () -> {
+                throw new ResourceAccessException("Connection refused");
+            }));
+        }
+
+        // When & Then
+        ServiceUnavailableException exception = assertThrows(ServiceUnavailableException.class,
+                () -> circuitBreakerService.execute(SERVICE_NAME, () -> fail("upstream must not be called")));
+        assertEquals(SERVICE_NAME, exception.getServiceName());
+    }
+
+    @Test
+    @DisplayName("Should not count client errors against the circuit")
+    void shouldNotCountClientErrorsAsFailures() {
+        // When
+        for (int i = 0; i < 10; i++) {
+            assertThrows(HttpClientErrorException.class, () -> circuitBreakerService.execute(SERVICE_NAME, () -> {
+                throw HttpClientErrorException.create(HttpStatus.NOT_FOUND, "Not Found", null, null, null);
+            }));
+        }
+
+        // Then
+        assertEquals(CircuitBreakerService.CircuitState.CLOSED, circuitBreakerService.getCircuitState(SERVICE_NAME));
+    }
+
+    @Test
+    @DisplayName("Should apply per-service policy overrides and re-open on a failed half-open probe")
+    void shouldApplyPerServicePolicyAndReopenOnFailedProbe() {
+        // Given
+        GatewayWhitelistProperties.CircuitBreaker policy = new GatewayWhitelistProperties.CircuitBreaker();
+        policy.setMinimumNumberOfCalls(2);
+        policy.setTimeoutDuration(50L);
+        policy.setPermittedCallsInHalfOpen(1);
+        GatewayWhitelistProperties.ServiceConfig service = new GatewayWhitelistProperties.ServiceConfig();
+        service.setName("fragile-service");
+        service.setCircuitBreaker(policy);
+        whitelistProperties.setServices(List.of(service));
+
+        // When - the override opens the circuit after two failures
+        circuitBreakerService.recordFailure("fragile-service");
+        circuitBreakerService.recordFailure("fragile-service");
+        assertEquals(CircuitBreakerService.CircuitState.OPEN, circuitBreakerService.getCircuitState("fragile-service"));
+
+        // Then - after the overridden open timeout a probe is let through, and its failure opens the circuit again
+        elapse(49);
+        assertFalse(circuitBreakerService.isRequestAllowed("fragile-service"));
+        elapse(1);
+        assertTrue(circuitBreakerService.isRequestAllowed("fragile-service"));
+        assertEquals(CircuitBreakerService.CircuitState.HALF_OPEN, circuitBreakerService.getCircuitState("fragile-service"));
+        circuitBreakerService.recordFailure("fragile-service");
+        assertEquals(CircuitBreakerService.CircuitState.OPEN, circuitBreakerService.getCircuitState("fragile-service"));
+        assertFalse(circuitBreakerService.isRequestAllowed("fragile-service"));
+    }
+
+    private void elapse(long millis) {
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
 }
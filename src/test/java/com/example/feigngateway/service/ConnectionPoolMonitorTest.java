@@ -0,0 +1,107 @@
+package com.example.feigngateway.service;
+
+import com.example.feigngateway.config.GatewayProperties;
+import com.example.feigngateway.config.GatewayWhitelistProperties;
+import com.example.feigngateway.config.HttpClientConfig;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ConnectionPoolMonitor Tests")
+class ConnectionPoolMonitorTest {
+
+    private HttpServer upstream;
+    private String upstreamUrl;
+    private PoolingHttpClientConnectionManager connectionManager;
+    private CloseableHttpClient httpClient;
+    private RestTemplate restTemplate;
+    private ConnectionPoolMonitor monitor;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        upstream = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        upstream.createContext("/ok", exchange -> {
+            byte[] body = "ok".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        upstream.createContext("/slow", exchange -> {
+            try {
+                Thread.sleep(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        upstream.start();
+        upstreamUrl = "http://localhost:" + upstream.getAddress().getPort();
+
+        GatewayWhitelistProperties.ServiceConfig service = new GatewayWhitelistProperties.ServiceConfig();
+        service.setName("test-service");
+        service.setBaseUrl(upstreamUrl + "/api");
+        service.setEndpoints(List.of("/**"));
+        service.setMaxConnections(7);
+        service.setReadTimeout(300);
+        GatewayWhitelistProperties whitelistProperties = new GatewayWhitelistProperties();
+        whitelistProperties.setServices(List.of(service));
+
+        HttpClientConfig config = new HttpClientConfig(new GatewayProperties(), whitelistProperties);
+        connectionManager = config.connectionManager();
+        httpClient = config.httpClient(connectionManager);
+        restTemplate = config.restTemplate(config.requestFactory(httpClient), config.http2UpstreamTransport(),
+                new DeadlineService(new GatewayProperties()));
+        monitor = new ConnectionPoolMonitor(connectionManager);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        httpClient.close();
+        connectionManager.close();
+        upstream.stop(0);
+    }
+
+    @Test
+    @DisplayName("Should report pool usage per route with the per-service connection limit")
+    @SuppressWarnings("unchecked")
+    void shouldReportPerRouteStats() {
+        // When
+        assertEquals("ok", restTemplate.getForObject(upstreamUrl + "/ok", String.class));
+        Map<String, Object> stats = monitor.getStats();
+
+        // Then
+        Map<String, Object> routes = (Map<String, Object>) stats.get("routes");
+        Map<String, Object> route = (Map<String, Object>) routes.get(upstreamUrl);
+        assertNotNull(route, "expected stats for " + upstreamUrl + " in " + routes);
+        assertEquals(7, route.get("max"));
+        assertEquals(0, route.get("leased"));
+        assertEquals(1, route.get("available"));
+        assertEquals(100, stats.get("defaultMaxPerRoute"));
+        assertEquals(500, ((Map<String, Object>) stats.get("total")).get("max"));
+    }
+
+    @Test
+    @DisplayName("Should apply the per-service read timeout")
+    void shouldApplyPerServiceReadTimeout() {
+        // When / Then - the 300 ms override fires well before the 10 s default
+        long start = System.nanoTime();
+        assertThrows(ResourceAccessException.class, () -> restTemplate.getForObject(upstreamUrl + "/slow", String.class));
+        assertTrue(System.nanoTime() - start < 5_000_000_000L);
+    }
+}
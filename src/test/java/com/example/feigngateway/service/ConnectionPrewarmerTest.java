@@ -0,0 +1,123 @@
+package com.example.feigngateway.service;
+
+import com.example.feigngateway.config.GatewayProperties;
+import com.example.feigngateway.config.GatewayWhitelistProperties;
+import com.example.feigngateway.config.HttpClientConfig;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.core5.pool.PoolStats;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ConnectionPrewarmer Tests")
+class ConnectionPrewarmerTest {
+
+    private HttpServer upstream;
+    private GatewayProperties properties;
+    private PoolingHttpClientConnectionManager connectionManager;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        upstream = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        upstream.start();
+        properties = new GatewayProperties();
+        properties.getPerformance().getConnectionPool().setPrewarmConnections(3);
+        properties.getPerformance().getConnectionPool().setPrewarmTimeout(2000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (connectionManager != null) {
+            connectionManager.close();
+        }
+        upstream.stop(0);
+    }
+
+    @Test
+    @DisplayName("Should leave the configured number of idle connections per upstream in the pool")
+    void shouldOpenConnectionsPerUpstream() {
+        // Given - two services on the same origin share one set of connections
+        String baseUrl = "http://localhost:" + upstream.getAddress().getPort();
+        ConnectionPrewarmer prewarmer = prewarmerFor(baseUrl + "/users", baseUrl + "/posts");
+
+        // When
+        int opened = prewarmer.prewarm();
+
+        // Then
+        PoolStats stats = connectionManager.getStats(HttpClientConfig.routeFor(HttpClientConfig.upstreamHost(baseUrl)));
+        assertEquals(3, opened);
+        assertEquals(3, stats.getAvailable());
+        assertEquals(0, stats.getLeased());
+    }
+
+    @Test
+    @DisplayName("Should skip unreachable upstreams without failing startup")
+    void shouldSkipUnreachableUpstream() throws Exception {
+        // Given
+        int closedPort;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            closedPort = socket.getLocalPort();
+        }
+        ConnectionPrewarmer prewarmer = prewarmerFor("http://localhost:" + closedPort,
+                "http://localhost:" + upstream.getAddress().getPort());
+
+        // When
+        int opened = prewarmer.prewarm();
+
+        // Then
+        assertEquals(3, opened);
+        assertEquals(3, connectionManager.getTotalStats().getAvailable());
+    }
+
+    @Test
+    @DisplayName("Should not warm the HTTP/1.1 pool for origins of HTTP/2 services")
+    void shouldSkipHttp2Upstreams() {
+        // Given - the same server as a plain origin and, under another host name, an HTTP/2 one
+        int port = upstream.getAddress().getPort();
+        List<GatewayWhitelistProperties.ServiceConfig> services = services("http://localhost:" + port, "http://127.0.0.1:" + port);
+        services.get(1).setHttp2(true);
+        ConnectionPrewarmer prewarmer = prewarmerFor(services);
+
+        // When
+        int opened = prewarmer.prewarm();
+
+        // Then
+        assertEquals(3, opened);
+        PoolStats http2Stats = connectionManager.getStats(
+                HttpClientConfig.routeFor(HttpClientConfig.upstreamHost("http://127.0.0.1:" + port)));
+        assertEquals(0, http2Stats.getAvailable());
+        assertEquals(3, connectionManager.getTotalStats().getAvailable());
+    }
+
+    private ConnectionPrewarmer prewarmerFor(String... baseUrls) {
+        return prewarmerFor(services(baseUrls));
+    }
+
+    private static List<GatewayWhitelistProperties.ServiceConfig> services(String... baseUrls) {
+        List<GatewayWhitelistProperties.ServiceConfig> services = new ArrayList<>();
+        for (String baseUrl : baseUrls) {
+            GatewayWhitelistProperties.ServiceConfig service = new GatewayWhitelistProperties.ServiceConfig();
+            service.setName("service-" + services.size());
+            service.setBaseUrl(baseUrl);
+            services.add(service);
+        }
+        return services;
+    }
+
+    private ConnectionPrewarmer prewarmerFor(List<GatewayWhitelistProperties.ServiceConfig> services) {
+        GatewayWhitelistProperties whitelistProperties = new GatewayWhitelistProperties();
+        whitelistProperties.setServices(services);
+
+        connectionManager = new HttpClientConfig(properties, whitelistProperties).connectionManager();
+        return new ConnectionPrewarmer(connectionManager, properties, whitelistProperties);
+    }
+}
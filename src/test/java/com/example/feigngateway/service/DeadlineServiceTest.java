@@ -0,0 +1,121 @@
+package com.example.feigngateway.service;
+
+import com.example.feigngateway.config.GatewayProperties;
+import com.example.feigngateway.config.GatewayWhitelistProperties;
+import com.example.feigngateway.exception.GatewayTimeoutException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("DeadlineService Tests")
+class DeadlineServiceTest {
+
+    private GatewayProperties properties;
+    private DeadlineService deadlineService;
+    private final Map<String, String> headers = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        properties = new GatewayProperties();
+        deadlineService = new DeadlineService(properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestDeadline.restore(null);
+    }
+
+    @Test
+    @DisplayName("Should take the earliest of the deadline, timeout and grpc-timeout headers")
+    void shouldParseEarliestDeadline() {
+        // Given
+        headers.put("X-Request-Deadline", Instant.now().plusSeconds(60).toString());
+        headers.put("X-Request-Timeout", "30000");
+        headers.put(DeadlineService.GRPC_TIMEOUT_HEADER, "2S");
+
+        // When
+        RequestDeadline deadline = deadlineService.fromHeaders(headers::get);
+
+        // Then
+        assertNotNull(deadline);
+        assertEquals(2000, deadline.getBudgetMillis());
+        assertTrue(deadline.remainingMillis() <= 2000 && deadline.remainingMillis() > 1000);
+    }
+
+    @Test
+    @DisplayName("Should ignore missing and malformed headers, and all headers when disabled")
+    void shouldIgnoreMalformedHeaders() {
+        assertNull(deadlineService.fromHeaders(headers::get));
+
+        headers.put("X-Request-Deadline", "tomorrow");
+        headers.put("X-Request-Timeout", "soon");
+        headers.put(DeadlineService.GRPC_TIMEOUT_HEADER, "5 seconds");
+        assertNull(deadlineService.fromHeaders(headers::get));
+
+        headers.put("X-Request-Deadline", Long.toString(System.currentTimeMillis() - 1000));
+        assertTrue(deadlineService.fromHeaders(headers::get).isExpired());
+
+        properties.getProxy().getDeadline().setEnabled(false);
+        assertNull(deadlineService.fromHeaders(headers::get));
+    }
+
+    @Test
+    @DisplayName("Should cap the client's deadline with the route timeout and propagate what is left")
+    void shouldApplyRouteTimeout() {
+        // Given
+        GatewayWhitelistProperties.RouteTimeout routeTimeout = new GatewayWhitelistProperties.RouteTimeout();
+        routeTimeout.setEndpoint("/users/**");
+        routeTimeout.setTimeout(500L);
+        GatewayWhitelistProperties.ServiceConfig serviceConfig = new GatewayWhitelistProperties.ServiceConfig();
+        serviceConfig.setName("user-service");
+        serviceConfig.setRouteTimeouts(List.of(routeTimeout));
+        ResolvedRoute route = new ResolvedRoute(serviceConfig, "/users/**", "http://localhost/users/1");
+        RequestDeadline previous = RequestDeadline.in(60_000).enter();
+
+        // When
+        long remaining = deadlineService.executeWithin(route,
+            () -> Long.parseLong(deadlineService.upstreamTimeoutHeaderValue()));
+
+        // Then
+        assertTrue(remaining <= 500 && remaining > 0);
+        assertTrue(RequestDeadline.current().remainingMillis() > 50_000);
+        assertEquals("X-Request-Timeout", deadlineService.getUpstreamTimeoutHeader());
+        RequestDeadline.restore(previous);
+        assertNull(deadlineService.upstreamTimeoutHeaderValue());
+    }
+
+    @Test
+    @DisplayName("Should fail with 504 instead of calling upstream once the deadline has passed")
+    void shouldFailFastWhenExpired() {
+        // Given
+        AtomicInteger calls = new AtomicInteger();
+        RequestDeadline.in(0).enter();
+
+        // When / Then
+        GatewayTimeoutException exception = assertThrows(GatewayTimeoutException.class,
+            () -> deadlineService.attempt("user-service", calls::incrementAndGet));
+        assertEquals(0, calls.get());
+        assertEquals("user-service", exception.getServiceName());
+
+        // A timeout that outlives the budget is reported as 504 as well
+        RequestDeadline.in(20).enter();
+        assertThrows(GatewayTimeoutException.class, () -> deadlineService.attempt("user-service", () -> {
+            try {
+                Thread.sleep(40);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new ResourceAccessException("Read timed out");
+        }));
+    }
+}
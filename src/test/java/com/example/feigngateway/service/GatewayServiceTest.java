@@ -0,0 +1,115 @@
+package com.example.feigngateway.service;
+
+import com.example.feigngateway.config.GatewayProperties;
+import com.example.feigngateway.config.GatewayWhitelistProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@DisplayName("GatewayService Tests")
+class GatewayServiceTest {
+
+    private static final String BASE_URL = "http://user-service.test";
+
+    private GatewayProperties properties;
+    private RestTemplate restTemplate;
+    private UpstreamConcurrencyLimiter upstreamConcurrencyLimiter;
+    private ExecutorService hedgingExecutor;
+    private GatewayService gatewayService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        properties = new GatewayProperties();
+        GatewayProperties.Performance.Hedging hedging = properties.getPerformance().getHedging();
+        hedging.setEnabled(true);
+        hedging.setDelay(20);
+        hedging.setBudgetPercent(100);
+
+        GatewayWhitelistProperties.ServiceConfig serviceConfig = new GatewayWhitelistProperties.ServiceConfig();
+        serviceConfig.setName("user-service");
+        serviceConfig.setBaseUrl(BASE_URL);
+        serviceConfig.setEndpoints(List.of("/**"));
+        GatewayWhitelistProperties whitelistProperties = new GatewayWhitelistProperties();
+        whitelistProperties.setServices(List.of(serviceConfig));
+
+        PerformanceMetricsService metricsService = new PerformanceMetricsService();
+        restTemplate = mock(RestTemplate.class);
+        upstreamConcurrencyLimiter = new UpstreamConcurrencyLimiter(properties, whitelistProperties);
+        hedgingExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        gatewayService = new GatewayService(restTemplate, new WhitelistService(whitelistProperties),
+                mock(PassthroughService.class), upstreamConcurrencyLimiter,
+                new CircuitBreakerService(properties, whitelistProperties),
+                new BulkheadService(properties, whitelistProperties, metricsService),
+                new RetryService(properties, whitelistProperties, metricsService),
+                new HedgingService(properties, whitelistProperties, metricsService, hedgingExecutor),
+                new DeadlineService(properties), mock(ResponseCacheService.class),
+                new RequestCoalescer(properties, metricsService), mock(ObjectProvider.class), new ObjectMapper());
+    }
+
+    @AfterEach
+    void tearDown() {
+        hedgingExecutor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Should take a separate upstream permit for each hedged attempt")
+    void shouldTakePermitPerHedgedAttempt() throws Exception {
+        // Given - the first attempt hangs until cancelled; the hedge looks at the permits held meanwhile
+        AtomicInteger attempts = new AtomicInteger();
+        AtomicInteger inFlightDuringHedge = new AtomicInteger();
+        CountDownLatch primaryCancelled = new CountDownLatch(1);
+        when(restTemplate.getForObject(eq(BASE_URL + "/users/1"), eq(Object.class))).thenAnswer(invocation -> {
+            if (attempts.incrementAndGet() == 1) {
+                try {
+                    Thread.sleep(10_000);
+                } catch (InterruptedException e) {
+                    primaryCancelled.countDown();
+                }
+                return "slow";
+            }
+            inFlightDuringHedge.set(inFlight());
+            return "hedge";
+        });
+
+        // When
+        ResponseEntity<Object> response = gatewayService.forwardRequest("user-service", "/users/1", "GET", Map.of(), (Object) null);
+
+        // Then - both attempts held a permit at once, and both are returned
+        assertEquals("hedge", response.getBody());
+        assertEquals(2, inFlightDuringHedge.get());
+        assertTrue(primaryCancelled.await(1, TimeUnit.SECONDS));
+        awaitNoneInFlight();
+    }
+
+    @SuppressWarnings("unchecked")
+    private int inFlight() {
+        Map<String, Object> upstream = (Map<String, Object>) upstreamConcurrencyLimiter.getStats().get(BASE_URL);
+        return (Integer) upstream.get("inFlight");
+    }
+
+    private void awaitNoneInFlight() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (inFlight() != 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(0, inFlight());
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.feigngateway.service;
+
+import com.example.feigngateway.config.GatewayProperties;
+import com.example.feigngateway.config.GatewayWhitelistProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("HedgingService Tests")
+class HedgingServiceTest {
+
+    private GatewayProperties properties;
+    private GatewayWhitelistProperties whitelistProperties;
+    private PerformanceMetricsService metricsService;
+    private ExecutorService executor;
+    private HedgingService hedgingService;
+
+    @BeforeEach
+    void setUp() {
+        properties = new GatewayProperties();
+        GatewayProperties.Performance.Hedging hedging = properties.getPerformance().getHedging();
+        hedging.setEnabled(true);
+        hedging.setDelay(20);
+        hedging.setBudgetPercent(100);
+        whitelistProperties = new GatewayWhitelistProperties();
+        metricsService = new PerformanceMetricsService();
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        hedgingService = new HedgingService(properties, whitelistProperties, metricsService, executor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Should use the hedge when the first attempt is slow and cancel the first attempt")
+    void shouldReturnFasterHedge() throws Exception {
+        // Given - the first attempt hangs, the second answers at once
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch primaryCancelled = new CountDownLatch(1);
+
+        // When
+        String result = hedgingService.execute("user-service", "GET", () -> {
+            if (attempts.incrementAndGet() == 1) {
+                try {
+                    Thread.sleep(10_000);
+                } catch (InterruptedException e) {
+                    primaryCancelled.countDown();
+                }
+                return "slow";
+            }
+            return "hedge";
+        });
+
+        // Then
+        assertEquals("hedge", result);
+        assertTrue(primaryCancelled.await(1, TimeUnit.SECONDS));
+        PerformanceMetricsService.ServiceMetrics metrics = metricsService.getServiceMetrics("user-service");
+        assertEquals(1, metrics.getHedgedRequests());
+        assertEquals(1, metrics.getHedgeWins());
+        assertEquals(100.0, metrics.getHedgeRate());
+        assertTrue(metricsService.getServiceStats("user-service").contains("Hedge Wins: 1"));
+    }
+
+    @Test
+    @DisplayName("Should not hedge fast requests, non-GET requests or services that did not opt in")
+    void shouldOnlyHedgeSlowOptedInGets() {
+        // Given
+        properties.getPerformance().getHedging().setEnabled(false);
+        GatewayWhitelistProperties.Hedging override = new GatewayWhitelistProperties.Hedging();
+        override.setEnabled(true);
+        GatewayWhitelistProperties.ServiceConfig serviceConfig = new GatewayWhitelistProperties.ServiceConfig();
+        serviceConfig.setName("user-service");
+        serviceConfig.setHedging(override);
+        whitelistProperties.setServices(List.of(serviceConfig));
+        AtomicInteger attempts = new AtomicInteger();
+
+        // When
+        assertEquals("fast", hedgingService.execute("user-service", "GET", () -> {
+            attempts.incrementAndGet();
+            return "fast";
+        }));
+        assertEquals("created", hedgingService.execute("user-service", "POST", () -> {
+            attempts.incrementAndGet();
+            sleep(50);
+            return "created";
+        }));
+        assertEquals("other", hedgingService.execute("post-service", "GET", () -> {
+            attempts.incrementAndGet();
+            sleep(50);
+            return "other";
+        }));
+
+        // Then
+        assertEquals(3, attempts.get());
+        assertEquals(1, metricsService.getServiceMetrics("user-service").getHedgeEligibleRequests());
+        assertEquals(0, metricsService.getServiceMetrics("user-service").getHedgedRequests());
+        assertEquals(0, metricsService.getServiceMetrics("post-service").getHedgeEligibleRequests());
+    }
+
+    @Test
+    @DisplayName("Should keep hedges within the budget percentage of traffic")
+    void shouldCapHedgesWithBudget() {
+        // Given - every request is slower than the hedge delay
+        properties.getPerformance().getHedging().setDelay(5);
+        properties.getPerformance().getHedging().setBudgetPercent(25);
+
+        // When
+        for (int i = 0; i < 20; i++) {
+            hedgingService.execute("user-service", "GET", () -> {
+                sleep(30);
+                return "ok";
+            });
+        }
+
+        // Then
+        PerformanceMetricsService.ServiceMetrics metrics = metricsService.getServiceMetrics("user-service");
+        assertEquals(20, metrics.getHedgeEligibleRequests());
+        assertEquals(5, metrics.getHedgedRequests());
+        assertEquals(25.0, metrics.getHedgeRate());
+    }
+
+    @Test
+    @DisplayName("Should hedge after the observed p95 once enough latencies are known")
+    void shouldUseObservedP95() {
+        // Given
+        properties.getPerformance().getHedging().setDelay(0);
+        properties.getPerformance().getHedging().setMinSamples(5);
+        properties.getPerformance().getHedging().setMinDelay(1);
+        for (int i = 0; i < 4; i++) {
+            hedgingService.execute("user-service", "GET", () -> "warm-up");
+        }
+        assertEquals(-1L, serviceStats().get("delayMillis"));
+
+        // When
+        hedgingService.execute("user-service", "GET", () -> "warm-up");
+
+        // Then - the p95 of near-zero latencies, raised to the minimum delay
+        assertEquals(1L, serviceStats().get("delayMillis"));
+        AtomicInteger attempts = new AtomicInteger();
+        assertEquals("hedge", hedgingService.execute("user-service", "GET", () -> {
+            if (attempts.incrementAndGet() == 1) {
+                sleep(1_000);
+                return "slow";
+            }
+            return "hedge";
+        }));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> serviceStats() {
+        return (Map<String, Object>) hedgingService.getStats().get("user-service");
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.feigngateway.service;
+
+import com.example.feigngateway.config.GatewayProperties;
+import com.example.feigngateway.config.GatewayWhitelistProperties;
+import com.example.feigngateway.config.HttpClientConfig;
+import com.sun.net.httpserver.HttpServer;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.catalina.Context;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.coyote.http2.Http2Protocol;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Http2UpstreamTransport Tests")
+class Http2UpstreamTransportTest {
+
+    @TempDir
+    Path baseDir;
+
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final CountDownLatch partialSent = new CountDownLatch(1);
+    private Tomcat h2Upstream;
+    private String h2Url;
+    private HttpServer http1Upstream;
+    private String http1Url;
+    private PoolingHttpClientConnectionManager connectionManager;
+    private CloseableHttpClient httpClient;
+    private Http2UpstreamTransport transport;
+    private RestTemplate restTemplate;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        h2Upstream = new Tomcat();
+        h2Upstream.setBaseDir(baseDir.toString());
+        h2Upstream.setPort(0);
+        h2Upstream.getConnector().addUpgradeProtocol(new Http2Protocol());
+        Context context = h2Upstream.addContext("", baseDir.toString());
+        Tomcat.addServlet(context, "upstream", new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+                clientPorts.add(request.getRemotePort());
+                requests.incrementAndGet();
+                if ("/partial".equals(request.getRequestURI())) {
+                    // The head and the first bytes go out at once, the rest of the body only later
+                    response.getOutputStream().write('a');
+                    response.flushBuffer();
+                    pause(300);
+                    response.getOutputStream().write(new byte[1024 * 1024]);
+                    partialSent.countDown();
+                    return;
+                }
+                pause(200);
+                response.getWriter().write(request.getProtocol());
+            }
+        });
+        context.addServletMappingDecoded("/*", "upstream");
+        h2Upstream.start();
+        h2Url = "http://localhost:" + h2Upstream.getConnector().getLocalPort();
+
+        http1Upstream = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        http1Upstream.createContext("/", exchange -> {
+            byte[] body = exchange.getProtocol().getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        http1Upstream.start();
+        http1Url = "http://localhost:" + http1Upstream.getAddress().getPort();
+
+        GatewayWhitelistProperties whitelistProperties = new GatewayWhitelistProperties();
+        whitelistProperties.setServices(List.of(service("h2-service", h2Url, true),
+                service("http1-only-service", http1Url, true)));
+        HttpClientConfig config = new HttpClientConfig(new GatewayProperties(), whitelistProperties);
+        connectionManager = config.connectionManager();
+        httpClient = config.httpClient(connectionManager);
+        transport = config.http2UpstreamTransport();
+        restTemplate = config.restTemplate(config.requestFactory(httpClient), transport,
+                new DeadlineService(new GatewayProperties()));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        transport.close();
+        httpClient.close();
+        connectionManager.close();
+        h2Upstream.stop();
+        h2Upstream.destroy();
+        http1Upstream.stop(0);
+    }
+
+    @Test
+    @DisplayName("Should multiplex concurrent requests over a single HTTP/2 connection")
+    @SuppressWarnings("unchecked")
+    void shouldMultiplexOverSingleConnection() throws Exception {
+        // Given - the first request opens the h2c connection
+        assertEquals("HTTP/2.0", restTemplate.getForObject(h2Url + "/first", String.class));
+        clientPorts.clear();
+
+        // When
+        ExecutorService executor = Executors.newFixedThreadPool(10);
+        List<Future<String>> responses = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            responses.add(executor.submit(() -> restTemplate.getForObject(h2Url + "/item", String.class)));
+        }
+        for (Future<String> response : responses) {
+            assertEquals("HTTP/2.0", response.get());
+        }
+        executor.shutdown();
+
+        // Then
+        assertEquals(1, clientPorts.size(), "all streams should share one connection");
+        Map<String, Object> stats = (Map<String, Object>) transport.getStats().get(h2Url);
+        assertEquals("HTTP/2", stats.get("protocol"));
+        assertEquals(1, stats.get("connections"));
+        assertEquals(11L, stats.get("responses"));
+        assertEquals(0, stats.get("activeStreams"));
+        assertTrue((Integer) stats.get("peakActiveStreams") > 1);
+        assertTrue(connectionManager.getRoutes().isEmpty(), "HTTP/2 traffic must not use the HTTP/1.1 pool");
+    }
+
+    @Test
+    @DisplayName("Should keep the connection when a response is closed before its end")
+    @SuppressWarnings("unchecked")
+    void shouldKeepConnectionWhenResponseClosedEarly() throws Exception {
+        // Given - a request in flight on the h2c connection
+        assertEquals("HTTP/2.0", restTemplate.getForObject(h2Url + "/first", String.class));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<String> inFlight = executor.submit(() -> restTemplate.getForObject(h2Url + "/item", String.class));
+        while (requests.get() < 2) {
+            Thread.sleep(5);
+        }
+
+        // When - another response is closed after its head, with most of its body still to come
+        HttpStatusCode status = restTemplate.execute(h2Url + "/partial", HttpMethod.GET, null,
+                ClientHttpResponse::getStatusCode);
+
+        // Then - that stream is read to its end and dropped, the other one completes on the same connection
+        assertEquals(HttpStatus.OK, status);
+        assertEquals("HTTP/2.0", inFlight.get());
+        executor.shutdown();
+        assertTrue(partialSent.await(2, TimeUnit.SECONDS), "the dropped response should be drained");
+        assertEquals("HTTP/2.0", restTemplate.getForObject(h2Url + "/after", String.class));
+        assertEquals(1, clientPorts.size(), "all streams should share one connection");
+        Map<String, Object> stats = (Map<String, Object>) transport.getStats().get(h2Url);
+        assertEquals(1, stats.get("connections"));
+        assertEquals(0, stats.get("activeStreams"));
+    }
+
+    @Test
+    @DisplayName("Should fall back to HTTP/1.1 when the upstream does not negotiate HTTP/2")
+    @SuppressWarnings("unchecked")
+    void shouldFallBackToHttp1() {
+        // When
+        String protocol = restTemplate.getForObject(http1Url + "/item", String.class);
+
+        // Then - the request is served by the pool, and so are later ones
+        assertEquals("HTTP/1.1", protocol);
+        Map<String, Object> stats = (Map<String, Object>) transport.getStats().get(http1Url);
+        assertEquals("HTTP/1.1", stats.get("protocol"));
+        assertEquals(0, stats.get("activeStreams"));
+        assertEquals(1, connectionManager.getRoutes().size());
+        assertNull(transport.requestFactoryFor(java.net.URI.create(http1Url + "/item"), null));
+    }
+
+    @Test
+    @DisplayName("Should leave services without http2 on the pooled client")
+    void shouldKeepOtherOriginsOnPool() {
+        // When / Then
+        assertNull(transport.requestFactoryFor(java.net.URI.create("http://localhost:1/other"), null));
+        assertNotNull(transport.requestFactoryFor(java.net.URI.create(h2Url + "/item"), null));
+    }
+
+    private static void pause(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static GatewayWhitelistProperties.ServiceConfig service(String name, String baseUrl, boolean http2) {
+        GatewayWhitelistProperties.ServiceConfig service = new GatewayWhitelistProperties.ServiceConfig();
+        service.setName(name);
+        service.setBaseUrl(baseUrl);
+        service.setEndpoints(List.of("/**"));
+        service.setHttp2(http2);
+        return service;
+    }
+}
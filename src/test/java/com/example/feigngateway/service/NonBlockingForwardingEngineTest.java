@@ -0,0 +1,221 @@
+package com.example.feigngateway.service;
+
+import com.example.feigngateway.config.GatewayProperties;
+import com.example.feigngateway.config.GatewayWhitelistProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.sun.net.httpserver.HttpServer;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.catalina.Context;
+import org.apache.catalina.Wrapper;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("NonBlockingForwardingEngine Tests")
+class NonBlockingForwardingEngineTest {
+
+    private static final byte[] LARGE_BODY = new byte[1024 * 1024];
+
+    static {
+        for (int i = 0; i < LARGE_BODY.length; i++) {
+            LARGE_BODY[i] = (byte) i;
+        }
+    }
+
+    @TempDir
+    Path baseDir;
+
+    private HttpServer upstream;
+    private CloseableHttpAsyncClient asyncHttpClient;
+    private GatewayProperties properties;
+    private Tomcat tomcat;
+    private String gatewayUrl;
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        upstream = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        upstream.createContext("/large", exchange -> {
+            exchange.getResponseHeaders().add("X-Upstream", "large");
+            exchange.sendResponseHeaders(200, LARGE_BODY.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(LARGE_BODY);
+            }
+        });
+        upstream.createContext("/echo", exchange -> {
+            byte[] body;
+            try (InputStream in = exchange.getRequestBody()) {
+                body = in.readAllBytes();
+            }
+            exchange.getResponseHeaders().add("Content-Type", exchange.getRequestHeaders().getFirst("Content-Type"));
+            exchange.sendResponseHeaders(201, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        upstream.createContext("/slow", exchange -> {
+            try {
+                Thread.sleep(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        upstream.start();
+
+        asyncHttpClient = HttpAsyncClients.createDefault();
+        asyncHttpClient.start();
+
+        properties = new GatewayProperties();
+        properties.getProxy().setBufferSize(4096);
+        properties.getProxy().setAsyncTimeout(500);
+        NonBlockingForwardingEngine engine = new NonBlockingForwardingEngine(asyncHttpClient,
+                new PassthroughService(new RestTemplate(), properties), new UpstreamConcurrencyLimiter(properties, new GatewayWhitelistProperties()),
+                new CircuitBreakerService(properties, new GatewayWhitelistProperties()),
+                properties, new ObjectMapper().registerModule(new JavaTimeModule()));
+
+        startGateway(engine, "http://localhost:" + upstream.getAddress().getPort());
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        tomcat.stop();
+        tomcat.destroy();
+        asyncHttpClient.close();
+        upstream.stop(0);
+    }
+
+    @Test
+    @DisplayName("Should relay a large upstream body with status and headers")
+    void shouldRelayLargeUpstreamBody() throws Exception {
+        // When
+        HttpResponse<byte[]> response = client.send(HttpRequest.newBuilder(URI.create(gatewayUrl + "/large")).build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+
+        // Then
+        assertEquals(200, response.statusCode());
+        assertEquals("large", response.headers().firstValue("X-Upstream").orElse(null));
+        assertTrue(Arrays.equals(LARGE_BODY, response.body()));
+    }
+
+    @Test
+    @DisplayName("Should read the request body asynchronously and forward it upstream")
+    void shouldForwardRequestBody() throws Exception {
+        // Given
+        String body = "{\"title\":\"hello\"}";
+
+        // When
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(gatewayUrl + "/echo"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        // Then
+        assertEquals(201, response.statusCode());
+        assertEquals(body, response.body());
+        assertTrue(response.headers().firstValue("Content-Type").orElse("").startsWith("application/json"));
+    }
+
+    @Test
+    @DisplayName("Should stream a request body many times the buffer size upstream")
+    void shouldStreamLargeRequestBody() throws Exception {
+        // Given - 1 MB through a 4 KB buffer, with and without a declared length
+        HttpRequest sized = HttpRequest.newBuilder(URI.create(gatewayUrl + "/echo"))
+                .header("Content-Type", "application/octet-stream")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(LARGE_BODY))
+                .build();
+        HttpRequest chunked = HttpRequest.newBuilder(URI.create(gatewayUrl + "/echo"))
+                .header("Content-Type", "application/octet-stream")
+                .POST(HttpRequest.BodyPublishers.ofInputStream(() -> new ByteArrayInputStream(LARGE_BODY)))
+                .build();
+
+        // When
+        HttpResponse<byte[]> sizedResponse = client.send(sized, HttpResponse.BodyHandlers.ofByteArray());
+        HttpResponse<byte[]> chunkedResponse = client.send(chunked, HttpResponse.BodyHandlers.ofByteArray());
+
+        // Then
+        assertEquals(201, sizedResponse.statusCode());
+        assertTrue(Arrays.equals(LARGE_BODY, sizedResponse.body()));
+        assertEquals(201, chunkedResponse.statusCode());
+        assertTrue(Arrays.equals(LARGE_BODY, chunkedResponse.body()));
+    }
+
+    @Test
+    @DisplayName("Should answer 504 when the upstream does not respond in time")
+    void shouldTimeOutSlowUpstream() throws Exception {
+        // When
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(gatewayUrl + "/slow")).build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        // Then
+        assertEquals(504, response.statusCode());
+        assertTrue(response.body().contains("Upstream timeout"));
+    }
+
+    @Test
+    @DisplayName("Should answer 503 when the upstream is unreachable")
+    void shouldFailWhenUpstreamUnreachable() throws Exception {
+        // Given
+        upstream.stop(0);
+
+        // When
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(gatewayUrl + "/large")).build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        // Then
+        assertEquals(503, response.statusCode());
+        assertTrue(response.body().contains("Service temporarily unavailable"));
+    }
+
+    private void startGateway(NonBlockingForwardingEngine engine, String upstreamBaseUrl) throws Exception {
+        GatewayWhitelistProperties.ServiceConfig serviceConfig = new GatewayWhitelistProperties.ServiceConfig();
+        serviceConfig.setName("test-service");
+        serviceConfig.setBaseUrl(upstreamBaseUrl);
+        serviceConfig.setEndpoints(List.of("/**"));
+
+        tomcat = new Tomcat();
+        tomcat.setBaseDir(baseDir.toString());
+        tomcat.setPort(0);
+        Context context = tomcat.addContext("", baseDir.toString());
+        Wrapper wrapper = Tomcat.addServlet(context, "gateway", new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest request, HttpServletResponse response) throws IOException {
+                String targetUrl = upstreamBaseUrl + request.getRequestURI();
+                engine.forward(new ResolvedRoute(serviceConfig, "/**", targetUrl),
+                        HttpMethod.valueOf(request.getMethod()), targetUrl, request, response);
+            }
+        });
+        wrapper.setAsyncSupported(true);
+        context.addServletMappingDecoded("/*", "gateway");
+        tomcat.getConnector();
+        tomcat.start();
+        gatewayUrl = "http://localhost:" + tomcat.getConnector().getLocalPort();
+    }
+}
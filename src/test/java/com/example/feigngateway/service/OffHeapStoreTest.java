@@ -0,0 +1,66 @@
+package com.example.feigngateway.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("OffHeapStore Tests")
+class OffHeapStoreTest {
+
+    private static final int BLOCK_SIZE = 1024;
+
+    @Test
+    @DisplayName("Should store bodies across blocks and write them back unchanged")
+    void shouldRoundTripBodies() throws Exception {
+        // Given - two slabs of four blocks
+        OffHeapStore store = new OffHeapStore(8 * BLOCK_SIZE, 4 * BLOCK_SIZE, BLOCK_SIZE);
+        byte[] large = randomBytes(5 * BLOCK_SIZE + 17);
+        byte[] empty = new byte[0];
+
+        // When
+        OffHeapStore.Body largeBody = store.store(large);
+        OffHeapStore.Body emptyBody = store.store(empty);
+
+        // Then - slabs are only allocated as needed
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        largeBody.writeTo(out);
+        assertArrayEquals(large, out.toByteArray());
+        assertArrayEquals(large, largeBody.toArray());
+        assertEquals(0, emptyBody.toArray().length);
+        assertEquals(7L * BLOCK_SIZE, store.getUsedBytes());
+        assertEquals(8L * BLOCK_SIZE, store.getAllocatedBytes());
+        assertEquals(6L * BLOCK_SIZE, store.footprint(large.length));
+    }
+
+    @Test
+    @DisplayName("Should free blocks only once the owner and every reader have released them")
+    void shouldFreeBlocksAfterLastRelease() {
+        // Given
+        OffHeapStore store = new OffHeapStore(4 * BLOCK_SIZE, 4 * BLOCK_SIZE, BLOCK_SIZE);
+        byte[] original = randomBytes(3 * BLOCK_SIZE);
+        OffHeapStore.Body body = store.store(original);
+        assertNull(store.store(new byte[2 * BLOCK_SIZE]));
+
+        // When - a reader holds the body while its owner lets go
+        assertTrue(body.retain());
+        body.release();
+
+        // Then - the blocks stay put until the reader is done
+        assertNull(store.store(new byte[2 * BLOCK_SIZE]));
+        assertArrayEquals(original, body.toArray());
+        body.release();
+        assertFalse(body.retain());
+        assertEquals(0, store.getUsedBytes());
+        assertNotNull(store.store(new byte[4 * BLOCK_SIZE]));
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(42).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.feigngateway.service;
+
+import com.example.feigngateway.config.GatewayProperties;
+import com.example.feigngateway.exception.RequestBodyTooLargeException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.*;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.*;
+
+@DisplayName("PassthroughService Tests")
+class PassthroughServiceTest {
+
+    private MockRestServiceServer server;
+    private GatewayProperties properties;
+    private PassthroughService passthroughService;
+
+    @BeforeEach
+    void setUp() {
+        RestTemplate restTemplate = new RestTemplate();
+        server = MockRestServiceServer.bindTo(restTemplate).build();
+        properties = new GatewayProperties();
+        properties.getProxy().setBufferSize(1024);
+        passthroughService = new PassthroughService(restTemplate, properties);
+    }
+
+    @Test
+    @DisplayName("Should relay upstream status, headers and body bytes unchanged")
+    void shouldRelayUpstreamResponseUnchanged() throws Exception {
+        // Given
+        String body = "{\"id\":1,\"name\":\"Leanne\"}";
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("X-Upstream", "users");
+        headers.add(HttpHeaders.CONNECTION, "keep-alive");
+        server.expect(requestTo("https://users.example.com/users/1"))
+                .andExpect(method(HttpMethod.GET))
+                .andRespond(withStatus(HttpStatus.NOT_FOUND).contentType(MediaType.APPLICATION_JSON).headers(headers).body(body));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // When
+        long copied = passthroughService.exchange(HttpMethod.GET, "https://users.example.com/users/1", null, response);
+
+        // Then
+        assertEquals(404, response.getStatus());
+        assertEquals(MediaType.APPLICATION_JSON_VALUE, response.getContentType());
+        assertEquals("users", response.getHeader("X-Upstream"));
+        assertNull(response.getHeader(HttpHeaders.CONNECTION));
+        assertEquals(body, response.getContentAsString());
+        assertEquals(body.length(), copied);
+        server.verify();
+    }
+
+    @Test
+    @DisplayName("Should copy bodies larger than the buffer size")
+    void shouldCopyBodiesLargerThanBuffer() {
+        // Given
+        byte[] payload = new byte[10_000];
+        for (int i = 0; i < payload.length; i++) {
+            payload[i] = (byte) i;
+        }
+        server.expect(requestTo("https://files.example.com/blob")).andRespond(withSuccess(payload, MediaType.APPLICATION_OCTET_STREAM));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // When
+        long copied = passthroughService.exchange(HttpMethod.GET, "https://files.example.com/blob", null, response);
+
+        // Then
+        assertEquals(payload.length, copied);
+        assertArrayEquals(payload, response.getContentAsByteArray());
+    }
+
+    @Test
+    @DisplayName("Should stream the raw inbound body upstream for PATCH with its content headers")
+    void shouldStreamRawRequestBody() {
+        // Given
+        String json = "{\"name\":\"patched\"}";
+        MockHttpServletRequest inbound = new MockHttpServletRequest("PATCH", "/api/execution/user-service/users/1");
+        inbound.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        inbound.setContent(json.getBytes());
+        server.expect(requestTo("https://users.example.com/users/1"))
+                .andExpect(method(HttpMethod.PATCH))
+                .andExpect(header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE))
+                .andExpect(content().string(json))
+                .andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // When
+        passthroughService.exchange(HttpMethod.PATCH, "https://users.example.com/users/1", inbound, response);
+
+        // Then
+        assertEquals(200, response.getStatus());
+        server.verify();
+    }
+
+    @Test
+    @DisplayName("Should reject bodies over the configured maximum before contacting upstream")
+    void shouldRejectOversizedBody() {
+        // Given
+        properties.getProxy().setMaxRequestBodySize(1024);
+        MockHttpServletRequest inbound = new MockHttpServletRequest("POST", "/api/execution/user-service/users");
+        inbound.setContent(new byte[2048]);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // When & Then
+        RequestBodyTooLargeException ex = assertThrows(RequestBodyTooLargeException.class,
+                () -> passthroughService.exchange(HttpMethod.POST, "https://users.example.com/users", inbound, response));
+        assertEquals(413, ex.getStatusCode());
+        server.verify();
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.feigngateway.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("PathPatternTrie Tests")
+class PathPatternTrieTest {
+
+    @Test
+    @DisplayName("Should prefer literal over template over wildcard over double wildcard")
+    void shouldPreferMostSpecificPattern() {
+        // Given
+        PathPatternTrie trie = PathPatternTrie.of(List.of("/users/**", "/users/*", "/users/{id}", "/users/me"));
+
+        // When & Then
+        assertEquals("/users/me", trie.match("/users/me").getPattern());
+        assertEquals("/users/{id}", trie.match("/users/42").getPattern());
+        assertEquals("/users/**", trie.match("/users/42/posts").getPattern());
+        assertEquals("/users/**", trie.match("/users").getPattern());
+    }
+
+    @Test
+    @DisplayName("Should backtrack when a more specific branch does not match the full path")
+    void shouldBacktrackToLessSpecificBranch() {
+        // Given
+        PathPatternTrie trie = PathPatternTrie.of(List.of("/users/me/settings", "/users/{id}/posts"));
+
+        // When & Then
+        assertEquals("/users/{id}/posts", trie.match("/users/me/posts").getPattern());
+        assertEquals("/users/me/settings", trie.match("/users/me/settings").getPattern());
+        assertNull(trie.match("/users/me/other"));
+    }
+
+    @Test
+    @DisplayName("Should prefer a continuation after ** over a trailing **")
+    void shouldPreferContinuationAfterDoubleWildcard() {
+        // Given
+        PathPatternTrie trie = PathPatternTrie.of(List.of("/files/**", "/files/**/raw"));
+
+        // When & Then
+        assertEquals("/files/**/raw", trie.match("/files/a/b/raw").getPattern());
+        assertEquals("/files/**", trie.match("/files/a/b/cooked").getPattern());
+    }
+
+    @Test
+    @DisplayName("Should capture template variables from the matched pattern")
+    void shouldCaptureTemplateVariables() {
+        // Given
+        PathPatternTrie trie = PathPatternTrie.of(List.of("/users/{userId}/posts/{postId}"));
+
+        // When
+        PathPattern matched = trie.match("/users/7/posts/99");
+        Map<String, String> variables = matched.extractVariables("/users/7/posts/99");
+
+        // Then
+        assertEquals(Map.of("userId", "7", "postId", "99"), variables);
+    }
+
+    @Test
+    @DisplayName("Should match literal segments regardless of how many siblings exist")
+    void shouldIndexManyLiteralSiblings() {
+        // Given
+        PathPatternTrie trie = new PathPatternTrie();
+        for (int i = 0; i < 1000; i++) {
+            trie.insert("/resource" + i + "/{id}");
+        }
+
+        // When & Then
+        assertEquals(1000, trie.size());
+        assertEquals("/resource999/{id}", trie.match("/resource999/1").getPattern());
+        assertEquals("/resource0/{id}", trie.match("/resource0/1").getPattern());
+        assertNull(trie.match("/resource1000/1"));
+    }
+}
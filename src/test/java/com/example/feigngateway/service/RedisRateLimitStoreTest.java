@@ -0,0 +1,245 @@
+package com.example.feigngateway.service;
+
+import com.example.feigngateway.config.GatewayProperties;
+import com.example.feigngateway.exception.RateLimitExceededException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("RedisRateLimitStore Tests")
+class RedisRateLimitStoreTest {
+
+    private FakeRedisServer server;
+    private RedisRateLimitStore store;
+    private GatewayProperties properties;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new FakeRedisServer();
+        store = new RedisRateLimitStore("localhost", server.getPort(), 500);
+        properties = new GatewayProperties();
+        GatewayProperties.Performance.RateLimiting config = properties.getPerformance().getRateLimiting();
+        config.setEnabled(true);
+        config.setSharedStore(GatewayProperties.SharedStore.REDIS);
+        // One-hour windows keep the whole test inside a single window
+        config.setRequestsPerMinute(1);
+        config.setBurstCapacity(60);
+        config.setClientRequestsPerMinute(10);
+        config.setClientBurstCapacity(600);
+        config.getDistributed().setLeaseSize(10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+        server.close();
+    }
+
+    @Test
+    @DisplayName("Should grant only the permits left below the limit")
+    void shouldGrantPermitsUpToLimit() {
+        // When & Then
+        assertEquals(10, store.acquire("key", 10, 25, 60000));
+        assertEquals(10, store.acquire("key", 10, 25, 60000));
+        assertEquals(5, store.acquire("key", 10, 25, 60000));
+        assertEquals(0, store.acquire("key", 10, 25, 60000));
+        assertEquals(10, store.acquire("other-key", 10, 25, 60000));
+    }
+
+    @Test
+    @DisplayName("Should enforce one limit across gateway nodes with few store round trips")
+    void shouldShareLimitAcrossNodes() {
+        // Given - two gateway nodes sharing the store
+        RequestRateLimiter nodeA = new RequestRateLimiter(properties, store);
+        RequestRateLimiter nodeB = new RequestRateLimiter(properties, store);
+
+        // When - both nodes take turns until the cluster-wide burst of 60 is used
+        int allowed = 0;
+        for (int i = 0; i < 100; i++) {
+            RequestRateLimiter node = i % 2 == 0 ? nodeA : nodeB;
+            allowed += node.tryAcquire("user-service", "client-" + (i % 7)) ? 1 : 0;
+        }
+
+        // Then - leases of 10 mean a round trip per ten checks per key, not one per check
+        assertEquals(60, allowed);
+        assertTrue(server.getCommands() / 2 < 100, "round trips " + server.getCommands() / 2);
+        RateLimitExceededException exception = assertThrows(RateLimitExceededException.class,
+                () -> nodeA.checkLimit("user-service", "client-0"));
+        assertEquals(1, exception.getLimit());
+    }
+
+    @Test
+    @DisplayName("Should fall back to the local limits when the store is unreachable")
+    void shouldFallBackWhenStoreIsDown() {
+        // Given
+        RequestRateLimiter rateLimiter = new RequestRateLimiter(properties, store);
+        assertTrue(rateLimiter.tryAcquire("user-service", "client-a"));
+
+        // When
+        server.close();
+        store.close();
+
+        // Then - the local buckets still admit and limit traffic
+        int allowed = 0;
+        for (int i = 0; i < 100; i++) {
+            allowed += rateLimiter.tryAcquire("post-service", "client-a") ? 1 : 0;
+        }
+        assertEquals(60, allowed);
+        assertEquals(1L, rateLimiter.getStats().get("storeFailures"));
+        assertEquals(true, rateLimiter.getStats().get("usingLocalFallback"));
+    }
+
+    @Test
+    @DisplayName("Should report an unreachable store as UncheckedIOException")
+    void shouldThrowWhenUnreachable() {
+        // Given
+        server.close();
+
+        // When & Then
+        assertThrows(UncheckedIOException.class, () -> store.acquire("key", 1, 10, 60000));
+    }
+
+    /**
+     * Just enough of the Redis protocol for the store: SET with NX (expiry ignored), INCRBY and PING.
+     */
+    private static final class FakeRedisServer implements AutoCloseable {
+        private final ServerSocket serverSocket = new ServerSocket(0);
+        private final Map<String, Long> values = new ConcurrentHashMap<>();
+        private final List<Socket> clients = new ArrayList<>();
+        private final AtomicInteger commands = new AtomicInteger();
+        private final Thread acceptor = new Thread(this::accept, "fake-redis");
+        private volatile boolean closed;
+
+        private FakeRedisServer() throws IOException {
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        private int getPort() {
+            return serverSocket.getLocalPort();
+        }
+
+        private int getCommands() {
+            return commands.get();
+        }
+
+        private void accept() {
+            while (!serverSocket.isClosed()) {
+                try {
+                    Socket client = serverSocket.accept();
+                    // A blocked accept can still take a connection while the server socket is closing
+                    if (closed) {
+                        client.close();
+                        return;
+                    }
+                    synchronized (clients) {
+                        clients.add(client);
+                    }
+                    Thread handler = new Thread(() -> serve(client), "fake-redis-client");
+                    handler.setDaemon(true);
+                    handler.start();
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }
+
+        private void serve(Socket client) {
+            try (client) {
+                InputStream in = new BufferedInputStream(client.getInputStream());
+                OutputStream out = client.getOutputStream();
+                while (true) {
+                    List<String> args = readCommand(in);
+                    if (args == null || closed) {
+                        return;
+                    }
+                    commands.incrementAndGet();
+                    out.write(execute(args).getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                }
+            } catch (IOException e) {
+                // client went away
+            }
+        }
+
+        private synchronized String execute(List<String> args) {
+            switch (args.get(0).toUpperCase()) {
+                case "PING":
+                    return "+PONG\r\n";
+                case "SET":
+                    if (args.contains("NX") && values.containsKey(args.get(1))) {
+                        return "$-1\r\n";
+                    }
+                    values.put(args.get(1), Long.parseLong(args.get(2)));
+                    return "+OK\r\n";
+                case "INCRBY":
+                    return ":" + values.merge(args.get(1), Long.parseLong(args.get(2)), Long::sum) + "\r\n";
+                default:
+                    return "-ERR unknown command\r\n";
+            }
+        }
+
+        private List<String> readCommand(InputStream in) throws IOException {
+            String header = readLine(in);
+            if (header == null) {
+                return null;
+            }
+            int count = Integer.parseInt(header.substring(1));
+            List<String> args = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int length = Integer.parseInt(readLine(in).substring(1));
+                args.add(new String(in.readNBytes(length), StandardCharsets.UTF_8));
+                readLine(in);
+            }
+            return args;
+        }
+
+        private String readLine(InputStream in) throws IOException {
+            StringBuilder line = new StringBuilder();
+            int b;
+            while ((b = in.read()) != '\r') {
+                if (b == -1) {
+                    return null;
+                }
+                line.append((char) b);
+            }
+            in.read();
+            return line.toString();
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            try {
+                serverSocket.close();
+                synchronized (clients) {
+                    for (Socket client : clients) {
+                        client.close();
+                    }
+                }
+                acceptor.join(1000);
+            } catch (IOException e) {
+                // already closed
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
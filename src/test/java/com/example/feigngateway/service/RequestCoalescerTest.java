@@ -0,0 +1,153 @@
+package com.example.feigngateway.service;
+
+import com.example.feigngateway.config.GatewayProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("RequestCoalescer Tests")
+class RequestCoalescerTest {
+
+    private GatewayProperties properties;
+    private PerformanceMetricsService metricsService;
+    private RequestCoalescer coalescer;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        properties = new GatewayProperties();
+        metricsService = new PerformanceMetricsService();
+        coalescer = new RequestCoalescer(properties, metricsService);
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Should send one upstream call for identical concurrent requests and share its result")
+    void shouldShareInFlightCall() throws Exception {
+        // Given - the first call is held until all waiters have joined
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> leader = executor.submit(() -> coalescer.execute("user-service", "users/1", () -> {
+            calls.incrementAndGet();
+            await(release);
+            return "user-1";
+        }, shared -> true));
+        awaitInFlight();
+
+        // When
+        List<Future<String>> waiters = new ArrayList<>();
+        for (int i = 0; i < 9; i++) {
+            waiters.add(executor.submit(() -> coalescer.execute("user-service", "users/1", () -> {
+                calls.incrementAndGet();
+                return "independent";
+            }, shared -> true)));
+        }
+        Thread.sleep(50);
+        release.countDown();
+
+        // Then
+        assertEquals("user-1", leader.get(1, TimeUnit.SECONDS));
+        for (Future<String> waiter : waiters) {
+            assertEquals("user-1", waiter.get(1, TimeUnit.SECONDS));
+        }
+        assertEquals(1, calls.get());
+        PerformanceMetricsService.ServiceMetrics metrics = metricsService.getServiceMetrics("user-service");
+        assertEquals(10, metrics.getCoalescableRequests());
+        assertEquals(9, metrics.getCoalescedRequests());
+        assertEquals(90.0, metrics.getCoalescedRate());
+        assertEquals(0, coalescer.getStats().get("inFlight"));
+    }
+
+    @Test
+    @DisplayName("Should call independently after the wait limit, a failed call or an unusable result")
+    void shouldFallBackToIndependentCall() throws Exception {
+        // Given
+        properties.getPerformance().getCoalescing().setMaxWait(20);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> slow = executor.submit(() -> coalescer.execute("user-service", "users/1", () -> {
+            await(release);
+            return "slow";
+        }, shared -> true));
+        awaitInFlight();
+
+        // When / Then - the wait runs out
+        assertEquals("own", coalescer.execute("user-service", "users/1", () -> "own", shared -> true));
+        release.countDown();
+        assertEquals("slow", slow.get(1, TimeUnit.SECONDS));
+
+        // The shared call fails
+        properties.getPerformance().getCoalescing().setMaxWait(1000);
+        CountDownLatch failing = new CountDownLatch(1);
+        Future<String> failed = executor.submit(() -> coalescer.execute("user-service", "users/2", () -> {
+            await(failing);
+            throw new IllegalStateException("upstream down");
+        }, shared -> true));
+        awaitInFlight();
+        Future<String> waiter = executor.submit(() -> coalescer.execute("user-service", "users/2", () -> "own", shared -> true));
+        Thread.sleep(20);
+        failing.countDown();
+        assertEquals("own", waiter.get(1, TimeUnit.SECONDS));
+        assertThrows(Exception.class, () -> failed.get(1, TimeUnit.SECONDS));
+
+        // The shared result doesn't fit the waiter
+        CountDownLatch mismatch = new CountDownLatch(1);
+        executor.submit(() -> coalescer.execute("user-service", "users/3", () -> {
+            await(mismatch);
+            return "other-variant";
+        }, shared -> true));
+        awaitInFlight();
+        Future<String> picky = executor.submit(() -> coalescer.execute("user-service", "users/3", () -> "own",
+                shared -> !shared.equals("other-variant")));
+        Thread.sleep(20);
+        mismatch.countDown();
+        assertEquals("own", picky.get(1, TimeUnit.SECONDS));
+
+        assertEquals(3, metricsService.getServiceMetrics("user-service").getCoalescingFallbacks());
+        assertEquals(0, metricsService.getServiceMetrics("user-service").getCoalescedRequests());
+    }
+
+    @Test
+    @DisplayName("Should run every call when coalescing is disabled")
+    void shouldPassThroughWhenDisabled() {
+        properties.getPerformance().getCoalescing().setEnabled(false);
+        AtomicInteger calls = new AtomicInteger();
+
+        coalescer.execute("user-service", "users/1", calls::incrementAndGet, shared -> true);
+        coalescer.execute("user-service", "users/1", calls::incrementAndGet, shared -> true);
+
+        assertEquals(2, calls.get());
+        assertEquals(0, metricsService.getServiceMetrics("user-service").getCoalescableRequests());
+    }
+
+    private void awaitInFlight() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while ((int) coalescer.getStats().get("inFlight") == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
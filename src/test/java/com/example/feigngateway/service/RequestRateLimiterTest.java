@@ -0,0 +1,179 @@
+package com.example.feigngateway.service;
+
+import com.example.feigngateway.config.GatewayProperties;
+import com.example.feigngateway.exception.RateLimitExceededException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("RequestRateLimiter Tests")
+class RequestRateLimiterTest {
+
+    private GatewayProperties properties;
+    private RequestRateLimiter rateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        properties = new GatewayProperties();
+        GatewayProperties.Performance.RateLimiting config = properties.getPerformance().getRateLimiting();
+        config.setEnabled(true);
+        config.setRequestsPerMinute(600);
+        config.setBurstCapacity(10);
+        config.setClientRequestsPerMinute(60);
+        config.setClientBurstCapacity(3);
+        rateLimiter = new RequestRateLimiter(properties);
+    }
+
+    @Test
+    @DisplayName("Should allow the client burst and then reject with the time until the next token")
+    void shouldRejectOnceClientBurstIsUsed() {
+        // Given
+        for (int i = 0; i < 3; i++) {
+            rateLimiter.checkLimit("user-service", "client-a");
+        }
+
+        // When
+        RateLimitExceededException exception = assertThrows(RateLimitExceededException.class,
+                () -> rateLimiter.checkLimit("user-service", "client-a"));
+
+        // Then - 60 requests per minute refill one token per second
+        assertEquals("user-service", exception.getServiceName());
+        assertEquals(60, exception.getLimit());
+        assertEquals(1, exception.getRetryAfterSeconds());
+        assertEquals(429, exception.getStatusCode());
+    }
+
+    @Test
+    @DisplayName("Should keep client buckets independent but share the service bucket")
+    void shouldLimitServiceAcrossClients() {
+        // When - ten clients each take one token; the eleventh exhausts the service burst
+        for (int i = 0; i < 10; i++) {
+            rateLimiter.checkLimit("user-service", "client-" + i);
+        }
+        RateLimitExceededException exception = assertThrows(RateLimitExceededException.class,
+                () -> rateLimiter.checkLimit("user-service", "client-10"));
+
+        // Then
+        assertEquals(600, exception.getLimit());
+        assertDoesNotThrow(() -> rateLimiter.checkLimit("post-service", "client-0"));
+    }
+
+    @Test
+    @DisplayName("Should refill tokens over time")
+    void shouldRefillOverTime() throws InterruptedException {
+        // Given
+        properties.getPerformance().getRateLimiting().setClientRequestsPerMinute(600);
+        assertEquals(3, countAllowed("user-service", "client-a", 5));
+
+        // When - 600 per minute refills a token every 100 ms
+        Thread.sleep(250);
+
+        // Then
+        int allowed = countAllowed("user-service", "client-a", 5);
+        assertTrue(allowed >= 2 && allowed <= 3, "allowed " + allowed);
+    }
+
+    @Test
+    @DisplayName("Should hand out exactly the burst under contention")
+    void shouldNotOverAdmitUnderContention() throws Exception {
+        // Given
+        properties.getPerformance().getRateLimiting().setClientBurstCapacity(100);
+        properties.getPerformance().getRateLimiting().setBurstCapacity(1000);
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        List<Callable<Boolean>> attempts = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            attempts.add(() -> {
+                try {
+                    rateLimiter.checkLimit("user-service", "client-a");
+                    return true;
+                } catch (RateLimitExceededException e) {
+                    return false;
+                }
+            });
+        }
+
+        // When
+        int allowed = 0;
+        for (Future<Boolean> attempt : executor.invokeAll(attempts)) {
+            allowed += attempt.get() ? 1 : 0;
+        }
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+
+        // Then - the refill during the test is a few tokens at most at 60 per minute
+        assertTrue(allowed >= 100 && allowed <= 102, "allowed " + allowed);
+    }
+
+    @Test
+    @DisplayName("Should bound the number of tracked keys")
+    void shouldEvictBucketsBeyondMaxTrackedKeys() {
+        // Given
+        properties.getPerformance().getRateLimiting().setMaxTrackedKeys(100);
+        properties.getPerformance().getRateLimiting().setBurstCapacity(1000);
+
+        // When
+        for (int i = 0; i < 1000; i++) {
+            rateLimiter.checkLimit("user-service", "client-" + i);
+        }
+
+        // Then
+        assertTrue((Integer) rateLimiter.getStats().get("trackedKeys") <= 101);
+        assertTrue((Long) rateLimiter.getStats().get("evicted") > 0);
+    }
+
+    @Test
+    @DisplayName("Should key clients by header and fall back to the remote address")
+    void shouldResolveClientKeyFromRequest() {
+        // Given
+        MockHttpServletRequest withHeader = new MockHttpServletRequest();
+        withHeader.addHeader("X-Client-Id", "client-a");
+        MockHttpServletRequest withoutHeader = new MockHttpServletRequest();
+        withoutHeader.setRemoteAddr("10.0.0.1");
+
+        // When
+        for (int i = 0; i < 3; i++) {
+            rateLimiter.checkLimit("user-service", withHeader);
+        }
+
+        // Then
+        assertThrows(RateLimitExceededException.class, () -> rateLimiter.checkLimit("user-service", "client-a"));
+        assertDoesNotThrow(() -> rateLimiter.checkLimit("user-service", withoutHeader));
+    }
+
+    @Test
+    @DisplayName("Should not limit when disabled")
+    void shouldNotLimitWhenDisabled() {
+        // Given
+        properties.getPerformance().getRateLimiting().setEnabled(false);
+
+        // When & Then
+        for (int i = 0; i < 100; i++) {
+            rateLimiter.checkLimit("user-service", "client-a");
+        }
+        assertEquals(0, rateLimiter.getStats().get("trackedKeys"));
+    }
+
+    private int countAllowed(String serviceName, String clientKey, int attempts) {
+        int allowed = 0;
+        for (int i = 0; i < attempts; i++) {
+            try {
+                rateLimiter.checkLimit(serviceName, clientKey);
+                allowed++;
+            } catch (RateLimitExceededException e) {
+                // counted as rejected
+            }
+        }
+        return allowed;
+    }
+}
@@ -0,0 +1,431 @@
+package com.example.feigngateway.service;
+
+import com.example.feigngateway.config.GatewayProperties;
+import com.example.feigngateway.config.GatewayWhitelistProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.ConnectException;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.*;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.*;
+
+@DisplayName("ResponseCacheService Tests")
+class ResponseCacheServiceTest {
+
+    private static final String URL = "https://users.example.com/users/1";
+
+    private RestTemplate restTemplate;
+    private MockRestServiceServer server;
+    private GatewayProperties properties;
+    private GatewayWhitelistProperties.ServiceConfig serviceConfig;
+    private PerformanceMetricsService metricsService;
+    private PassthroughService passthroughService;
+    private ResponseCacheService cacheService;
+
+    @BeforeEach
+    void setUp() {
+        restTemplate = new RestTemplate();
+        server = MockRestServiceServer.bindTo(restTemplate).ignoreExpectOrder(true).build();
+        properties = new GatewayProperties();
+        serviceConfig = new GatewayWhitelistProperties.ServiceConfig();
+        serviceConfig.setName("user-service");
+        metricsService = new PerformanceMetricsService();
+        passthroughService = new PassthroughService(restTemplate, properties);
+        cacheService = new ResponseCacheService(properties, whitelistProperties(), metricsService, Runnable::run);
+    }
+
+    @Test
+    @DisplayName("Should serve a response with max-age from the cache until it expires")
+    void shouldServeFreshResponseFromCache() {
+        // Given
+        server.expect(ExpectedCount.once(), requestTo(URL))
+                .andRespond(withSuccess("{\"id\":1}", MediaType.APPLICATION_JSON).headers(cacheControl("max-age=60")));
+
+        // When
+        MockHttpServletResponse first = forward(new MockHttpServletRequest());
+        MockHttpServletResponse second = forward(new MockHttpServletRequest());
+
+        // Then - the upstream was called once and the hit carries the same bytes
+        server.verify();
+        assertArrayEquals(first.getContentAsByteArray(), second.getContentAsByteArray());
+        assertEquals(MediaType.APPLICATION_JSON_VALUE, second.getContentType());
+        assertEquals("0", second.getHeader(HttpHeaders.AGE));
+        assertEquals(8, second.getContentLength());
+        PerformanceMetricsService.ServiceMetrics metrics = metricsService.getServiceMetrics("user-service");
+        assertEquals(1, metrics.getCacheHits());
+        assertEquals(1, metrics.getCacheMisses());
+        assertEquals(50.0, metrics.getCacheHitRate());
+        assertEquals(1L, cacheService.getStats().get("entries"));
+    }
+
+    @Test
+    @DisplayName("Should not store responses the upstream marks private or no-store, or that set cookies")
+    void shouldRespectUpstreamCacheControl() {
+        // Given
+        HttpHeaders withCookie = cacheControl("max-age=60");
+        withCookie.add(HttpHeaders.SET_COOKIE, "session=1");
+        server.expect(ExpectedCount.twice(), requestTo("https://users.example.com/users/private"))
+                .andRespond(withSuccess("a", MediaType.TEXT_PLAIN).headers(cacheControl("private, max-age=60")));
+        server.expect(ExpectedCount.twice(), requestTo("https://users.example.com/users/none"))
+                .andRespond(withSuccess("b", MediaType.TEXT_PLAIN).headers(cacheControl("no-store")));
+        server.expect(ExpectedCount.twice(), requestTo("https://users.example.com/users/cookie"))
+                .andRespond(withSuccess("c", MediaType.TEXT_PLAIN).headers(withCookie));
+        server.expect(ExpectedCount.twice(), requestTo("https://users.example.com/users/silent"))
+                .andRespond(withSuccess("d", MediaType.TEXT_PLAIN));
+
+        // When
+        for (String path : List.of("private", "none", "cookie", "silent")) {
+            forward("https://users.example.com/users/" + path, new MockHttpServletRequest());
+            forward("https://users.example.com/users/" + path, new MockHttpServletRequest());
+        }
+
+        // Then
+        server.verify();
+        assertEquals(0L, cacheService.getStats().get("entries"));
+    }
+
+    @Test
+    @DisplayName("Should cache responses without freshness headers for the route ttl only")
+    void shouldApplyRouteTtl() {
+        // Given
+        GatewayWhitelistProperties.RouteCache routeCache = new GatewayWhitelistProperties.RouteCache();
+        routeCache.setEndpoint("/users/**");
+        routeCache.setTtl(30);
+        serviceConfig.setRouteCaches(List.of(routeCache));
+        server.expect(ExpectedCount.once(), requestTo(URL)).andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
+
+        // When
+        forward(new MockHttpServletRequest());
+        MockHttpServletResponse hit = forward(new MockHttpServletRequest());
+
+        // Then
+        server.verify();
+        assertEquals("{}", new String(hit.getContentAsByteArray()));
+
+        // A client demanding a response from the origin skips the lookup; a disabled route bypasses the cache
+        assertFalse(cacheService.cacheable(route(), "GET", URL, name -> "Cache-Control".equals(name) ? "no-cache" : null).lookup());
+        routeCache.setEnabled(false);
+        assertNull(cacheService.cacheable(route(), "GET", URL, name -> null));
+        assertNull(cacheService.cacheable(route(), "POST", URL, name -> null));
+    }
+
+    @Test
+    @DisplayName("Should key on canonical query order and match the Vary headers of the stored response")
+    void shouldMatchQueryOrderAndVary() {
+        // Given
+        HttpHeaders headers = cacheControl("max-age=60");
+        headers.add(HttpHeaders.VARY, "Accept-Language");
+        server.expect(ExpectedCount.twice(), requestTo(startsWith("https://users.example.com/users?")))
+                .andRespond(withSuccess("[]", MediaType.APPLICATION_JSON).headers(headers));
+        MockHttpServletRequest english = new MockHttpServletRequest();
+        english.addHeader(HttpHeaders.ACCEPT_LANGUAGE, "en");
+        MockHttpServletRequest german = new MockHttpServletRequest();
+        german.addHeader(HttpHeaders.ACCEPT_LANGUAGE, "de");
+
+        // When
+        forward("https://users.example.com/users?b=2&a=1", english);
+        forward("https://users.example.com/users?a=1&b=2", english);
+        forward("https://users.example.com/users?a=1&b=2", german);
+
+        // Then - the reordered query hit, the other language went upstream
+        server.verify();
+        PerformanceMetricsService.ServiceMetrics metrics = metricsService.getServiceMetrics("user-service");
+        assertEquals(1, metrics.getCacheHits());
+        assertEquals(2, metrics.getCacheMisses());
+        assertEquals(ResponseCacheService.cacheKey("user-service", "https://users.example.com/users?b=2&a=1"),
+                ResponseCacheService.cacheKey("user-service", "https://users.example.com/users?a=1&b=2"));
+    }
+
+    @Test
+    @DisplayName("Should relay but not store bodies over the entry size limit")
+    void shouldSkipOversizedBodies() {
+        // Given
+        properties.getPerformance().getCache().setMaxEntrySize(1024);
+        server.expect(ExpectedCount.twice(), requestTo(URL))
+                .andRespond(withSuccess(new byte[4096], MediaType.APPLICATION_OCTET_STREAM).headers(cacheControl("max-age=60")));
+
+        // When
+        MockHttpServletResponse first = forward(new MockHttpServletRequest());
+        forward(new MockHttpServletRequest());
+
+        // Then
+        server.verify();
+        assertEquals(4096, first.getContentAsByteArray().length);
+        Map<String, Object> stats = cacheService.getStats();
+        assertEquals(0L, stats.get("entries"));
+        assertEquals(0L, stats.get("hits"));
+    }
+
+    @Test
+    @DisplayName("Should serve a stale response within stale-while-revalidate and refresh it in the background")
+    void shouldServeStaleWhileRevalidating() throws Exception {
+        // Given - ordered, so the refresh gets the second response
+        server = MockRestServiceServer.bindTo(restTemplate).build();
+        server.expect(ExpectedCount.once(), requestTo(URL))
+                .andRespond(withSuccess("v1", MediaType.TEXT_PLAIN).headers(cacheControl("max-age=0, stale-while-revalidate=60")));
+        server.expect(ExpectedCount.once(), requestTo(URL))
+                .andRespond(withSuccess("v2", MediaType.TEXT_PLAIN).headers(cacheControl("max-age=60")));
+
+        // When
+        forward(new MockHttpServletRequest());
+        MockHttpServletResponse stale = forward(new MockHttpServletRequest());
+        MockHttpServletResponse refreshed = forward(new MockHttpServletRequest());
+
+        // Then - the stale hit triggered the only other upstream call, whose response answered the third request
+        server.verify();
+        assertEquals("v1", stale.getContentAsString());
+        assertEquals("v2", refreshed.getContentAsString());
+        PerformanceMetricsService.ServiceMetrics metrics = metricsService.getServiceMetrics("user-service");
+        assertEquals(2, metrics.getCacheHits());
+        assertEquals(1, metrics.getStaleWhileRevalidateServed());
+        assertEquals(0, cacheService.getStats().get("refreshesInFlight"));
+    }
+
+    @Test
+    @DisplayName("Should serve a stale response within stale-if-error instead of an upstream 5xx or failure")
+    void shouldServeStaleOnError() throws Exception {
+        // Given - the route's window replaces the upstream's
+        GatewayWhitelistProperties.RouteCache routeCache = new GatewayWhitelistProperties.RouteCache();
+        routeCache.setEndpoint("/users/**");
+        routeCache.setStaleIfError(600);
+        serviceConfig.setRouteCaches(List.of(routeCache));
+        server = MockRestServiceServer.bindTo(restTemplate).build();
+        server.expect(ExpectedCount.once(), requestTo(URL))
+                .andRespond(withSuccess("v1", MediaType.TEXT_PLAIN).headers(cacheControl("max-age=0, stale-if-error=1")));
+        server.expect(ExpectedCount.once(), requestTo(URL)).andRespond(withStatus(HttpStatus.SERVICE_UNAVAILABLE));
+        server.expect(ExpectedCount.once(), requestTo(URL)).andRespond(withException(new ConnectException("refused")));
+
+        // When
+        forward(new MockHttpServletRequest());
+        MockHttpServletResponse on5xx = forward(new MockHttpServletRequest());
+        MockHttpServletResponse onFailure = forward(new MockHttpServletRequest());
+
+        // Then
+        server.verify();
+        assertEquals(200, on5xx.getStatus());
+        assertEquals("v1", on5xx.getContentAsString());
+        assertEquals("v1", onFailure.getContentAsString());
+        assertEquals(2, metricsService.getServiceMetrics("user-service").getStaleIfErrorServed());
+        assertEquals(0, metricsService.getServiceMetrics("user-service").getCacheHits());
+    }
+
+    @Test
+    @DisplayName("Should not keep responses the upstream marks must-revalidate past their freshness")
+    void shouldNotServeStaleWhenRevalidationRequired() {
+        // Given
+        properties.getPerformance().getCache().setStaleWhileRevalidate(60);
+        properties.getPerformance().getCache().setStaleIfError(600);
+        server.expect(ExpectedCount.twice(), requestTo(URL))
+                .andRespond(withSuccess("v1", MediaType.TEXT_PLAIN).headers(cacheControl("max-age=0, must-revalidate")));
+
+        // When
+        forward(new MockHttpServletRequest());
+        forward(new MockHttpServletRequest());
+
+        // Then
+        server.verify();
+        assertEquals(0L, cacheService.getStats().get("entries"));
+    }
+
+    @Test
+    @DisplayName("Should revalidate a stale response with its validators and keep it on 304")
+    void shouldRevalidateStaleResponse() throws Exception {
+        // Given
+        HttpHeaders headers = cacheControl("max-age=0");
+        headers.setETag("\"v1\"");
+        headers.set(HttpHeaders.LAST_MODIFIED, "Wed, 14 Oct 2026 10:00:00 GMT");
+        HttpHeaders notModified = cacheControl("max-age=60");
+        notModified.set("X-Revision", "2");
+        server = MockRestServiceServer.bindTo(restTemplate).build();
+        server.expect(ExpectedCount.once(), requestTo(URL))
+                .andExpect(headerDoesNotExist(HttpHeaders.IF_NONE_MATCH))
+                .andRespond(withSuccess("v1", MediaType.TEXT_PLAIN).headers(headers));
+        server.expect(ExpectedCount.once(), requestTo(URL))
+                .andExpect(header(HttpHeaders.IF_NONE_MATCH, "\"v1\""))
+                .andExpect(header(HttpHeaders.IF_MODIFIED_SINCE, "Wed, 14 Oct 2026 10:00:00 GMT"))
+                .andRespond(withStatus(HttpStatus.NOT_MODIFIED).headers(notModified));
+
+        // When
+        forward(new MockHttpServletRequest());
+        MockHttpServletResponse revalidated = forward(new MockHttpServletRequest());
+        MockHttpServletResponse hit = forward(new MockHttpServletRequest());
+
+        // Then - the 304 freshened the stored response, which answered both requests
+        server.verify();
+        assertEquals(200, revalidated.getStatus());
+        assertEquals("v1", revalidated.getContentAsString());
+        assertEquals("2", revalidated.getHeader("X-Revision"));
+        assertEquals("v1", hit.getContentAsString());
+        PerformanceMetricsService.ServiceMetrics metrics = metricsService.getServiceMetrics("user-service");
+        assertEquals(1, metrics.getCacheRevalidations());
+        assertEquals(1, metrics.getCacheHits());
+    }
+
+    @Test
+    @DisplayName("Should answer a client's conditional request with 304 from a fresh cached response")
+    void shouldAnswerConditionalRequestFromCache() throws Exception {
+        // Given
+        HttpHeaders headers = cacheControl("max-age=60");
+        headers.setETag("\"v1\"");
+        headers.set(HttpHeaders.LAST_MODIFIED, "Wed, 14 Oct 2026 10:00:00 GMT");
+        server.expect(ExpectedCount.once(), requestTo(URL))
+                .andRespond(withSuccess("v1", MediaType.TEXT_PLAIN).headers(headers));
+        forward(new MockHttpServletRequest());
+        MockHttpServletRequest matchingTag = new MockHttpServletRequest();
+        matchingTag.addHeader(HttpHeaders.IF_NONE_MATCH, "\"v0\", W/\"v1\"");
+        MockHttpServletRequest unmodified = new MockHttpServletRequest();
+        unmodified.addHeader(HttpHeaders.IF_MODIFIED_SINCE, "Thu, 15 Oct 2026 10:00:00 GMT");
+        MockHttpServletRequest otherTag = new MockHttpServletRequest();
+        otherTag.addHeader(HttpHeaders.IF_NONE_MATCH, "\"v0\"");
+        otherTag.addHeader(HttpHeaders.IF_MODIFIED_SINCE, "Thu, 15 Oct 2026 10:00:00 GMT");
+
+        // When
+        MockHttpServletResponse byTag = forward(matchingTag);
+        MockHttpServletResponse byDate = forward(unmodified);
+        MockHttpServletResponse full = forward(otherTag);
+
+        // Then - If-None-Match takes precedence over If-Modified-Since
+        server.verify();
+        assertEquals(304, byTag.getStatus());
+        assertEquals(0, byTag.getContentAsByteArray().length);
+        assertEquals("\"v1\"", byTag.getHeader(HttpHeaders.ETAG));
+        assertNull(byTag.getContentType());
+        assertEquals(304, byDate.getStatus());
+        assertEquals(200, full.getStatus());
+        assertEquals("v1", full.getContentAsString());
+    }
+
+    @Test
+    @DisplayName("Should keep large bodies in the off-heap tier and serve hits from it")
+    void shouldServeLargeBodiesFromOffHeapTier() throws Exception {
+        // Given - bodies of 4 KB and more go off-heap, up to 64 KB even though the heap tier stops at 16 KB
+        GatewayProperties.Performance.Cache cache = properties.getPerformance().getCache();
+        cache.setMaxEntrySize(16384);
+        cache.getOffHeap().setEnabled(true);
+        cache.getOffHeap().setCapacity(16777216);
+        cache.getOffHeap().setSlabSize(1048576);
+        cache.getOffHeap().setBlockSize(1024);
+        cache.getOffHeap().setMinEntrySize(4096);
+        cache.getOffHeap().setMaxEntrySize(65536);
+        cacheService = new ResponseCacheService(properties, whitelistProperties(), metricsService, Runnable::run);
+        byte[] large = new byte[40000];
+        new Random(7).nextBytes(large);
+        server.expect(ExpectedCount.once(), requestTo(URL))
+                .andRespond(withSuccess(large, MediaType.APPLICATION_OCTET_STREAM).headers(cacheControl("max-age=60")));
+        server.expect(ExpectedCount.once(), requestTo("https://users.example.com/users/small"))
+                .andRespond(withSuccess("{}", MediaType.APPLICATION_JSON).headers(cacheControl("max-age=60")));
+
+        // When
+        forward(new MockHttpServletRequest());
+        MockHttpServletResponse offHeapHit = forward(new MockHttpServletRequest());
+        forward("https://users.example.com/users/small", new MockHttpServletRequest());
+        forward("https://users.example.com/users/small", new MockHttpServletRequest());
+
+        // Then
+        server.verify();
+        assertArrayEquals(large, offHeapHit.getContentAsByteArray());
+        assertEquals(40000, offHeapHit.getContentLength());
+        Map<String, Object> stats = cacheService.getStats();
+        assertEquals(1L, stats.get("entries"));
+        assertEquals(25.0, stats.get("heapHitRate"));
+        assertEquals(25.0, stats.get("offHeapHitRate"));
+        @SuppressWarnings("unchecked")
+        Map<String, Object> offHeap = (Map<String, Object>) stats.get("offHeap");
+        assertEquals(1L, offHeap.get("entries"));
+        assertEquals(40960L, offHeap.get("usedBytes"));
+        assertEquals(1048576L, offHeap.get("allocatedBytes"));
+        assertEquals(25.0, metricsService.getServiceMetrics("user-service").getOffHeapCacheHitRate());
+
+        // Invalidation frees the blocks
+        cacheService.invalidate(route(), URL);
+        assertEquals(0L, ((Map<?, ?>) cacheService.getStats().get("offHeap")).get("usedBytes"));
+    }
+
+    private MockHttpServletResponse forward(MockHttpServletRequest request) {
+        return forward(URL, request);
+    }
+
+    // What GatewayService does for a passthrough GET, minus the upstream protections
+    private MockHttpServletResponse forward(String url, MockHttpServletRequest request) {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        ResponseCacheService.CacheableRequest cacheable = cacheService.cacheable(route(), "GET", url, request::getHeader);
+        CachedResponse cached = cacheService.get(cacheable);
+        if (cached != null) {
+            if (!cached.isFresh(System.nanoTime())) {
+                cacheService.refreshAsync(cacheable, () -> {
+                    ResponseCapture refresh = cacheService.capture();
+                    HttpHeaders notModified = passthroughService.revalidate(url, cacheService.validators(cached), null, null,
+                            refresh, status -> status >= 500);
+                    return notModified != null
+                            ? cacheService.freshen(route(), cached, notModified)
+                            : cacheService.snapshot(route(), refresh, cached.getVaryValues()::get);
+                });
+            }
+            relay(cached, request, response);
+            return response;
+        }
+        CachedResponse stored = cacheService.peek(cacheable);
+        CachedResponse fallback = stored != null && stored.isUsableOnError(System.nanoTime()) ? stored : null;
+        ResponseCapture capture = cacheService.capture();
+        HttpHeaders notModified;
+        try {
+            notModified = passthroughService.revalidate(url, cacheService.validators(stored), request, response, capture,
+                    status -> fallback != null && status >= 500);
+        } catch (RuntimeException e) {
+            if (fallback == null) {
+                throw e;
+            }
+            cacheService.recordStaleIfError(cacheable);
+            relay(fallback, request, response);
+            return response;
+        }
+        CachedResponse fetched = notModified != null
+                ? cacheService.freshen(route(), stored, notModified)
+                : cacheService.snapshot(route(), capture, request::getHeader);
+        cacheService.put(cacheable, fetched);
+        if (notModified != null) {
+            relay(fetched, request, response);
+        }
+        return response;
+    }
+
+    private void relay(CachedResponse cached, MockHttpServletRequest request, MockHttpServletResponse response) {
+        if (cacheService.notModified(cached, request::getHeader)) {
+            passthroughService.relayNotModified(cached, response);
+        } else {
+            passthroughService.relay(cached, response);
+        }
+    }
+
+    private GatewayWhitelistProperties whitelistProperties() {
+        GatewayWhitelistProperties whitelistProperties = new GatewayWhitelistProperties();
+        whitelistProperties.setServices(List.of(serviceConfig));
+        return whitelistProperties;
+    }
+
+    private ResolvedRoute route() {
+        return new ResolvedRoute(serviceConfig, "/users/**", URL);
+    }
+
+    private static HttpHeaders cacheControl(String value) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setCacheControl(value);
+        return headers;
+    }
+}
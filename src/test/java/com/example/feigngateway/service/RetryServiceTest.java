@@ -0,0 +1,150 @@
+package com.example.feigngateway.service;
+
+import com.example.feigngateway.config.GatewayProperties;
+import com.example.feigngateway.config.GatewayWhitelistProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("RetryService Tests")
+class RetryServiceTest {
+
+    private GatewayProperties properties;
+    private GatewayWhitelistProperties whitelistProperties;
+    private PerformanceMetricsService metricsService;
+    private RetryService retryService;
+
+    @BeforeEach
+    void setUp() {
+        properties = new GatewayProperties();
+        properties.getPerformance().getRetry().setInitialBackoff(0);
+        properties.getPerformance().getRetry().setMaxBackoff(0);
+        whitelistProperties = new GatewayWhitelistProperties();
+        metricsService = new PerformanceMetricsService();
+        retryService = new RetryService(properties, whitelistProperties, metricsService);
+    }
+
+    @Test
+    @DisplayName("Should retry connection failures and retryable statuses up to the attempt limit")
+    void shouldRetryUntilSuccess() {
+        // Given
+        AtomicInteger calls = new AtomicInteger();
+
+        // When
+        String result = retryService.execute("user-service", true, () -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new ResourceAccessException("Connection refused");
+            }
+            if (calls.get() == 2) {
+                throw new HttpServerErrorException(HttpStatus.BAD_GATEWAY);
+            }
+            return "ok";
+        });
+
+        // Then
+        assertEquals("ok", result);
+        assertEquals(3, calls.get());
+        PerformanceMetricsService.ServiceMetrics metrics = metricsService.getServiceMetrics("user-service");
+        assertEquals(3, metrics.getUpstreamAttempts());
+        assertEquals(2, metrics.getFailedAttempts());
+        assertEquals(2, metrics.getRetries());
+        assertEquals(1, metrics.getRetrySuccesses());
+        assertTrue(metricsService.getServiceStats("user-service").contains("Retries: 2"));
+    }
+
+    @Test
+    @DisplayName("Should give up after max attempts and not retry other failures")
+    void shouldStopAtMaxAttempts() {
+        // Given
+        AtomicInteger calls = new AtomicInteger();
+
+        // When / Then
+        assertThrows(ResourceAccessException.class, () -> retryService.execute("user-service", true, () -> {
+            calls.incrementAndGet();
+            throw new ResourceAccessException("Read timed out");
+        }));
+        assertEquals(3, calls.get());
+
+        calls.set(0);
+        assertThrows(HttpServerErrorException.class, () -> retryService.execute("user-service", true, () -> {
+            calls.incrementAndGet();
+            throw new HttpServerErrorException(HttpStatus.INTERNAL_SERVER_ERROR);
+        }));
+        assertThrows(HttpClientErrorException.class, () -> retryService.execute("user-service", true, () -> {
+            calls.incrementAndGet();
+            throw new HttpClientErrorException(HttpStatus.NOT_FOUND);
+        }));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    @DisplayName("Should only replay idempotent methods or requests with an idempotency key")
+    void shouldRetryOnlyReplayableRequests() {
+        // Given
+        assertTrue(retryService.isReplayable("GET", null));
+        assertTrue(retryService.isReplayable("put", null));
+        assertTrue(retryService.isReplayable("POST", "order-42"));
+        assertFalse(retryService.isReplayable("POST", null));
+        assertFalse(retryService.isReplayable("PATCH", " "));
+        AtomicInteger calls = new AtomicInteger();
+
+        // When / Then
+        assertThrows(ResourceAccessException.class, () -> retryService.execute("user-service",
+            retryService.isReplayable("POST", null), () -> {
+                calls.incrementAndGet();
+                throw new ResourceAccessException("Connection reset");
+            }));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    @DisplayName("Should cap retries with the budget refilled by live traffic")
+    void shouldEnforceRetryBudget() {
+        // Given - a budget of two retries, earning one per ten requests
+        properties.getPerformance().getRetry().setBudgetCapacity(2);
+        properties.getPerformance().getRetry().setBudgetPercent(10);
+        properties.getPerformance().getRetry().setMaxAttempts(10);
+        AtomicInteger calls = new AtomicInteger();
+
+        // When - the upstream is down
+        for (int i = 0; i < 20; i++) {
+            assertThrows(ResourceAccessException.class, () -> retryService.execute("user-service", true, () -> {
+                calls.incrementAndGet();
+                throw new ResourceAccessException("Connection refused");
+            }));
+        }
+
+        // Then - 20 first attempts plus the two stored retries and those earned since, nowhere near 200 calls
+        assertTrue(calls.get() <= 24, "calls " + calls.get());
+        assertTrue(metricsService.getServiceMetrics("user-service").getRetryBudgetExhausted() >= 18);
+    }
+
+    @Test
+    @DisplayName("Should apply per-service overrides")
+    void shouldApplyServiceOverride() {
+        // Given
+        GatewayWhitelistProperties.Retry override = new GatewayWhitelistProperties.Retry();
+        override.setEnabled(false);
+        GatewayWhitelistProperties.ServiceConfig serviceConfig = new GatewayWhitelistProperties.ServiceConfig();
+        serviceConfig.setName("payment-service");
+        serviceConfig.setRetry(override);
+        whitelistProperties.setServices(List.of(serviceConfig));
+        AtomicInteger calls = new AtomicInteger();
+
+        // When / Then
+        assertThrows(ResourceAccessException.class, () -> retryService.execute("payment-service", true, () -> {
+            calls.incrementAndGet();
+            throw new ResourceAccessException("Connection refused");
+        }));
+        assertEquals(1, calls.get());
+    }
+}
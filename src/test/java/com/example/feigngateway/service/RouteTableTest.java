@@ -0,0 +1,92 @@
+package com.example.feigngateway.service;
+
+import com.example.feigngateway.config.GatewayWhitelistProperties;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("RouteTable Tests")
+class RouteTableTest {
+
+    private static GatewayWhitelistProperties.ServiceConfig service(String name, String baseUrl, String... endpoints) {
+        GatewayWhitelistProperties.ServiceConfig config = new GatewayWhitelistProperties.ServiceConfig();
+        config.setName(name);
+        config.setBaseUrl(baseUrl);
+        config.setEndpoints(List.of(endpoints));
+        return config;
+    }
+
+    @Test
+    @DisplayName("Should resolve service config, matched pattern and target URL in one lookup")
+    void shouldResolveRouteInOneLookup() {
+        // Given
+        RouteTable table = RouteTable.build(List.of(
+                service("user-service", "https://users.example.com", "/users/{id}", "/users/**")));
+
+        // When
+        ResolvedRoute route = table.resolve("user-service", "/users/42", true);
+
+        // Then
+        assertNotNull(route);
+        assertEquals("user-service", route.getServiceName());
+        assertEquals("/users/{id}", route.getMatchedPattern());
+        assertEquals("https://users.example.com/users/42", route.getTargetUrl());
+    }
+
+    @Test
+    @DisplayName("Should return null for unknown services and non-whitelisted paths")
+    void shouldReturnNullWhenNotRoutable() {
+        // Given
+        RouteTable table = RouteTable.build(List.of(service("user-service", "https://u", "/users/**")));
+
+        // When & Then
+        assertNull(table.resolve("unknown-service", "/users/1", true));
+        assertNull(table.resolve("user-service", "/posts/1", true));
+        assertNull(table.resolve(null, "/users/1", true));
+        assertNotNull(table.resolve("user-service", "/posts/1", false));
+    }
+
+    @Test
+    @DisplayName("Should match single-segment wildcards, templates and multi-segment wildcards")
+    void shouldMatchSegmentPatterns() {
+        // Given
+        PathPattern single = PathPattern.compile("/users/*/posts");
+        PathPattern template = PathPattern.compile("/users/{id}");
+        PathPattern multi = PathPattern.compile("/api/**");
+        PathPattern middle = PathPattern.compile("/files/**/raw");
+        PathPattern glob = PathPattern.compile("/reports/*.csv");
+
+        // When & Then
+        assertTrue(single.matches("/users/1/posts"));
+        assertFalse(single.matches("/users/1/2/posts"));
+        assertTrue(template.matches("/users/abc"));
+        assertFalse(template.matches("/users"));
+        assertFalse(template.matches("/users/abc/def"));
+        assertTrue(multi.matches("/api"));
+        assertTrue(multi.matches("/api/v1/users/1"));
+        assertFalse(multi.matches("/apis/v1"));
+        assertTrue(middle.matches("/files/raw"));
+        assertTrue(middle.matches("/files/a/b/c/raw"));
+        assertFalse(middle.matches("/files/a/b/c"));
+        assertTrue(glob.matches("/reports/2024.csv"));
+        assertFalse(glob.matches("/reports/2024.json"));
+    }
+
+    @Test
+    @DisplayName("Should keep the first definition when a service name is duplicated")
+    void shouldKeepFirstDuplicateService() {
+        // Given
+        RouteTable table = RouteTable.build(List.of(
+                service("svc", "https://first", "/**"),
+                service("svc", "https://second", "/**")));
+
+        // When
+        ResolvedRoute route = table.resolve("svc", "/x", true);
+
+        // Then
+        assertEquals("https://first/x", route.getTargetUrl());
+    }
+}
@@ -167,8 +167,7 @@ public class SimpleUnitTests {
 
         // When & Then
         assertTrue(whitelistService.isRequestAllowed("api-service", "/api/users"));
-        // Note: The current regex implementation has limitations with ** patterns
-        // assertTrue(whitelistService.isRequestAllowed("api-service", "/api/users/1"));
+        assertTrue(whitelistService.isRequestAllowed("api-service", "/api/users/1"));
         assertTrue(whitelistService.isRequestAllowed("api-service", "/v1/data"));
         assertFalse(whitelistService.isRequestAllowed("api-service", "/other/path"));
     }
@@ -0,0 +1,176 @@
+package com.example.feigngateway.service;
+
+import com.example.feigngateway.config.GatewayProperties;
+import com.example.feigngateway.service.CircuitBreakerService.CircuitState;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("SlidingWindowCircuitBreaker Tests")
+class SlidingWindowCircuitBreakerTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private GatewayProperties.Performance.CircuitBreaker config;
+
+    @BeforeEach
+    void setUp() {
+        config = new GatewayProperties.Performance.CircuitBreaker();
+        config.setSlidingWindowSize(10);
+        config.setMinimumNumberOfCalls(10);
+        config.setFailureRateThreshold(40);
+        config.setSlowCallRateThreshold(50);
+        config.setSlowCallDuration(100);
+        config.setTimeoutDuration(200);
+        config.setPermittedCallsInHalfOpen(2);
+    }
+
+    @Test
+    @DisplayName("Should open on failure rate even when failures are interleaved with successes")
+    void shouldOpenOnFailureRate() {
+        // Given
+        SlidingWindowCircuitBreaker circuitBreaker = new SlidingWindowCircuitBreaker("test-service", config, clock::get);
+
+        // When - every other call fails, which a consecutive-failure counter never notices
+        for (int i = 0; i < 9; i++) {
+            record(circuitBreaker, i % 2 == 0, 0);
+        }
+        assertEquals(CircuitState.CLOSED, circuitBreaker.getState(), "rates are not evaluated below the minimum");
+        record(circuitBreaker, false, 0);
+
+        // Then - 5 of 10 failed
+        assertEquals(CircuitState.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.tryAcquirePermission());
+    }
+
+    @Test
+    @DisplayName("Should only count the most recent calls of the window")
+    void shouldEvictOldestOutcomes() {
+        // Given
+        SlidingWindowCircuitBreaker circuitBreaker = new SlidingWindowCircuitBreaker("test-service", config, clock::get);
+        for (int i = 0; i < 3; i++) {
+            record(circuitBreaker, true, 0);
+        }
+
+        // When - the early failures are pushed out by successes
+        for (int i = 0; i < 20; i++) {
+            record(circuitBreaker, false, 0);
+        }
+
+        // Then
+        assertEquals(CircuitState.CLOSED, circuitBreaker.getState());
+        assertEquals(10, circuitBreaker.getStats().get("bufferedCalls"));
+        assertEquals(0, circuitBreaker.getStats().get("failedCalls"));
+    }
+
+    @Test
+    @DisplayName("Should open on slow-call rate")
+    void shouldOpenOnSlowCallRate() {
+        // Given
+        SlidingWindowCircuitBreaker circuitBreaker = new SlidingWindowCircuitBreaker("test-service", config, clock::get);
+        long slow = TimeUnit.MILLISECONDS.toNanos(150);
+
+        // When - half the calls succeed but exceed the slow-call duration
+        for (int i = 0; i < 10; i++) {
+            record(circuitBreaker, false, i % 2 == 0 ? slow : 0);
+        }
+
+        // Then
+        assertEquals(CircuitState.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    @DisplayName("Should let only the permitted number of trial calls through while half-open")
+    void shouldLimitHalfOpenTrialCalls() throws Exception {
+        // Given
+        SlidingWindowCircuitBreaker circuitBreaker = openCircuitBreaker();
+        elapse(200);
+
+        // When - many threads race for permission after the open timeout
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        List<Callable<Boolean>> attempts = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            attempts.add(circuitBreaker::tryAcquirePermission);
+        }
+        int permitted = 0;
+        for (Future<Boolean> attempt : executor.invokeAll(attempts)) {
+            permitted += attempt.get() ? 1 : 0;
+        }
+        executor.shutdown();
+
+        // Then
+        assertEquals(2, permitted);
+        assertEquals(CircuitState.HALF_OPEN, circuitBreaker.getState());
+        assertEquals(0, circuitBreaker.getStats().get("remainingTrialCalls"));
+    }
+
+    @Test
+    @DisplayName("Should close after successful trial calls and reopen after failing ones")
+    void shouldDecideOnTrialCallOutcomes() {
+        // Given
+        SlidingWindowCircuitBreaker recovering = openCircuitBreaker();
+        SlidingWindowCircuitBreaker failing = openCircuitBreaker();
+        elapse(200);
+
+        // When
+        for (int i = 0; i < 2; i++) {
+            assertTrue(recovering.tryAcquirePermission());
+            recovering.onSuccess(0);
+            assertTrue(failing.tryAcquirePermission());
+            failing.onFailure(0);
+        }
+
+        // Then
+        assertEquals(CircuitState.CLOSED, recovering.getState());
+        assertEquals(0, recovering.getStats().get("bufferedCalls"));
+        assertEquals(CircuitState.OPEN, failing.getState());
+    }
+
+    @Test
+    @DisplayName("Should return trial permissions of calls that never reached the upstream")
+    void shouldReleaseUnusedTrialPermission() {
+        // Given
+        SlidingWindowCircuitBreaker circuitBreaker = openCircuitBreaker();
+        elapse(200);
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        assertFalse(circuitBreaker.tryAcquirePermission());
+
+        // When
+        circuitBreaker.releasePermission();
+
+        // Then
+        assertTrue(circuitBreaker.tryAcquirePermission());
+    }
+
+    private SlidingWindowCircuitBreaker openCircuitBreaker() {
+        SlidingWindowCircuitBreaker circuitBreaker = new SlidingWindowCircuitBreaker("test-service", config, clock::get);
+        for (int i = 0; i < 10; i++) {
+            record(circuitBreaker, true, 0);
+        }
+        assertEquals(CircuitState.OPEN, circuitBreaker.getState());
+        return circuitBreaker;
+    }
+
+    private void elapse(long millis) {
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    private static void record(SlidingWindowCircuitBreaker circuitBreaker, boolean failed, long durationNanos) {
+        if (failed) {
+            circuitBreaker.onFailure(durationNanos);
+        } else {
+            circuitBreaker.onSuccess(durationNanos);
+        }
+    }
+}
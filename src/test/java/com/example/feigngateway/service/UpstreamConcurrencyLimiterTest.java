@@ -0,0 +1,100 @@
+package com.example.feigngateway.service;
+
+import com.example.feigngateway.config.GatewayProperties;
+import com.example.feigngateway.config.GatewayWhitelistProperties;
+import com.example.feigngateway.exception.ServiceUnavailableException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UpstreamConcurrencyLimiterTest {
+
+    private GatewayProperties properties;
+    private GatewayWhitelistProperties whitelistProperties;
+    private UpstreamConcurrencyLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        properties = new GatewayProperties();
+        properties.getPerformance().getThreadPool().setMaxConcurrentPerUpstream(1);
+        properties.getPerformance().getThreadPool().setUpstreamAcquireTimeout(50);
+        whitelistProperties = new GatewayWhitelistProperties();
+        limiter = new UpstreamConcurrencyLimiter(properties, whitelistProperties);
+    }
+
+    @Test
+    @DisplayName("Should key permits by upstream origin")
+    void shouldKeyPermitsByUpstreamOrigin() {
+        assertEquals("http://localhost:8081", UpstreamConcurrencyLimiter.upstreamKey("http://localhost:8081/api/v1"));
+        assertEquals("https://example.com", UpstreamConcurrencyLimiter.upstreamKey("https://example.com"));
+        assertEquals("unknown", UpstreamConcurrencyLimiter.upstreamKey(null));
+    }
+
+    @Test
+    @DisplayName("Should reject when upstream permits are exhausted")
+    void shouldRejectWhenUpstreamPermitsAreExhausted() throws Exception {
+        // Given
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = Thread.ofVirtual().start(() -> limiter.execute("svc-a", "http://upstream:8080/a", () -> {
+            holding.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }));
+        assertTrue(holding.await(1, TimeUnit.SECONDS));
+
+        // When / Then - a second service on the same origin shares the permit
+        assertThrows(ServiceUnavailableException.class,
+            () -> limiter.execute("svc-b", "http://upstream:8080/b", () -> "never"));
+        assertEquals("other", limiter.execute("svc-c", "http://other:8080", () -> "other"));
+
+        release.countDown();
+        holder.join();
+        assertEquals("ok", limiter.execute("svc-a", "http://upstream:8080/a", () -> "ok"));
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> upstreamStats = (Map<String, Object>) limiter.getStats().get("http://upstream:8080");
+        assertEquals(1L, upstreamStats.get("rejected"));
+        assertEquals(0, upstreamStats.get("inFlight"));
+    }
+
+    @Test
+    @DisplayName("Should apply the service's concurrency limit override before the upstream permit")
+    void shouldRejectOverServiceConcurrencyLimit() {
+        // Given - svc-a may have one call in flight, svc-b keeps the global limit
+        properties.getPerformance().getThreadPool().setMaxConcurrentPerUpstream(10);
+        GatewayWhitelistProperties.ConcurrencyLimit override = new GatewayWhitelistProperties.ConcurrencyLimit();
+        override.setEnabled(true);
+        override.setInitialLimit(1);
+        override.setMinLimit(1);
+        override.setMaxQueueWait(0L);
+        GatewayWhitelistProperties.ServiceConfig serviceConfig = new GatewayWhitelistProperties.ServiceConfig();
+        serviceConfig.setName("svc-a");
+        serviceConfig.setConcurrencyLimit(override);
+        whitelistProperties.setServices(List.of(serviceConfig));
+        limiter.tryAcquire("svc-a", "http://upstream:8080/a");
+
+        // When / Then
+        assertThrows(ServiceUnavailableException.class, () -> limiter.tryAcquire("svc-a", "http://upstream:8080/a"));
+        assertEquals("b", limiter.execute("svc-b", "http://upstream:8080/b", () -> "b"));
+        limiter.release("svc-a", "http://upstream:8080/a", TimeUnit.MILLISECONDS.toNanos(5), false);
+        assertEquals("a", limiter.execute("svc-a", "http://upstream:8080/a", () -> "a"));
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> serviceStats = (Map<String, Object>) limiter.getServiceLimitStats().get("svc-a");
+        assertEquals(1, serviceStats.get("limit"));
+        assertEquals(0, serviceStats.get("inFlight"));
+        assertEquals(1L, serviceStats.get("rejected"));
+    }
+}